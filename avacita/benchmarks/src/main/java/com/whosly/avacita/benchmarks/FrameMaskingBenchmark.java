@@ -0,0 +1,120 @@
+package com.whosly.avacita.benchmarks;
+
+import com.whosly.avacita.core.mask.rule.MaskingConfigMeta;
+import com.whosly.avacita.core.mask.rule.MaskingPlan;
+import com.whosly.avacita.core.mask.rule.MaskingRuleConfig;
+import org.apache.calcite.avatica.ColumnMetaData;
+import org.apache.calcite.avatica.Meta.Frame;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 整帧脱敏（{@code MaskingJdbcMeta.desensitizeFrame} 所执行的 {@link MaskingPlan}）的基准测试。
+ * <p>
+ * 合成 rows × columns 的数据帧，其中每 4 列有 1 列需要脱敏（mask_middle）；
+ * distinct 为脱敏列中不同值的个数，用于观察记忆化对低基数列与高基数列的影响。
+ * 由于脱敏是就地改写，每次调用前从原始数据恢复行内容，这部分开销包含在结果中，可用 {@link #restoreOnly} 扣除。
+ * <p>
+ * 使用 {@code java -jar benchmarks/target/benchmarks.jar FrameMaskingBenchmark -prof gc} 运行，
+ * 关注 {@code gc.alloc.rate.norm}：每帧分配应只与需脱敏的单元格数相关。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FrameMaskingBenchmark {
+
+    @Param({"100", "10000"})
+    public int rows;
+
+    @Param({"4", "32"})
+    public int columns;
+
+    @Param({"16", "1000000"})
+    public int distinct;
+
+    private Object[][] pristine;
+    private List<Object> frameRows;
+
+    private MaskingPlan plan;
+    private MaskingPlan planWithoutMemo;
+    private MaskingPlan passthroughPlan;
+    private ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<ColumnMetaData> columnMetaData = new ArrayList<>(columns);
+        List<MaskingRuleConfig> rules = new ArrayList<>();
+        for (int c = 0; c < columns; c++) {
+            columnMetaData.add(column(c, "c" + c));
+            if (c % 4 == 0) {
+                rules.add(new MaskingRuleConfig("demo", "t_emp", "c" + c, "mask_middle", new String[0]));
+            }
+        }
+
+        MaskingConfigMeta maskingConfigMeta = new MaskingConfigMeta(rules);
+        this.plan = MaskingPlan.compile(columnMetaData, maskingConfigMeta, true);
+        this.planWithoutMemo = MaskingPlan.compile(columnMetaData, maskingConfigMeta, false);
+        this.passthroughPlan = MaskingPlan.compile(columnMetaData, new MaskingConfigMeta(new ArrayList<>()));
+        this.pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+        this.pristine = new Object[rows][columns];
+        this.frameRows = new ArrayList<>(rows);
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                pristine[r][c] = String.valueOf(13800000000L + (r % distinct) * 7 + c);
+            }
+            frameRows.add(pristine[r].clone());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public Frame restoreOnly() {
+        return restore();
+    }
+
+    @Benchmark
+    public Frame passthrough() {
+        return passthroughPlan.apply(restore());
+    }
+
+    @Benchmark
+    public Frame sequential() {
+        return planWithoutMemo.apply(restore());
+    }
+
+    @Benchmark
+    public Frame memoized() {
+        return plan.apply(restore());
+    }
+
+    @Benchmark
+    public Frame parallel() {
+        return planWithoutMemo.apply(restore(), pool, 0);
+    }
+
+    private Frame restore() {
+        for (int r = 0; r < rows; r++) {
+            System.arraycopy(pristine[r], 0, (Object[]) frameRows.get(r), 0, columns);
+        }
+        return new Frame(0, true, frameRows);
+    }
+
+    private static ColumnMetaData column(int ordinal, String name) {
+        return new ColumnMetaData(ordinal, false, true, false, false, 1, true, 64, name, name, "demo",
+                0, 0, "t_emp", "demo", ColumnMetaData.scalar(Types.VARCHAR, "VARCHAR", ColumnMetaData.Rep.STRING),
+                true, false, false, String.class.getName());
+    }
+}
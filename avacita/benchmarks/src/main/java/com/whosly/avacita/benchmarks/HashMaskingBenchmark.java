@@ -0,0 +1,65 @@
+package com.whosly.avacita.benchmarks;
+
+import com.whosly.avacita.core.mask.util.HashMasker;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.MessageDigest;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HASH 脱敏引擎的基准测试。
+ * <p>
+ * {@link #legacyMd5} 为改造前的实现（每个值 MessageDigest.getInstance + String.format 逐字节格式化），作为对照；
+ * 使用 {@code java -jar benchmarks/target/benchmarks.jar HashMaskingBenchmark -prof gc} 运行。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HashMaskingBenchmark {
+
+    /**
+     * 典型的客户编号
+     */
+    @Param({"C202400018846"})
+    public String value;
+
+    private HashMasker md5;
+    private HashMasker sha256;
+    private HashMasker hmacSha256;
+
+    @Setup
+    public void setUp() {
+        this.md5 = HashMasker.of(new String[0]);
+        this.sha256 = HashMasker.of(new String[]{"sha256"});
+        this.hmacSha256 = HashMasker.of(new String[]{"hmac_sha256", "benchmark-secret"});
+    }
+
+    @Benchmark
+    public String legacyMd5() throws Exception {
+        MessageDigest md = MessageDigest.getInstance("MD5");
+        byte[] hashBytes = md.digest(value.getBytes());
+        StringBuilder sb = new StringBuilder();
+        for (byte b : hashBytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    @Benchmark
+    public String md5() {
+        return md5.hash(value);
+    }
+
+    @Benchmark
+    public String sha256() {
+        return sha256.hash(value);
+    }
+
+    @Benchmark
+    public String hmacSha256() {
+        return hmacSha256.hash(value);
+    }
+}
@@ -0,0 +1,83 @@
+package com.whosly.avacita.benchmarks;
+
+import com.whosly.avacita.core.mask.util.MaskKernels;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 字符串掩码内核的基准测试。
+ * <p>
+ * 使用 {@code java -jar benchmarks/target/benchmarks.jar MaskKernelsBenchmark -prof gc} 运行，
+ * 对比各内核与 {@link #resultOnly} 的 {@code gc.alloc.rate.norm}（每次调用分配的字节数）：
+ * 二者相同即说明内核除了结果 String 本身之外没有任何中间分配。
+ * {@link #legacyStringBuilder} 为改造前基于 StringBuilder + substring 的实现，作为对照。
+ * <p>
+ * 64 及以上长度的 String 走 Latin-1 字节内核。以 {@code mvn -Pvector package} 构建时 benchmarks.jar 包含 core-vector，
+ * fork 的 JVM 加载 jdk.incubator.vector，使用向量实现；追加 {@code -jvmArgsAppend -Davacita.mask.vector=false} 运行即为标量实现，
+ * 用于对比二者的耗时。默认构建不含 core-vector，始终为标量实现。
+ * {@link #maskLeftCharSequence} 的输入不是 String，始终走 char[] 内核。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Thread)
+public class MaskKernelsBenchmark {
+
+    @Param({"11", "64", "256", "512"})
+    public int length;
+
+    private String value;
+    private StringBuilder charSequenceValue;
+    private char[] valueChars;
+
+    @Setup
+    public void setUp() {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) ('0' + i % 10);
+        }
+        this.value = new String(chars);
+        this.charSequenceValue = new StringBuilder(value);
+        this.valueChars = chars;
+    }
+
+    /**
+     * 只分配一个与结果等长的 String，作为"零中间分配"的参照值
+     */
+    @Benchmark
+    public String resultOnly() {
+        return new String(valueChars, 0, length);
+    }
+
+    @Benchmark
+    public String maskLeft() {
+        return MaskKernels.splice(value, 4, length - 4, 0);
+    }
+
+    @Benchmark
+    public String maskRight() {
+        return MaskKernels.splice(value, 0, length - 4, 4);
+    }
+
+    @Benchmark
+    public String maskMiddleStride() {
+        return MaskKernels.stride(value, 3, 2, 4);
+    }
+
+    @Benchmark
+    public String maskLeftCharSequence() {
+        return MaskKernels.splice(charSequenceValue, 4, length - 4, 0);
+    }
+
+    @Benchmark
+    public String legacyStringBuilder() {
+        StringBuilder masked = new StringBuilder(value.substring(0, 4));
+        for (int i = 4; i < value.length(); i++) {
+            masked.append('*');
+        }
+        return masked.toString();
+    }
+}
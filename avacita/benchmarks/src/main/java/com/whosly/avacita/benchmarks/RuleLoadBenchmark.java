@@ -0,0 +1,151 @@
+package com.whosly.avacita.benchmarks;
+
+import com.whosly.avacita.core.mask.rule.MaskingConfigMeta;
+import com.whosly.avacita.core.mask.rule.MaskingRuleBatch;
+import com.whosly.avacita.core.mask.rule.MaskingRuleCompiler;
+import com.whosly.avacita.core.mask.rule.MaskingRuleConfig;
+import com.whosly.avacita.core.mask.rule.MaskingRuleSource;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 规则加载（启动与热加载）耗时的基准测试：逐行解析 CSV 并构建索引，对比内存映射编译好的二进制规则库，
+ * 以及在已加载的规则上应用一次增量同步（如数据库规则表每次轮询到的少量变更）。
+ * <p>
+ * 规则按每表 20 列、50 个 schema 分布，参数覆盖单参数、多参数与正则规则。
+ * 配合 -prof gc 可以看到两种格式加载时的分配量。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RuleLoadBenchmark {
+
+    private static final int COLUMNS_PER_TABLE = 20;
+    private static final String[] RULES = {"mask_full,", "mask_left,4", "mask_middle,3,4", "regex,\\d{3},***", "hash,"};
+    /**
+     * 每次增量同步修改的规则数（分布在不同的表）
+     */
+    private static final int DELTA_SIZE = 10;
+
+    @Param({"10000", "300000"})
+    public int ruleCount;
+
+    private Path dir;
+    private Path csvFile;
+    private Path storeFile;
+    private MaskingConfigMeta deltaMeta;
+    private DeltaSource deltaSource;
+
+    @Setup
+    public void setUp() throws IOException {
+        this.dir = Files.createTempDirectory("avacita-rules");
+        this.csvFile = dir.resolve("masking_rules.csv");
+        this.storeFile = dir.resolve("masking_rules.bin");
+        writeRules(csvFile, ruleCount);
+        MaskingRuleCompiler.compile(csvFile, storeFile);
+
+        this.deltaSource = new DeltaSource(ruleCount);
+        this.deltaMeta = new MaskingConfigMeta(deltaSource);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        deltaMeta.shutdown();
+        Files.deleteIfExists(csvFile);
+        Files.deleteIfExists(storeFile);
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public long loadCsv() {
+        return load(csvFile);
+    }
+
+    @Benchmark
+    public long loadStore() {
+        return load(storeFile);
+    }
+
+    @Benchmark
+    public long syncDelta() {
+        deltaSource.onChange.run();
+        return deltaMeta.getVersion();
+    }
+
+    private static long load(Path file) {
+        MaskingConfigMeta maskingConfigMeta = new MaskingConfigMeta(file.toString());
+        maskingConfigMeta.shutdown();
+        return maskingConfigMeta.getVersion();
+    }
+
+    /**
+     * 首次同步返回 ruleCount 条规则，之后每次同步返回 DELTA_SIZE 条修改（交替改变规则类型，保证每次都有变化）
+     */
+    private static final class DeltaSource implements MaskingRuleSource {
+        private final int ruleCount;
+        private Runnable onChange;
+        private boolean synced;
+        private int round;
+
+        private DeltaSource(int ruleCount) {
+            this.ruleCount = ruleCount;
+        }
+
+        @Override
+        public MaskingRuleBatch sync() {
+            if (!synced) {
+                synced = true;
+                List<MaskingRuleConfig> rules = new ArrayList<>(ruleCount);
+                for (int i = 0; i < ruleCount; i++) {
+                    rules.add(rule(i, "mask_full"));
+                }
+                return MaskingRuleBatch.full(rules);
+            }
+            round++;
+            List<MaskingRuleConfig> upserts = new ArrayList<>(DELTA_SIZE);
+            for (int d = 0; d < DELTA_SIZE; d++) {
+                upserts.add(rule((round * DELTA_SIZE + d) * COLUMNS_PER_TABLE % ruleCount, round % 2 == 0 ? "mask_full" : "hash"));
+            }
+            return MaskingRuleBatch.delta(upserts, Collections.emptyList());
+        }
+
+        private static MaskingRuleConfig rule(int i, String ruleType) {
+            return new MaskingRuleConfig("schema_" + (i % 50), "t_table_" + (i / COLUMNS_PER_TABLE),
+                    "c_column_" + (i % COLUMNS_PER_TABLE), ruleType, new String[0]);
+        }
+
+        @Override
+        public void watch(Runnable onChange) {
+            this.onChange = onChange;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * 写入 ruleCount 条规则的 CSV 规则文件
+     */
+    static void writeRules(Path csvFile, int ruleCount) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(csvFile, StandardCharsets.UTF_8)) {
+            writer.write("schema,table,column,rule_type,rule_params...,enabled\n");
+            for (int i = 0; i < ruleCount; i++) {
+                writer.write("schema_" + (i % 50) + ",t_table_" + (i / COLUMNS_PER_TABLE) + ",c_column_"
+                        + (i % COLUMNS_PER_TABLE) + "," + RULES[i % RULES.length] + ",TRUE\n");
+            }
+        }
+    }
+}
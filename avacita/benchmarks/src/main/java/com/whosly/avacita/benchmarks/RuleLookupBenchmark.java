@@ -0,0 +1,133 @@
+package com.whosly.avacita.benchmarks;
+
+import com.whosly.avacita.core.mask.rule.MaskingConfigMeta;
+import com.whosly.avacita.core.mask.rule.MaskingRuleCompiler;
+import com.whosly.avacita.core.mask.rule.MaskingRuleConfig;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 规则查找（{@code MaskingConfigMeta.getMatchingRule}）随规则数量增长的基准测试。
+ * <p>
+ * 规则按每表 10 列分布；分别测量命中（大小写一致 / 不一致）、表存在但列不存在、表不存在几种查找，
+ * 以及编译脱敏计划时的表级判断（{@code hasTableRules}，表不存在时由表级过滤器直接排除）。
+ * format 为 index 时规则构建为堆内索引，为 store 时编译为二进制规则库后内存映射查找。
+ * 查找参数全部保存在字段中，避免被 JIT 当作常量折叠。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RuleLookupBenchmark {
+
+    private static final int COLUMNS_PER_TABLE = 10;
+
+    @Param({"10", "1000", "100000"})
+    public int ruleCount;
+
+    @Param({"index", "store"})
+    public String format;
+
+    private MaskingConfigMeta maskingConfigMeta;
+    private String schema;
+    private String hitTable;
+    private String hitColumn;
+    private String upperSchema;
+    private String upperHitTable;
+    private String upperHitColumn;
+    private String unknownTable;
+    private String unknownColumn;
+
+    @Setup
+    public void setUp() throws IOException {
+        if ("store".equals(format)) {
+            this.maskingConfigMeta = compileStore();
+        } else {
+            List<MaskingRuleConfig> rules = new ArrayList<>(ruleCount);
+            for (int i = 0; i < ruleCount; i++) {
+                rules.add(new MaskingRuleConfig("demo", "t_table_" + (i / COLUMNS_PER_TABLE), "c_column_" + (i % COLUMNS_PER_TABLE),
+                        "mask_full", new String[0]));
+            }
+            this.maskingConfigMeta = new MaskingConfigMeta(rules);
+        }
+
+        // 查找参数与规则中的字符串是不同的实例，与从结果集元数据中取到的列名一致
+        int last = ruleCount - 1;
+        this.schema = new String("demo");
+        this.hitTable = "t_table_" + (last / COLUMNS_PER_TABLE);
+        this.hitColumn = "c_column_" + (last % COLUMNS_PER_TABLE);
+        this.upperSchema = schema.toUpperCase();
+        this.upperHitTable = hitTable.toUpperCase();
+        this.upperHitColumn = hitColumn.toUpperCase();
+        this.unknownTable = "t_unknown";
+        this.unknownColumn = "c_unknown";
+    }
+
+    @TearDown
+    public void tearDown() {
+        maskingConfigMeta.shutdown();
+    }
+
+    /**
+     * 与 index 相同的规则写成 CSV 后编译为规则库
+     */
+    private MaskingConfigMeta compileStore() throws IOException {
+        Path dir = Files.createTempDirectory("avacita-rules");
+        Path csvFile = dir.resolve("masking_rules.csv");
+        Path storeFile = dir.resolve("masking_rules.bin");
+        try (BufferedWriter writer = Files.newBufferedWriter(csvFile, StandardCharsets.UTF_8)) {
+            writer.write("schema,table,column,rule_type,rule_params...,enabled\n");
+            for (int i = 0; i < ruleCount; i++) {
+                writer.write("demo,t_table_" + (i / COLUMNS_PER_TABLE) + ",c_column_" + (i % COLUMNS_PER_TABLE)
+                        + ",mask_full,,TRUE\n");
+            }
+        }
+        MaskingRuleCompiler.compile(csvFile, storeFile);
+        MaskingConfigMeta store = new MaskingConfigMeta(storeFile.toString());
+        // 映射在文件删除后仍然有效
+        Files.delete(csvFile);
+        Files.delete(storeFile);
+        Files.delete(dir);
+        return store;
+    }
+
+    @Benchmark
+    public MaskingRuleConfig hit() {
+        return maskingConfigMeta.getMatchingRule(schema, hitTable, hitColumn);
+    }
+
+    @Benchmark
+    public MaskingRuleConfig hitIgnoreCase() {
+        return maskingConfigMeta.getMatchingRule(upperSchema, upperHitTable, upperHitColumn);
+    }
+
+    @Benchmark
+    public MaskingRuleConfig missColumn() {
+        return maskingConfigMeta.getMatchingRule(schema, hitTable, unknownColumn);
+    }
+
+    @Benchmark
+    public MaskingRuleConfig missTable() {
+        return maskingConfigMeta.getMatchingRule(schema, unknownTable, hitColumn);
+    }
+
+    @Benchmark
+    public boolean hasTableRules() {
+        return maskingConfigMeta.hasTableRules(schema, hitTable);
+    }
+
+    @Benchmark
+    public boolean missTableRules() {
+        return maskingConfigMeta.hasTableRules(schema, unknownTable);
+    }
+}
@@ -0,0 +1,65 @@
+package com.whosly.avacita.benchmarks;
+
+import com.whosly.avacita.core.mask.rule.MaskingRuleConfig;
+import com.whosly.avacita.core.mask.util.ValueMasker;
+import com.whosly.avacita.core.mask.util.ValueMaskingStrategy;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单值脱敏的基准测试，按规则类型分别测量。
+ * <p>
+ * {@link #mask} 为 {@code ValueMaskingStrategy.mask}（每次调用都解析规则），
+ * {@link #compiled} 为编译后的 {@link ValueMasker}（数据帧脱敏时实际走的路径）。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ValueMaskingStrategyBenchmark {
+
+    @Param({"mask_full", "mask_left", "mask_right", "mask_middle", "partial", "hash", "round", "regex"})
+    public String ruleType;
+
+    private MaskingRuleConfig rule;
+    private ValueMasker masker;
+    private Object value;
+
+    @Setup
+    public void setUp() {
+        switch (ruleType) {
+            case "mask_left":
+            case "mask_right":
+                this.rule = new MaskingRuleConfig("demo", "t_emp", "c", ruleType, new String[]{"4"});
+                break;
+            case "mask_middle":
+            case "partial":
+                this.rule = new MaskingRuleConfig("demo", "t_emp", "c", ruleType, new String[]{"3", "4"});
+                break;
+            case "round":
+                this.rule = new MaskingRuleConfig("demo", "t_emp", "c", ruleType, new String[]{"100"});
+                break;
+            case "regex":
+                this.rule = new MaskingRuleConfig("demo", "t_emp", "c", ruleType, new String[]{"\\d", "*"});
+                break;
+            default:
+                this.rule = new MaskingRuleConfig("demo", "t_emp", "c", ruleType, new String[0]);
+                break;
+        }
+        this.masker = ValueMaskingStrategy.compile(rule);
+        this.value = "round".equals(ruleType) ? (Object) 123456.78d : "13812345678";
+    }
+
+    @Benchmark
+    public Object mask() {
+        return ValueMaskingStrategy.mask(value, rule);
+    }
+
+    @Benchmark
+    public Object compiled() {
+        return masker.mask(value);
+    }
+}
@@ -0,0 +1,76 @@
+package com.whosly.avacita.core.mask.vector;
+
+import com.whosly.avacita.core.mask.util.VectorOps;
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * 基于 jdk.incubator.vector 的 Latin-1 字节内核。
+ * <p>
+ * 以 ServiceLoader 注册为 {@link VectorOps} 的实现，本模块位于 classpath 且以 --add-modules jdk.incubator.vector 启动时由 core 加载；
+ * 否则不会被加载，由标量实现代替。
+ */
+public final class VectorKernels implements VectorOps {
+
+    private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_PREFERRED;
+
+    private static final VectorSpecies<Short> SHORTS = ShortVector.SPECIES_PREFERRED;
+
+    /**
+     * 与 SHORTS 通道数相同的 byte 向量（位宽为其一半），用于 char 到 Latin-1 字节的收窄
+     */
+    private static final VectorSpecies<Byte> NARROW_BYTES =
+            VectorSpecies.of(byte.class, VectorShape.forBitSize(SHORTS.vectorBitSize() / 2));
+
+    public VectorKernels() {
+    }
+
+    /**
+     * 硬件支持至少 128 位的向量时才值得使用
+     */
+    @Override
+    public boolean isUsable() {
+        return BYTES.length() >= 16;
+    }
+
+    /**
+     * buf[from, to) 全部写为 value
+     */
+    @Override
+    public void fill(byte[] buf, int from, int to, byte value) {
+        ByteVector v = ByteVector.broadcast(BYTES, value);
+        int i = from;
+        for (int bound = from + BYTES.loopBound(to - from); i < bound; i += BYTES.length()) {
+            v.intoArray(buf, i);
+        }
+        for (; i < to; i++) {
+            buf[i] = value;
+        }
+    }
+
+    /**
+     * 将 src[0, length) 收窄为 Latin-1 字节写入 dst，出现非 Latin-1 字符时返回 false
+     */
+    @Override
+    public boolean narrow(char[] src, int length, byte[] dst, int dstBegin) {
+        int i = 0;
+        for (int bound = SHORTS.loopBound(length); i < bound; i += SHORTS.length()) {
+            ShortVector v = ShortVector.fromCharArray(SHORTS, src, i);
+            if (v.and((short) 0xFF00).compare(VectorOperators.NE, (short) 0).anyTrue()) {
+                return false;
+            }
+            ((ByteVector) v.convertShape(VectorOperators.S2B, NARROW_BYTES, 0)).intoArray(dst, dstBegin + i);
+        }
+        for (; i < length; i++) {
+            char c = src[i];
+            if (c > 0xFF) {
+                return false;
+            }
+            dst[dstBegin + i] = (byte) c;
+        }
+        return true;
+    }
+}
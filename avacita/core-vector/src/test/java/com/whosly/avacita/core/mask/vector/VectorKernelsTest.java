@@ -0,0 +1,54 @@
+package com.whosly.avacita.core.mask.vector;
+
+import com.whosly.avacita.core.mask.util.MaskKernels;
+import com.whosly.avacita.core.mask.util.VectorOps;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.ServiceLoader;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 向量化掩码内核测试：结果应与标量实现完全一致
+ */
+public class VectorKernelsTest {
+
+    @Test
+    void testLoadedByCore() {
+        assumeTrue(new VectorKernels().isUsable(), "硬件不支持 128 位及以上的向量");
+        assertTrue(ServiceLoader.load(VectorOps.class).stream()
+                .anyMatch(provider -> provider.type() == VectorKernels.class));
+
+        String value = "0123456789abcdef".repeat(8);
+        assertEquals("0123" + "*".repeat(124) + "cdef", MaskKernels.splice(value, 4, 124, 4));
+    }
+
+    @Test
+    void testFillAndNarrow() {
+        VectorKernels vector = new VectorKernels();
+        for (int length : new int[]{0, 1, 15, 16, 17, 63, 64, 65, 257}) {
+            byte[] buf = new byte[length + 6];
+            vector.fill(buf, 3, length + 3, (byte) '*');
+            byte[] expected = new byte[length + 6];
+            Arrays.fill(expected, 3, length + 3, (byte) '*');
+            assertArrayEquals(expected, buf, "fill/" + length);
+
+            char[] src = new char[length];
+            for (int i = 0; i < length; i++) {
+                src[i] = (char) (i * 7 % 256);
+            }
+            byte[] dst = new byte[length + 2];
+            assertTrue(vector.narrow(src, length, dst, 2));
+            assertEquals(new String(src), new String(dst, 2, length, StandardCharsets.ISO_8859_1), "narrow/" + length);
+
+            if (length > 0) {
+                // 最后一个字符不是 Latin-1
+                src[length - 1] = '地';
+                assertFalse(vector.narrow(src, length, dst, 2), "narrow/" + length);
+            }
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package com.whosly.avacita.core.mask.meta;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 表结构元数据缓存，供 SELECT * 展开使用。
+ * <p>
+ * 启动时以一次 INFORMATION_SCHEMA.COLUMNS 查询批量加载所连 schema 下全部表的列（按 ORDINAL_POSITION 排序），
+ * 首个查询某表的 SQL 不需要再为该表访问一次 DatabaseMetaData。
+ * <p>
+ * 后台每 pollMillis 毫秒执行一次轻量探测（列数、表数与表的最大 CREATE_TIME），发现 DDL（增删表或列、重建表的 ALTER）时重新加载；
+ * 探测不到的变化（如 INSTANT 算法的改列名）由每 ttlMillis 毫秒一次的全量刷新兜底。重新加载的结果整体替换当前快照，
+ * 内容有变化时通知监听器（如清除依赖列信息的改写缓存）。
+ * <p>
+ * 未加载过的 schema（如连接 USE 到其他库）在首次查找时整体批量加载一次；已加载 schema 中找不到的表（上次刷新后新建）单独查询一次，
+ * 仍找不到的表（CTE 名、拼写错误、已删除的表）记录为不存在，直到下次重新加载前不再查询。
+ * schema 与表名忽略大小写。
+ */
+public class SchemaMetadataCache implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(SchemaMetadataCache.class);
+
+    public static final long DEFAULT_POLL_MILLIS = 30_000L;
+    public static final long DEFAULT_TTL_MILLIS = 600_000L;
+
+    private static final String COLUMNS_QUERY = "SELECT TABLE_SCHEMA, TABLE_NAME, COLUMN_NAME FROM INFORMATION_SCHEMA.COLUMNS"
+            + " WHERE TABLE_SCHEMA IN (%s) ORDER BY TABLE_SCHEMA, TABLE_NAME, ORDINAL_POSITION";
+
+    private static final String TABLE_QUERY = "SELECT TABLE_SCHEMA, TABLE_NAME, COLUMN_NAME FROM INFORMATION_SCHEMA.COLUMNS"
+            + " WHERE TABLE_SCHEMA = ? AND TABLE_NAME = ? ORDER BY ORDINAL_POSITION";
+
+    private static final String PROBE_QUERY = "SELECT"
+            + " (SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_SCHEMA IN (%1$s)),"
+            + " (SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA IN (%1$s)),"
+            + " (SELECT MAX(CREATE_TIME) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA IN (%1$s))";
+
+    /**
+     * 获取数据库连接，连接出错后会关闭并重新获取
+     */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection open() throws SQLException;
+    }
+
+    private final ConnectionFactory connectionFactory;
+    private final long pollMillis;
+    private final long ttlMillis;
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    // 归一化的 schema -> 查询用的 schema 名
+    private final Map<String, String> schemas = new ConcurrentHashMap<>();
+    // 归一化的 schema.table -> 列名（按列顺序）
+    private volatile Map<String, List<String>> columns = new ConcurrentHashMap<>();
+    // 查询过但不存在的 schema.table，随快照一起替换
+    private volatile Set<String> missing = ConcurrentHashMap.newKeySet();
+
+    private Connection connection;
+    private String defaultSchema;
+    private String probe;
+    private long loadedAt;
+    private ScheduledExecutorService refresher;
+
+    public SchemaMetadataCache(String url, Properties info) {
+        this(() -> DriverManager.getConnection(url, info), Collections.emptyList(), DEFAULT_POLL_MILLIS, DEFAULT_TTL_MILLIS);
+    }
+
+    /**
+     * @param schemas 启动时加载的 schema，为空时加载连接的当前库
+     */
+    public SchemaMetadataCache(ConnectionFactory connectionFactory, Collection<String> schemas, long pollMillis, long ttlMillis) {
+        this.connectionFactory = connectionFactory;
+        this.pollMillis = pollMillis;
+        this.ttlMillis = ttlMillis;
+        for (String schema : schemas) {
+            this.schemas.put(normalize(schema), schema);
+        }
+    }
+
+    /**
+     * 批量加载并开始后台刷新，重复调用无效果；加载失败时只记录告警，查找时再按 schema 加载
+     */
+    public synchronized void start() {
+        if (refresher != null) {
+            return;
+        }
+        try {
+            reload(probe());
+        } catch (SQLException e) {
+            closeConnection();
+            LOG.warn("加载表结构元数据失败", e);
+        }
+        refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "avacita-schema-metadata-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::refresh, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 元数据连接的当前库，启动时未指定 schema 则批量加载该库
+     */
+    public synchronized String getDefaultSchema() {
+        if (defaultSchema == null) {
+            try {
+                connection();
+            } catch (SQLException e) {
+                closeConnection();
+                LOG.warn("获取元数据连接失败", e);
+            }
+        }
+        return defaultSchema;
+    }
+
+    /**
+     * 表的列名（按列顺序），表不存在或无法读取时返回空列表
+     *
+     * @param schema 表所在的库：SQL 中指定的库或客户端连接的当前库，为 null 时返回空列表
+     */
+    public List<String> getColumns(String schema, String table) {
+        if (schema == null || table == null) {
+            return Collections.emptyList();
+        }
+        String key = key(schema, table);
+        List<String> cached = columns.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        if (missing.contains(key)) {
+            return Collections.emptyList();
+        }
+        return loadMissing(schema, table, key);
+    }
+
+    private synchronized List<String> loadMissing(String schema, String table, String key) {
+        List<String> cached = columns.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        if (missing.contains(key)) {
+            return Collections.emptyList();
+        }
+        try {
+            if (schemas.putIfAbsent(normalize(schema), schema) == null) {
+                // 首次访问该 schema：整体批量加载，之后该库其他表的查找都在缓存中命中
+                load(Collections.singletonList(schema), columns);
+            } else {
+                load(TABLE_QUERY, columns, schema, table);
+            }
+        } catch (SQLException e) {
+            // 查询失败不记为不存在，下次查找时重试
+            closeConnection();
+            LOG.warn("获取表 {}.{} 列信息失败: {}", schema, table, e.getMessage());
+            return Collections.emptyList();
+        }
+        cached = columns.get(key);
+        if (cached == null) {
+            missing.add(key);
+            return Collections.emptyList();
+        }
+        return cached;
+    }
+
+    /**
+     * 探测 DDL 变化或 TTL 到期时重新加载，由后台线程定期调用
+     */
+    public synchronized void refresh() {
+        try {
+            String current = probe();
+            boolean expired = System.currentTimeMillis() - loadedAt >= ttlMillis;
+            if (!expired && (current == null || current.equals(probe))) {
+                return;
+            }
+            reload(current);
+        } catch (SQLException e) {
+            closeConnection();
+            LOG.warn("刷新表结构元数据失败", e);
+        } catch (RuntimeException e) {
+            LOG.warn("刷新表结构元数据失败", e);
+        }
+    }
+
+    /**
+     * 重新加载全部 schema，probe 为加载前取得的探测值
+     */
+    private void reload(String probe) throws SQLException {
+        Map<String, List<String>> loaded = new ConcurrentHashMap<>();
+        load(new ArrayList<>(schemas.values()), loaded);
+        boolean changed = !loaded.equals(columns);
+        columns = loaded;
+        missing = ConcurrentHashMap.newKeySet();
+        this.probe = probe;
+        loadedAt = System.currentTimeMillis();
+        LOG.debug("加载表结构元数据：{} 个 schema，{} 张表", schemas.size(), loaded.size());
+        if (changed) {
+            for (Runnable listener : listeners) {
+                listener.run();
+            }
+        }
+    }
+
+    /**
+     * 探测值：列数、表数与最大 CREATE_TIME，数据库不支持时返回 null（只按 TTL 刷新）
+     */
+    private String probe() throws SQLException {
+        if (schemas.isEmpty()) {
+            String schema = getDefaultSchema();
+            if (schema == null) {
+                throw new SQLException("无法获取元数据连接的当前库");
+            }
+            schemas.put(normalize(schema), schema);
+        }
+        List<String> names = new ArrayList<>(schemas.values());
+        String sql = String.format(PROBE_QUERY, placeholders(names.size()));
+        try (PreparedStatement statement = connection().prepareStatement(sql)) {
+            for (int i = 0; i < 3; i++) {
+                bind(statement, i * names.size(), names);
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() ? rs.getString(1) + "/" + rs.getString(2) + "/" + rs.getString(3) : null;
+            }
+        } catch (SQLException e) {
+            if (connection != null && !connection.isClosed() && connection.isValid(1)) {
+                LOG.debug("表结构探测查询不可用，按 TTL 刷新: {}", e.getMessage());
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    private void load(List<String> names, Map<String, List<String>> target) throws SQLException {
+        load(String.format(COLUMNS_QUERY, placeholders(names.size())), target, names.toArray());
+    }
+
+    private void load(String sql, Map<String, List<String>> target, Object... params) throws SQLException {
+        Map<String, List<String>> tables = new ConcurrentHashMap<>();
+        try (PreparedStatement statement = connection().prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) {
+                statement.setObject(i + 1, params[i]);
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    tables.computeIfAbsent(key(rs.getString(1), rs.getString(2)), k -> new ArrayList<>()).add(rs.getString(3));
+                }
+            }
+        }
+        tables.forEach((key, names) -> target.put(key, Collections.unmodifiableList(names)));
+    }
+
+    private static void bind(PreparedStatement statement, int offset, List<String> names) throws SQLException {
+        for (int i = 0; i < names.size(); i++) {
+            statement.setString(offset + i + 1, names.get(i));
+        }
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private Connection connection() throws SQLException {
+        if (connection == null) {
+            connection = connectionFactory.open();
+            defaultSchema = connection.getCatalog();
+        }
+        return connection;
+    }
+
+    private static String key(String schema, String table) {
+        return normalize(schema) + "." + normalize(table);
+    }
+
+    private static String normalize(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+        closeConnection();
+    }
+
+    private void closeConnection() {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            LOG.warn("关闭元数据连接失败", e);
+        }
+        connection = null;
+    }
+
+    @Override
+    public String toString() {
+        return "SchemaMetadataCache{schemas=" + schemas.values() + ", tables=" + columns.size() + "}";
+    }
+}
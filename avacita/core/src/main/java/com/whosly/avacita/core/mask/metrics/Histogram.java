@@ -0,0 +1,98 @@
+package com.whosly.avacita.core.mask.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 固定分桶的直方图，按 Prometheus histogram 的语义导出（le 为桶的上界，含等于）。
+ * <p>
+ * 每个桶是一个 LongAdder，记录时只做一次线性查找加一次累加，不加锁、不分配对象，可在请求线程上直接调用。
+ * 分位数按桶上界估算，精度取决于分桶粒度。
+ */
+public final class Histogram {
+
+    /**
+     * 耗时分桶（纳秒）：50µs ~ 10s
+     */
+    static final long[] LATENCY_NANOS_BOUNDS = {
+            50_000L, 100_000L, 250_000L, 500_000L,
+            1_000_000L, 2_500_000L, 5_000_000L, 10_000_000L, 25_000_000L, 50_000_000L,
+            100_000_000L, 250_000_000L, 500_000_000L,
+            1_000_000_000L, 2_500_000_000L, 5_000_000_000L, 10_000_000_000L
+    };
+
+    /**
+     * 数据帧行数分桶
+     */
+    static final long[] FRAME_ROWS_BOUNDS = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L
+    };
+
+    private final long[] bounds;
+    /**
+     * 各桶（非累计）计数，最后一个为 +Inf 桶
+     */
+    private final LongAdder[] buckets;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+
+    Histogram(long[] bounds) {
+        this.bounds = bounds;
+        this.buckets = new LongAdder[bounds.length + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long value) {
+        int i = 0;
+        while (i < bounds.length && value > bounds[i]) {
+            i++;
+        }
+        buckets[i].increment();
+        count.increment();
+        sum.add(value);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public long[] getBounds() {
+        return bounds;
+    }
+
+    /**
+     * 各桶的累计计数（第 i 个为所有不大于 bounds[i] 的记录数，最后一个为总数）
+     */
+    public long[] cumulativeCounts() {
+        long[] counts = new long[buckets.length];
+        long total = 0L;
+        for (int i = 0; i < buckets.length; i++) {
+            total += buckets[i].sum();
+            counts[i] = total;
+        }
+        return counts;
+    }
+
+    /**
+     * 估算分位数：返回累计计数首次达到 quantile 的桶上界；落在 +Inf 桶时返回最大上界，没有记录时返回 0
+     */
+    public long quantile(double quantile) {
+        long[] counts = cumulativeCounts();
+        long total = counts[counts.length - 1];
+        if (total == 0L) {
+            return 0L;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        for (int i = 0; i < bounds.length; i++) {
+            if (counts[i] >= rank) {
+                return bounds[i];
+            }
+        }
+        return bounds[bounds.length - 1];
+    }
+}
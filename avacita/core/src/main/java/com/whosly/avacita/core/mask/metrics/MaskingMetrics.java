@@ -0,0 +1,242 @@
+package com.whosly.avacita.core.mask.metrics;
+
+import com.whosly.avacita.core.mask.rule.MaskingRuleType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 脱敏服务的运行指标：各规则类型的脱敏单元格数、各阶段耗时直方图、数据帧行数分布、脱敏计划缓存与帧内记忆化的命中情况。
+ * <p>
+ * 所有计数均为 LongAdder，记录时不加锁，可在请求线程和并行脱敏线程上直接调用；
+ * 通过 JMX（{@link #registerMBean()}）和 Prometheus 文本格式（server-query-mask 的 MaskingMetricsHandler）导出。
+ * <p>
+ * 序列化耗时无法在 Meta 内测得：Avatica 处理器记录整个请求的耗时（{@link MaskingMetricsSystem}），
+ * 减去同一线程在本次请求中已记录的 Meta 阶段（编译脱敏计划、后端执行、脱敏）耗时，即为反序列化请求、序列化并写出响应的耗时。
+ */
+public final class MaskingMetrics implements MaskingMetricsMXBean {
+    private static final Logger LOG = LoggerFactory.getLogger(MaskingMetrics.class);
+
+    public static final String OBJECT_NAME = "com.whosly.avacita:type=MaskingMetrics";
+
+    /**
+     * 请求处理的各个阶段
+     */
+    public enum Phase {
+        /**
+         * 按 Signature 编译脱敏计划（含规则查找）
+         */
+        COMPILE,
+        /**
+         * 后端执行 SQL 并读取数据帧（prepareAndExecute / fetch）
+         */
+        EXECUTE,
+        /**
+         * 数据帧脱敏
+         */
+        MASK,
+        /**
+         * 请求反序列化、响应序列化及写出
+         */
+        SERIALIZE,
+        /**
+         * 整个请求
+         */
+        REQUEST,
+        ;
+
+        public String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final Histogram[] phaseLatency = new Histogram[Phase.values().length];
+    private final LongAdder[] maskedCells = new LongAdder[MaskingRuleType.values().length];
+    private final Histogram frameRows = new Histogram(Histogram.FRAME_ROWS_BOUNDS);
+    private final LongAdder maskedFrames = new LongAdder();
+    private final LongAdder passthroughFrames = new LongAdder();
+    private final LongAdder planCacheHits = new LongAdder();
+    private final LongAdder planCacheMisses = new LongAdder();
+    private final LongAdder memoHits = new LongAdder();
+    private final LongAdder memoMisses = new LongAdder();
+
+    /**
+     * 当前线程在本次请求中已记录的 Meta 阶段耗时：[0] 为纳秒数，[1] 为阶段数
+     */
+    private final ThreadLocal<long[]> requestMetaNanos = ThreadLocal.withInitial(() -> new long[2]);
+
+    public MaskingMetrics() {
+        for (int i = 0; i < phaseLatency.length; i++) {
+            phaseLatency[i] = new Histogram(Histogram.LATENCY_NANOS_BOUNDS);
+        }
+        for (int i = 0; i < maskedCells.length; i++) {
+            maskedCells[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * 注册到平台 MBeanServer，失败（如重复注册）时只记录告警
+     */
+    public void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            LOG.warn("注册脱敏指标 MBean 失败: {}", OBJECT_NAME, e);
+        }
+    }
+
+    // ====================== 记录 ======================
+
+    /**
+     * 记录一个 Meta 阶段从 startNanos（System.nanoTime）到现在的耗时，并累计到当前线程的请求耗时中
+     */
+    public void recordPhase(Phase phase, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        phaseLatency[phase.ordinal()].record(elapsed);
+
+        long[] meta = requestMetaNanos.get();
+        meta[0] += elapsed;
+        meta[1]++;
+    }
+
+    /**
+     * 请求开始：清零当前线程的 Meta 阶段耗时
+     *
+     * @return 请求开始时间（System.nanoTime）
+     */
+    long beginRequest() {
+        long[] meta = requestMetaNanos.get();
+        meta[0] = 0L;
+        meta[1] = 0L;
+        return System.nanoTime();
+    }
+
+    /**
+     * 请求结束：记录整个请求的耗时；请求中有 Meta 阶段被记录时（即查询类请求），剩余部分记为序列化耗时
+     */
+    void endRequest(long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        phaseLatency[Phase.REQUEST.ordinal()].record(elapsed);
+
+        long[] meta = requestMetaNanos.get();
+        if (meta[1] > 0) {
+            phaseLatency[Phase.SERIALIZE.ordinal()].record(Math.max(0L, elapsed - meta[0]));
+        }
+    }
+
+    public void recordFrame(int rows, boolean passthrough) {
+        frameRows.record(rows);
+        (passthrough ? passthroughFrames : maskedFrames).increment();
+    }
+
+    public void recordMaskedCells(MaskingRuleType ruleType, long cells) {
+        if (cells > 0) {
+            maskedCells[ruleType.ordinal()].add(cells);
+        }
+    }
+
+    public void recordPlanCache(boolean hit) {
+        (hit ? planCacheHits : planCacheMisses).increment();
+    }
+
+    public void recordMemo(long hits, long misses) {
+        memoHits.add(hits);
+        memoMisses.add(misses);
+    }
+
+    // ====================== 读取 ======================
+
+    public Histogram getPhaseLatency(Phase phase) {
+        return phaseLatency[phase.ordinal()];
+    }
+
+    public Histogram getFrameRows() {
+        return frameRows;
+    }
+
+    public long getMaskedCells(MaskingRuleType ruleType) {
+        return maskedCells[ruleType.ordinal()].sum();
+    }
+
+    public long getPlanCacheHits() {
+        return planCacheHits.sum();
+    }
+
+    public long getPlanCacheMisses() {
+        return planCacheMisses.sum();
+    }
+
+    public long getMemoHits() {
+        return memoHits.sum();
+    }
+
+    public long getMemoMisses() {
+        return memoMisses.sum();
+    }
+
+    @Override
+    public Map<String, Long> getMaskedCells() {
+        Map<String, Long> cells = new LinkedHashMap<>();
+        for (MaskingRuleType ruleType : MaskingRuleType.values()) {
+            cells.put(ruleType.name().toLowerCase(Locale.ROOT), getMaskedCells(ruleType));
+        }
+        return cells;
+    }
+
+    @Override
+    public long getMaskedFrames() {
+        return maskedFrames.sum();
+    }
+
+    @Override
+    public long getPassthroughFrames() {
+        return passthroughFrames.sum();
+    }
+
+    @Override
+    public long getFrameRowsP99() {
+        return frameRows.quantile(0.99);
+    }
+
+    @Override
+    public double getPlanCacheHitRate() {
+        return rate(getPlanCacheHits(), getPlanCacheMisses());
+    }
+
+    @Override
+    public double getMemoHitRate() {
+        return rate(getMemoHits(), getMemoMisses());
+    }
+
+    @Override
+    public Map<String, Double> getLatencyMeanMillis() {
+        Map<String, Double> latency = new LinkedHashMap<>();
+        for (Phase phase : Phase.values()) {
+            Histogram histogram = getPhaseLatency(phase);
+            long count = histogram.getCount();
+            latency.put(phase.label(), count == 0L ? 0D : histogram.getSum() / 1e6 / count);
+        }
+        return latency;
+    }
+
+    @Override
+    public Map<String, Double> getLatencyP99Millis() {
+        Map<String, Double> latency = new LinkedHashMap<>();
+        for (Phase phase : Phase.values()) {
+            latency.put(phase.label(), getPhaseLatency(phase).quantile(0.99) / 1e6);
+        }
+        return latency;
+    }
+
+    private static double rate(long hits, long misses) {
+        long total = hits + misses;
+        return total == 0L ? 0D : (double) hits / total;
+    }
+}
@@ -0,0 +1,49 @@
+package com.whosly.avacita.core.mask.metrics;
+
+import java.util.Map;
+
+/**
+ * 脱敏指标的 JMX 视图，注册名为 {@link MaskingMetrics#OBJECT_NAME}
+ */
+public interface MaskingMetricsMXBean {
+
+    /**
+     * 按脱敏规则类型统计的已脱敏单元格数
+     */
+    Map<String, Long> getMaskedCells();
+
+    /**
+     * 经过脱敏的数据帧数
+     */
+    long getMaskedFrames();
+
+    /**
+     * 无需脱敏、原样透传的数据帧数
+     */
+    long getPassthroughFrames();
+
+    /**
+     * 数据帧行数的 P99（按分桶上界估算）
+     */
+    long getFrameRowsP99();
+
+    /**
+     * 脱敏计划缓存（fetch 时按语句、执行时按结果集列）的命中率
+     */
+    double getPlanCacheHitRate();
+
+    /**
+     * 帧内记忆化的命中率
+     */
+    double getMemoHitRate();
+
+    /**
+     * 各阶段耗时的平均值（毫秒）
+     */
+    Map<String, Double> getLatencyMeanMillis();
+
+    /**
+     * 各阶段耗时的 P99（毫秒，按分桶上界估算）
+     */
+    Map<String, Double> getLatencyP99Millis();
+}
@@ -0,0 +1,62 @@
+package com.whosly.avacita.core.mask.metrics;
+
+import org.apache.calcite.avatica.metrics.Counter;
+import org.apache.calcite.avatica.metrics.Gauge;
+import org.apache.calcite.avatica.metrics.Meter;
+import org.apache.calcite.avatica.metrics.MetricsSystem;
+import org.apache.calcite.avatica.metrics.Timer;
+import org.apache.calcite.avatica.metrics.noop.NoopMetricsSystem;
+
+/**
+ * 接入 Avatica 处理器的 MetricsSystem。
+ * <p>
+ * AvaticaProtobufHandler 用名为 *.RequestTimings 的 Timer 包住整个请求（读取请求、调用 Service、写出响应），
+ * 这里将其接到 {@link MaskingMetrics} 的请求耗时与序列化耗时上；其余指标沿用 Noop 实现。
+ */
+public class MaskingMetricsSystem implements MetricsSystem {
+
+    private static final String REQUEST_TIMINGS = "RequestTimings";
+
+    private final MaskingMetrics maskingMetrics;
+    private final Timer requestTimer;
+
+    public MaskingMetricsSystem(MaskingMetrics maskingMetrics) {
+        this.maskingMetrics = maskingMetrics;
+        this.requestTimer = () -> {
+            long startNanos = maskingMetrics.beginRequest();
+            return () -> maskingMetrics.endRequest(startNanos);
+        };
+    }
+
+    public MaskingMetrics getMaskingMetrics() {
+        return maskingMetrics;
+    }
+
+    @Override
+    public Timer getTimer(String name) {
+        if (name.endsWith(REQUEST_TIMINGS)) {
+            return requestTimer;
+        }
+        return NoopMetricsSystem.getInstance().getTimer(name);
+    }
+
+    @Override
+    public org.apache.calcite.avatica.metrics.Histogram getHistogram(String name) {
+        return NoopMetricsSystem.getInstance().getHistogram(name);
+    }
+
+    @Override
+    public Meter getMeter(String name) {
+        return NoopMetricsSystem.getInstance().getMeter(name);
+    }
+
+    @Override
+    public Counter getCounter(String name) {
+        return NoopMetricsSystem.getInstance().getCounter(name);
+    }
+
+    @Override
+    public <T> void register(String name, Gauge<T> gauge) {
+        NoopMetricsSystem.getInstance().register(name, gauge);
+    }
+}
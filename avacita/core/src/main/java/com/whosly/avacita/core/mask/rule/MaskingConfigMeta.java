@@ -0,0 +1,269 @@
+package com.whosly.avacita.core.mask.rule;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 脱敏的配置
+ * <p>
+ * 规则来自一个 {@link MaskingRuleSource}：规则文件（{@link MaskingRuleFileSource}，按路径构造时使用，监听文件变更），
+ * 或数据库规则表（{@link MaskingRuleJdbcSource}，按版本列增量同步）。
+ * <p>
+ * 每次加载在后台线程上得到完整的规则集，构建为新版本的不可变索引后，通过一个 volatile 引用整体替换：
+ * 查询线程不加锁，始终看到某个完整版本的规则，不会出现规则被清空或只加载了一半的窗口。
+ * 规则源给出增量时，在当前索引上只重建涉及的表（{@link MaskingRuleIndex#apply}），不重新加载全部规则。
+ * 加载失败（文件暂时不可读、格式错误、数据库不可用等）时保留当前版本。
+ * 新版本生效后，将规则有变化的表（{@link MaskingRuleChange}）通知给已注册的 {@link MaskingRuleListener}，
+ * 按表派生的缓存只需刷新这些表。
+ * 建议通过"写临时文件 + 重命名"的方式原子地替换配置文件，避免读到正在写入的内容。
+ * <p>
+ * 配置文件既可以是 CSV，也可以是由 {@link MaskingRuleCompiler} 编译的二进制规则库（按文件头识别）：
+ * 后者直接内存映射查找，不逐行解析、不为每条规则建对象，适合规则数量很大的场景。
+ * <p>
+ * schema/table/column 可使用通配符 * 与 ?（如 *,t_emp_*,tel 覆盖所有分表），见 {@link MaskingRulePatterns}；
+ * 精确规则优先于通配符规则。
+ * <p>
+ * 每个版本的规则集附带表级过滤器（{@link MaskingTableFilter}），查找时先只按表名排除没有任何规则的表。
+ * 另附带 SQL 词法预过滤（{@link MaskingSqlFilter}），改写 SQL 前按原始文本排除不可能引用脱敏列的查询，随规则版本一起构建、替换。
+ */
+public class MaskingConfigMeta {
+    private static final Logger LOG = LoggerFactory.getLogger(MaskingConfigMeta.class);
+
+    /**
+     * 指定脱敏规则文件路径的系统属性（文件系统路径或 classpath 资源）
+     */
+    public static final String RULES_PATH_PROPERTY = "avacita.mask.rules";
+
+    // A regex to parse CSV rows. Handles quoted fields.
+    private static final Pattern CSV_PATTERN = Pattern.compile("(\"[^\"]*\"|[^,]*)(,|$)");
+
+    /**
+     * 规则来源，直接使用给定规则构建时为 null
+     */
+    private final MaskingRuleSource ruleSource;
+    /**
+     * 规则索引（带版本号的不可变快照），每次加载完成后整体替换
+     */
+    private volatile MaskingRuleLookup ruleIndex = MaskingRuleIndex.EMPTY;
+    /**
+     * 与规则索引同一版本的 SQL 词法预过滤，先于规则索引替换
+     */
+    private volatile MaskingSqlFilter sqlFilter = MaskingSqlFilter.EMPTY;
+    private final List<MaskingRuleListener> ruleListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 从规则文件（文件系统路径或 classpath 资源）加载
+     */
+    public MaskingConfigMeta(String configPath) {
+        this(new MaskingRuleFileSource(configPath));
+    }
+
+    public MaskingConfigMeta(MaskingRuleSource ruleSource) {
+        this.ruleSource = ruleSource;
+
+        loadConfig();
+        ruleSource.watch(this::reload);
+    }
+
+    /**
+     * 直接使用给定的规则构建，不读取配置文件，也不做热加载（用于基准测试等场景）
+     */
+    public MaskingConfigMeta(List<MaskingRuleConfig> rules) {
+        this.ruleSource = null;
+        this.ruleIndex = MaskingRuleIndex.build(rules, 1L);
+        this.sqlFilter = MaskingSqlFilter.build(this.ruleIndex);
+    }
+
+    // 从规则源加载，只在构造函数和监听线程中调用
+    private synchronized void loadConfig() {
+        MaskingRuleLookup previous = this.ruleIndex;
+        long version = previous.version() + 1;
+        MaskingRuleBatch batch;
+        try {
+            batch = ruleSource.sync();
+        } catch (IOException e) {
+            throw new RuntimeException("加载脱敏配置失败", e);
+        }
+        if (batch == null) {
+            return;
+        }
+
+        MaskingRuleLookup lookup;
+        if (batch.getStore() != null) {
+            lookup = batch.getStore().withVersion(version);
+        } else if (batch.isDelta()) {
+            if (!(previous instanceof MaskingRuleIndex)) {
+                throw new IllegalStateException("增量规则只能应用到已加载的规则集上: " + ruleSource);
+            }
+            lookup = ((MaskingRuleIndex) previous).apply(batch.getRules(), batch.getRemovals(), version);
+        } else {
+            lookup = MaskingRuleIndex.build(batch.getRules(), version);
+            if (LOG.isTraceEnabled()) {
+                LOG.trace("脱敏规则：{}。", StringUtils.join(
+                        batch.getRules().stream().map(r -> r.getSchema() + "." + r.getTable() + "." + r.getColumn()).toList(), ","));
+            }
+        }
+
+        // 构建完成后整体替换，查询线程始终看到完整的规则集；预过滤先替换，新增规则的表不会被旧的预过滤排除
+        this.sqlFilter = MaskingSqlFilter.build(lookup);
+        this.ruleIndex = lookup;
+        if (!ruleListeners.isEmpty()) {
+            notifyRuleListeners(new MaskingRuleChange(previous.version(), version, lookup.changedTables(previous),
+                    lookup.patterns().changedPatterns(previous.patterns())));
+        }
+        LOG.trace("成功加载脱敏配置: {}，版本: {}，规则数量: {}。", ruleSource, version, lookup.size());
+    }
+
+    /**
+     * 按加载顺序解析 CSV 规则文件中启用的规则（首行为表头，跳过空行与 # 开头的注释行，字段可用双引号包围）
+     */
+    static List<MaskingRuleConfig> parseRules(byte[] content) throws IOException {
+        List<MaskingRuleConfig> rules = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8))) {
+            String line;
+            boolean isHeader = true;
+            while ((line = reader.readLine()) != null) {
+                if (isHeader) {
+                    isHeader = false;
+                    continue;
+                }
+                if (line.trim().isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                List<String> parts = new ArrayList<>();
+                Matcher matcher = CSV_PATTERN.matcher(line);
+                while (matcher.find()) {
+                    String part = matcher.group(1);
+                    // Remove quotes if present
+                    if (part.length() >= 2 && part.startsWith("\"") && part.endsWith("\"")) {
+                        part = part.substring(1, part.length() - 1);
+                    }
+                    parts.add(part.trim());
+                    // 匹配到行尾即结束
+                    if (matcher.group(2).isEmpty()) {
+                        break;
+                    }
+                }
+
+                if (parts.size() < 6) continue;
+
+                String schema = parts.get(0);
+                String table = parts.get(1);
+                String column = parts.get(2);
+                String ruleType = parts.get(3);
+                // enabled 固定为最后一列，rule_params 为中间的一列或多列（如 mask_middle,3,4,TRUE）
+                boolean enabled = Boolean.parseBoolean(parts.get(parts.size() - 1));
+
+                if (!enabled) continue;
+
+                String[] ruleParams = parseRuleParams(parts.subList(4, parts.size() - 1));
+
+                MaskingRuleConfig rule = new MaskingRuleConfig(
+                        schema, table, column, ruleType, ruleParams
+                );
+                if (rule.getRegexMasker() != null && !rule.getRegexMasker().isValid()) {
+                    LOG.warn("正则脱敏规则语法错误，将降级为全掩码: {}.{}.{}, regex: {}",
+                            schema, table, column, rule.getRegexMasker().getRegex());
+                }
+
+                rules.add(rule);
+            }
+        }
+        return rules;
+    }
+
+    /**
+     * 每个参数列内部还允许使用 ';' 分隔多个参数
+     */
+    private static String[] parseRuleParams(List<String> paramColumns) {
+        return paramColumns.stream()
+                .filter(StringUtils::isNotBlank)
+                .flatMap(paramsStr -> Arrays.stream(paramsStr.split(";")))
+                .map(String::trim)
+                .toArray(String[]::new);
+    }
+
+    private void notifyRuleListeners(MaskingRuleChange change) {
+        if (change.isEmpty()) {
+            return;
+        }
+        LOG.info("脱敏规则版本 {} -> {}，规则变化的表: {}", change.getPreviousVersion(), change.getVersion(), change.getChangedTables());
+        for (MaskingRuleListener listener : ruleListeners) {
+            try {
+                listener.onRulesChanged(change);
+            } catch (RuntimeException e) {
+                LOG.error("脱敏规则变更通知失败: {}", listener, e);
+            }
+        }
+    }
+
+    /**
+     * 注册规则变更监听器，在之后每次有表的规则发生变化时回调
+     */
+    public void addRuleListener(MaskingRuleListener listener) {
+        ruleListeners.add(listener);
+    }
+
+    public void removeRuleListener(MaskingRuleListener listener) {
+        ruleListeners.remove(listener);
+    }
+
+    private void reload() {
+        try {
+            loadConfig();
+        } catch (Exception e) {
+            LOG.error("重新加载脱敏配置失败，继续使用版本 {} 的规则", ruleIndex.version(), e);
+        }
+    }
+
+    /**
+     * 当前生效的规则版本号，每次加载递增
+     */
+    public long getVersion() {
+        return ruleIndex.version();
+    }
+
+    // 新增按列名匹配规则（忽略大小写，先经表级过滤器排除没有规则的表，再 O(1) 哈希查找，未命中时匹配通配符规则）
+    public MaskingRuleConfig getMatchingRule(String schema, String table, String column) {
+        MaskingRuleLookup lookup = ruleIndex;
+        return lookup.tableFilter().mightHaveRules(schema, table) ? lookup.get(schema, table, column) : null;
+    }
+
+    // 表级快速判断：该表是否存在任何脱敏规则（含可能匹配的通配符规则），绝大多数没有规则的表由表级过滤器直接排除
+    public boolean hasTableRules(String schema, String table) {
+        MaskingRuleLookup lookup = ruleIndex;
+        return lookup.tableFilter().mightHaveRules(schema, table) && lookup.hasTableRules(schema, table);
+    }
+
+    // SQL 词法预过滤：返回 false 时该 SQL 一定不引用需要脱敏的列（未出现有规则的表名，或未出现有规则的列名与 *），可不经解析直接执行
+    public boolean mightReferenceMaskedColumns(String sql) {
+        return sqlFilter.mightReference(sql);
+    }
+
+    // 根据表名和字段名查找脱敏规则
+    public List<MaskingRuleConfig> getRule(String schema, String table) {
+        MaskingRuleLookup lookup = ruleIndex;
+        return lookup.tableFilter().mightHaveRules(schema, table) ? lookup.getTableRules(schema, table) : Collections.emptyList();
+    }
+
+    // 根据表名和字段名查找脱敏规则
+    public MaskingRuleConfig getRule(String schema, String table, String column) {
+        return getMatchingRule(schema, table, column);
+    }
+
+    // 关闭资源
+    public void shutdown() {
+        if (ruleSource != null) {
+            ruleSource.close();
+        }
+    }
+}
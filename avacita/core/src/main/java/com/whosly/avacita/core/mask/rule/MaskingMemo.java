@@ -0,0 +1,141 @@
+package com.whosly.avacita.core.mask.rule;
+
+import com.whosly.avacita.core.mask.util.ValueMasker;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 低基数列的字典记忆化（部门、城市、状态码等）。
+ * <p>
+ * 每个数据帧（并行脱敏时为每个行区间）为每个需脱敏列建立一个有界字典：值 -&gt; 脱敏结果，
+ * 同一个值在帧内只脱敏一次，之后直接复用结果。
+ * 命中统计按列跨帧累计在 {@link ColumnStats} 中，采样足够后命中率仍低于阈值的列自动关闭记忆化，
+ * 避免高基数列（手机号、证件号）白白付出查表开销。
+ */
+final class MaskingMemo {
+
+    /**
+     * 行数少于该值的数据帧不做记忆化
+     */
+    static final int MIN_ROWS = 32;
+
+    /**
+     * 单帧单列字典最多缓存的不同值个数
+     */
+    static final int MAX_ENTRIES = 256;
+
+    /**
+     * 累计查找次数达到该值后才判断命中率
+     */
+    static final int SAMPLE_SIZE = 1024;
+
+    /**
+     * 命中率低于该值的列关闭记忆化
+     */
+    static final double MIN_HIT_RATE = 0.5;
+
+    private MaskingMemo() {
+    }
+
+    /**
+     * 单列跨帧累计的命中统计
+     */
+    static final class ColumnStats {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private volatile boolean enabled = true;
+
+        void record(int frameHits, int frameMisses) {
+            if (frameHits == 0 && frameMisses == 0) {
+                return;
+            }
+            hits.add(frameHits);
+            misses.add(frameMisses);
+
+            if (enabled) {
+                long h = hits.sum();
+                long total = h + misses.sum();
+                if (total >= SAMPLE_SIZE && h < total * MIN_HIT_RATE) {
+                    enabled = false;
+                }
+            }
+        }
+
+        boolean isEnabled() {
+            return enabled;
+        }
+
+        long getHits() {
+            return hits.sum();
+        }
+
+        long getMisses() {
+            return misses.sum();
+        }
+    }
+
+    /**
+     * 单帧（或单个行区间）内单列的有界字典，开放寻址，装载因子不超过 0.5，只在单线程内使用
+     */
+    static final class FrameMemo {
+        private final Object[] keys;
+        private final Object[] values;
+        private final int mask;
+        private final int limit;
+
+        private int size;
+        private int hits;
+        private int misses;
+        /**
+         * 字典已满且帧内命中率过低时，本帧剩余的值直接脱敏，不再查表
+         */
+        private boolean bypass;
+
+        FrameMemo(int expectedRows) {
+            this.limit = Math.min(expectedRows, MAX_ENTRIES);
+            int capacity = 2;
+            while (capacity < limit * 2) {
+                capacity <<= 1;
+            }
+            this.keys = new Object[capacity];
+            this.values = new Object[capacity];
+            this.mask = capacity - 1;
+        }
+
+        Object mask(Object value, ValueMasker masker) {
+            if (bypass) {
+                return masker.mask(value);
+            }
+
+            int h = value.hashCode();
+            int slot = (h ^ (h >>> 16)) & mask;
+            Object key;
+            while ((key = keys[slot]) != null) {
+                if (key == value || key.equals(value)) {
+                    hits++;
+                    return values[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            misses++;
+            Object masked = masker.mask(value);
+            if (size < limit) {
+                keys[slot] = value;
+                values[slot] = masked;
+                size++;
+            } else if (hits < (hits + misses) * MIN_HIT_RATE) {
+                bypass = true;
+            }
+            return masked;
+        }
+
+        int getHits() {
+            return hits;
+        }
+
+        int getMisses() {
+            return misses;
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package com.whosly.avacita.core.mask.rule;
+
+import com.whosly.avacita.core.mask.metrics.MaskingMetrics;
+import com.whosly.avacita.core.mask.util.ValueMasker;
+import com.whosly.avacita.core.mask.util.ValueMaskingStrategy;
+import org.apache.calcite.avatica.ColumnMetaData;
+import org.apache.calcite.avatica.Meta.Frame;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 按 Signature 编译好的脱敏计划。
+ * <p>
+ * Signature 首次出现时，将每个 ColumnMetaData 解析为对应列位置上的 {@link ValueMasker}（无需脱敏的列为 null），
+ * 之后同一语句的每个数据帧（firstFrame 以及 fetch 返回的帧）只需按列下标循环，不再逐行查找规则。
+ * <p>
+ * 没有任何列需要脱敏时（{@link #isPassthrough()}），数据帧原样返回，不做任何拷贝；
+ * 否则只就地改写需要脱敏的列位置，不克隆行数组。
+ * 数据帧中的行数组由 JdbcMeta 从 ResultSet 逐帧新建，不与其他请求共享，可以安全地就地修改。
+ * <p>
+ * 大数据帧可通过 {@link #apply(Frame, ForkJoinPool, int)} 按行区间拆分并发脱敏，
+ * 由于是就地改写，各区间完成后行顺序保持不变，无需再合并。
+ * <p>
+ * 启用记忆化时，每个数据帧（并行时为每个行区间）内同一列的相同值只脱敏一次（见 {@link MaskingMemo}），
+ * 命中率低的列会自动关闭记忆化。
+ * <p>
+ * 计划记录编译时的列元数据、所依据的规则集及其涉及的表，规则变更时只需重新编译涉及变更表的计划（见 {@link #dependsOn(MaskingRuleChange)}）。
+ * <p>
+ * 编译时传入 {@link MaskingMetrics} 的计划，在每个数据帧（或行区间）完成后，按规则类型累计脱敏的单元格数以及记忆化命中数。
+ */
+public final class MaskingPlan {
+
+    private static final int[] NO_COLUMNS = new int[0];
+
+    /**
+     * 编译时的列元数据
+     */
+    private final List<ColumnMetaData> columns;
+
+    /**
+     * 编译所依据的规则集（按连接区分脱敏策略时，各连接的计划可能来自不同的规则集）
+     */
+    private final MaskingConfigMeta maskingConfigMeta;
+
+    /**
+     * 结果集涉及的表，见 {@link MaskingRuleIndex#tableKey(String, String)}
+     */
+    private final Set<String> tables;
+
+    /**
+     * 按列位置排列的脱敏器，null 表示该列不脱敏
+     */
+    private final ValueMasker[] maskers;
+
+    /**
+     * 需要脱敏的列下标（升序）
+     */
+    private final int[] maskedColumns;
+
+    /**
+     * 与 maskedColumns 一一对应的记忆化命中统计，未启用记忆化时为 null
+     */
+    private final MaskingMemo.ColumnStats[] memoStats;
+
+    /**
+     * 与 maskedColumns 一一对应的脱敏规则类型
+     */
+    private final MaskingRuleType[] ruleTypes;
+
+    /**
+     * 运行指标，可为 null（不统计）
+     */
+    private final MaskingMetrics metrics;
+
+    private MaskingPlan(List<ColumnMetaData> columns, MaskingConfigMeta maskingConfigMeta, Set<String> tables, ValueMasker[] maskers,
+                        int[] maskedColumns, MaskingRuleType[] ruleTypes, boolean memoize, MaskingMetrics metrics) {
+        this.columns = columns;
+        this.maskingConfigMeta = maskingConfigMeta;
+        this.tables = tables;
+        this.maskers = maskers;
+        this.maskedColumns = maskedColumns;
+        this.ruleTypes = ruleTypes;
+        this.metrics = metrics;
+        this.memoStats = memoize ? new MaskingMemo.ColumnStats[maskedColumns.length] : null;
+        if (memoize) {
+            for (int k = 0; k < maskedColumns.length; k++) {
+                memoStats[k] = new MaskingMemo.ColumnStats();
+            }
+        }
+    }
+
+    /**
+     * 根据结果集的列元数据编译脱敏计划（启用记忆化）
+     */
+    public static MaskingPlan compile(List<ColumnMetaData> columns, MaskingConfigMeta maskingConfigMeta) {
+        return compile(columns, maskingConfigMeta, true);
+    }
+
+    /**
+     * 根据结果集的列元数据编译脱敏计划
+     *
+     * @param memoize 是否对低基数列启用帧内记忆化
+     */
+    public static MaskingPlan compile(List<ColumnMetaData> columns, MaskingConfigMeta maskingConfigMeta, boolean memoize) {
+        return compile(columns, maskingConfigMeta, memoize, null);
+    }
+
+    /**
+     * 根据结果集的列元数据编译脱敏计划，并将每个数据帧的脱敏统计累计到 metrics
+     *
+     * @param memoize 是否对低基数列启用帧内记忆化
+     * @param metrics 运行指标，为 null 时不统计
+     */
+    public static MaskingPlan compile(List<ColumnMetaData> columns, MaskingConfigMeta maskingConfigMeta, boolean memoize,
+                                      MaskingMetrics metrics) {
+        if (columns == null) {
+            return new MaskingPlan(Collections.emptyList(), maskingConfigMeta, Collections.emptySet(), new ValueMasker[0], NO_COLUMNS, new MaskingRuleType[0], false, metrics);
+        }
+
+        ValueMasker[] maskers = new ValueMasker[columns.size()];
+        int[] maskedColumns = new int[maskers.length];
+        MaskingRuleType[] ruleTypes = new MaskingRuleType[maskers.length];
+        Set<String> tables = new LinkedHashSet<>();
+        int maskedCount = 0;
+        // 结果集的列大多来自同一张表：相邻列的表相同时沿用上一次表级判断的结果，没有规则的表不再逐列查找
+        String lastSchema = null;
+        String lastTable = null;
+        boolean tableHasRules = false;
+
+        for (int i = 0; i < maskers.length; i++) {
+            ColumnMetaData column = columns.get(i);
+            String schema = StringUtils.defaultIfEmpty(column.schemaName, column.catalogName);
+            if (StringUtils.isNotEmpty(column.tableName)) {
+                tables.add(MaskingRuleIndex.tableKey(schema, column.tableName));
+            }
+            if (i == 0 || !StringUtils.equals(schema, lastSchema) || !StringUtils.equals(column.tableName, lastTable)) {
+                lastSchema = schema;
+                lastTable = column.tableName;
+                tableHasRules = maskingConfigMeta.hasTableRules(schema, column.tableName);
+            }
+            MaskingRuleConfig columnRule = !tableHasRules ? null : maskingConfigMeta.getMatchingRule(
+                    schema,
+                    column.tableName,
+                    column.columnName
+            );
+            maskers[i] = ValueMaskingStrategy.compile(columnRule);
+            if (maskers[i] != null) {
+                ruleTypes[maskedCount] = columnRule.getRuleType();
+                maskedColumns[maskedCount++] = i;
+            }
+        }
+
+        return new MaskingPlan(columns, maskingConfigMeta, tables, maskers, maskedCount == 0 ? NO_COLUMNS : Arrays.copyOf(maskedColumns, maskedCount),
+                Arrays.copyOf(ruleTypes, maskedCount), memoize, metrics);
+    }
+
+    /**
+     * 编译时的列元数据，规则变更后据此重新编译
+     */
+    public List<ColumnMetaData> getColumns() {
+        return columns;
+    }
+
+    /**
+     * 编译所依据的规则集，规则变更后据此重新编译
+     */
+    public MaskingConfigMeta getMaskingConfigMeta() {
+        return maskingConfigMeta;
+    }
+
+    /**
+     * 规则变更是否涉及本计划的结果集中的表
+     */
+    public boolean dependsOn(MaskingRuleChange change) {
+        for (String table : tables) {
+            if (change.affectsKey(table)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 是否没有任何列需要脱敏，此时数据帧可原样透传
+     */
+    public boolean isPassthrough() {
+        return maskedColumns.length == 0;
+    }
+
+    /**
+     * 指定列当前是否仍在使用记忆化
+     */
+    public boolean isMemoEnabled(int column) {
+        int k = indexOf(column);
+        return k >= 0 && memoStats != null && memoStats[k].isEnabled();
+    }
+
+    /**
+     * 指定列累计的记忆化命中次数
+     */
+    public long getMemoHits(int column) {
+        int k = indexOf(column);
+        return k < 0 || memoStats == null ? 0L : memoStats[k].getHits();
+    }
+
+    /**
+     * 指定列累计的记忆化未命中次数
+     */
+    public long getMemoMisses(int column) {
+        int k = indexOf(column);
+        return k < 0 || memoStats == null ? 0L : memoStats[k].getMisses();
+    }
+
+    /**
+     * 对数据帧（Frame）中的行数据进行脱敏处理：无需脱敏时原样返回，否则就地改写需要脱敏的列并返回同一个 Frame
+     */
+    public Frame apply(Frame originalFrame) {
+        if (originalFrame == null || originalFrame.rows == null || isPassthrough()) {
+            return originalFrame;
+        }
+
+        int rowCount = originalFrame.rows instanceof Collection
+                ? ((Collection<?>) originalFrame.rows).size() : MaskingMemo.MAX_ENTRIES;
+        FrameMasker frameMasker = new FrameMasker(rowCount);
+        for (Object row : originalFrame.rows) {
+            frameMasker.maskRow((Object[]) row);
+        }
+        frameMasker.finish();
+
+        return originalFrame;
+    }
+
+    /**
+     * 需要脱敏的单元格数达到 parallelThreshold 时，在 pool 中按行区间并发脱敏；否则与 {@link #apply(Frame)} 相同
+     */
+    @SuppressWarnings("unchecked")
+    public Frame apply(Frame originalFrame, ForkJoinPool pool, int parallelThreshold) {
+        if (pool == null || originalFrame == null || isPassthrough()
+                || !(originalFrame.rows instanceof List) || !(originalFrame.rows instanceof RandomAccess)) {
+            return apply(originalFrame);
+        }
+
+        List<Object> rows = (List<Object>) originalFrame.rows;
+        if ((long) rows.size() * maskedColumns.length < parallelThreshold) {
+            return apply(originalFrame);
+        }
+
+        // 每个线程大约分到 4 个区间，便于工作窃取时均衡负载
+        int leafRows = Math.max(1, rows.size() / (pool.getParallelism() * 4));
+        pool.invoke(new MaskRangeTask(rows, 0, rows.size(), leafRows));
+
+        return originalFrame;
+    }
+
+    private int indexOf(int column) {
+        return Arrays.binarySearch(maskedColumns, column);
+    }
+
+    /**
+     * 单个数据帧（或单个行区间）的脱敏过程，持有该范围内各列的记忆化字典，只在单线程内使用
+     */
+    private final class FrameMasker {
+        private final MaskingMemo.FrameMemo[] memos;
+        /**
+         * 本范围内各列脱敏的（非 null）单元格数
+         */
+        private final int[] maskedCells;
+
+        private FrameMasker(int rowCount) {
+            this.memos = new MaskingMemo.FrameMemo[maskedColumns.length];
+            this.maskedCells = new int[maskedColumns.length];
+            if (memoStats != null && rowCount >= MaskingMemo.MIN_ROWS) {
+                for (int k = 0; k < maskedColumns.length; k++) {
+                    if (memoStats[k].isEnabled()) {
+                        memos[k] = new MaskingMemo.FrameMemo(rowCount);
+                    }
+                }
+            }
+        }
+
+        private void maskRow(Object[] dataRow) {
+            for (int k = 0; k < maskedColumns.length; k++) {
+                int i = maskedColumns[k];
+                if (i >= dataRow.length) {
+                    break;
+                }
+                Object value = dataRow[i];
+                if (value != null) {
+                    maskedCells[k]++;
+                    MaskingMemo.FrameMemo memo = memos[k];
+                    dataRow[i] = memo == null ? maskers[i].mask(value) : memo.mask(value, maskers[i]);
+                }
+            }
+        }
+
+        /**
+         * 将本范围的命中统计累计到列统计中，并上报运行指标
+         */
+        private void finish() {
+            for (int k = 0; k < memos.length; k++) {
+                if (memos[k] != null) {
+                    memoStats[k].record(memos[k].getHits(), memos[k].getMisses());
+                    if (metrics != null) {
+                        metrics.recordMemo(memos[k].getHits(), memos[k].getMisses());
+                    }
+                }
+                if (metrics != null) {
+                    metrics.recordMaskedCells(ruleTypes[k], maskedCells[k]);
+                }
+            }
+        }
+    }
+
+    /**
+     * 对 [from, to) 区间的行就地脱敏，区间超过 leafRows 时一分为二
+     */
+    private final class MaskRangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Object> rows;
+        private final int from;
+        private final int to;
+        private final int leafRows;
+
+        private MaskRangeTask(List<Object> rows, int from, int to, int leafRows) {
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+            this.leafRows = leafRows;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= leafRows) {
+                // 每个区间使用独立的记忆化字典
+                FrameMasker frameMasker = new FrameMasker(to - from);
+                for (int i = from; i < to; i++) {
+                    frameMasker.maskRow((Object[]) rows.get(i));
+                }
+                frameMasker.finish();
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new MaskRangeTask(rows, from, mid, leafRows), new MaskRangeTask(rows, mid, to, leafRows));
+        }
+    }
+}
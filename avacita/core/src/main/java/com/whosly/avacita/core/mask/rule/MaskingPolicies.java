@@ -0,0 +1,120 @@
+package com.whosly.avacita.core.mask.rule;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 按连接区分的脱敏策略：分析人员、客服、批处理作业等使用各自的规则集。
+ * <p>
+ * 每个策略是一个独立的 {@link MaskingConfigMeta}（各自热加载）。openConnection 时按连接属性 {@link #getPolicyKey()}
+ * （如 user、role、tenant）的取值解析一次，由 MaskingJdbcMeta 按连接缓存；之后该连接上的语句编译脱敏计划、改写 SQL
+ * 都直接使用解析结果，逐单元格脱敏的路径上没有额外开销。未配置的取值（或连接未携带该属性）使用默认策略。
+ * <p>
+ * 可通过系统属性配置：
+ * <ul>
+ *     <li>avacita.mask.policyKey：用于选择策略的连接属性名，默认 user</li>
+ *     <li>avacita.mask.policies：策略名=规则文件，多个以分号分隔，如 analyst=/etc/avacita/analyst.csv;support=/etc/avacita/support.csv</li>
+ * </ul>
+ * 策略名忽略大小写。
+ */
+public final class MaskingPolicies {
+    private static final Logger LOG = LoggerFactory.getLogger(MaskingPolicies.class);
+
+    public static final String POLICY_KEY_PROPERTY = "avacita.mask.policyKey";
+    public static final String POLICIES_PROPERTY = "avacita.mask.policies";
+
+    public static final String DEFAULT_POLICY_KEY = "user";
+
+    private final MaskingConfigMeta defaultPolicy;
+    private final String policyKey;
+    /**
+     * 策略名（小写） -> 规则集
+     */
+    private final Map<String, MaskingConfigMeta> policies;
+
+    /**
+     * 只有默认策略：所有连接共享同一规则集
+     */
+    public MaskingPolicies(MaskingConfigMeta defaultPolicy) {
+        this(defaultPolicy, DEFAULT_POLICY_KEY, Collections.emptyMap());
+    }
+
+    public MaskingPolicies(MaskingConfigMeta defaultPolicy, String policyKey, Map<String, MaskingConfigMeta> policies) {
+        this.defaultPolicy = defaultPolicy;
+        this.policyKey = policyKey;
+        Map<String, MaskingConfigMeta> normalized = new LinkedHashMap<>();
+        policies.forEach((name, policy) -> normalized.put(name.toLowerCase(Locale.ROOT), policy));
+        this.policies = Collections.unmodifiableMap(normalized);
+    }
+
+    /**
+     * 从系统属性读取，各策略的规则文件在此加载
+     */
+    public static MaskingPolicies fromSystemProperties(MaskingConfigMeta defaultPolicy) {
+        Map<String, MaskingConfigMeta> policies = new LinkedHashMap<>();
+        for (String entry : StringUtils.split(System.getProperty(POLICIES_PROPERTY, ""), ';')) {
+            int eq = entry.indexOf('=');
+            if (eq <= 0 || eq == entry.length() - 1) {
+                LOG.warn("忽略无效的脱敏策略配置: {}", entry);
+                continue;
+            }
+            policies.put(entry.substring(0, eq).trim(), new MaskingConfigMeta(entry.substring(eq + 1).trim()));
+        }
+        String policyKey = System.getProperty(POLICY_KEY_PROPERTY, DEFAULT_POLICY_KEY);
+        if (!policies.isEmpty()) {
+            LOG.info("按连接属性 {} 选择脱敏策略: {}", policyKey, policies.keySet());
+        }
+        return new MaskingPolicies(defaultPolicy, policyKey, policies);
+    }
+
+    /**
+     * 按连接属性解析该连接的规则集，未配置时返回默认策略
+     */
+    public MaskingConfigMeta resolve(Map<String, String> connectionProperties) {
+        if (policies.isEmpty() || connectionProperties == null) {
+            return defaultPolicy;
+        }
+        String name = connectionProperties.get(policyKey);
+        if (name == null) {
+            return defaultPolicy;
+        }
+        return policies.getOrDefault(name.toLowerCase(Locale.ROOT), defaultPolicy);
+    }
+
+    public MaskingConfigMeta getDefaultPolicy() {
+        return defaultPolicy;
+    }
+
+    public String getPolicyKey() {
+        return policyKey;
+    }
+
+    /**
+     * 默认策略以及全部命名策略（同一规则集只出现一次）
+     */
+    public List<MaskingConfigMeta> all() {
+        List<MaskingConfigMeta> all = new ArrayList<>();
+        all.add(defaultPolicy);
+        for (MaskingConfigMeta policy : policies.values()) {
+            if (!all.contains(policy)) {
+                all.add(policy);
+            }
+        }
+        return all;
+    }
+
+    /**
+     * 停止全部规则集的热加载
+     */
+    public void shutdown() {
+        all().forEach(MaskingConfigMeta::shutdown);
+    }
+}
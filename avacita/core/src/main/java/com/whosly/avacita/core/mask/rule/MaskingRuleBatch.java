@@ -0,0 +1,66 @@
+package com.whosly.avacita.core.mask.rule;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 一次同步（{@link MaskingRuleSource#sync()}）得到的规则：全量，或自上次同步以来的增量。
+ * <p>
+ * 增量中的规则按 schema/table/column（忽略大小写，通配符规则也一样）定位：先删除 removals 中的列，
+ * 再由 upserts 替换同一列的规则（保持原有位置）或追加到该表的规则之后。
+ */
+public final class MaskingRuleBatch {
+
+    private final boolean delta;
+    private final List<MaskingRuleConfig> rules;
+    private final List<MaskingRuleConfig> removals;
+    /**
+     * 编译好的二进制规则库，不经过规则列表
+     */
+    private final MaskingRuleStore store;
+
+    private MaskingRuleBatch(boolean delta, List<MaskingRuleConfig> rules, List<MaskingRuleConfig> removals,
+                             MaskingRuleStore store) {
+        this.delta = delta;
+        this.rules = rules;
+        this.removals = removals;
+        this.store = store;
+    }
+
+    /**
+     * 全部规则，按加载顺序
+     */
+    public static MaskingRuleBatch full(List<MaskingRuleConfig> rules) {
+        return new MaskingRuleBatch(false, rules, Collections.emptyList(), null);
+    }
+
+    /**
+     * 增量：新增或修改的规则，以及删除的规则（只按 schema/table/column 定位，规则类型与参数不使用）
+     */
+    public static MaskingRuleBatch delta(List<MaskingRuleConfig> upserts, List<MaskingRuleConfig> removals) {
+        return new MaskingRuleBatch(true, upserts, removals, null);
+    }
+
+    static MaskingRuleBatch compiled(MaskingRuleStore store) {
+        return new MaskingRuleBatch(false, Collections.emptyList(), Collections.emptyList(), store);
+    }
+
+    public boolean isDelta() {
+        return delta;
+    }
+
+    /**
+     * 全量时为全部规则，增量时为新增或修改的规则
+     */
+    public List<MaskingRuleConfig> getRules() {
+        return rules;
+    }
+
+    public List<MaskingRuleConfig> getRemovals() {
+        return removals;
+    }
+
+    MaskingRuleStore getStore() {
+        return store;
+    }
+}
@@ -0,0 +1,92 @@
+package com.whosly.avacita.core.mask.rule;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * 一次规则加载相对上一版本的变更：版本号、精确规则有变化的表（新增、删除或规则类型/参数变更），
+ * 以及有变化的通配符规则组（schema.table 通配符）。
+ * <p>
+ * 按表派生的缓存据此只刷新发生变化的表（含与变化的通配符匹配的表），未变化的表保持不变。
+ */
+public final class MaskingRuleChange {
+    private final long previousVersion;
+    private final long version;
+    /**
+     * 归一化（小写）后的 schema.table
+     */
+    private final Set<String> changedTables;
+    /**
+     * 归一化（小写）后的 schema.table 通配符
+     */
+    private final Set<String> changedPatterns;
+
+    MaskingRuleChange(long previousVersion, long version, Set<String> changedTables, Set<String> changedPatterns) {
+        this.previousVersion = previousVersion;
+        this.version = version;
+        this.changedTables = Collections.unmodifiableSet(changedTables);
+        this.changedPatterns = Collections.unmodifiableSet(changedPatterns);
+    }
+
+    public long getPreviousVersion() { return previousVersion; }
+    public long getVersion() { return version; }
+    public Set<String> getChangedTables() { return changedTables; }
+    public Set<String> getChangedPatterns() { return changedPatterns; }
+
+    public boolean isEmpty() {
+        return changedTables.isEmpty() && changedPatterns.isEmpty();
+    }
+
+    /**
+     * 指定的 schema.table（忽略大小写）是否有规则变化
+     */
+    public boolean affects(String schema, String table) {
+        return table != null && affectsKey(MaskingRuleIndex.tableKey(schema, table));
+    }
+
+    /**
+     * {@link MaskingRuleIndex#tableKey} 形式的表是否有规则变化
+     */
+    boolean affectsKey(String tableKey) {
+        if (changedTables.contains(tableKey)) {
+            return true;
+        }
+        for (String pattern : changedPatterns) {
+            if (globMatches(pattern, tableKey)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 任意 schema 下的指定表（忽略大小写）是否有规则变化，用于只按表名缓存的场景
+     */
+    public boolean affectsTable(String table) {
+        if (table == null) {
+            return false;
+        }
+        String suffix = MaskingRuleIndex.tableKey("", table);
+        for (String changedTable : changedTables) {
+            if (changedTable.endsWith(suffix)) {
+                return true;
+            }
+        }
+        for (String pattern : changedPatterns) {
+            if (MaskingRulePatterns.globMatches(pattern.substring(pattern.indexOf('.') + 1), table)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * schema.table 通配符与 schema.table 逐字段匹配
+     */
+    private static boolean globMatches(String pattern, String tableKey) {
+        int patternDot = pattern.indexOf('.');
+        int keyDot = tableKey.indexOf('.');
+        return MaskingRulePatterns.globMatches(pattern.substring(0, patternDot), tableKey.substring(0, keyDot))
+                && MaskingRulePatterns.globMatches(pattern.substring(patternDot + 1), tableKey.substring(keyDot + 1));
+    }
+}
@@ -0,0 +1,46 @@
+package com.whosly.avacita.core.mask.rule;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * 将 CSV 脱敏规则文件编译为二进制规则库（格式见 {@link MaskingRuleStore}）。
+ * <p>
+ * 规则数量很大（几十万列）时，服务启动与热加载不再逐行解析 CSV、为每条规则建对象，而是直接内存映射编译结果。
+ * 将 -Davacita.mask.rules 指向编译结果即可，{@link MaskingConfigMeta} 按文件头识别格式；
+ * 编译结果先写临时文件再原子重命名，可直接覆盖正在使用的规则库触发热加载。
+ * <pre>
+ * java -cp ... com.whosly.avacita.core.mask.rule.MaskingRuleCompiler masking_rules.csv masking_rules.bin
+ * </pre>
+ */
+public final class MaskingRuleCompiler {
+
+    private MaskingRuleCompiler() {
+    }
+
+    /**
+     * 编译 csvFile，写入 storeFile
+     *
+     * @return 编译的规则数
+     */
+    public static int compile(Path csvFile, Path storeFile) throws IOException {
+        byte[] content = Files.readAllBytes(csvFile);
+        List<MaskingRuleConfig> rules = MaskingConfigMeta.parseRules(content);
+        MaskingRuleStore.write(rules, MaskingRuleStore.checksum(content), storeFile);
+        return rules.size();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("用法: MaskingRuleCompiler <masking_rules.csv> <masking_rules.bin>");
+            System.exit(1);
+        }
+        long start = System.nanoTime();
+        int count = compile(Paths.get(args[0]), Paths.get(args[1]));
+        System.out.printf("已编译 %d 条脱敏规则: %s -> %s (%d ms)%n",
+                count, args[0], args[1], (System.nanoTime() - start) / 1_000_000L);
+    }
+}
@@ -1,5 +1,6 @@
-package com.whosly.avacita.server.query.mask.rewrite.rule;
+package com.whosly.avacita.core.mask.rule;
 
+import com.whosly.avacita.core.mask.util.RegexMasker;
 import lombok.ToString;
 
 @ToString
@@ -9,6 +10,10 @@ public class MaskingRuleConfig {
     private final String column;
     private final MaskingRuleType ruleType;
     private final String[] ruleParams;
+    /**
+     * REGEX 规则加载时预编译的正则脱敏器，其他规则为 null
+     */
+    private final RegexMasker regexMasker;
 
     public MaskingRuleConfig(String schema, String table, String column, String ruleType, String[] ruleParams) {
         this.schema = schema;
@@ -16,6 +21,7 @@ public class MaskingRuleConfig {
         this.column = column;
         this.ruleType = MaskingRuleType.getByName(ruleType);
         this.ruleParams = ruleParams;
+        this.regexMasker = this.ruleType == MaskingRuleType.REGEX ? RegexMasker.compile(ruleParams) : null;
     }
 
     // Getters
@@ -24,11 +30,16 @@ public class MaskingRuleConfig {
     public String getColumn() { return column; }
     public MaskingRuleType getRuleType() { return ruleType; }
     public String[] getRuleParams() { return ruleParams; }
+    public RegexMasker getRegexMasker() { return regexMasker; }
 
+    /**
+     * 是否与指定列匹配（忽略大小写）；schema/table/column 可含通配符 * 与 ?，见 {@link MaskingRulePatterns}
+     */
     public boolean match(String schema, String table, String column) {
-        return this.schema.equalsIgnoreCase(schema)
-                && this.table.equalsIgnoreCase(table)
-                && this.column.equalsIgnoreCase(column);
+        return schema != null && table != null && column != null
+                && MaskingRulePatterns.globMatches(this.schema, schema)
+                && MaskingRulePatterns.globMatches(this.table, table)
+                && MaskingRulePatterns.globMatches(this.column, column);
     }
 
 //
@@ -0,0 +1,179 @@
+package com.whosly.avacita.core.mask.rule;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 规则文件：CSV，或由 {@link MaskingRuleCompiler} 编译的二进制规则库（按文件头识别）。
+ * <p>
+ * configPath 优先按文件系统路径解析，不存在时再按 classpath 资源解析。
+ * 文件位于文件系统上时（包括 classpath 下的目录），通过 {@link WatchService} 监听所在目录，
+ * 文件变更后在 {@link #DEBOUNCE_MILLIS} 内没有新的变更即通知重新加载（合并编辑器一次保存产生的多个事件）；
+ * jar 内的资源不做热加载。每次同步都返回全量规则，内容未变化时返回 null。
+ */
+public class MaskingRuleFileSource implements MaskingRuleSource {
+    private static final Logger LOG = LoggerFactory.getLogger(MaskingRuleFileSource.class);
+
+    /**
+     * 文件变更后等待后续变更的时间，超过该时间没有新的变更才重新加载
+     */
+    static final long DEBOUNCE_MILLIS = 50L;
+
+    private final String configPath;
+    /**
+     * 配置文件在文件系统上的位置，jar 内的资源为 null（不做热加载）
+     */
+    private final Path configFile;
+    /**
+     * 上次同步的 CSV 内容，内容未变化时跳过
+     */
+    private byte[] loadedContent;
+    /**
+     * 上次同步的规则库源文件校验和，-1 表示上次不是规则库
+     */
+    private long loadedChecksum = -1L;
+    private WatchService watchService;
+
+    public MaskingRuleFileSource(String configPath) {
+        this.configPath = configPath;
+        this.configFile = resolveConfigFile(configPath);
+    }
+
+    private Path resolveConfigFile(String configPath) {
+        Path path = Paths.get(configPath);
+        if (Files.isRegularFile(path)) {
+            return path.toAbsolutePath();
+        }
+
+        URL url = getClass().getClassLoader().getResource(configPath);
+        if (url != null && "file".equals(url.getProtocol())) {
+            try {
+                return Paths.get(url.toURI());
+            } catch (URISyntaxException e) {
+                LOG.warn("无法解析配置文件路径: {}", url, e);
+            }
+        }
+        return null;
+    }
+
+    private byte[] readConfig() throws IOException {
+        if (configFile != null) {
+            return Files.readAllBytes(configFile);
+        }
+
+        InputStream inputStream = getClass().getClassLoader().getResourceAsStream(configPath);
+        if (inputStream == null) {
+            throw new RuntimeException("资源未找到: " + configPath);
+        }
+        try (InputStream in = inputStream) {
+            return in.readAllBytes();
+        }
+    }
+
+    @Override
+    public synchronized MaskingRuleBatch sync() throws IOException {
+        if (configFile != null && MaskingRuleStore.isStore(configFile)) {
+            // 内存映射编译好的规则库，源文件校验和未变化时跳过
+            MaskingRuleStore store = MaskingRuleStore.open(configFile, 0L);
+            if (store.checksum() == loadedChecksum) {
+                return null;
+            }
+            this.loadedChecksum = store.checksum();
+            this.loadedContent = null;
+            return MaskingRuleBatch.compiled(store);
+        }
+
+        // CSV（jar 内的资源也可以是编译好的规则库）
+        byte[] content = readConfig();
+        if (Arrays.equals(content, loadedContent)) {
+            return null;
+        }
+        MaskingRuleBatch batch = MaskingRuleStore.isStore(content)
+                ? MaskingRuleBatch.compiled(MaskingRuleStore.load(content, 0L))
+                : MaskingRuleBatch.full(MaskingConfigMeta.parseRules(content));
+        this.loadedContent = content;
+        this.loadedChecksum = -1L;
+        return batch;
+    }
+
+    // 热加载：监听配置文件所在目录
+    @Override
+    public void watch(Runnable onChange) {
+        if (configFile == null) {
+            LOG.warn("配置文件 {} 不在文件系统上，热加载将不会生效。", configPath);
+            return;
+        }
+
+        try {
+            this.watchService = configFile.getFileSystem().newWatchService();
+            // 监听目录而不是文件：以重命名方式替换的文件表现为 ENTRY_CREATE
+            configFile.getParent().register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            LOG.error("配置文件监控启动失败，热加载将不会生效: {}", configFile, e);
+            return;
+        }
+
+        Thread watcher = new Thread(() -> watchLoop(onChange), "avacita-mask-rule-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void watchLoop(Runnable onChange) {
+        Path fileName = configFile.getFileName();
+        try {
+            while (true) {
+                boolean changed = drain(watchService.take(), fileName);
+                // 合并一次保存产生的多个事件
+                WatchKey next;
+                while ((next = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= drain(next, fileName);
+                }
+                if (changed) {
+                    onChange.run();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // shutdown
+        }
+    }
+
+    private boolean drain(WatchKey key, Path fileName) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || fileName.equals(event.context())) {
+                changed = true;
+            }
+        }
+        if (!key.reset()) {
+            LOG.warn("配置文件目录已不可访问，热加载停止: {}", configFile.getParent());
+        }
+        return changed;
+    }
+
+    @Override
+    public void close() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                LOG.warn("关闭配置文件监控失败", e);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return configPath;
+    }
+}
@@ -0,0 +1,521 @@
+package com.whosly.avacita.core.mask.rule;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 脱敏规则的哈希索引（schema/table/column 忽略大小写）。
+ * <p>
+ * 加载规则时按归一化（折叠为小写）后的 schema/table 与 column 预先计算哈希，建立两级开放寻址表：
+ * 第一级按 schema.table 定位表，第二级在表内按 column 定位规则。
+ * 查找时逐字符折叠大小写计算哈希，再比较字符串确认（先用 equals 快速判断大小写完全一致的常见情况，
+ * 不一致时才用 equalsIgnoreCase），不拼接字符串、不分配对象，复杂度 O(1)。
+ * 没有任何规则的表在第一级探测即返回 null。
+ * <p>
+ * 索引构建后不可变，可在多线程间安全共享；每次加载规则生成一个新版本（{@link #version()}）的索引整体替换旧索引。
+ * 增量同步时由 {@link #apply} 在旧版本上生成新版本：只重建涉及的表，其余表的规则直接复用。
+ * <p>
+ * 哈希与大小写折叠函数同时用于编译二进制规则库（{@link MaskingRuleStore}），两者的查找口径保持一致。
+ * <p>
+ * 含通配符的规则不进入哈希表，单独编译为 {@link MaskingRulePatterns}，只在精确查找未命中时使用。
+ */
+final class MaskingRuleIndex implements MaskingRuleLookup {
+
+    static final MaskingRuleIndex EMPTY = build(Collections.emptyList(), 0L);
+
+    private final TableRules[] tableSlots;
+    private final int tableMask;
+    private final int tableCount;
+    private final MaskingRulePatterns patterns;
+    private final MaskingTableFilter tableFilter;
+    private final int size;
+    private final long version;
+    /**
+     * 由 {@link #apply} 生成时的旧版本（弱引用，不让各版本串成链）与涉及的表（归一化的 schema.table -> 该表的任一规则），
+     * 与旧版本比较时只需比较这些表；全量构建时为 null
+     */
+    private final WeakReference<MaskingRuleIndex> base;
+    private final Map<String, MaskingRuleConfig> touchedTables;
+
+    private MaskingRuleIndex(TableRules[] tableSlots, int tableCount, MaskingRulePatterns patterns,
+                             MaskingTableFilter tableFilter, int size, long version,
+                             MaskingRuleIndex base, Map<String, MaskingRuleConfig> touchedTables) {
+        this.tableSlots = tableSlots;
+        this.tableMask = tableSlots.length - 1;
+        this.tableCount = tableCount;
+        this.patterns = patterns;
+        this.tableFilter = tableFilter;
+        this.size = size;
+        this.version = version;
+        this.base = base == null ? null : new WeakReference<>(base);
+        this.touchedTables = touchedTables;
+    }
+
+    /**
+     * 按加载顺序构建索引，同一 schema/table/column 出现多次时以第一条为准
+     *
+     * @param version 规则版本号，每次加载递增
+     */
+    static MaskingRuleIndex build(List<MaskingRuleConfig> rules, long version) {
+        // 按归一化后的 schema.table 分组，保持规则的加载顺序；通配符规则单独编译
+        Map<String, List<MaskingRuleConfig>> groups = new LinkedHashMap<>();
+        List<MaskingRuleConfig> patternRules = new ArrayList<>();
+        for (MaskingRuleConfig rule : rules) {
+            if (MaskingRulePatterns.isPattern(rule)) {
+                patternRules.add(rule);
+                continue;
+            }
+            String key = normalize(rule.getSchema()) + "." + normalize(rule.getTable());
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(rule);
+        }
+
+        TableRules[] tableSlots = new TableRules[tableCapacity(groups.size())];
+        for (List<MaskingRuleConfig> group : groups.values()) {
+            insert(tableSlots, new TableRules(group));
+        }
+
+        MaskingRulePatterns patterns = patternRules.isEmpty() ? MaskingRulePatterns.EMPTY : MaskingRulePatterns.compile(patternRules);
+        return new MaskingRuleIndex(tableSlots, groups.size(), patterns, tableFilter(tableSlots, groups.size(), patterns),
+                rules.size(), version, null, null);
+    }
+
+    /**
+     * 在当前版本上应用增量，生成新版本的索引：先删除 removals 中的列，再由 upserts 替换同一列的规则（保持原有位置）
+     * 或追加到该表的规则之后。schema/table/column 均忽略大小写，通配符规则也按同样的口径定位。
+     * <p>
+     * 复制表槽数组后只更新涉及的表（重新建列索引），其余表的规则对象直接复用；通配符规则有变化时才重新编译。
+     */
+    MaskingRuleIndex apply(List<MaskingRuleConfig> upserts, List<MaskingRuleConfig> removals, long version) {
+        Map<String, List<MaskingRuleConfig>> touched = new LinkedHashMap<>();
+        Map<String, MaskingRuleConfig> touchedTables = new LinkedHashMap<>();
+        List<MaskingRuleConfig> patternRules = null;
+        for (MaskingRuleConfig rule : removals) {
+            if (MaskingRulePatterns.isPattern(rule)) {
+                patternRules = patternRules == null ? new ArrayList<>(patterns.rules()) : patternRules;
+                patternRules.removeIf(r -> sameColumn(r, rule));
+            } else {
+                touchedRules(touched, touchedTables, rule).removeIf(r -> equalsIgnoreCase(r.getColumn(), rule.getColumn()));
+            }
+        }
+        for (MaskingRuleConfig rule : upserts) {
+            if (MaskingRulePatterns.isPattern(rule)) {
+                patternRules = patternRules == null ? new ArrayList<>(patterns.rules()) : patternRules;
+                upsert(patternRules, rule);
+            } else {
+                upsert(touchedRules(touched, touchedTables, rule), rule);
+            }
+        }
+
+        TableRules[] tableSlots = this.tableSlots.clone();
+        int tableCount = this.tableCount;
+        int size = this.size;
+        List<TableRules> addedTables = new ArrayList<>();
+        for (Map.Entry<String, List<MaskingRuleConfig>> entry : touched.entrySet()) {
+            MaskingRuleConfig rule = touchedTables.get(entry.getKey());
+            List<MaskingRuleConfig> rules = entry.getValue();
+            int slot = slotOf(tableSlots, rule.getSchema(), rule.getTable());
+            if (slot >= 0) {
+                size -= tableSlots[slot].rules.size();
+                if (rules.isEmpty()) {
+                    remove(tableSlots, slot);
+                    tableCount--;
+                } else {
+                    tableSlots[slot] = new TableRules(rules);
+                }
+            } else if (!rules.isEmpty()) {
+                if ((tableCount + 1) * 2 > tableSlots.length) {
+                    tableSlots = rehash(tableSlots, tableCount + 1);
+                }
+                TableRules tableRules = new TableRules(rules);
+                insert(tableSlots, tableRules);
+                addedTables.add(tableRules);
+                tableCount++;
+            }
+            size += rules.size();
+        }
+
+        MaskingRulePatterns patterns = this.patterns;
+        if (patternRules != null) {
+            size += patternRules.size() - patterns.size();
+            patterns = patternRules.isEmpty() ? MaskingRulePatterns.EMPTY : MaskingRulePatterns.compile(patternRules);
+        }
+
+        // 表级过滤器只追加新增的表，容量不足时重新构建
+        MaskingTableFilter tableFilter = this.tableFilter.extend(addedTables.size(), patterns);
+        if (tableFilter == null) {
+            tableFilter = tableFilter(tableSlots, tableCount, patterns);
+        } else {
+            for (TableRules tableRules : addedTables) {
+                tableFilter.add(MaskingTableFilter.hash(tableRules.table));
+            }
+        }
+        return new MaskingRuleIndex(tableSlots, tableCount, patterns, tableFilter, size, version, this, touchedTables);
+    }
+
+    /**
+     * 增量涉及的表的规则（首次涉及时复制当前版本的规则）
+     */
+    private List<MaskingRuleConfig> touchedRules(Map<String, List<MaskingRuleConfig>> touched,
+                                                 Map<String, MaskingRuleConfig> touchedTables, MaskingRuleConfig rule) {
+        String key = tableKey(rule.getSchema(), rule.getTable());
+        touchedTables.putIfAbsent(key, rule);
+        return touched.computeIfAbsent(key, k -> {
+            TableRules tableRules = getTable(rule.getSchema(), rule.getTable());
+            return tableRules == null ? new ArrayList<>() : new ArrayList<>(tableRules.rules);
+        });
+    }
+
+    /**
+     * 替换同一列的第一条规则并去掉其余重复的规则，没有时追加
+     */
+    private static void upsert(List<MaskingRuleConfig> rules, MaskingRuleConfig rule) {
+        boolean replaced = false;
+        for (int i = 0; i < rules.size(); i++) {
+            if (!sameColumn(rules.get(i), rule)) {
+                continue;
+            }
+            if (replaced) {
+                rules.remove(i--);
+            } else {
+                rules.set(i, rule);
+                replaced = true;
+            }
+        }
+        if (!replaced) {
+            rules.add(rule);
+        }
+    }
+
+    private static boolean sameColumn(MaskingRuleConfig a, MaskingRuleConfig b) {
+        return equalsIgnoreCase(a.getColumn(), b.getColumn())
+                && equalsIgnoreCase(a.getTable(), b.getTable())
+                && equalsIgnoreCase(a.getSchema(), b.getSchema());
+    }
+
+    private static MaskingTableFilter tableFilter(TableRules[] tableSlots, int tableCount, MaskingRulePatterns patterns) {
+        MaskingTableFilter tableFilter = MaskingTableFilter.create(tableCount, patterns);
+        for (TableRules tableRules : tableSlots) {
+            if (tableRules != null) {
+                tableFilter.add(MaskingTableFilter.hash(tableRules.table));
+            }
+        }
+        return tableFilter;
+    }
+
+    private static void insert(TableRules[] tableSlots, TableRules tableRules) {
+        int tableMask = tableSlots.length - 1;
+        int slot = tableRules.hash & tableMask;
+        while (tableSlots[slot] != null) {
+            slot = (slot + 1) & tableMask;
+        }
+        tableSlots[slot] = tableRules;
+    }
+
+    /**
+     * 删除后将同一探测链上的后续表前移填补空位（线性探测的回移删除），查找无需墓碑
+     */
+    private static void remove(TableRules[] tableSlots, int slot) {
+        int tableMask = tableSlots.length - 1;
+        int hole = slot;
+        tableSlots[hole] = null;
+        for (int i = (hole + 1) & tableMask; tableSlots[i] != null; i = (i + 1) & tableMask) {
+            int home = tableSlots[i].hash & tableMask;
+            if (((i - home) & tableMask) >= ((i - hole) & tableMask)) {
+                tableSlots[hole] = tableSlots[i];
+                tableSlots[i] = null;
+                hole = i;
+            }
+        }
+    }
+
+    private static TableRules[] rehash(TableRules[] tableSlots, int tableCount) {
+        TableRules[] rehashed = new TableRules[tableCapacity(tableCount)];
+        for (TableRules tableRules : tableSlots) {
+            if (tableRules != null) {
+                insert(rehashed, tableRules);
+            }
+        }
+        return rehashed;
+    }
+
+    private static int slotOf(TableRules[] tableSlots, String schema, String table) {
+        int tableMask = tableSlots.length - 1;
+        int hash = tableHash(schema, table);
+        for (int slot = hash & tableMask; tableSlots[slot] != null; slot = (slot + 1) & tableMask) {
+            if (tableSlots[slot].matches(hash, schema, table)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 按 schema/table/column（忽略大小写）查找规则，不存在时返回 null
+     */
+    @Override
+    public MaskingRuleConfig get(String schema, String table, String column) {
+        if (column == null) {
+            return null;
+        }
+        TableRules tableRules = getTable(schema, table);
+        MaskingRuleConfig rule = tableRules == null ? null : tableRules.get(column);
+        return rule != null || patterns.isEmpty() ? rule : patterns.get(schema, table, column);
+    }
+
+    /**
+     * 按 schema/table（忽略大小写）查找该表的全部规则，不存在时返回空列表
+     */
+    @Override
+    public List<MaskingRuleConfig> getTableRules(String schema, String table) {
+        TableRules tableRules = getTable(schema, table);
+        List<MaskingRuleConfig> exact = tableRules == null ? Collections.emptyList() : tableRules.rules;
+        List<MaskingRuleConfig> matched = patterns.getTableRules(schema, table);
+        if (matched.isEmpty()) {
+            return exact;
+        }
+        List<MaskingRuleConfig> all = new ArrayList<>(exact);
+        all.addAll(matched);
+        return Collections.unmodifiableList(all);
+    }
+
+    /**
+     * 表级快速判断：该 schema/table 是否存在任何规则
+     */
+    @Override
+    public boolean hasTableRules(String schema, String table) {
+        return getTable(schema, table) != null || patterns.mayMatchTable(schema, table);
+    }
+
+    @Override
+    public MaskingRulePatterns patterns() {
+        return patterns;
+    }
+
+    @Override
+    public MaskingTableFilter tableFilter() {
+        return tableFilter;
+    }
+
+    @Override
+    public long version() {
+        return version;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<String> tableKeys() {
+        Set<String> keys = new LinkedHashSet<>();
+        for (TableRules tableRules : tableSlots) {
+            if (tableRules != null) {
+                keys.add(tableKey(tableRules.schema, tableRules.table));
+            }
+        }
+        return keys;
+    }
+
+    @Override
+    public Set<String> changedTables(MaskingRuleLookup lookup) {
+        if (!(lookup instanceof MaskingRuleIndex)) {
+            return MaskingRuleLookup.allTables(this, lookup);
+        }
+        MaskingRuleIndex previous = (MaskingRuleIndex) lookup;
+        Set<String> changed = new LinkedHashSet<>();
+        if (base != null && base.get() == previous) {
+            // 增量生成的版本：只有涉及的表可能变化
+            for (Map.Entry<String, MaskingRuleConfig> entry : touchedTables.entrySet()) {
+                MaskingRuleConfig rule = entry.getValue();
+                TableRules tableRules = getTable(rule.getSchema(), rule.getTable());
+                TableRules before = previous.getTable(rule.getSchema(), rule.getTable());
+                if (tableRules == null ? before != null : !tableRules.sameRules(before)) {
+                    changed.add(entry.getKey());
+                }
+            }
+            return changed;
+        }
+        for (TableRules tableRules : tableSlots) {
+            if (tableRules != null && !tableRules.sameRules(previous.getTable(tableRules.schema, tableRules.table))) {
+                changed.add(tableKey(tableRules.schema, tableRules.table));
+            }
+        }
+        for (TableRules tableRules : previous.tableSlots) {
+            if (tableRules != null && getTable(tableRules.schema, tableRules.table) == null) {
+                changed.add(tableKey(tableRules.schema, tableRules.table));
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * 归一化（折叠为小写）后的 schema.table，schema 为 null 时按空串处理
+     */
+    static String tableKey(String schema, String table) {
+        return normalize(schema == null ? "" : schema) + "." + normalize(table);
+    }
+
+    private TableRules getTable(String schema, String table) {
+        if (schema == null || table == null) {
+            return null;
+        }
+        int hash = tableHash(schema, table);
+        int slot = hash & tableMask;
+        TableRules tableRules;
+        while ((tableRules = tableSlots[slot]) != null) {
+            if (tableRules.matches(hash, schema, table)) {
+                return tableRules;
+            }
+            slot = (slot + 1) & tableMask;
+        }
+        return null;
+    }
+
+    static int tableCapacity(int size) {
+        int capacity = 2;
+        while (capacity < size * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    static int tableHash(String schema, String table) {
+        return spread(hash(hash(0, schema) * 31 + '.', table));
+    }
+
+    static int columnHash(String column) {
+        return spread(hash(0, column));
+    }
+
+    /**
+     * 忽略大小写的字符串哈希，与 {@link String#equalsIgnoreCase} 的比较口径一致
+     */
+    private static int hash(int h, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            h = 31 * h + fold(s.charAt(i));
+        }
+        return h;
+    }
+
+    static String normalize(String s) {
+        char[] chars = new char[s.length()];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = fold(s.charAt(i));
+        }
+        return new String(chars);
+    }
+
+    /**
+     * String#equals 为内建函数，远快于逐字符折叠比较的 equalsIgnoreCase，先用它判断大小写完全一致的常见情况
+     */
+    static boolean equalsIgnoreCase(String a, String b) {
+        return a.equals(b) || a.equalsIgnoreCase(b);
+    }
+
+    static char fold(char c) {
+        if (c < 0x80) {
+            return (c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : c;
+        }
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * 单张表的规则，表内按 column 再建一级开放寻址表
+     */
+    private static final class TableRules {
+        private final String schema;
+        private final String table;
+        private final int hash;
+
+        private final List<MaskingRuleConfig> rules;
+        private final MaskingRuleConfig[] columnSlots;
+        private final int[] columnHashes;
+        private final int columnMask;
+        /**
+         * 去重后的列数
+         */
+        private final int columnCount;
+
+        private TableRules(List<MaskingRuleConfig> rules) {
+            MaskingRuleConfig first = rules.get(0);
+            this.schema = first.getSchema();
+            this.table = first.getTable();
+            this.hash = tableHash(schema, table);
+            this.rules = Collections.unmodifiableList(rules);
+
+            this.columnSlots = new MaskingRuleConfig[tableCapacity(rules.size())];
+            this.columnHashes = new int[columnSlots.length];
+            this.columnMask = columnSlots.length - 1;
+            int columnCount = 0;
+            for (MaskingRuleConfig rule : rules) {
+                int columnHash = columnHash(rule.getColumn());
+                int slot = columnHash & columnMask;
+                boolean duplicated = false;
+                while (columnSlots[slot] != null) {
+                    if (columnHashes[slot] == columnHash && equalsIgnoreCase(columnSlots[slot].getColumn(), rule.getColumn())) {
+                        duplicated = true;
+                        break;
+                    }
+                    slot = (slot + 1) & columnMask;
+                }
+                if (!duplicated) {
+                    columnSlots[slot] = rule;
+                    columnHashes[slot] = columnHash;
+                    columnCount++;
+                }
+            }
+            this.columnCount = columnCount;
+        }
+
+        /**
+         * 两张表生效的规则是否完全相同：列集合相同，且每列的规则类型与参数相同
+         */
+        private boolean sameRules(TableRules other) {
+            if (other == null || other.columnCount != columnCount) {
+                return false;
+            }
+            for (MaskingRuleConfig rule : columnSlots) {
+                if (rule == null) {
+                    continue;
+                }
+                MaskingRuleConfig otherRule = other.get(rule.getColumn());
+                if (otherRule == null || otherRule.getRuleType() != rule.getRuleType()
+                        || !Arrays.equals(otherRule.getRuleParams(), rule.getRuleParams())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean matches(int hash, String schema, String table) {
+            return this.hash == hash
+                    && equalsIgnoreCase(this.schema, schema)
+                    && equalsIgnoreCase(this.table, table);
+        }
+
+        private MaskingRuleConfig get(String column) {
+            int columnHash = columnHash(column);
+            int slot = columnHash & columnMask;
+            MaskingRuleConfig rule;
+            while ((rule = columnSlots[slot]) != null) {
+                if (columnHashes[slot] == columnHash && equalsIgnoreCase(rule.getColumn(), column)) {
+                    return rule;
+                }
+                slot = (slot + 1) & columnMask;
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.whosly.avacita.core.mask.rule;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * 数据库规则表：按单调递增的版本列增量同步。
+ * <p>
+ * 规则表结构：
+ * <pre>
+ * schema_name  VARCHAR
+ * table_name   VARCHAR
+ * column_name  VARCHAR
+ * rule_type    VARCHAR   规则类型，如 mask_middle
+ * rule_params  VARCHAR   规则参数，多个以逗号分隔，可为空
+ * enabled      BOOLEAN   false 表示删除该列的规则
+ * version      BIGINT    每次插入或修改时取一个更大的值（如序列），建议建索引
+ * </pre>
+ * 首次同步读取全部行，得到全量规则；之后每 pollMillis 毫秒只查询 version 大于已同步的最大版本的行，
+ * 作为增量应用到当前规则集（只重建涉及的表），不会每次都重新加载全部规则。
+ * 同一列在一次增量中出现多行时以版本最大的为准。
+ * <p>
+ * 物理删除的行无法被增量查询看到：删除规则应将 enabled 置为 false 并更新 version。
+ * 版本号必须在事务提交顺序上单调递增，否则提交较晚但版本较小的行会被跳过。
+ */
+public class MaskingRuleJdbcSource implements MaskingRuleSource {
+    private static final Logger LOG = LoggerFactory.getLogger(MaskingRuleJdbcSource.class);
+
+    public static final String DEFAULT_TABLE = "masking_rules";
+    public static final long DEFAULT_POLL_MILLIS = 5000L;
+
+    private static final Pattern TABLE_NAME = Pattern.compile("[A-Za-z0-9_.]+");
+
+    /**
+     * 获取数据库连接，连接出错后会关闭并重新获取
+     */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection open() throws SQLException;
+    }
+
+    private final ConnectionFactory connectionFactory;
+    private final String table;
+    private final String query;
+    private final long pollMillis;
+
+    private Connection connection;
+    /**
+     * 已同步的最大版本号
+     */
+    private long syncedVersion = Long.MIN_VALUE;
+    private boolean synced;
+    private ScheduledExecutorService poller;
+
+    public MaskingRuleJdbcSource(String url, Properties info) {
+        this(() -> DriverManager.getConnection(url, info), DEFAULT_TABLE, DEFAULT_POLL_MILLIS);
+    }
+
+    public MaskingRuleJdbcSource(ConnectionFactory connectionFactory, String table, long pollMillis) {
+        if (!TABLE_NAME.matcher(table).matches()) {
+            throw new IllegalArgumentException("无效的规则表名: " + table);
+        }
+        this.connectionFactory = connectionFactory;
+        this.table = table;
+        this.query = "SELECT schema_name, table_name, column_name, rule_type, rule_params, enabled, version FROM "
+                + table + " WHERE version > ? ORDER BY version";
+        this.pollMillis = pollMillis;
+    }
+
+    @Override
+    public synchronized MaskingRuleBatch sync() throws IOException {
+        // 归一化的 schema.table.column -> 规则，按版本顺序读取，后面的行覆盖前面同一列的行
+        Map<String, MaskingRuleConfig> upserts = new LinkedHashMap<>();
+        Map<String, MaskingRuleConfig> removals = new LinkedHashMap<>();
+        long maxVersion = syncedVersion;
+        try {
+            if (connection == null) {
+                connection = connectionFactory.open();
+            }
+            try (PreparedStatement statement = connection.prepareStatement(query)) {
+                statement.setLong(1, syncedVersion);
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        MaskingRuleConfig rule = new MaskingRuleConfig(
+                                StringUtils.defaultString(rs.getString(1)),
+                                rs.getString(2),
+                                rs.getString(3),
+                                rs.getString(4),
+                                StringUtils.isBlank(rs.getString(5)) ? new String[0] : StringUtils.stripAll(rs.getString(5).split(","))
+                        );
+                        String key = (rule.getSchema() + "." + rule.getTable() + "." + rule.getColumn()).toLowerCase(Locale.ROOT);
+                        upserts.remove(key);
+                        removals.remove(key);
+                        if (rs.getBoolean(6)) {
+                            upserts.put(key, rule);
+                        } else {
+                            removals.put(key, rule);
+                        }
+                        maxVersion = Math.max(maxVersion, rs.getLong(7));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            closeConnection();
+            throw new IOException("读取脱敏规则表失败", e);
+        }
+
+        this.syncedVersion = maxVersion;
+        if (!synced) {
+            // 首次同步：禁用的行不需要删除任何规则
+            this.synced = true;
+            return MaskingRuleBatch.full(new ArrayList<>(upserts.values()));
+        }
+        if (upserts.isEmpty() && removals.isEmpty()) {
+            return null;
+        }
+        LOG.debug("脱敏规则表增量同步至版本 {}，修改 {} 条，删除 {} 条", maxVersion, upserts.size(), removals.size());
+        return MaskingRuleBatch.delta(new ArrayList<>(upserts.values()), new ArrayList<>(removals.values()));
+    }
+
+    /**
+     * 定时轮询规则表
+     */
+    @Override
+    public synchronized void watch(Runnable onChange) {
+        if (poller != null) {
+            return;
+        }
+        poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "avacita-mask-rule-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.scheduleWithFixedDelay(onChange, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (poller != null) {
+            poller.shutdownNow();
+        }
+        closeConnection();
+    }
+
+    private void closeConnection() {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            LOG.warn("关闭规则表连接失败", e);
+        }
+        connection = null;
+    }
+
+    @Override
+    public String toString() {
+        return "规则表 " + table;
+    }
+}
@@ -0,0 +1,12 @@
+package com.whosly.avacita.core.mask.rule;
+
+/**
+ * 规则变更监听器，通过 {@link MaskingConfigMeta#addRuleListener} 注册。
+ * <p>
+ * 在新版本规则生效之后、于规则加载线程上回调，且只在有表的规则发生变化时回调；实现应尽快返回，不要阻塞。
+ */
+@FunctionalInterface
+public interface MaskingRuleListener {
+
+    void onRulesChanged(MaskingRuleChange change);
+}
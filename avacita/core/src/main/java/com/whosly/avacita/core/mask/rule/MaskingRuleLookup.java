@@ -0,0 +1,62 @@
+package com.whosly.avacita.core.mask.rule;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 某个版本的脱敏规则集（schema/table/column 忽略大小写）。
+ * <p>
+ * 由 CSV 解析构建的堆内索引（{@link MaskingRuleIndex}），或由 {@link MaskingRuleCompiler} 编译、
+ * 内存映射的二进制规则库（{@link MaskingRuleStore}）实现；实例不可变，可在多线程间安全共享。
+ */
+interface MaskingRuleLookup {
+
+    /**
+     * 按 schema/table/column 查找规则，精确规则优先于通配符规则，不存在时返回 null
+     */
+    MaskingRuleConfig get(String schema, String table, String column);
+
+    /**
+     * 按 schema/table 查找该表的全部规则（精确规则在前，之后为 schema/table 部分与之匹配的通配符规则），不存在时返回空列表
+     */
+    List<MaskingRuleConfig> getTableRules(String schema, String table);
+
+    /**
+     * 表级快速判断：该 schema/table 是否存在任何规则（含可能匹配的通配符规则）
+     */
+    boolean hasTableRules(String schema, String table);
+
+    long version();
+
+    int size();
+
+    /**
+     * 通配符规则
+     */
+    MaskingRulePatterns patterns();
+
+    /**
+     * 表级预过滤，排除没有任何规则的表
+     */
+    MaskingTableFilter tableFilter();
+
+    /**
+     * 存在精确规则的全部表，{@link MaskingRuleIndex#tableKey} 形式
+     */
+    Set<String> tableKeys();
+
+    /**
+     * 与上一版本相比精确规则有变化（新增、删除，或某列的规则类型/参数变更）的表，{@link MaskingRuleIndex#tableKey} 形式
+     */
+    Set<String> changedTables(MaskingRuleLookup previous);
+
+    /**
+     * 无法逐表比较时（两个版本的实现不同），两个版本中出现的所有表均视为有变化
+     */
+    static Set<String> allTables(MaskingRuleLookup current, MaskingRuleLookup previous) {
+        Set<String> changed = new LinkedHashSet<>(current.tableKeys());
+        changed.addAll(previous.tableKeys());
+        return changed;
+    }
+}
@@ -0,0 +1,350 @@
+package com.whosly.avacita.core.mask.rule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 通配符规则（schema/table/column 中含 {@code *} 或 {@code ?}，忽略大小写），如 {@code *.t_emp_*.tel}、{@code demo.*.*_phone}。
+ * <p>
+ * {@code *} 匹配同一字段内任意长度的字符，{@code ?} 匹配同一字段内的单个字符，不跨越 schema/table/column 的边界。
+ * 加载时将全部通配符规则编译为一个自动机：按 schema、分隔符、table、分隔符、column 逐字符输入，
+ * DFA 状态在首次经过时由 NFA 子集构造得到并缓存，之后每次查找只需按名称长度走 O(n) 步，与通配符规则的数量无关。
+ * 同一列匹配多条通配符规则时，以加载顺序中的第一条为准；精确规则总是优先于通配符规则（见 {@link MaskingRuleIndex}）。
+ * <p>
+ * 具体列（schema.table.column）的匹配结果另外记忆化，重复查找同一列时不再经过自动机。
+ * DFA 状态数或记忆化条目超过上限时清空重建，避免病态的规则组合占用过多内存。
+ */
+final class MaskingRulePatterns {
+
+    static final MaskingRulePatterns EMPTY = compile(Collections.emptyList());
+
+    /**
+     * 字段分隔符，不会出现在名称中
+     */
+    private static final char SEPARATOR = '\0';
+    private static final int MAX_STATES = 10_000;
+    private static final int MAX_MEMO = 65_536;
+    private static final int NO_MATCH = -1;
+
+    private final MaskingRuleConfig[] rules;
+    /**
+     * 折叠大小写后的 schema、分隔符、table、分隔符、column
+     */
+    private final char[][] patterns;
+    /**
+     * 每条规则在 NFA 中的起始位置，位置 base[k] + i 表示已匹配 patterns[k] 的前 i 个字符
+     */
+    private final int[] base;
+    private final int[] owner;
+
+    private volatile Map<PositionSet, State> states;
+    private volatile State start;
+
+    private final Map<String, Integer> memo = new ConcurrentHashMap<>();
+
+    private MaskingRulePatterns(List<MaskingRuleConfig> rules) {
+        this.rules = rules.toArray(new MaskingRuleConfig[0]);
+        this.patterns = new char[this.rules.length][];
+        this.base = new int[this.rules.length];
+        int positions = 0;
+        for (int k = 0; k < this.rules.length; k++) {
+            MaskingRuleConfig rule = this.rules[k];
+            patterns[k] = fold(rule.getSchema() + SEPARATOR + rule.getTable() + SEPARATOR + rule.getColumn());
+            base[k] = positions;
+            positions += patterns[k].length + 1;
+        }
+        this.owner = new int[positions];
+        for (int k = 0; k < this.rules.length; k++) {
+            Arrays.fill(owner, base[k], base[k] + patterns[k].length + 1, k);
+        }
+        reset();
+    }
+
+    /**
+     * 按加载顺序编译通配符规则
+     */
+    static MaskingRulePatterns compile(List<MaskingRuleConfig> rules) {
+        return new MaskingRulePatterns(rules);
+    }
+
+    /**
+     * schema/table/column 中是否含通配符
+     */
+    static boolean isPattern(MaskingRuleConfig rule) {
+        return isGlob(rule.getSchema()) || isGlob(rule.getTable()) || isGlob(rule.getColumn());
+    }
+
+    static boolean isGlob(String s) {
+        return s.indexOf('*') >= 0 || s.indexOf('?') >= 0;
+    }
+
+    boolean isEmpty() {
+        return rules.length == 0;
+    }
+
+    int size() {
+        return rules.length;
+    }
+
+    List<MaskingRuleConfig> rules() {
+        return Collections.unmodifiableList(Arrays.asList(rules));
+    }
+
+    /**
+     * 查找与具体列匹配的第一条通配符规则，不存在时返回 null
+     */
+    MaskingRuleConfig get(String schema, String table, String column) {
+        if (rules.length == 0 || schema == null || table == null || column == null) {
+            return null;
+        }
+        String key = MaskingRuleIndex.tableKey(schema, table) + "." + MaskingRuleIndex.normalize(column);
+        Integer matched = memo.get(key);
+        if (matched == null) {
+            State state = feed(feed(feed(start, schema).next(SEPARATOR), table).next(SEPARATOR), column);
+            matched = state.accept;
+            if (memo.size() >= MAX_MEMO) {
+                memo.clear();
+            }
+            memo.put(key, matched);
+        }
+        return matched == NO_MATCH ? null : rules[matched];
+    }
+
+    /**
+     * 是否存在 schema、table 部分与该表匹配的通配符规则（该表的某些列可能需要脱敏）
+     */
+    boolean mayMatchTable(String schema, String table) {
+        if (rules.length == 0 || schema == null || table == null) {
+            return false;
+        }
+        return !feed(feed(start, schema).next(SEPARATOR), table).next(SEPARATOR).isDead();
+    }
+
+    /**
+     * schema、table 部分与该表匹配的通配符规则，按加载顺序
+     */
+    List<MaskingRuleConfig> getTableRules(String schema, String table) {
+        if (rules.length == 0 || schema == null || table == null) {
+            return Collections.emptyList();
+        }
+        List<MaskingRuleConfig> matched = new ArrayList<>();
+        for (MaskingRuleConfig rule : rules) {
+            if (globMatches(rule.getSchema(), schema) && globMatches(rule.getTable(), table)) {
+                matched.add(rule);
+            }
+        }
+        return matched;
+    }
+
+    /**
+     * 与上一版本相比有变化的通配符规则组，返回 {@link MaskingRuleIndex#tableKey} 形式的 schema.table 通配符。
+     * <p>
+     * 同一 schema.table 通配符下的规则按加载位置、列、规则类型与参数比较；
+     * 规则的先后顺序决定匹配结果，位置变化的规则组也视为有变化。
+     */
+    Set<String> changedPatterns(MaskingRulePatterns previous) {
+        if (previous == this) {
+            return Collections.emptySet();
+        }
+        Map<String, String> current = signatures();
+        Map<String, String> before = previous.signatures();
+        Set<String> changed = new LinkedHashSet<>();
+        for (Map.Entry<String, String> entry : current.entrySet()) {
+            if (!entry.getValue().equals(before.get(entry.getKey()))) {
+                changed.add(entry.getKey());
+            }
+        }
+        for (String key : before.keySet()) {
+            if (!current.containsKey(key)) {
+                changed.add(key);
+            }
+        }
+        return changed;
+    }
+
+    private Map<String, String> signatures() {
+        Map<String, StringBuilder> groups = new LinkedHashMap<>();
+        for (int k = 0; k < rules.length; k++) {
+            MaskingRuleConfig rule = rules[k];
+            groups.computeIfAbsent(MaskingRuleIndex.tableKey(rule.getSchema(), rule.getTable()), g -> new StringBuilder())
+                    .append(k).append(SEPARATOR)
+                    .append(MaskingRuleIndex.normalize(rule.getColumn())).append(SEPARATOR)
+                    .append(rule.getRuleType()).append(SEPARATOR)
+                    .append(String.join(String.valueOf(SEPARATOR), rule.getRuleParams())).append('\n');
+        }
+        Map<String, String> signatures = new LinkedHashMap<>();
+        groups.forEach((key, signature) -> signatures.put(key, signature.toString()));
+        return signatures;
+    }
+
+    /**
+     * 名称是否与通配符匹配（忽略大小写），不含通配符时即忽略大小写相等
+     */
+    static boolean globMatches(String glob, String name) {
+        int g = 0;
+        int n = 0;
+        int star = -1;
+        int backtrack = 0;
+        while (n < name.length()) {
+            if (g < glob.length() && glob.charAt(g) == '*') {
+                star = g++;
+                backtrack = n;
+            } else if (g < glob.length() && (glob.charAt(g) == '?'
+                    || MaskingRuleIndex.fold(glob.charAt(g)) == MaskingRuleIndex.fold(name.charAt(n)))) {
+                g++;
+                n++;
+            } else if (star >= 0) {
+                g = star + 1;
+                n = ++backtrack;
+            } else {
+                return false;
+            }
+        }
+        while (g < glob.length() && glob.charAt(g) == '*') {
+            g++;
+        }
+        return g == glob.length();
+    }
+
+    // ====================== 自动机 ======================
+
+    private static char[] fold(String s) {
+        char[] chars = s.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = MaskingRuleIndex.fold(chars[i]);
+        }
+        return chars;
+    }
+
+    private State feed(State state, String s) {
+        for (int i = 0; i < s.length() && !state.isDead(); i++) {
+            state = state.next(MaskingRuleIndex.fold(s.charAt(i)));
+        }
+        return state;
+    }
+
+    private void reset() {
+        this.states = new ConcurrentHashMap<>();
+        BitSet initial = new BitSet(owner.length);
+        for (int k = 0; k < rules.length; k++) {
+            initial.set(base[k]);
+        }
+        this.start = state(initial);
+    }
+
+    /**
+     * 在当前位置集合上输入字符 c，得到下一个位置集合
+     */
+    private BitSet step(int[] positions, char c) {
+        BitSet next = new BitSet(owner.length);
+        for (int position : positions) {
+            int k = owner[position];
+            int i = position - base[k];
+            if (i == patterns[k].length) {
+                continue;
+            }
+            char p = patterns[k][i];
+            if (p == '*') {
+                if (c != SEPARATOR) {
+                    next.set(position);
+                }
+            } else if (p == '?' ? c != SEPARATOR : p == c) {
+                next.set(position + 1);
+            }
+        }
+        return next;
+    }
+
+    /**
+     * 补全 * 可匹配空串的位置后，取得（或创建）对应的 DFA 状态
+     */
+    private State state(BitSet positions) {
+        for (int position = positions.nextSetBit(0); position >= 0; position = positions.nextSetBit(position + 1)) {
+            int k = owner[position];
+            int i = position - base[k];
+            if (i < patterns[k].length && patterns[k][i] == '*') {
+                positions.set(position + 1);
+            }
+        }
+        PositionSet key = new PositionSet(positions.stream().toArray());
+        Map<PositionSet, State> current = states;
+        State state = current.get(key);
+        if (state == null) {
+            if (current.size() >= MAX_STATES) {
+                reset();
+                current = states;
+            }
+            state = current.computeIfAbsent(key, State::new);
+        }
+        return state;
+    }
+
+    private final class State {
+        private final int[] positions;
+        /**
+         * 在此状态结束输入时匹配的规则（加载顺序最靠前的一条），NO_MATCH 表示没有
+         */
+        private final int accept;
+        /**
+         * ASCII 字符的转移，首次经过时填充；并发填充写入的是同一个（或等价的）状态，无需加锁
+         */
+        private final State[] ascii = new State[128];
+        private final Map<Character, State> other = new ConcurrentHashMap<>();
+
+        private State(PositionSet key) {
+            this.positions = key.positions;
+            int accept = NO_MATCH;
+            for (int position : positions) {
+                int k = owner[position];
+                if (position - base[k] == patterns[k].length) {
+                    accept = accept == NO_MATCH ? k : Math.min(accept, k);
+                }
+            }
+            this.accept = accept;
+        }
+
+        private boolean isDead() {
+            return positions.length == 0;
+        }
+
+        private State next(char c) {
+            if (c < ascii.length) {
+                State next = ascii[c];
+                if (next == null) {
+                    next = state(step(positions, c));
+                    ascii[c] = next;
+                }
+                return next;
+            }
+            return other.computeIfAbsent(c, ch -> state(step(positions, ch)));
+        }
+    }
+
+    private static final class PositionSet {
+        private final int[] positions;
+        private final int hash;
+
+        private PositionSet(int[] positions) {
+            this.positions = positions;
+            this.hash = Arrays.hashCode(positions);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof PositionSet && Arrays.equals(positions, ((PositionSet) o).positions);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
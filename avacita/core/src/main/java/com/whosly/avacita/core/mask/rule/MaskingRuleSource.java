@@ -0,0 +1,32 @@
+package com.whosly.avacita.core.mask.rule;
+
+import java.io.IOException;
+
+/**
+ * 脱敏规则的来源，由 {@link MaskingConfigMeta} 在加载与热加载时调用。
+ * <p>
+ * 内置两种实现：规则文件（{@link MaskingRuleFileSource}，CSV 或编译好的二进制规则库，监听文件变更）
+ * 与数据库规则表（{@link MaskingRuleJdbcSource}，按版本列定时增量同步）。
+ * <p>
+ * {@link #sync()} 只在加载线程上串行调用；首次调用返回全量规则，之后可返回全量或增量，
+ * 增量直接应用到当前规则集，只重建涉及的表，不再重新加载全部规则。
+ */
+public interface MaskingRuleSource {
+
+    /**
+     * 读取自上次同步以来的变更
+     *
+     * @return 全量（{@link MaskingRuleBatch#full}）或增量（{@link MaskingRuleBatch#delta}）规则；没有变化时返回 null
+     */
+    MaskingRuleBatch sync() throws IOException;
+
+    /**
+     * 开始监听规则变更，可能有变更时调用 onChange（由其再调用 {@link #sync()}）；不支持监听时什么也不做
+     */
+    void watch(Runnable onChange);
+
+    /**
+     * 停止监听并释放资源
+     */
+    void close();
+}
@@ -0,0 +1,597 @@
+package com.whosly.avacita.core.mask.rule;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 由 {@link MaskingRuleCompiler} 编译的二进制规则库。
+ * <p>
+ * 文件内存映射后直接在映射区上查找：表与列两级开放寻址哈希表（哈希与 {@link MaskingRuleIndex} 相同），
+ * 命中后逐字节比较字符串确认，不需要为每条规则创建 MaskingRuleConfig；
+ * 规则只在首次被查到时才创建并缓存，加载耗时和堆占用与规则总数基本无关。
+ * <p>
+ * 文件格式（大端序），各区段依次紧邻：
+ * <pre>
+ * header       magic "AVMR" | 格式版本 | 源文件校验和(long) | 表数 | 规则数 | 表槽数 | 列槽数 | 参数数 | 字符串区字节数 | 通配符规则数
+ * table slots  int[表槽数]：表序号 + 1，0 为空槽
+ * tables       按 schema.table 排序，每张表：schema | table | 表哈希 | 首条规则 | 规则数 | 首个列槽 | 列槽数 | 规则摘要(long)
+ * column slots int[列槽数]：各表的列哈希表依次排列，值为规则序号 + 1，0 为空槽；同一列出现多次时指向第一条
+ * rules        按表、表内按加载顺序排列，每条规则：column | 列哈希 | 规则类型 | 首个参数 | 参数数
+ * params       int[参数数]：参数字符串
+ * patterns     通配符规则，按加载顺序，每条规则：schema | table | column | 规则类型 | 首个参数 | 参数数
+ * strings      排序去重后的字符串表，每项为 长度 + UTF-8 字节；以上字符串均为该区内的字节偏移
+ * </pre>
+ * 规则摘要按列汇总每列生效的规则类型与参数，新旧两个规则库按 schema.table 顺序归并比较摘要即可得出有变化的表。
+ * <p>
+ * 通配符规则通常很少，打开规则库时即创建并编译为 {@link MaskingRulePatterns}，只在精确查找未命中时使用。
+ */
+final class MaskingRuleStore implements MaskingRuleLookup {
+
+    static final int MAGIC = 0x41564D52;
+    static final int FORMAT_VERSION = 2;
+
+    private static final int HEADER_BYTES = 44;
+    private static final int TABLE_BYTES = 36;
+    private static final int RULE_BYTES = 20;
+    private static final int PATTERN_BYTES = 24;
+
+    private final ByteBuffer buffer;
+    private final long version;
+    private final long checksum;
+    private final int tableCount;
+    private final int ruleCount;
+    private final int tableMask;
+    private final int tableSlotsOffset;
+    private final int tablesOffset;
+    private final int columnSlotsOffset;
+    private final int rulesOffset;
+    private final int paramsOffset;
+    private final int stringsOffset;
+    private final MaskingRulePatterns patterns;
+    private final MaskingTableFilter tableFilter;
+
+    /**
+     * 已查到过的规则，按规则序号缓存
+     */
+    private final Map<Integer, MaskingRuleConfig> materialized;
+
+    private MaskingRuleStore(ByteBuffer buffer, long version) throws IOException {
+        if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("不是脱敏规则库文件");
+        }
+        if (buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("不支持的脱敏规则库格式版本: " + buffer.getInt(4));
+        }
+        this.buffer = buffer;
+        this.version = version;
+        this.materialized = new ConcurrentHashMap<>();
+        this.checksum = buffer.getLong(8);
+        this.tableCount = buffer.getInt(16);
+        this.ruleCount = buffer.getInt(20);
+        int tableSlotCount = buffer.getInt(24);
+        int columnSlotCount = buffer.getInt(28);
+        int paramCount = buffer.getInt(32);
+        int stringsLength = buffer.getInt(36);
+        int patternCount = buffer.getInt(40);
+        if (Integer.bitCount(tableSlotCount) != 1 || tableSlotCount <= tableCount) {
+            throw new IOException("脱敏规则库已损坏: 表槽数 " + tableSlotCount);
+        }
+
+        this.tableMask = tableSlotCount - 1;
+        this.tableSlotsOffset = HEADER_BYTES;
+        this.tablesOffset = tableSlotsOffset + tableSlotCount * 4;
+        this.columnSlotsOffset = tablesOffset + tableCount * TABLE_BYTES;
+        this.rulesOffset = columnSlotsOffset + columnSlotCount * 4;
+        this.paramsOffset = rulesOffset + ruleCount * RULE_BYTES;
+        int patternsOffset = paramsOffset + paramCount * 4;
+        this.stringsOffset = patternsOffset + patternCount * PATTERN_BYTES;
+        if (stringsOffset + stringsLength != buffer.limit()) {
+            throw new IOException("脱敏规则库已损坏: 文件长度 " + buffer.limit());
+        }
+
+        List<MaskingRuleConfig> patternRules = new ArrayList<>(patternCount);
+        for (int p = 0; p < patternCount; p++) {
+            int record = patternsOffset + p * PATTERN_BYTES;
+            patternRules.add(new MaskingRuleConfig(
+                    string(buffer.getInt(record)),
+                    string(buffer.getInt(record + 4)),
+                    string(buffer.getInt(record + 8)),
+                    string(buffer.getInt(record + 12)),
+                    params(buffer.getInt(record + 16), buffer.getInt(record + 20))
+            ));
+        }
+        this.patterns = patternRules.isEmpty() ? MaskingRulePatterns.EMPTY : MaskingRulePatterns.compile(patternRules);
+
+        this.tableFilter = MaskingTableFilter.create(tableCount, patterns);
+        for (int t = 0; t < tableCount; t++) {
+            tableFilter.add(tableNameHash(buffer.getInt(tablesOffset + t * TABLE_BYTES + 4)));
+        }
+    }
+
+    private MaskingRuleStore(MaskingRuleStore store, long version) {
+        this.buffer = store.buffer;
+        this.version = version;
+        this.materialized = store.materialized;
+        this.checksum = store.checksum;
+        this.tableCount = store.tableCount;
+        this.ruleCount = store.ruleCount;
+        this.tableMask = store.tableMask;
+        this.tableSlotsOffset = store.tableSlotsOffset;
+        this.tablesOffset = store.tablesOffset;
+        this.columnSlotsOffset = store.columnSlotsOffset;
+        this.rulesOffset = store.rulesOffset;
+        this.paramsOffset = store.paramsOffset;
+        this.stringsOffset = store.stringsOffset;
+        this.patterns = store.patterns;
+        this.tableFilter = store.tableFilter;
+    }
+
+    /**
+     * 内存映射并打开规则库文件
+     */
+    static MaskingRuleStore open(Path file, long version) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // 映射在通道关闭后仍然有效；文件被重命名替换时，旧映射继续指向旧文件的内容
+            return new MaskingRuleStore(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), version);
+        }
+    }
+
+    /**
+     * 从已读入内存的内容打开规则库（如 jar 内的资源）
+     */
+    static MaskingRuleStore load(byte[] content, long version) throws IOException {
+        return new MaskingRuleStore(ByteBuffer.wrap(content), version);
+    }
+
+    static boolean isStore(byte[] content) {
+        return content.length >= 4 && ByteBuffer.wrap(content).getInt(0) == MAGIC;
+    }
+
+    static boolean isStore(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+                // 读满 4 字节
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * 同一规则库的另一个版本号（共享映射与已查到的规则），由加载方分配版本号
+     */
+    MaskingRuleStore withVersion(long version) {
+        return new MaskingRuleStore(this, version);
+    }
+
+    /**
+     * 编译时源文件内容的校验和，用于判断重新加载时内容是否变化
+     */
+    long checksum() {
+        return checksum;
+    }
+
+    @Override
+    public long version() {
+        return version;
+    }
+
+    @Override
+    public int size() {
+        return ruleCount + patterns.size();
+    }
+
+    @Override
+    public MaskingRulePatterns patterns() {
+        return patterns;
+    }
+
+    @Override
+    public MaskingTableFilter tableFilter() {
+        return tableFilter;
+    }
+
+    @Override
+    public MaskingRuleConfig get(String schema, String table, String column) {
+        if (column == null) {
+            return null;
+        }
+        int t = findTable(schema, table);
+        int r = t < 0 ? -1 : findRule(t, column);
+        if (r >= 0) {
+            return rule(t, r);
+        }
+        return patterns.isEmpty() ? null : patterns.get(schema, table, column);
+    }
+
+    @Override
+    public List<MaskingRuleConfig> getTableRules(String schema, String table) {
+        int t = findTable(schema, table);
+        List<MaskingRuleConfig> matched = patterns.getTableRules(schema, table);
+        if (t < 0) {
+            return matched;
+        }
+        int record = tablesOffset + t * TABLE_BYTES;
+        int firstRule = buffer.getInt(record + 12);
+        int count = buffer.getInt(record + 16);
+        List<MaskingRuleConfig> rules = new ArrayList<>(count + matched.size());
+        for (int r = firstRule; r < firstRule + count; r++) {
+            rules.add(rule(t, r));
+        }
+        rules.addAll(matched);
+        return Collections.unmodifiableList(rules);
+    }
+
+    @Override
+    public boolean hasTableRules(String schema, String table) {
+        return findTable(schema, table) >= 0 || patterns.mayMatchTable(schema, table);
+    }
+
+    @Override
+    public Set<String> tableKeys() {
+        Set<String> keys = new LinkedHashSet<>();
+        for (int t = 0; t < tableCount; t++) {
+            keys.add(tableKey(t));
+        }
+        return keys;
+    }
+
+    @Override
+    public Set<String> changedTables(MaskingRuleLookup lookup) {
+        if (!(lookup instanceof MaskingRuleStore)) {
+            return MaskingRuleLookup.allTables(this, lookup);
+        }
+        MaskingRuleStore previous = (MaskingRuleStore) lookup;
+
+        // 两个规则库的表都按 schema.table 排序，归并比较
+        Set<String> changed = new LinkedHashSet<>();
+        int i = 0;
+        int j = 0;
+        while (i < tableCount || j < previous.tableCount) {
+            String key = i < tableCount ? tableKey(i) : null;
+            String previousKey = j < previous.tableCount ? previous.tableKey(j) : null;
+            int cmp = key == null ? 1 : previousKey == null ? -1 : key.compareTo(previousKey);
+            if (cmp < 0) {
+                changed.add(key);
+                i++;
+            } else if (cmp > 0) {
+                changed.add(previousKey);
+                j++;
+            } else {
+                if (digest(i) != previous.digest(j)) {
+                    changed.add(key);
+                }
+                i++;
+                j++;
+            }
+        }
+        return changed;
+    }
+
+    private int findTable(String schema, String table) {
+        if (schema == null || table == null) {
+            return -1;
+        }
+        int hash = MaskingRuleIndex.tableHash(schema, table);
+        int slot = hash & tableMask;
+        int value;
+        while ((value = buffer.getInt(tableSlotsOffset + slot * 4)) != 0) {
+            int record = tablesOffset + (value - 1) * TABLE_BYTES;
+            if (buffer.getInt(record + 8) == hash
+                    && matches(buffer.getInt(record), schema)
+                    && matches(buffer.getInt(record + 4), table)) {
+                return value - 1;
+            }
+            slot = (slot + 1) & tableMask;
+        }
+        return -1;
+    }
+
+    private int findRule(int t, String column) {
+        int record = tablesOffset + t * TABLE_BYTES;
+        int firstSlot = buffer.getInt(record + 20);
+        int columnMask = buffer.getInt(record + 24) - 1;
+        int hash = MaskingRuleIndex.columnHash(column);
+        int slot = hash & columnMask;
+        int value;
+        while ((value = buffer.getInt(columnSlotsOffset + (firstSlot + slot) * 4)) != 0) {
+            int rule = rulesOffset + (value - 1) * RULE_BYTES;
+            if (buffer.getInt(rule + 4) == hash && matches(buffer.getInt(rule), column)) {
+                return value - 1;
+            }
+            slot = (slot + 1) & columnMask;
+        }
+        return -1;
+    }
+
+    private MaskingRuleConfig rule(int t, int r) {
+        MaskingRuleConfig rule = materialized.get(r);
+        if (rule == null) {
+            rule = materialized.computeIfAbsent(r, k -> materialize(t, r));
+        }
+        return rule;
+    }
+
+    private MaskingRuleConfig materialize(int t, int r) {
+        int table = tablesOffset + t * TABLE_BYTES;
+        int rule = rulesOffset + r * RULE_BYTES;
+        return new MaskingRuleConfig(
+                string(buffer.getInt(table)),
+                string(buffer.getInt(table + 4)),
+                string(buffer.getInt(rule)),
+                string(buffer.getInt(rule + 8)),
+                params(buffer.getInt(rule + 12), buffer.getInt(rule + 16))
+        );
+    }
+
+    private String[] params(int firstParam, int count) {
+        String[] params = new String[count];
+        for (int p = 0; p < count; p++) {
+            params[p] = string(buffer.getInt(paramsOffset + (firstParam + p) * 4));
+        }
+        return params;
+    }
+
+    private String tableKey(int t) {
+        int record = tablesOffset + t * TABLE_BYTES;
+        return MaskingRuleIndex.tableKey(string(buffer.getInt(record)), string(buffer.getInt(record + 4)));
+    }
+
+    private long digest(int t) {
+        return buffer.getLong(tablesOffset + t * TABLE_BYTES + 28);
+    }
+
+    /**
+     * 表名的 {@link MaskingTableFilter#hash}：ASCII 表名直接按 UTF-8 字节计算，不解码为字符串
+     */
+    private int tableNameHash(int ref) {
+        int length = buffer.getInt(stringsOffset + ref);
+        int start = stringsOffset + ref + 4;
+        int h = 0;
+        for (int i = 0; i < length; i++) {
+            byte b = buffer.get(start + i);
+            if (b < 0) {
+                return MaskingTableFilter.hash(string(ref));
+            }
+            h = 31 * h + MaskingRuleIndex.fold((char) b);
+        }
+        return MaskingRuleIndex.spread(h);
+    }
+
+    private String string(int ref) {
+        byte[] bytes = new byte[buffer.getInt(stringsOffset + ref)];
+        buffer.get(stringsOffset + ref + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 字符串表中的字符串与 s 是否忽略大小写相等：ASCII 字符串直接在映射区上逐字节比较，不创建对象
+     */
+    private boolean matches(int ref, String s) {
+        int length = buffer.getInt(stringsOffset + ref);
+        // UTF-8 字节数不小于字符数
+        if (length < s.length()) {
+            return false;
+        }
+        if (length == s.length()) {
+            int start = stringsOffset + ref + 4;
+            for (int i = 0; i < length; i++) {
+                byte b = buffer.get(start + i);
+                if (b < 0) {
+                    return MaskingRuleIndex.equalsIgnoreCase(string(ref), s);
+                }
+                if (MaskingRuleIndex.fold((char) b) != MaskingRuleIndex.fold(s.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return MaskingRuleIndex.equalsIgnoreCase(string(ref), s);
+    }
+
+    // ====================== 编译 ======================
+
+    /**
+     * 将按加载顺序排列的规则编译为规则库文件：先写入同目录下的临时文件，再原子重命名为 target
+     *
+     * @param checksum 源文件内容的校验和
+     */
+    static void write(List<MaskingRuleConfig> allRules, long checksum, Path target) throws IOException {
+        // 按归一化后的 schema.table 分组并排序，表内保持加载顺序；通配符规则单独存放
+        Map<String, List<MaskingRuleConfig>> groups = new LinkedHashMap<>();
+        List<MaskingRuleConfig> rules = new ArrayList<>();
+        List<MaskingRuleConfig> patternRules = new ArrayList<>();
+        for (MaskingRuleConfig rule : allRules) {
+            if (MaskingRulePatterns.isPattern(rule)) {
+                patternRules.add(rule);
+                continue;
+            }
+            rules.add(rule);
+            groups.computeIfAbsent(MaskingRuleIndex.tableKey(rule.getSchema(), rule.getTable()), k -> new ArrayList<>())
+                    .add(rule);
+        }
+        List<List<MaskingRuleConfig>> tables = new ArrayList<>(new TreeMap<>(groups).values());
+
+        // 字符串表：先去重再排序
+        Set<String> unique = new HashSet<>();
+        int paramCount = 0;
+        for (MaskingRuleConfig rule : allRules) {
+            unique.add(rule.getSchema());
+            unique.add(rule.getTable());
+            unique.add(rule.getColumn());
+            unique.add(rule.getRuleType().name());
+            unique.addAll(Arrays.asList(rule.getRuleParams()));
+            paramCount += rule.getRuleParams().length;
+        }
+        List<String> strings = new ArrayList<>(unique);
+        Collections.sort(strings);
+        Map<String, Integer> refs = new HashMap<>(strings.size() * 2);
+        int stringsLength = 0;
+        for (String s : strings) {
+            refs.put(s, stringsLength);
+            stringsLength += 4 + s.getBytes(StandardCharsets.UTF_8).length;
+        }
+
+        int tableSlotCount = MaskingRuleIndex.tableCapacity(tables.size());
+        int columnSlotCount = 0;
+        for (List<MaskingRuleConfig> table : tables) {
+            columnSlotCount += MaskingRuleIndex.tableCapacity(table.size());
+        }
+
+        ByteBuffer out = ByteBuffer.allocate(HEADER_BYTES + tableSlotCount * 4 + tables.size() * TABLE_BYTES
+                + columnSlotCount * 4 + rules.size() * RULE_BYTES + paramCount * 4
+                + patternRules.size() * PATTERN_BYTES + stringsLength);
+        out.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(checksum)
+                .putInt(tables.size()).putInt(rules.size()).putInt(tableSlotCount).putInt(columnSlotCount)
+                .putInt(paramCount).putInt(stringsLength).putInt(patternRules.size());
+
+        int tableSlotsOffset = HEADER_BYTES;
+        int tablesOffset = tableSlotsOffset + tableSlotCount * 4;
+        int columnSlotsOffset = tablesOffset + tables.size() * TABLE_BYTES;
+        int rulesOffset = columnSlotsOffset + columnSlotCount * 4;
+        int paramsOffset = rulesOffset + rules.size() * RULE_BYTES;
+        int patternsOffset = paramsOffset + paramCount * 4;
+        int stringsOffset = patternsOffset + patternRules.size() * PATTERN_BYTES;
+
+        int ruleIndex = 0;
+        int columnSlot = 0;
+        int paramIndex = 0;
+        for (int t = 0; t < tables.size(); t++) {
+            List<MaskingRuleConfig> tableRules = tables.get(t);
+            MaskingRuleConfig first = tableRules.get(0);
+            int tableHash = MaskingRuleIndex.tableHash(first.getSchema(), first.getTable());
+
+            int slot = tableHash & (tableSlotCount - 1);
+            while (out.getInt(tableSlotsOffset + slot * 4) != 0) {
+                slot = (slot + 1) & (tableSlotCount - 1);
+            }
+            out.putInt(tableSlotsOffset + slot * 4, t + 1);
+
+            // 表内列哈希表，同一列只保留第一条
+            int capacity = MaskingRuleIndex.tableCapacity(tableRules.size());
+            List<MaskingRuleConfig> effective = new ArrayList<>();
+            for (int i = 0; i < tableRules.size(); i++) {
+                MaskingRuleConfig rule = tableRules.get(i);
+                int columnHash = MaskingRuleIndex.columnHash(rule.getColumn());
+                int record = rulesOffset + (ruleIndex + i) * RULE_BYTES;
+                out.putInt(record, refs.get(rule.getColumn()));
+                out.putInt(record + 4, columnHash);
+                out.putInt(record + 8, refs.get(rule.getRuleType().name()));
+                out.putInt(record + 12, paramIndex);
+                out.putInt(record + 16, rule.getRuleParams().length);
+                for (String param : rule.getRuleParams()) {
+                    out.putInt(paramsOffset + paramIndex++ * 4, refs.get(param));
+                }
+
+                int c = columnHash & (capacity - 1);
+                boolean duplicated = false;
+                int value;
+                while ((value = out.getInt(columnSlotsOffset + (columnSlot + c) * 4)) != 0) {
+                    MaskingRuleConfig existing = tableRules.get(value - 1 - ruleIndex);
+                    if (MaskingRuleIndex.equalsIgnoreCase(existing.getColumn(), rule.getColumn())) {
+                        duplicated = true;
+                        break;
+                    }
+                    c = (c + 1) & (capacity - 1);
+                }
+                if (!duplicated) {
+                    out.putInt(columnSlotsOffset + (columnSlot + c) * 4, ruleIndex + i + 1);
+                    effective.add(rule);
+                }
+            }
+
+            int record = tablesOffset + t * TABLE_BYTES;
+            out.putInt(record, refs.get(first.getSchema()));
+            out.putInt(record + 4, refs.get(first.getTable()));
+            out.putInt(record + 8, tableHash);
+            out.putInt(record + 12, ruleIndex);
+            out.putInt(record + 16, tableRules.size());
+            out.putInt(record + 20, columnSlot);
+            out.putInt(record + 24, capacity);
+            out.putLong(record + 28, digest(effective));
+
+            ruleIndex += tableRules.size();
+            columnSlot += capacity;
+        }
+
+        for (int p = 0; p < patternRules.size(); p++) {
+            MaskingRuleConfig rule = patternRules.get(p);
+            int record = patternsOffset + p * PATTERN_BYTES;
+            out.putInt(record, refs.get(rule.getSchema()));
+            out.putInt(record + 4, refs.get(rule.getTable()));
+            out.putInt(record + 8, refs.get(rule.getColumn()));
+            out.putInt(record + 12, refs.get(rule.getRuleType().name()));
+            out.putInt(record + 16, paramIndex);
+            out.putInt(record + 20, rule.getRuleParams().length);
+            for (String param : rule.getRuleParams()) {
+                out.putInt(paramsOffset + paramIndex++ * 4, refs.get(param));
+            }
+        }
+
+        out.position(stringsOffset);
+        for (String s : strings) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            out.putInt(bytes.length).put(bytes);
+        }
+
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.write(tmp, out.array());
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * 按列（归一化后排序）汇总每列生效的规则类型与参数
+     */
+    private static long digest(List<MaskingRuleConfig> effective) {
+        List<MaskingRuleConfig> sorted = new ArrayList<>(effective);
+        sorted.sort(Comparator.comparing(rule -> MaskingRuleIndex.normalize(rule.getColumn())));
+        long hash = 0xcbf29ce484222325L;
+        for (MaskingRuleConfig rule : sorted) {
+            hash = fnv(hash, MaskingRuleIndex.normalize(rule.getColumn()));
+            hash = fnv(hash, rule.getRuleType().name());
+            for (String param : rule.getRuleParams()) {
+                hash = fnv(hash, param);
+            }
+            hash = fnv(hash, "\n");
+        }
+        return hash;
+    }
+
+    /**
+     * 源文件内容的校验和（FNV-1a 64）
+     */
+    static long checksum(byte[] content) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : content) {
+            hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static long fnv(long hash, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            hash = (hash ^ s.charAt(i)) * 0x100000001b3L;
+        }
+        // 字段分隔
+        return (hash ^ 0xffff) * 0x100000001b3L;
+    }
+}
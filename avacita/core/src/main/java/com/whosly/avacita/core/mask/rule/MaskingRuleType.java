@@ -1,4 +1,4 @@
-package com.whosly.avacita.server.query.mask.rewrite.rule;
+package com.whosly.avacita.core.mask.rule;
 
 import org.apache.commons.lang3.StringUtils;
 
@@ -26,6 +26,9 @@ public enum MaskingRuleType {
      */
     HASH,
 
+    /**
+     * 保留左、右若干位，中间逐字符掩码，长度与原值相同
+     */
     PARTIAL,
 
     REGEX,
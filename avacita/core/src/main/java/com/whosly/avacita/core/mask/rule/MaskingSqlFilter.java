@@ -0,0 +1,279 @@
+package com.whosly.avacita.core.mask.rule;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * SQL 词法预过滤：回答"这条 SQL 是否可能引用需要脱敏的列"。绝大多数查询不涉及脱敏表，在这里即可排除，不再经过 Calcite 解析。
+ * <p>
+ * 由规则集中全部的表名、列名（不含 schema，忽略大小写）构建一个 Aho-Corasick 自动机，对原始 SQL 文本做一次线性扫描：
+ * 同时出现某个有规则的表名、以及某个有规则的列名或 {@code *} 时返回 true。表名与列名按完整单词匹配（前后不是字母、数字、_、$），
+ * 反引号、引号包围的标识符同样能匹配；注释与字符串中出现的名称只会带来误判、不会漏判。
+ * <p>
+ * 通配符规则取其表名、列名中最长的不含通配符的片段放入自动机，按子串匹配；没有这种片段的（如列名为 {@code *}）该项条件视为总是满足。
+ * <p>
+ * 随规则集的每个版本构建，构建完成后不可变。
+ */
+final class MaskingSqlFilter {
+
+    static final MaskingSqlFilter EMPTY = new MaskingSqlFilter(new LinkedHashMap<>(), false, false, false);
+
+    private static final int WORD_TABLE = 1;
+    private static final int WORD_COLUMN = 2;
+    private static final int PART_TABLE = 4;
+    private static final int PART_COLUMN = 8;
+
+    private static final int TABLE = 1;
+    private static final int COLUMN = 2;
+
+    private static final int ROOT = 0;
+    private static final int ASCII = 128;
+
+    /**
+     * 规则集为空时为 false，任何 SQL 都不需要解析
+     */
+    private final boolean enabled;
+    /**
+     * 需要同时满足的条件（TABLE、COLUMN），无法由自动机判断的条件不在其中
+     */
+    private final int required;
+
+    /**
+     * 根状态按 ASCII 字符直接寻址的转移，SQL 中的大部分字符在这里就回到根状态
+     */
+    private final int[] rootAscii = new int[ASCII];
+    /**
+     * 各状态的出边：按字符排序的标签与目标状态
+     */
+    private char[][] labels;
+    private int[][] targets;
+    private int[] fail;
+    /**
+     * 在该状态结束的名称（WORD_* / PART_*）
+     */
+    private int[] output;
+    /**
+     * 失败链上下一个有输出的状态，没有时为 ROOT
+     */
+    private int[] outputLink;
+    private int[] depth;
+    private int size;
+
+    private MaskingSqlFilter(Map<String, Integer> names, boolean enabled, boolean anyTable, boolean anyColumn) {
+        this.enabled = enabled;
+        this.required = (anyTable ? 0 : TABLE) | (anyColumn ? 0 : COLUMN);
+        build(names);
+    }
+
+    /**
+     * 由某个版本的规则集构建
+     */
+    static MaskingSqlFilter build(MaskingRuleLookup lookup) {
+        if (lookup.size() == 0) {
+            return EMPTY;
+        }
+        Map<String, Integer> names = new LinkedHashMap<>();
+        for (String key : lookup.tableKeys()) {
+            int dot = key.indexOf('.');
+            String schema = key.substring(0, dot);
+            String table = key.substring(dot + 1);
+            names.merge(table, WORD_TABLE, (a, b) -> a | b);
+            for (MaskingRuleConfig rule : lookup.getTableRules(schema, table)) {
+                addName(names, rule.getColumn(), WORD_COLUMN, PART_COLUMN);
+            }
+        }
+        boolean anyTable = false;
+        boolean anyColumn = false;
+        for (MaskingRuleConfig rule : lookup.patterns().rules()) {
+            anyTable |= !addName(names, rule.getTable(), WORD_TABLE, PART_TABLE);
+            anyColumn |= !addName(names, rule.getColumn(), WORD_COLUMN, PART_COLUMN);
+        }
+        return new MaskingSqlFilter(names, true, anyTable, anyColumn);
+    }
+
+    /**
+     * 放入一个表名或列名，含通配符时放入最长的字面片段；没有字面片段时返回 false
+     */
+    private static boolean addName(Map<String, Integer> names, String name, int word, int part) {
+        if (!MaskingRulePatterns.isGlob(name)) {
+            names.merge(MaskingRuleIndex.normalize(name), word, (a, b) -> a | b);
+            return true;
+        }
+        String longest = "";
+        for (String fragment : name.split("[*?]")) {
+            if (fragment.length() > longest.length()) {
+                longest = fragment;
+            }
+        }
+        if (longest.isEmpty()) {
+            return false;
+        }
+        names.merge(MaskingRuleIndex.normalize(longest), part, (a, b) -> a | b);
+        return true;
+    }
+
+    /**
+     * SQL 是否可能引用需要脱敏的列；返回 false 时一定不会
+     */
+    boolean mightReference(String sql) {
+        if (!enabled) {
+            return false;
+        }
+        int found = 0;
+        int state = ROOT;
+        int length = sql.length();
+        for (int i = 0; i < length; i++) {
+            char c = sql.charAt(i);
+            if (c == '*') {
+                found |= COLUMN;
+            }
+            state = next(state, MaskingRuleIndex.fold(c));
+            if (state == ROOT) {
+                if ((found & required) == required) {
+                    return true;
+                }
+                continue;
+            }
+            for (int s = output[state] != 0 ? state : outputLink[state]; s != ROOT; s = outputLink[s]) {
+                int flags = output[s];
+                found |= flags >>> 2;
+                if ((flags & (WORD_TABLE | WORD_COLUMN)) != 0 && isWord(sql, i - depth[s] + 1, i + 1)) {
+                    found |= flags & (WORD_TABLE | WORD_COLUMN);
+                }
+            }
+            if ((found & required) == required) {
+                return true;
+            }
+        }
+        return (found & required) == required;
+    }
+
+    /**
+     * sql[start, end) 前后都不是标识符字符
+     */
+    private static boolean isWord(String sql, int start, int end) {
+        return (start == 0 || !isWordPart(sql.charAt(start - 1))) && (end == sql.length() || !isWordPart(sql.charAt(end)));
+    }
+
+    private static boolean isWordPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+
+    private int next(int state, char c) {
+        while (true) {
+            if (state == ROOT) {
+                return c < ASCII ? rootAscii[c] : edge(ROOT, c);
+            }
+            int target = edge(state, c);
+            if (target != ROOT) {
+                return target;
+            }
+            state = fail[state];
+        }
+    }
+
+    /**
+     * 状态的出边，没有时返回 ROOT
+     */
+    private int edge(int state, char c) {
+        char[] chars = labels[state];
+        int index = chars.length <= 8 ? linearSearch(chars, c) : Arrays.binarySearch(chars, c);
+        return index < 0 ? ROOT : targets[state][index];
+    }
+
+    private static int linearSearch(char[] chars, char c) {
+        for (int i = 0; i < chars.length; i++) {
+            if (chars[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void build(Map<String, Integer> names) {
+        int capacity = 1;
+        for (String name : names.keySet()) {
+            capacity += name.length();
+        }
+        labels = new char[capacity][];
+        targets = new int[capacity][];
+        fail = new int[capacity];
+        output = new int[capacity];
+        outputLink = new int[capacity];
+        depth = new int[capacity];
+        labels[ROOT] = new char[0];
+        targets[ROOT] = new int[0];
+        size = 1;
+
+        // 构建 trie
+        for (Map.Entry<String, Integer> entry : names.entrySet()) {
+            String name = entry.getKey();
+            int state = ROOT;
+            for (int i = 0; i < name.length(); i++) {
+                char c = name.charAt(i);
+                int target = edge(state, c);
+                if (target == ROOT) {
+                    target = addState(state, c, i + 1);
+                }
+                state = target;
+            }
+            output[state] |= entry.getValue();
+        }
+
+        // 按广度优先计算失败链与输出链
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int target : targets[ROOT]) {
+            queue.add(target);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int i = 0; i < labels[state].length; i++) {
+                char c = labels[state][i];
+                int target = targets[state][i];
+                int f = fail[state];
+                while (f != ROOT && edge(f, c) == ROOT) {
+                    f = fail[f];
+                }
+                f = edge(f, c);
+                fail[target] = f == target ? ROOT : f;
+                outputLink[target] = output[fail[target]] != 0 ? fail[target] : outputLink[fail[target]];
+                queue.add(target);
+            }
+        }
+
+        for (int i = 0; i < labels[ROOT].length; i++) {
+            if (labels[ROOT][i] < ASCII) {
+                rootAscii[labels[ROOT][i]] = targets[ROOT][i];
+            }
+        }
+    }
+
+    private int addState(int parent, char c, int stateDepth) {
+        int state = size++;
+        labels[state] = new char[0];
+        targets[state] = new int[0];
+        depth[state] = stateDepth;
+
+        char[] chars = labels[parent];
+        int index = -Arrays.binarySearch(chars, c) - 1;
+        char[] newChars = new char[chars.length + 1];
+        int[] newTargets = new int[chars.length + 1];
+        System.arraycopy(chars, 0, newChars, 0, index);
+        System.arraycopy(targets[parent], 0, newTargets, 0, index);
+        newChars[index] = c;
+        newTargets[index] = state;
+        System.arraycopy(chars, index, newChars, index + 1, chars.length - index);
+        System.arraycopy(targets[parent], index, newTargets, index + 1, chars.length - index);
+        labels[parent] = newChars;
+        targets[parent] = newTargets;
+        return state;
+    }
+
+    @Override
+    public String toString() {
+        return "MaskingSqlFilter{states=" + size + ", required=" + required + "}";
+    }
+}
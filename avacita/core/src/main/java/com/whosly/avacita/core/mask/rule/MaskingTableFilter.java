@@ -0,0 +1,125 @@
+package com.whosly.avacita.core.mask.rule;
+
+/**
+ * 表级预过滤：回答"该表是否可能有脱敏规则"。到达脱敏路径的绝大多数表没有任何规则，在这里即可排除，
+ * 不再按 schema.table.column 计算哈希查找。
+ * <p>
+ * 按表名（不含 schema，忽略大小写）建立的 Bloom 过滤器：每张表置 2 位，每张表约 16 位（误判率约 1.5%）。
+ * 只对表名逐字符折叠计算一次哈希（与 {@link MaskingRuleIndex#columnHash} 相同），不拼接、不计算完整的键。
+ * 返回 false 时该表一定没有规则；返回 true 时才需要进一步查找。
+ * <p>
+ * 表名部分为通配符的规则无法放入过滤器，存在这类规则时，过滤器未命中的表再由 {@link MaskingRulePatterns#mayMatchTable} 判断。
+ * <p>
+ * 随规则集的每个版本构建，构建完成后不可变。增量更新（{@link MaskingRuleIndex#apply}）只追加新增的表，
+ * 删除的表留下的位只会带来误判、不会漏判；追加超出预留的容量时重新构建。
+ */
+final class MaskingTableFilter {
+
+    private static final int BITS_PER_TABLE = 16;
+    private static final int MIN_BITS = 64;
+
+    private final long[] words;
+    private final int bitMask;
+    /**
+     * 位数按该表数确定，超出后误判率上升，需重新构建
+     */
+    private final int capacity;
+    private int count;
+    private final MaskingRulePatterns patterns;
+    /**
+     * 存在表名部分为通配符的规则时为全部通配符规则，否则为 null
+     */
+    private final MaskingRulePatterns wildcardTables;
+
+    private MaskingTableFilter(long[] words, int capacity, int count, MaskingRulePatterns patterns) {
+        this.words = words;
+        this.bitMask = words.length * 64 - 1;
+        this.capacity = capacity;
+        this.count = count;
+        this.patterns = patterns;
+        this.wildcardTables = hasWildcardTables(patterns) ? patterns : null;
+    }
+
+    /**
+     * 为 tableCount 张表创建过滤器（预留约 1/4 的容量给增量新增的表），并放入通配符规则中的确定表名；之后由调用方逐表 {@link #add}
+     */
+    static MaskingTableFilter create(int tableCount, MaskingRulePatterns patterns) {
+        int capacity = tableCount + patterns.size() + tableCount / 4 + 16;
+        int bits = MIN_BITS;
+        while (bits < capacity * BITS_PER_TABLE) {
+            bits <<= 1;
+        }
+        MaskingTableFilter filter = new MaskingTableFilter(new long[bits / 64], capacity, 0, patterns);
+        filter.addPatterns(patterns);
+        return filter;
+    }
+
+    /**
+     * 复制一份，供增量新增 addedTables 张表；容量不足时返回 null，由调用方重新构建
+     */
+    MaskingTableFilter extend(int addedTables, MaskingRulePatterns patterns) {
+        boolean patternsChanged = patterns != this.patterns;
+        if (count + addedTables + (patternsChanged ? patterns.size() : 0) > capacity) {
+            return null;
+        }
+        MaskingTableFilter filter = new MaskingTableFilter(words.clone(), capacity, count, patterns);
+        if (patternsChanged) {
+            filter.addPatterns(patterns);
+        }
+        return filter;
+    }
+
+    private void addPatterns(MaskingRulePatterns patterns) {
+        for (MaskingRuleConfig rule : patterns.rules()) {
+            if (!MaskingRulePatterns.isGlob(rule.getTable())) {
+                add(hash(rule.getTable()));
+            }
+        }
+    }
+
+    private static boolean hasWildcardTables(MaskingRulePatterns patterns) {
+        for (MaskingRuleConfig rule : patterns.rules()) {
+            if (MaskingRulePatterns.isGlob(rule.getTable())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 表名的哈希，与 {@link #add} 配合使用
+     */
+    static int hash(String table) {
+        return MaskingRuleIndex.columnHash(table);
+    }
+
+    /**
+     * 放入一张表（{@link #hash} 的结果），只在构建期间调用
+     */
+    void add(int hash) {
+        int second = second(hash);
+        words[(hash & bitMask) >>> 6] |= 1L << hash;
+        words[(second & bitMask) >>> 6] |= 1L << second;
+        count++;
+    }
+
+    /**
+     * 该表是否可能有规则；返回 false 时一定没有
+     */
+    boolean mightHaveRules(String schema, String table) {
+        if (table == null) {
+            return false;
+        }
+        int hash = hash(table);
+        int second = second(hash);
+        if ((words[(hash & bitMask) >>> 6] & (1L << hash)) != 0
+                && (words[(second & bitMask) >>> 6] & (1L << second)) != 0) {
+            return true;
+        }
+        return wildcardTables != null && wildcardTables.mayMatchTable(schema, table);
+    }
+
+    private static int second(int hash) {
+        return (hash * 0x9E3779B9) >>> 7;
+    }
+}
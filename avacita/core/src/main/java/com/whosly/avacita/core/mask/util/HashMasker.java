@@ -0,0 +1,145 @@
+package com.whosly.avacita.core.mask.util;
+
+import org.apache.commons.lang3.StringUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * HASH 脱敏引擎。
+ * <p>
+ * 摘要对象（MessageDigest / Mac）按线程复用，不再为每个值调用 getInstance；
+ * 摘要结果通过查表转换为小写十六进制，直接写入 {@link MaskKernels} 的线程复用 char[]，只创建一次结果 String。
+ * <p>
+ * 规则参数：
+ * <ul>
+ *     <li>无参数或 md5：MD5，与改写后 SQL 中的 MD5() 结果一致</li>
+ *     <li>sha256：SHA-256</li>
+ *     <li>hmac_sha256;密钥：带密钥的 HMAC-SHA256，防止通过彩虹表反查原值</li>
+ * </ul>
+ * 输入统一按 UTF-8 编码。
+ */
+public final class HashMasker implements ValueMasker {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final HashMasker MD5_MASKER = new HashMasker(Algorithm.MD5, digest("MD5"));
+    private static final HashMasker SHA256_MASKER = new HashMasker(Algorithm.SHA256, digest("SHA-256"));
+
+    /**
+     * 按密钥缓存的 HMAC 脱敏器，同一密钥的规则在多次编译之间共享线程复用的 Mac
+     */
+    private static final Map<String, HashMasker> HMAC_SHA256_MASKERS = new ConcurrentHashMap<>();
+
+    public enum Algorithm {
+        MD5,
+        SHA256,
+        HMAC_SHA256,
+        ;
+
+        public static Algorithm getByName(String name) {
+            for (Algorithm algorithm : values()) {
+                if (StringUtils.equalsIgnoreCase(algorithm.name(), name)) {
+                    return algorithm;
+                }
+            }
+            throw new IllegalArgumentException("不支持的哈希算法: " + name);
+        }
+    }
+
+    private final Algorithm algorithm;
+    private final ThreadLocal<? extends Hasher> hasher;
+
+    private HashMasker(Algorithm algorithm, ThreadLocal<? extends Hasher> hasher) {
+        this.algorithm = algorithm;
+        this.hasher = hasher;
+    }
+
+    /**
+     * 根据 HASH 规则参数取得脱敏器
+     */
+    public static HashMasker of(String[] params) {
+        if (params == null || params.length == 0 || StringUtils.isEmpty(params[0])) {
+            return MD5_MASKER;
+        }
+
+        switch (Algorithm.getByName(params[0])) {
+            case MD5:
+                return MD5_MASKER;
+            case SHA256:
+                return SHA256_MASKER;
+            case HMAC_SHA256:
+                if (params.length < 2 || StringUtils.isEmpty(params[1])) {
+                    throw new IllegalArgumentException("hmac_sha256 需要密钥参数");
+                }
+                return HMAC_SHA256_MASKERS.computeIfAbsent(params[1], key -> new HashMasker(Algorithm.HMAC_SHA256, hmac(key)));
+            default:
+                return MD5_MASKER;
+        }
+    }
+
+    public Algorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    @Override
+    public Object mask(Object value) {
+        return hash(String.valueOf(value));
+    }
+
+    /**
+     * 计算摘要并以小写十六进制返回
+     */
+    public String hash(String value) {
+        byte[] digest = hasher.get().digest(value.getBytes(StandardCharsets.UTF_8));
+        return hex(digest);
+    }
+
+    private static String hex(byte[] bytes) {
+        int length = bytes.length << 1;
+        char[] buf = MaskKernels.buffer(length);
+        for (int i = 0, j = 0; i < bytes.length; i++) {
+            int b = bytes[i] & 0xFF;
+            buf[j++] = HEX[b >>> 4];
+            buf[j++] = HEX[b & 0x0F];
+        }
+        return new String(buf, 0, length);
+    }
+
+    private static ThreadLocal<Hasher> digest(String algorithm) {
+        return ThreadLocal.withInitial(() -> {
+            try {
+                MessageDigest md = MessageDigest.getInstance(algorithm);
+                return md::digest;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("不支持的摘要算法: " + algorithm, e);
+            }
+        });
+    }
+
+    private static ThreadLocal<Hasher> hmac(String key) {
+        SecretKeySpec keySpec = new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        return ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance("HmacSHA256");
+                mac.init(keySpec);
+                return mac::doFinal;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HMAC-SHA256 初始化失败", e);
+            }
+        });
+    }
+
+    /**
+     * 单次完整的摘要计算（计算后摘要对象自动复位）
+     */
+    @FunctionalInterface
+    private interface Hasher {
+        byte[] digest(byte[] input);
+    }
+}
@@ -0,0 +1,152 @@
+package com.whosly.avacita.core.mask.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * Latin-1 字节内核：较长的 String 值（地址、证件号、卡号等宽列）在按线程复用的 byte[] 中拼出结果，再以 ISO-8859-1 创建结果 String。
+ * JDK compact strings 下纯 Latin-1 的 String 内部就是 byte[]，创建结果只需一次字节拷贝，
+ * 省去 char[] 内核最后从 char[] 到 byte[] 的压缩，缓冲区的读写量也减半。
+ * <p>
+ * 掩码段的填充与较长保留段的拷贝，在 core-vector 模块位于 classpath 且 jdk.incubator.vector 可用时（以 --add-modules jdk.incubator.vector 启动）
+ * 按向量通道进行（以 ServiceLoader 加载的 {@link VectorOps}）；否则为标量实现，二者结果完全相同。可通过 -Davacita.mask.vector=false 关闭向量实现。
+ * <p>
+ * 保留的字符中出现非 Latin-1 字符时返回 null，由调用方改用 char[] 内核；被掩码替换的字符不影响。
+ */
+final class Latin1Kernels {
+
+    /**
+     * 是否启用向量实现的系统属性，默认启用（仍需 jdk.incubator.vector 模块可用）
+     */
+    static final String VECTOR_PROPERTY = "avacita.mask.vector";
+
+    /**
+     * 结果长度不小于该值时才使用字节内核，更短的值两种内核的差别可以忽略
+     */
+    static final int MIN_LENGTH = 64;
+
+    /**
+     * 不超过该长度的保留段逐字符拷贝，更长的先批量取出字符再转换
+     */
+    private static final int SCALAR_COPY_LIMIT = 32;
+
+    private static final int MAX_REUSED_BUFFER = 8192;
+
+    private static final byte MASK_BYTE = (byte) MaskKernels.MASK_CHAR;
+
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[256]);
+
+    /**
+     * 向量实现，不可用时为 null
+     */
+    private static final VectorOps VECTOR = loadVector();
+
+    private Latin1Kernels() {
+    }
+
+    private static VectorOps loadVector() {
+        if (!Boolean.parseBoolean(System.getProperty(VECTOR_PROPERTY, "true"))
+                || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            // core-vector 不在 classpath 上时没有实现
+            return ServiceLoader.load(VectorOps.class, Latin1Kernels.class.getClassLoader()).stream()
+                    .map(ServiceLoader.Provider::get)
+                    .filter(VectorOps::isUsable)
+                    .findFirst()
+                    .orElse(null);
+        } catch (ServiceConfigurationError | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * 与 {@link MaskKernels#splice} 相同，参数已截断
+     */
+    static String splice(String src, int prefix, int maskLength, int suffix) {
+        int length = src.length();
+        int outLength = prefix + maskLength + suffix;
+        byte[] buf = buffer(outLength);
+        if (!copy(src, 0, prefix, buf, 0) || !copy(src, length - suffix, length, buf, prefix + maskLength)) {
+            return null;
+        }
+        fill(buf, prefix, prefix + maskLength);
+        return new String(buf, 0, outLength, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * 与 {@link MaskKernels#stride} 相同，参数已截断，stride 大于 0
+     */
+    static String stride(String src, int prefix, int suffix, int stride) {
+        int length = src.length();
+        int end = length - suffix;
+        byte[] buf = buffer(length);
+        if (!copy(src, 0, prefix, buf, 0) || !copy(src, end, length, buf, end)) {
+            return null;
+        }
+        // 先整段填充掩码，再写回中间每 stride 个字符中的第 1 个
+        fill(buf, prefix, end);
+        for (int i = prefix; i < end; i += stride) {
+            char c = src.charAt(i);
+            if (c > 0xFF) {
+                return null;
+            }
+            buf[i] = (byte) c;
+        }
+        return new String(buf, 0, length, StandardCharsets.ISO_8859_1);
+    }
+
+    private static void fill(byte[] buf, int from, int to) {
+        if (VECTOR != null) {
+            VECTOR.fill(buf, from, to, MASK_BYTE);
+        } else {
+            Arrays.fill(buf, from, to, MASK_BYTE);
+        }
+    }
+
+    /**
+     * 将 src[from, to) 写入 dst，出现非 Latin-1 字符时返回 false
+     */
+    private static boolean copy(String src, int from, int to, byte[] dst, int dstBegin) {
+        int length = to - from;
+        if (length <= SCALAR_COPY_LIMIT) {
+            for (int i = from; i < to; i++) {
+                char c = src.charAt(i);
+                if (c > 0xFF) {
+                    return false;
+                }
+                dst[dstBegin++] = (byte) c;
+            }
+            return true;
+        }
+        char[] chars = MaskKernels.buffer(length);
+        src.getChars(from, to, chars, 0);
+        if (VECTOR != null) {
+            return VECTOR.narrow(chars, length, dst, dstBegin);
+        }
+        for (int i = 0; i < length; i++) {
+            char c = chars[i];
+            if (c > 0xFF) {
+                return false;
+            }
+            dst[dstBegin + i] = (byte) c;
+        }
+        return true;
+    }
+
+    private static byte[] buffer(int length) {
+        byte[] buf = BUFFER.get();
+        if (buf.length >= length) {
+            return buf;
+        }
+        if (length > MAX_REUSED_BUFFER) {
+            return new byte[length];
+        }
+        buf = new byte[Math.max(length, Math.min(buf.length * 2, MAX_REUSED_BUFFER))];
+        BUFFER.set(buf);
+        return buf;
+    }
+}
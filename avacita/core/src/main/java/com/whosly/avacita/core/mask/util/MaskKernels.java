@@ -0,0 +1,133 @@
+package com.whosly.avacita.core.mask.util;
+
+import java.util.Arrays;
+
+/**
+ * 字符串掩码内核。
+ * <p>
+ * 所有内核都在一个按线程复用、预先分配好大小的 char[] 中直接拼出结果，最后只创建一次结果 String，
+ * 不使用 StringBuilder、不调用 substring，也不会为已经是 String 的值调用 toString()。
+ * 输入既可以是 String，也可以是任意 CharSequence。
+ * <p>
+ * 对于纯 Latin-1 内容，{@code new String(char[], int, int)} 在拷贝时会直接压缩为 Latin-1 的 byte[]（JDK compact strings），
+ * 因此每个值只会产生结果 String 本身这一次分配。
+ * <p>
+ * 结果长度不小于 {@link Latin1Kernels#MIN_LENGTH} 的 String 输入改在 byte[] 中拼出结果（宽列的长掩码段），
+ * 加载了 core-vector 模块且 jdk.incubator.vector 可用时按向量通道填充与拷贝，见 {@link Latin1Kernels}。
+ */
+public final class MaskKernels {
+
+    public static final char MASK_CHAR = '*';
+
+    /**
+     * 线程复用缓冲区的上限，超过该长度的值（极少见）按需单独分配，避免线程长期持有大数组
+     */
+    private static final int MAX_REUSED_BUFFER = 8192;
+
+    private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[256]);
+
+    private MaskKernels() {
+    }
+
+    /**
+     * 将任意值视为字符序列，已经是 CharSequence 时不再调用 toString()
+     */
+    public static CharSequence chars(Object value) {
+        if (value instanceof CharSequence) {
+            return (CharSequence) value;
+        }
+        return value.toString();
+    }
+
+    /**
+     * 生成由 length 个掩码字符组成的字符串
+     */
+    public static String fill(int length) {
+        char[] buf = buffer(length);
+        Arrays.fill(buf, 0, length, MASK_CHAR);
+        return new String(buf, 0, length);
+    }
+
+    /**
+     * 输出 = src 的前 prefix 个字符 + maskLength 个掩码字符 + src 的后 suffix 个字符。
+     * <p>
+     * prefix/suffix 超出 src 长度时按 src 长度截断，且二者不会重叠。
+     */
+    public static String splice(CharSequence src, int prefix, int maskLength, int suffix) {
+        int length = src.length();
+        prefix = clamp(prefix, length);
+        suffix = clamp(suffix, length - prefix);
+        maskLength = Math.max(0, maskLength);
+
+        int outLength = prefix + maskLength + suffix;
+        if (outLength >= Latin1Kernels.MIN_LENGTH && src instanceof String) {
+            String masked = Latin1Kernels.splice((String) src, prefix, maskLength, suffix);
+            if (masked != null) {
+                return masked;
+            }
+        }
+        char[] buf = buffer(outLength);
+        copy(src, 0, prefix, buf, 0);
+        Arrays.fill(buf, prefix, prefix + maskLength, MASK_CHAR);
+        copy(src, length - suffix, length, buf, prefix + maskLength);
+        return new String(buf, 0, outLength);
+    }
+
+    /**
+     * 保留前 prefix 个与后 suffix 个字符，中间部分每 stride 个字符显示 1 个、其余替换为掩码字符，输出长度与输入相同。
+     */
+    public static String stride(CharSequence src, int prefix, int suffix, int stride) {
+        int length = src.length();
+        prefix = clamp(prefix, length);
+        suffix = clamp(suffix, length - prefix);
+
+        if (length >= Latin1Kernels.MIN_LENGTH && stride > 0 && src instanceof String) {
+            String masked = Latin1Kernels.stride((String) src, prefix, suffix, stride);
+            if (masked != null) {
+                return masked;
+            }
+        }
+        char[] buf = buffer(length);
+        copy(src, 0, length, buf, 0);
+        int end = length - suffix;
+        for (int i = prefix; i < end; i++) {
+            if ((i - prefix) % stride != 0) {
+                buf[i] = MASK_CHAR;
+            }
+        }
+        return new String(buf, 0, length);
+    }
+
+    private static void copy(CharSequence src, int from, int to, char[] dst, int dstBegin) {
+        if (from >= to) {
+            return;
+        }
+        if (src instanceof String) {
+            ((String) src).getChars(from, to, dst, dstBegin);
+        } else {
+            for (int i = from; i < to; i++) {
+                dst[dstBegin++] = src.charAt(i);
+            }
+        }
+    }
+
+    /**
+     * 取得当前线程复用的、长度不小于 length 的缓冲区，供同包内其他内核直接写入结果字符
+     */
+    static char[] buffer(int length) {
+        char[] buf = BUFFER.get();
+        if (buf.length >= length) {
+            return buf;
+        }
+        if (length > MAX_REUSED_BUFFER) {
+            return new char[length];
+        }
+        buf = new char[Math.max(length, Math.min(buf.length * 2, MAX_REUSED_BUFFER))];
+        BUFFER.set(buf);
+        return buf;
+    }
+
+    private static int clamp(int value, int max) {
+        return value < 0 ? 0 : Math.min(value, max);
+    }
+}
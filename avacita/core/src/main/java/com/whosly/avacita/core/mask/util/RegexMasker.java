@@ -0,0 +1,307 @@
+package com.whosly.avacita.core.mask.util;
+
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * 预编译的正则脱敏器（REGEX 规则），规则加载时创建一次，之后在所有语句、所有线程间共享。
+ * <p>
+ * 将值中所有匹配 regex 的片段替换为 replacement，语义与 {@code value.replaceAll(regex, replacement)} 相同，但：
+ * <ul>
+ *     <li>Pattern 只编译一次，Matcher 按线程复用（{@link Matcher#reset(CharSequence)}）</li>
+ *     <li>单个字符类（如 {@code .}、{@code \d}、{@code \w}、{@code [0-9a-f]}、{@code [^@]}）且 replacement 为单个字符时，
+ *     逐字符查表替换，直接写入 {@link MaskKernels} 的线程复用缓冲区，不经过正则引擎</li>
+ *     <li>不含元字符的字面量模式走 {@link String#replace(CharSequence, CharSequence)}</li>
+ * </ul>
+ * 正则语法错误时降级为全掩码，避免明文泄露。
+ */
+public final class RegexMasker implements ValueMasker {
+
+    public static final String DEFAULT_REGEX = ".";
+    public static final String DEFAULT_REPLACEMENT = "*";
+
+    private static final String MASK = "******";
+    private static final String META_CHARS = "\\^$.|?*+()[]{}";
+
+    private final String regex;
+    private final String replacement;
+    private final Pattern pattern;
+    private final ThreadLocal<Matcher> matcher;
+
+    /**
+     * 单字符类快速路径：ASCII 字符是否匹配，非 ASCII 字符是否匹配；非该快速路径时为 null
+     */
+    private final boolean[] asciiClass;
+    private final boolean nonAsciiMatches;
+    private final boolean dot;
+
+    /**
+     * 字面量快速路径：模式对应的字面量；非该快速路径时为 null
+     */
+    private final String literal;
+
+    private RegexMasker(String regex, String replacement, Pattern pattern) {
+        this.regex = regex;
+        this.replacement = replacement;
+        this.pattern = pattern;
+        this.matcher = pattern == null ? null : ThreadLocal.withInitial(() -> pattern.matcher(""));
+
+        boolean plainReplacement = pattern != null
+                && replacement.indexOf('$') < 0 && replacement.indexOf('\\') < 0;
+        CharClass charClass = plainReplacement && replacement.length() == 1 ? CharClass.parse(regex) : null;
+        this.asciiClass = charClass == null ? null : charClass.ascii;
+        this.nonAsciiMatches = charClass != null && charClass.nonAscii;
+        this.dot = DEFAULT_REGEX.equals(regex);
+        this.literal = plainReplacement && charClass == null ? parseLiteral(regex) : null;
+    }
+
+    /**
+     * 根据 REGEX 规则参数编译：params[0] 为正则（默认 "."），params[1] 为替换串（默认 "*"）
+     */
+    public static RegexMasker compile(String[] params) {
+        String regex = param(params, 0, DEFAULT_REGEX);
+        String replacement = param(params, 1, DEFAULT_REPLACEMENT);
+        return compile(regex, replacement);
+    }
+
+    public static RegexMasker compile(String regex, String replacement) {
+        Pattern pattern;
+        try {
+            pattern = Pattern.compile(regex);
+        } catch (PatternSyntaxException e) {
+            pattern = null;
+        }
+        return new RegexMasker(regex, replacement, pattern);
+    }
+
+    public String getRegex() {
+        return regex;
+    }
+
+    public String getReplacement() {
+        return replacement;
+    }
+
+    /**
+     * 正则是否编译成功
+     */
+    public boolean isValid() {
+        return pattern != null;
+    }
+
+    @Override
+    public Object mask(Object value) {
+        return replace(MaskKernels.chars(value));
+    }
+
+    public String replace(CharSequence value) {
+        if (pattern == null) {
+            return MASK;
+        }
+        if (asciiClass != null) {
+            return replaceCharClass(value);
+        }
+        if (literal != null) {
+            return value.toString().replace(literal, replacement);
+        }
+        return replaceRegex(value);
+    }
+
+    private String replaceRegex(CharSequence value) {
+        Matcher m = matcher.get();
+        try {
+            return m.reset(value).replaceAll(replacement);
+        } finally {
+            // 不持有对值的引用
+            m.reset("");
+        }
+    }
+
+    private String replaceCharClass(CharSequence value) {
+        int length = value.length();
+        char replaceChar = replacement.charAt(0);
+        char[] buf = MaskKernels.buffer(length);
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 128) {
+                buf[i] = asciiClass[c] ? replaceChar : c;
+                continue;
+            }
+            if (Character.isSurrogate(c)) {
+                // 补充字符按码点整体匹配，交给正则引擎保证语义一致
+                return replaceRegex(value);
+            }
+            boolean matches = nonAsciiMatches && !(dot && isLineTerminator(c));
+            buf[i] = matches ? replaceChar : c;
+        }
+        return new String(buf, 0, length);
+    }
+
+    /**
+     * {@code .} 不匹配的非 ASCII 行终止符：NEL、LINE SEPARATOR、PARAGRAPH SEPARATOR
+     */
+    private static boolean isLineTerminator(char c) {
+        return c == 0x0085 || c == 0x2028 || c == 0x2029;
+    }
+
+    /**
+     * 不含元字符（转义的非字母数字字符视为普通字符）时返回对应字面量，否则返回 null
+     */
+    private static String parseLiteral(String regex) {
+        StringBuilder literal = new StringBuilder(regex.length());
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                if (i + 1 >= regex.length() || Character.isLetterOrDigit(regex.charAt(i + 1))) {
+                    return null;
+                }
+                literal.append(regex.charAt(++i));
+            } else if (META_CHARS.indexOf(c) >= 0) {
+                return null;
+            } else {
+                literal.append(c);
+            }
+        }
+        // 空模式会在每个字符之间插入替换串，交给正则引擎
+        return literal.length() == 0 ? null : literal.toString();
+    }
+
+    private static String param(String[] params, int idx, String defaultVal) {
+        if (params != null && params.length > idx && params[idx] != null && !params[idx].isEmpty()) {
+            return params[idx];
+        }
+        return defaultVal;
+    }
+
+    /**
+     * 单个字符类的查找表。只识别与 {@link Pattern} 默认（非 UNICODE_CHARACTER_CLASS）语义完全一致的写法：
+     * {@code .}、{@code \d \D \w \W \s \S}、以及由 ASCII 字符/区间/上述转义组成的 {@code [...]}、{@code [^...]}
+     */
+    private static final class CharClass {
+        private final boolean[] ascii = new boolean[128];
+        private boolean nonAscii;
+
+        static CharClass parse(String regex) {
+            CharClass cc = new CharClass();
+            if (DEFAULT_REGEX.equals(regex)) {
+                // . 不匹配行终止符，非 ASCII 的行终止符在替换时单独判断
+                Arrays.fill(cc.ascii, true);
+                cc.ascii['\n'] = false;
+                cc.ascii['\r'] = false;
+                cc.nonAscii = true;
+                return cc;
+            }
+            if (regex.length() == 2 && regex.charAt(0) == '\\') {
+                return cc.addEscape(regex.charAt(1)) ? cc : null;
+            }
+            if (regex.length() >= 3 && regex.charAt(0) == '[' && regex.charAt(regex.length() - 1) == ']') {
+                return cc.parseBracket(regex.substring(1, regex.length() - 1)) ? cc : null;
+            }
+            return null;
+        }
+
+        private boolean parseBracket(String body) {
+            boolean negate = body.startsWith("^");
+            int i = negate ? 1 : 0;
+            if (i >= body.length()) {
+                return false;
+            }
+            while (i < body.length()) {
+                char c = body.charAt(i);
+                if (c == '\\') {
+                    if (i + 1 >= body.length()) {
+                        return false;
+                    }
+                    char e = body.charAt(i + 1);
+                    if (Character.isLetterOrDigit(e)) {
+                        if (!addEscape(e)) {
+                            return false;
+                        }
+                        i += 2;
+                        continue;
+                    }
+                    c = e;
+                    i++;
+                } else if (c == '[' || c == '&' || c >= 128) {
+                    // 嵌套、交集与非 ASCII 字符不走快速路径
+                    return false;
+                }
+                // 区间 a-z
+                if (i + 2 < body.length() && body.charAt(i + 1) == '-') {
+                    char end = body.charAt(i + 2);
+                    if (end == '\\') {
+                        return false;
+                    }
+                    if (end >= 128 || end < c || end == '[' || end == '&') {
+                        return false;
+                    }
+                    for (char x = c; x <= end; x++) {
+                        ascii[x] = true;
+                    }
+                    i += 3;
+                } else {
+                    ascii[c] = true;
+                    i++;
+                }
+            }
+            if (negate) {
+                for (int x = 0; x < ascii.length; x++) {
+                    ascii[x] = !ascii[x];
+                }
+                nonAscii = !nonAscii;
+            }
+            return true;
+        }
+
+        private boolean addEscape(char e) {
+            switch (e) {
+                case 'd':
+                    range('0', '9');
+                    return true;
+                case 'w':
+                    range('a', 'z');
+                    range('A', 'Z');
+                    range('0', '9');
+                    ascii['_'] = true;
+                    return true;
+                case 's':
+                    for (char c : new char[]{' ', '\t', '\n', 0x0B, '\f', '\r'}) {
+                        ascii[c] = true;
+                    }
+                    return true;
+                case 'D':
+                case 'W':
+                case 'S':
+                    // 取反的转义只在单独出现时支持
+                    if (nonAscii || anySet()) {
+                        return false;
+                    }
+                    addEscape(Character.toLowerCase(e));
+                    for (int x = 0; x < ascii.length; x++) {
+                        ascii[x] = !ascii[x];
+                    }
+                    nonAscii = true;
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        private void range(char from, char to) {
+            for (char c = from; c <= to; c++) {
+                ascii[c] = true;
+            }
+        }
+
+        private boolean anySet() {
+            for (boolean b : ascii) {
+                if (b) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.whosly.avacita.core.mask.util;
+
+import com.whosly.avacita.core.mask.rule.MaskingRuleConfig;
+import org.apache.calcite.sql.SqlFunctionCategory;
+import org.apache.calcite.sql.SqlIdentifier;
+import org.apache.calcite.sql.SqlLiteral;
+import org.apache.calcite.sql.SqlNode;
+import org.apache.calcite.sql.SqlNodeList;
+import org.apache.calcite.sql.SqlUnresolvedFunction;
+import org.apache.calcite.sql.fun.SqlCase;
+import org.apache.calcite.sql.fun.SqlStdOperatorTable;
+import org.apache.calcite.sql.parser.SqlParserPos;
+
+/**
+ * SQL 改写的脱敏表达式（MySQL 函数）：将 SELECT 中的列替换为与 {@link ValueMaskingStrategy} 结果一致的表达式，
+ * 默认参数、掩码长度、短值降级与 null 的处理都相同，同一份规则在改写 SQL 与结果集脱敏的服务端上输出相同。
+ * <p>
+ * 带密钥的 HASH（hmac_sha256）与按步长显示的 PARTIAL MySQL 没有对应函数，返回 null，由调用方在结果集中脱敏或拒绝执行。
+ */
+public final class SqlMaskingStrategy {
+
+    private static final SqlParserPos POS = SqlParserPos.ZERO;
+
+    private SqlMaskingStrategy() {
+    }
+
+    /**
+     * 将列按规则替换为脱敏表达式
+     *
+     * @return 无需脱敏（无规则或 KEEP）时返回 column 本身；无法以 SQL 表达时返回 null
+     */
+    public static SqlNode toSql(SqlNode column, MaskingRuleConfig rule) {
+        if (rule == null) {
+            return column;
+        }
+
+        String[] params = rule.getRuleParams();
+
+        switch (rule.getRuleType()) {
+            case KEEP:
+                return column;
+
+            case MASK_FULL:
+                return fullMask(column);
+
+            case MASK_LEFT: {
+                int keepLeft = ValueMaskingStrategy.intParam(params, 0, ValueMaskingStrategy.DEFAULT_KEEP);
+                return call("CONCAT", call("LEFT", column, number(keepLeft)), mask());
+            }
+
+            case MASK_RIGHT: {
+                int keepRight = ValueMaskingStrategy.intParam(params, 0, ValueMaskingStrategy.DEFAULT_KEEP);
+                return call("CONCAT", mask(), call("RIGHT", column, number(keepRight)));
+            }
+
+            case MASK_MIDDLE: {
+                int leftChars = ValueMaskingStrategy.intParam(params, 0, ValueMaskingStrategy.DEFAULT_KEEP_LEFT);
+                int rightChars = ValueMaskingStrategy.intParam(params, 1, ValueMaskingStrategy.DEFAULT_KEEP_RIGHT);
+                // 长度不足时降级为全掩码；null 值的 CHAR_LENGTH 为 null，走 ELSE 分支，结果仍为 null
+                SqlNode tooShort = SqlStdOperatorTable.LESS_THAN_OR_EQUAL.createCall(POS,
+                        call("CHAR_LENGTH", column), number(leftChars + rightChars));
+                return caseWhen(tooShort, mask(),
+                        call("CONCAT", call("LEFT", column, number(leftChars)), mask(), call("RIGHT", column, number(rightChars))));
+            }
+
+            case PARTIAL: {
+                if (ValueMaskingStrategy.intParam(params, 2, 0) > 0) {
+                    // 按步长显示中间字符没有对应的 MySQL 函数
+                    return null;
+                }
+                int leftChars = ValueMaskingStrategy.intParam(params, 0, ValueMaskingStrategy.DEFAULT_KEEP_LEFT);
+                int rightChars = ValueMaskingStrategy.intParam(params, 1, ValueMaskingStrategy.DEFAULT_KEEP_RIGHT);
+                // 掩码段与原值中间部分等长；长度不足时整体逐字符掩码
+                SqlNode length = call("CHAR_LENGTH", column);
+                SqlNode tooShort = SqlStdOperatorTable.LESS_THAN_OR_EQUAL.createCall(POS, length, number(leftChars + rightChars));
+                SqlNode maskLength = SqlStdOperatorTable.MINUS.createCall(POS, length, number(leftChars + rightChars));
+                return caseWhen(tooShort, repeatMask(length),
+                        call("CONCAT", call("LEFT", column, number(leftChars)), repeatMask(maskLength),
+                                call("RIGHT", column, number(rightChars))));
+            }
+
+            case HASH: {
+                HashMasker masker;
+                try {
+                    masker = HashMasker.of(params);
+                } catch (IllegalArgumentException e) {
+                    // 哈希参数配置错误时降级为全掩码，避免明文泄露
+                    return fullMask(column);
+                }
+                switch (masker.getAlgorithm()) {
+                    case MD5:
+                        return call("MD5", column);
+                    case SHA256:
+                        return call("SHA2", column, number(256));
+                    default:
+                        return null;
+                }
+            }
+
+            case ROUND: {
+                // 取整到 roundTo 的倍数
+                int roundTo = ValueMaskingStrategy.intParam(params, 0, ValueMaskingStrategy.DEFAULT_ROUND_TO);
+                SqlNode quotient = SqlStdOperatorTable.DIVIDE.createCall(POS, column, number(roundTo));
+                return SqlStdOperatorTable.MULTIPLY.createCall(POS,
+                        call("ROUND", SqlFunctionCategory.NUMERIC, quotient), number(roundTo));
+            }
+
+            case REGEX: {
+                RegexMasker regexMasker = rule.getRegexMasker();
+                if (regexMasker == null || !regexMasker.isValid()) {
+                    return fullMask(column);
+                }
+                return call("REGEXP_REPLACE", column,
+                        SqlLiteral.createCharString(regexMasker.getRegex(), POS),
+                        SqlLiteral.createCharString(regexMasker.getReplacement(), POS));
+            }
+
+            default:
+                return column;
+        }
+    }
+
+    /**
+     * 全掩码，null 值保持 null
+     */
+    private static SqlNode fullMask(SqlNode column) {
+        return caseWhen(SqlStdOperatorTable.IS_NULL.createCall(POS, column), SqlLiteral.createNull(POS), mask());
+    }
+
+    private static SqlNode caseWhen(SqlNode condition, SqlNode then, SqlNode otherwise) {
+        return new SqlCase(POS, null, SqlNodeList.of(condition), SqlNodeList.of(then), otherwise);
+    }
+
+    private static SqlNode mask() {
+        return SqlLiteral.createCharString(ValueMaskingStrategy.MASK, POS);
+    }
+
+    private static SqlNode repeatMask(SqlNode count) {
+        return call("REPEAT", SqlLiteral.createCharString(String.valueOf(MaskKernels.MASK_CHAR), POS), count);
+    }
+
+    private static SqlNode number(int value) {
+        return SqlLiteral.createExactNumeric(String.valueOf(value), POS);
+    }
+
+    private static SqlNode call(String name, SqlNode... operands) {
+        return call(name, SqlFunctionCategory.STRING, operands);
+    }
+
+    private static SqlNode call(String name, SqlFunctionCategory category, SqlNode... operands) {
+        return new SqlUnresolvedFunction(new SqlIdentifier(name, POS), null, null, null, null, category)
+                .createCall(POS, operands);
+    }
+}
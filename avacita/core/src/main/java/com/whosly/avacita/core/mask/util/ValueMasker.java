@@ -0,0 +1,15 @@
+package com.whosly.avacita.core.mask.util;
+
+/**
+ * 编译后的单列脱敏器。
+ * <p>
+ * 规则类型与参数在编译阶段（{@link ValueMaskingStrategy#compile}）已解析完毕，逐值调用时不再查找规则、不再解析参数。
+ */
+@FunctionalInterface
+public interface ValueMasker {
+
+    /**
+     * 对单个非空值进行脱敏
+     */
+    Object mask(Object value);
+}
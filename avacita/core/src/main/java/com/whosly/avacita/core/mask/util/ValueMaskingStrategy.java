@@ -0,0 +1,156 @@
+package com.whosly.avacita.core.mask.util;
+
+import com.whosly.avacita.core.mask.rule.MaskingRuleConfig;
+
+/**
+ * 结果集值脱敏策略（对 SQL 改写之后仍返回明文的列做二次脱敏）。
+ * SQL 改写使用的脱敏表达式见 {@link SqlMaskingStrategy}，二者的默认参数与结果一致。
+ */
+public class ValueMaskingStrategy {
+
+    static final String MASK = "******";
+
+    /**
+     * MASK_LEFT/MASK_RIGHT 默认保留的位数
+     */
+    static final int DEFAULT_KEEP = 3;
+
+    /**
+     * MASK_MIDDLE 默认保留的左、右位数
+     */
+    static final int DEFAULT_KEEP_LEFT = 3;
+    static final int DEFAULT_KEEP_RIGHT = 4;
+
+    /**
+     * ROUND 默认取整到的倍数
+     */
+    static final int DEFAULT_ROUND_TO = 100;
+
+    public static Object mask(Object value, MaskingRuleConfig rule) {
+        if (value == null) {
+            return null;
+        }
+
+        ValueMasker masker = compile(rule);
+        if (masker == null) {
+            return value;
+        }
+        return masker.mask(value);
+    }
+
+    /**
+     * 将脱敏规则编译为 {@link ValueMasker}，规则参数在此处一次性解析。
+     *
+     * @return 无需脱敏（无规则或 KEEP）时返回 null
+     */
+    public static ValueMasker compile(MaskingRuleConfig rule) {
+        if (rule == null) {
+            return null;
+        }
+
+        String[] params = rule.getRuleParams();
+
+        switch (rule.getRuleType()) {
+            case KEEP:
+                return null;
+
+            case MASK_FULL:
+                return value -> MASK;
+
+            case MASK_LEFT:
+                int keepLeft = intParam(params, 0, DEFAULT_KEEP);
+                return value -> maskLeft(MaskKernels.chars(value), keepLeft);
+
+            case MASK_RIGHT:
+                int keepRight = intParam(params, 0, DEFAULT_KEEP);
+                return value -> maskRight(MaskKernels.chars(value), keepRight);
+
+            case MASK_MIDDLE:
+                int leftChars = intParam(params, 0, DEFAULT_KEEP_LEFT);
+                int rightChars = intParam(params, 1, DEFAULT_KEEP_RIGHT);
+                return value -> maskMiddle(MaskKernels.chars(value), leftChars, rightChars);
+
+            case PARTIAL:
+                int keepLeftChars = intParam(params, 0, DEFAULT_KEEP_LEFT);
+                int keepRightChars = intParam(params, 1, DEFAULT_KEEP_RIGHT);
+                int stride = intParam(params, 2, 0);
+                return value -> maskPartial(MaskKernels.chars(value), keepLeftChars, keepRightChars, stride);
+
+            case HASH:
+                try {
+                    return HashMasker.of(params);
+                } catch (IllegalArgumentException e) {
+                    // 哈希参数配置错误时降级为全掩码，避免明文泄露
+                    return value -> MASK;
+                }
+
+            case ROUND:
+                int roundTo = intParam(params, 0, DEFAULT_ROUND_TO);
+                return value -> roundValue(value, roundTo);
+
+            case REGEX:
+                // 规则加载时已预编译
+                return rule.getRegexMasker();
+
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 第 index 个整数参数，未配置（或为空）时取默认值；格式错误时抛出 NumberFormatException
+     */
+    static int intParam(String[] params, int index, int defaultValue) {
+        if (params == null || params.length <= index || params[index] == null || params[index].isEmpty()) {
+            return defaultValue;
+        }
+        return Integer.parseInt(params[index].trim());
+    }
+
+    /**
+     * 保留左侧 keepChars 位，后接固定长度掩码
+     */
+    public static String maskLeft(CharSequence value, int keepChars) {
+        return MaskKernels.splice(value, keepChars, MASK.length(), 0);
+    }
+
+    /**
+     * 固定长度掩码，后接右侧 keepChars 位
+     */
+    public static String maskRight(CharSequence value, int keepChars) {
+        return MaskKernels.splice(value, 0, MASK.length(), keepChars);
+    }
+
+    /**
+     * 保留左侧 leftChars 位和右侧 rightChars 位，中间替换为固定长度掩码；长度不足时降级为全掩码
+     */
+    public static String maskMiddle(CharSequence value, int leftChars, int rightChars) {
+        if (value.length() <= leftChars + rightChars) {
+            return MASK;
+        }
+        return MaskKernels.splice(value, leftChars, MASK.length(), rightChars);
+    }
+
+    /**
+     * 保留左侧 leftChars 位和右侧 rightChars 位，中间逐字符替换为掩码，输出长度与输入相同；
+     * stride 大于 0 时中间每 stride 个字符显示 1 个。长度不足时整体逐字符掩码
+     */
+    public static String maskPartial(CharSequence value, int leftChars, int rightChars, int stride) {
+        int length = value.length();
+        if (length <= leftChars + rightChars) {
+            return MaskKernels.fill(length);
+        }
+        if (stride > 0) {
+            return MaskKernels.stride(value, leftChars, rightChars, stride);
+        }
+        return MaskKernels.splice(value, leftChars, length - leftChars - rightChars, rightChars);
+    }
+
+    private static Object roundValue(Object value, int roundTo) {
+        if (value instanceof Number) {
+            double num = ((Number) value).doubleValue();
+            return Math.round(num / roundTo) * roundTo;
+        }
+        return value;
+    }
+}
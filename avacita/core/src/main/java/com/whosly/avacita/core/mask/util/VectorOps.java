@@ -0,0 +1,24 @@
+package com.whosly.avacita.core.mask.util;
+
+/**
+ * 向量化的填充与收窄，供 {@link Latin1Kernels} 使用。
+ * <p>
+ * 由可选的 core-vector 模块实现，并以 ServiceLoader 注册（META-INF/services）；core 本身编译时不依赖孵化模块。
+ */
+public interface VectorOps {
+
+    /**
+     * 当前硬件与运行时是否值得使用向量实现
+     */
+    boolean isUsable();
+
+    /**
+     * buf[from, to) 全部写为 value
+     */
+    void fill(byte[] buf, int from, int to, byte value);
+
+    /**
+     * 将 src[0, length) 收窄为 Latin-1 字节写入 dst，出现非 Latin-1 字符时返回 false
+     */
+    boolean narrow(char[] src, int length, byte[] dst, int dstBegin);
+}
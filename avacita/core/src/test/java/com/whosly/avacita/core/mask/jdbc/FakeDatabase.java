@@ -0,0 +1,259 @@
+package com.whosly.avacita.core.mask.jdbc;
+
+import java.io.StringReader;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 测试用的数据库：以动态代理实现 JDBC 接口，各脱敏服务端的测试共用（core 的 test-jar）。
+ * <p>
+ * 记录收到的 SQL；USE 与 setCatalog 切换连接的当前库。SELECT 语句（Statement 与 PreparedStatement）返回按 SQL 登记的结果集（{@link #addQuery}），
+ * 未登记时返回默认结果集（{@link #setResult}）；预编译语句返回结果集的列元数据。结果集的列均为 VARCHAR。
+ */
+public final class FakeDatabase {
+
+    /**
+     * 收到的 SQL（prepareStatement 与 Statement.execute），按收到的顺序
+     */
+    public final List<String> statements = new CopyOnWriteArrayList<>();
+
+    /**
+     * 预编译语句的执行次数
+     */
+    public final AtomicInteger executions = new AtomicInteger();
+
+    private final Map<String, Result> results = new ConcurrentHashMap<>();
+
+    private volatile Result defaultResult;
+
+    /**
+     * 登记 SQL 的结果集
+     *
+     * @param columns 各列的 {库, 表, 列名}
+     */
+    public void addQuery(String sql, String[][] columns, List<Object[]> rows) {
+        results.put(sql, new Result(columns, rows));
+    }
+
+    /**
+     * 未登记的 SELECT 语句返回的结果集
+     *
+     * @param columns 各列的 {库, 表, 列名}
+     */
+    public void setResult(String[][] columns, List<Object[]> rows) {
+        this.defaultResult = new Result(columns, rows);
+    }
+
+    /**
+     * 未选择库的连接
+     */
+    public Connection connect() {
+        return connect(null);
+    }
+
+    public Connection connect(String catalog) {
+        String[] current = {catalog};
+        return proxy(Connection.class, (method, args) -> {
+            switch (method.getName()) {
+                case "getCatalog":
+                    return current[0];
+                case "setCatalog":
+                    current[0] = (String) args[0];
+                    return null;
+                case "prepareStatement":
+                    statements.add((String) args[0]);
+                    return preparedStatement(resultOf((String) args[0]));
+                case "createStatement":
+                    return statement(current);
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private Result resultOf(String sql) {
+        Result result = results.get(sql);
+        if (result == null && sql.trim().regionMatches(true, 0, "SELECT", 0, 6)) {
+            result = defaultResult;
+        }
+        return result;
+    }
+
+    private Statement statement(String[] catalog) {
+        ResultSet[] current = {null};
+        return proxy(Statement.class, (method, args) -> {
+            switch (method.getName()) {
+                case "execute":
+                    String sql = ((String) args[0]).trim();
+                    statements.add(sql);
+                    if (sql.regionMatches(true, 0, "USE ", 0, 4)) {
+                        catalog[0] = sql.substring(4).trim();
+                    }
+                    Result result = resultOf(sql);
+                    current[0] = result == null ? null : resultSet(result.columns, result.rows);
+                    return current[0] != null;
+                case "getResultSet":
+                    return current[0];
+                case "getUpdateCount":
+                    return current[0] == null ? 0 : -1;
+                case "getLargeUpdateCount":
+                    return current[0] == null ? 0L : -1L;
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private PreparedStatement preparedStatement(Result result) {
+        ResultSet[] current = {null};
+        return proxy(PreparedStatement.class, (method, args) -> {
+            if (result == null) {
+                return null;
+            }
+            switch (method.getName()) {
+                case "getMetaData":
+                    return metaData(result.columns);
+                case "execute":
+                    executions.incrementAndGet();
+                    current[0] = resultSet(result.columns, result.rows);
+                    return true;
+                case "getResultSet":
+                    return current[0];
+                case "getUpdateCount":
+                    return -1;
+                case "getLargeUpdateCount":
+                    return -1L;
+                default:
+                    return null;
+            }
+        });
+    }
+
+    /**
+     * 只读、只进的结果集，值按原样返回；getBytes 与字符流按字符串转换
+     *
+     * @param columns 各列的 {库, 表, 列名}
+     */
+    public static ResultSet resultSet(String[][] columns, List<Object[]> rows) {
+        List<Object[]> data = new ArrayList<>(rows);
+        ResultSetMetaData metaData = metaData(columns);
+        int[] index = {-1};
+        Object[] last = {null};
+        return proxy(ResultSet.class, (method, args) -> {
+            switch (method.getName()) {
+                case "next":
+                    return ++index[0] < data.size();
+                case "getMetaData":
+                    return metaData;
+                case "findColumn":
+                    for (int i = 0; i < columns.length; i++) {
+                        if (columns[i][2].equalsIgnoreCase((String) args[0])) {
+                            return i + 1;
+                        }
+                    }
+                    throw new SQLException("列不存在: " + args[0]);
+                case "wasNull":
+                    return last[0] == null;
+                case "getObject":
+                case "getString":
+                case "getNString":
+                case "getBytes":
+                case "getCharacterStream":
+                case "getNCharacterStream":
+                    Object value = data.get(index[0])[(Integer) args[0] - 1];
+                    last[0] = value;
+                    if (value == null || method.getName().equals("getObject")) {
+                        return value;
+                    }
+                    String text = String.valueOf(value);
+                    if (method.getName().equals("getBytes")) {
+                        return text.getBytes(StandardCharsets.UTF_8);
+                    }
+                    if (method.getName().endsWith("CharacterStream")) {
+                        return new StringReader(text);
+                    }
+                    return text;
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private static ResultSetMetaData metaData(String[][] columns) {
+        return proxy(ResultSetMetaData.class, (method, args) -> {
+            switch (method.getName()) {
+                case "getColumnCount":
+                    return columns.length;
+                case "getCatalogName":
+                    return columns[(Integer) args[0] - 1][0];
+                case "getSchemaName":
+                    return "";
+                case "getTableName":
+                    return columns[(Integer) args[0] - 1][1];
+                case "getColumnName":
+                case "getColumnLabel":
+                    return columns[(Integer) args[0] - 1][2];
+                case "getColumnType":
+                    return Types.VARCHAR;
+                case "getColumnTypeName":
+                    return "VARCHAR";
+                case "getColumnClassName":
+                    return String.class.getName();
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private static final class Result {
+        private final String[][] columns;
+        private final List<Object[]> rows;
+
+        private Result(String[][] columns, List<Object[]> rows) {
+            this.columns = columns;
+            this.rows = rows;
+        }
+    }
+
+    @FunctionalInterface
+    public interface Handler {
+        Object invoke(Method method, Object[] args) throws Exception;
+    }
+
+    /**
+     * 以 handler 实现 JDBC 接口：未处理的方法返回 null，基本类型返回默认值
+     */
+    public static <T> T proxy(Class<T> type, Handler handler) {
+        return type.cast(Proxy.newProxyInstance(FakeDatabase.class.getClassLoader(), new Class<?>[]{type}, (p, method, args) -> {
+            Object result = handler.invoke(method, args);
+            if (result != null || !method.getReturnType().isPrimitive()) {
+                return result;
+            }
+            Class<?> returnType = method.getReturnType();
+            if (returnType == boolean.class) {
+                return false;
+            }
+            if (returnType == void.class) {
+                return null;
+            }
+            if (returnType == long.class) {
+                return 0L;
+            }
+            return 0;
+        }));
+    }
+}
@@ -0,0 +1,103 @@
+package com.whosly.avacita.core.mask.meta;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.whosly.avacita.core.mask.jdbc.FakeDatabase.proxy;
+
+/**
+ * 测试用的 INFORMATION_SCHEMA：以动态代理实现 JDBC 接口，按 schema、表名过滤列，并记录执行的查询次数
+ */
+final class FakeInformationSchema {
+
+    /**
+     * schema, table, column，按列顺序
+     */
+    final List<String[]> columns = new CopyOnWriteArrayList<>();
+    final AtomicInteger queries = new AtomicInteger();
+
+    private final String catalog;
+
+    FakeInformationSchema(String catalog) {
+        this.catalog = catalog;
+    }
+
+    void addTable(String schema, String table, String... names) {
+        for (String name : names) {
+            columns.add(new String[]{schema, table, name});
+        }
+    }
+
+    Connection connect() {
+        return proxy(Connection.class, (method, args) -> {
+            switch (method.getName()) {
+                case "getCatalog":
+                    return catalog;
+                case "isValid":
+                    return true;
+                case "prepareStatement":
+                    return statement((String) args[0]);
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private PreparedStatement statement(String sql) {
+        List<Object> params = new ArrayList<>();
+        return proxy(PreparedStatement.class, (method, args) -> {
+            switch (method.getName()) {
+                case "setString":
+                case "setObject":
+                    params.add(args[1]);
+                    return null;
+                case "executeQuery":
+                    queries.incrementAndGet();
+                    return resultSet(query(sql, params));
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private List<Object[]> query(String sql, List<Object> params) {
+        List<Object[]> rows = new ArrayList<>();
+        if (sql.startsWith("SELECT (")) {
+            long tables = columns.stream().map(c -> c[0] + "." + c[1]).distinct().count();
+            rows.add(new Object[]{columns.size(), tables, null});
+        } else if (sql.contains("TABLE_NAME = ?")) {
+            for (String[] c : columns) {
+                if (c[0].equals(params.get(0)) && c[1].equals(params.get(1))) {
+                    rows.add(c);
+                }
+            }
+        } else {
+            for (String[] c : columns) {
+                if (params.contains(c[0])) {
+                    rows.add(c);
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static ResultSet resultSet(List<Object[]> rows) {
+        int[] index = {-1};
+        return proxy(ResultSet.class, (method, args) -> {
+            switch (method.getName()) {
+                case "next":
+                    return ++index[0] < rows.size();
+                case "getString":
+                    Object value = rows.get(index[0])[(Integer) args[0] - 1];
+                    return value == null ? null : String.valueOf(value);
+                default:
+                    return null;
+            }
+        });
+    }
+}
@@ -0,0 +1,98 @@
+package com.whosly.avacita.core.mask.meta;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 表结构元数据缓存测试：后端为 {@link FakeInformationSchema}，后台刷新间隔设为不触发，由测试直接调用 refresh
+ */
+public class SchemaMetadataCacheTest {
+
+    private FakeInformationSchema db;
+    private SchemaMetadataCache cache;
+
+    @BeforeEach
+    void setUp() {
+        db = new FakeInformationSchema("demo");
+        db.addTable("demo", "t_emp", "id", "name", "tel");
+        db.addTable("demo", "t_dept", "id", "dname");
+        db.addTable("other", "t_x", "a");
+        cache = new SchemaMetadataCache(db::connect, Collections.emptyList(), Long.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cache.close();
+    }
+
+    @Test
+    void testBulkLoad() {
+        cache.start();
+
+        // 启动时一次探测、一次批量查询，之后已加载 schema 的表都在缓存中命中
+        assertEquals(2, db.queries.get());
+        assertEquals(List.of("id", "name", "tel"), cache.getColumns("demo", "t_emp"));
+        assertEquals(List.of("id", "dname"), cache.getColumns("DEMO", "T_DEPT"));
+        assertEquals(2, db.queries.get());
+
+        // 未加载过的 schema 在首次查找时整体加载一次
+        assertEquals(List.of("a"), cache.getColumns("other", "t_x"));
+        assertEquals(3, db.queries.get());
+        assertEquals(Collections.emptyList(), cache.getColumns("other", "t_y"));
+        assertEquals(4, db.queries.get());
+    }
+
+    @Test
+    void testRefreshOnDdl() {
+        AtomicInteger changes = new AtomicInteger();
+        cache.addListener(changes::incrementAndGet);
+        cache.start();
+        assertEquals(1, changes.get());
+
+        // 探测值不变时只执行探测查询，不重新加载
+        int queries = db.queries.get();
+        cache.refresh();
+        assertEquals(queries + 1, db.queries.get());
+        assertEquals(1, changes.get());
+
+        // 增加列后探测值变化，重新加载并通知监听器
+        db.addTable("demo", "t_emp", "email");
+        cache.refresh();
+        assertEquals(List.of("id", "name", "tel", "email"), cache.getColumns("demo", "t_emp"));
+        assertEquals(2, changes.get());
+    }
+
+    @Test
+    void testMissingTableCached() {
+        cache.start();
+        int queries = db.queries.get();
+
+        // 不存在的表只查询一次，直到下次重新加载
+        assertEquals(Collections.emptyList(), cache.getColumns("demo", "cte"));
+        assertEquals(queries + 1, db.queries.get());
+        assertEquals(Collections.emptyList(), cache.getColumns("demo", "CTE"));
+        assertEquals(queries + 1, db.queries.get());
+
+        db.addTable("demo", "cte", "x");
+        cache.refresh();
+        assertEquals(List.of("x"), cache.getColumns("demo", "cte"));
+    }
+
+    @Test
+    void testNullSchema() {
+        cache.start();
+        int queries = db.queries.get();
+
+        // 未指定库时不按元数据连接的当前库查找，由调用方传入客户端连接的当前库
+        assertEquals(Collections.emptyList(), cache.getColumns(null, "t_emp"));
+        assertEquals(queries, db.queries.get());
+        assertEquals(List.of("id", "name", "tel"), cache.getColumns("demo", "t_emp"));
+    }
+}
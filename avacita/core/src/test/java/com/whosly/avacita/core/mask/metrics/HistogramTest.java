@@ -0,0 +1,47 @@
+package com.whosly.avacita.core.mask.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 固定分桶直方图测试
+ */
+public class HistogramTest {
+
+    @Test
+    void testCumulativeCounts() {
+        Histogram histogram = new Histogram(new long[]{10L, 100L, 1_000L});
+        for (long value : new long[]{1L, 10L, 11L, 100L, 500L, 5_000L}) {
+            histogram.record(value);
+        }
+
+        // le 为桶的上界，含等于；最后一个为 +Inf 桶
+        assertArrayEquals(new long[]{2L, 4L, 5L, 6L}, histogram.cumulativeCounts());
+        assertEquals(6L, histogram.getCount());
+        assertEquals(5_622L, histogram.getSum());
+    }
+
+    @Test
+    void testQuantile() {
+        Histogram histogram = new Histogram(new long[]{10L, 100L, 1_000L});
+        assertEquals(0L, histogram.quantile(0.99));
+
+        for (int i = 0; i < 90; i++) {
+            histogram.record(5L);
+        }
+        for (int i = 0; i < 9; i++) {
+            histogram.record(50L);
+        }
+        histogram.record(500L);
+
+        assertEquals(10L, histogram.quantile(0.5));
+        assertEquals(10L, histogram.quantile(0.9));
+        assertEquals(100L, histogram.quantile(0.99));
+        assertEquals(1_000L, histogram.quantile(1.0));
+
+        // 落在 +Inf 桶时返回最大上界
+        histogram.record(1_000_000L);
+        assertEquals(1_000L, histogram.quantile(1.0));
+    }
+}
@@ -0,0 +1,69 @@
+package com.whosly.avacita.core.mask.metrics;
+
+import com.whosly.avacita.core.mask.rule.MaskingRuleType;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 脱敏运行指标测试
+ */
+public class MaskingMetricsTest {
+
+    @Test
+    void testCounters() {
+        MaskingMetrics metrics = new MaskingMetrics();
+        metrics.recordMaskedCells(MaskingRuleType.MASK_MIDDLE, 3);
+        metrics.recordMaskedCells(MaskingRuleType.MASK_MIDDLE, 2);
+        metrics.recordMaskedCells(MaskingRuleType.HASH, 0);
+        metrics.recordFrame(100, false);
+        metrics.recordFrame(1, true);
+        metrics.recordPlanCache(true);
+        metrics.recordPlanCache(true);
+        metrics.recordPlanCache(true);
+        metrics.recordPlanCache(false);
+        metrics.recordMemo(1, 3);
+
+        assertEquals(5L, metrics.getMaskedCells(MaskingRuleType.MASK_MIDDLE));
+        assertEquals(0L, metrics.getMaskedCells(MaskingRuleType.HASH));
+        assertEquals(5L, metrics.getMaskedCells().get("mask_middle"));
+        assertEquals(1L, metrics.getMaskedFrames());
+        assertEquals(1L, metrics.getPassthroughFrames());
+        assertEquals(2L, metrics.getFrameRows().getCount());
+        assertEquals(100L, metrics.getFrameRowsP99());
+        assertEquals(0.75D, metrics.getPlanCacheHitRate());
+        assertEquals(0.25D, metrics.getMemoHitRate());
+    }
+
+    @Test
+    void testEmptyRates() {
+        MaskingMetrics metrics = new MaskingMetrics();
+        assertEquals(0D, metrics.getPlanCacheHitRate());
+        assertEquals(0D, metrics.getMemoHitRate());
+        assertEquals(0D, metrics.getLatencyMeanMillis().get("request"));
+        assertEquals(0D, metrics.getLatencyP99Millis().get("request"));
+    }
+
+    @Test
+    void testSerializePhase() {
+        MaskingMetrics metrics = new MaskingMetrics();
+
+        // 没有 Meta 阶段的请求（如 openConnection）不记序列化耗时
+        metrics.endRequest(metrics.beginRequest());
+        assertEquals(1L, metrics.getPhaseLatency(MaskingMetrics.Phase.REQUEST).getCount());
+        assertEquals(0L, metrics.getPhaseLatency(MaskingMetrics.Phase.SERIALIZE).getCount());
+
+        long start = metrics.beginRequest();
+        metrics.recordPhase(MaskingMetrics.Phase.EXECUTE, System.nanoTime());
+        metrics.recordPhase(MaskingMetrics.Phase.MASK, System.nanoTime());
+        metrics.endRequest(start);
+        assertEquals(2L, metrics.getPhaseLatency(MaskingMetrics.Phase.REQUEST).getCount());
+        assertEquals(1L, metrics.getPhaseLatency(MaskingMetrics.Phase.SERIALIZE).getCount());
+        assertEquals(1L, metrics.getPhaseLatency(MaskingMetrics.Phase.EXECUTE).getCount());
+
+        // 序列化耗时 = 请求耗时 - Meta 阶段耗时，不超过请求耗时
+        Histogram request = metrics.getPhaseLatency(MaskingMetrics.Phase.REQUEST);
+        Histogram serialize = metrics.getPhaseLatency(MaskingMetrics.Phase.SERIALIZE);
+        assertTrue(serialize.getSum() <= request.getSum());
+    }
+}
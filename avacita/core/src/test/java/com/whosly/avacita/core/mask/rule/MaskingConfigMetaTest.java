@@ -0,0 +1,114 @@
+package com.whosly.avacita.core.mask.rule;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.whosly.avacita.core.mask.rule.TestColumns.column;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 规则集加载与热加载测试
+ */
+public class MaskingConfigMetaTest {
+
+    @Test
+    void testRuleChangeListener(@TempDir Path dir) throws Exception {
+        Path rulesFile = dir.resolve("masking_rules.csv");
+        Files.write(rulesFile, ("schema,table,column,rule_type,rule_params...,enabled\n"
+                + "demo,t_user,phone,mask_full,,TRUE\n"
+                + "demo,t_order,amount,mask_full,,TRUE\n").getBytes(StandardCharsets.UTF_8));
+
+        MaskingConfigMeta meta = new MaskingConfigMeta(rulesFile.toString());
+        try {
+            MaskingPlan userPlan = MaskingPlan.compile(List.of(column(0, "demo", "t_user", "phone")), meta);
+            MaskingPlan orderPlan = MaskingPlan.compile(
+                    List.of(column(0, "DEMO", "T_ORDER", "id"), column(1, "DEMO", "T_ORDER", "amount")), meta);
+
+            AtomicReference<MaskingRuleChange> received = new AtomicReference<>();
+            CountDownLatch notified = new CountDownLatch(1);
+            meta.addRuleListener(change -> {
+                received.set(change);
+                notified.countDown();
+            });
+
+            // 只修改 t_order 的规则参数，t_user 的规则不变
+            Path tmp = dir.resolve("masking_rules.csv.tmp");
+            Files.write(tmp, ("schema,table,column,rule_type,rule_params...,enabled\n"
+                    + "demo,t_user,phone,mask_full,,TRUE\n"
+                    + "demo,t_order,amount,mask_left,2,TRUE\n").getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp, rulesFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+            assertTrue(notified.await(10L, TimeUnit.SECONDS));
+            MaskingRuleChange change = received.get();
+            assertEquals(1L, change.getPreviousVersion());
+            assertEquals(2L, change.getVersion());
+            assertEquals(Set.of("demo.t_order"), change.getChangedTables());
+            assertTrue(change.affects("Demo", "T_Order"));
+            assertTrue(change.affectsTable("t_order"));
+            assertFalse(change.affects("demo", "t_user"));
+
+            assertTrue(orderPlan.dependsOn(change));
+            assertFalse(userPlan.dependsOn(change));
+        } finally {
+            meta.shutdown();
+        }
+    }
+
+    @Test
+    void testWatchReload(@TempDir Path dir) throws Exception {
+        Path rulesFile = dir.resolve("masking_rules.csv");
+        Files.write(rulesFile, ("schema,table,column,rule_type,rule_params...,enabled\n"
+                + "demo,t_user,phone,mask_full,,TRUE\n"
+                + "demo,t_user,email,mask_left,4,TRUE\n").getBytes(StandardCharsets.UTF_8));
+
+        MaskingConfigMeta meta = new MaskingConfigMeta(rulesFile.toString());
+        try {
+            assertEquals(1L, meta.getVersion());
+            assertEquals(MaskingRuleType.MASK_FULL, meta.getMatchingRule("demo", "t_user", "phone").getRuleType());
+
+            // 重新加载期间，两个版本中都存在的规则始终可见
+            AtomicBoolean stop = new AtomicBoolean();
+            AtomicInteger missing = new AtomicInteger();
+            Thread reader = new Thread(() -> {
+                while (!stop.get()) {
+                    if (meta.getMatchingRule("demo", "t_user", "phone") == null) {
+                        missing.incrementAndGet();
+                    }
+                }
+            });
+            reader.start();
+
+            // 写临时文件后原子替换
+            Path tmp = dir.resolve("masking_rules.csv.tmp");
+            Files.write(tmp, ("schema,table,column,rule_type,rule_params...,enabled\n"
+                    + "demo,t_user,phone,mask_middle,3,4,TRUE\n").getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp, rulesFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+            long deadline = System.currentTimeMillis() + 10_000L;
+            while (meta.getVersion() < 2L && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10L);
+            }
+            stop.set(true);
+            reader.join();
+
+            assertEquals(2L, meta.getVersion());
+            assertEquals(MaskingRuleType.MASK_MIDDLE, meta.getMatchingRule("demo", "t_user", "phone").getRuleType());
+            assertNull(meta.getMatchingRule("demo", "t_user", "email"));
+            assertEquals(0, missing.get());
+        } finally {
+            meta.shutdown();
+        }
+    }
+}
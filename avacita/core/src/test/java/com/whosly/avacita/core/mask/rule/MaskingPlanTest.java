@@ -0,0 +1,128 @@
+package com.whosly.avacita.core.mask.rule;
+
+import org.apache.calcite.avatica.ColumnMetaData;
+import org.apache.calcite.avatica.Meta.Frame;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.whosly.avacita.core.mask.rule.TestColumns.column;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 脱敏计划测试
+ */
+public class MaskingPlanTest {
+
+    private MaskingConfigMeta maskingConfigMeta;
+
+    @BeforeEach
+    void setUp() {
+        maskingConfigMeta = new MaskingConfigMeta("mask/masking_rules.csv");
+    }
+
+    @Test
+    void testMaskingPlanPassthrough() {
+        // 没有任何列需要脱敏：原样返回同一个 Frame，行数组不被修改
+        MaskingPlan plan = MaskingPlan.compile(
+                Arrays.asList(column(0, "demo", "t_dept", "name"), column(1, "demo", "t_emp", "id")),
+                maskingConfigMeta);
+        assertTrue(plan.isPassthrough());
+
+        Object[] row = {"dev", 1};
+        Frame frame = new Frame(0, true, new ArrayList<>(List.of((Object) row)));
+        assertSame(frame, plan.apply(frame));
+        assertArrayEquals(new Object[]{"dev", 1}, row);
+    }
+
+    @Test
+    void testMaskingPlanInPlace() {
+        // 只就地改写需要脱敏的列，其余列与 null 值保持不变
+        MaskingPlan plan = MaskingPlan.compile(
+                Arrays.asList(column(0, "demo", "t_emp", "id"), column(1, "demo", "t_emp", "cert_no"),
+                        column(2, "demo", "t_emp", "tel")),
+                maskingConfigMeta);
+        assertFalse(plan.isPassthrough());
+
+        Object[] row1 = {1, "110101199001011234", "13812345678"};
+        Object[] row2 = {2, null, "13800000000"};
+        Frame frame = new Frame(0, true, new ArrayList<>(List.of((Object) row1, row2)));
+        Frame masked = plan.apply(frame);
+
+        assertSame(frame, masked);
+        assertArrayEquals(new Object[]{1, "******", "138******5678"}, row1);
+        assertArrayEquals(new Object[]{2, null, "138******0000"}, row2);
+    }
+
+    @Test
+    void testMaskingPlanMemoization() {
+        // cert_no（全掩码）为低基数列，tel 每行都不同
+        MaskingPlan plan = MaskingPlan.compile(
+                Arrays.asList(column(0, "demo", "t_emp", "cert_no"), column(1, "demo", "t_emp", "tel")),
+                maskingConfigMeta);
+
+        for (int f = 0; f < 4; f++) {
+            List<Object> rows = new ArrayList<>();
+            for (int r = 0; r < 500; r++) {
+                rows.add(new Object[]{"dept-" + (r % 5), String.valueOf(13800000000L + f * 1000 + r)});
+            }
+            plan.apply(new Frame(0, f == 3, rows));
+
+            // 记忆化不影响脱敏结果
+            String lastTel = String.valueOf(13800000000L + f * 1000 + 499);
+            assertArrayEquals(new Object[]{"******", "138******" + lastTel.substring(7)}, (Object[]) rows.get(499));
+        }
+
+        // 低基数列：每帧只有 5 次未命中
+        assertTrue(plan.isMemoEnabled(0));
+        assertEquals(20, plan.getMemoMisses(0));
+        assertEquals(1980, plan.getMemoHits(0));
+
+        // 高基数列：采样后命中率过低，自动关闭
+        assertFalse(plan.isMemoEnabled(1));
+        assertEquals(0, plan.getMemoHits(1));
+
+        // 未脱敏列、关闭记忆化
+        assertFalse(plan.isMemoEnabled(5));
+        MaskingPlan noMemo = MaskingPlan.compile(Arrays.asList(column(0, "demo", "t_emp", "cert_no")), maskingConfigMeta, false);
+        assertFalse(noMemo.isMemoEnabled(0));
+    }
+
+    @Test
+    void testMaskingPlanParallel() {
+        List<ColumnMetaData> columns = Arrays.asList(column(0, "demo", "t_emp", "id"), column(1, "demo", "t_emp", "cert_no"),
+                column(2, "demo", "t_emp", "tel"), column(3, "demo", "t_emp", "email"));
+        MaskingPlan sequential = MaskingPlan.compile(columns, maskingConfigMeta);
+        MaskingPlan parallel = MaskingPlan.compile(columns, maskingConfigMeta);
+
+        List<Object> expected = rows(10_000);
+        List<Object> actual = rows(10_000);
+        sequential.apply(new Frame(0, true, expected));
+
+        // 单元格数超过阈值：按行区间并发脱敏，结果与顺序脱敏一致
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Frame frame = new Frame(0, true, actual);
+            assertSame(frame, parallel.apply(frame, pool, 1_000));
+        } finally {
+            pool.shutdown();
+        }
+        for (int r = 0; r < expected.size(); r++) {
+            assertArrayEquals((Object[]) expected.get(r), (Object[]) actual.get(r), "row " + r);
+        }
+        assertEquals("138******0042", ((Object[]) actual.get(42))[2]);
+    }
+
+    private static List<Object> rows(int count) {
+        List<Object> rows = new ArrayList<>(count);
+        for (int r = 0; r < count; r++) {
+            String cert = r % 7 == 0 ? null : "dept-" + (r % 5);
+            rows.add(new Object[]{r, cert, String.valueOf(13800000000L + r), "user" + r + "@example.com"});
+        }
+        return rows;
+    }
+}
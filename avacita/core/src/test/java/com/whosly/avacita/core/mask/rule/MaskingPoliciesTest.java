@@ -0,0 +1,70 @@
+package com.whosly.avacita.core.mask.rule;
+
+import org.apache.calcite.avatica.ColumnMetaData;
+import org.apache.calcite.avatica.Meta.Frame;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static com.whosly.avacita.core.mask.rule.TestColumns.column;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 按连接解析脱敏策略测试
+ */
+public class MaskingPoliciesTest {
+
+    private MaskingConfigMeta maskingConfigMeta;
+
+    @BeforeEach
+    void setUp() {
+        maskingConfigMeta = new MaskingConfigMeta("mask/masking_rules.csv");
+    }
+
+    @Test
+    void testMaskingPolicies(@TempDir Path dir) throws Exception {
+        Path analystRules = dir.resolve("analyst.csv");
+        Files.write(analystRules, String.join("\n",
+                "schema,table,column,rule_type,rule_params...,enabled",
+                "demo,t_emp,tel,mask_full,,TRUE",
+                "").getBytes(StandardCharsets.UTF_8));
+        MaskingConfigMeta analyst = new MaskingConfigMeta(analystRules.toString());
+        try {
+            MaskingPolicies policies = new MaskingPolicies(maskingConfigMeta, "role", Map.of("Analyst", analyst));
+            assertEquals(List.of(maskingConfigMeta, analyst), policies.all());
+
+            // 按连接属性解析（策略名忽略大小写），未携带该属性或未配置的取值使用默认策略
+            assertSame(analyst, policies.resolve(Map.of("role", "ANALYST", "user", "alice")));
+            assertSame(maskingConfigMeta, policies.resolve(Map.of("role", "support")));
+            assertSame(maskingConfigMeta, policies.resolve(Map.of("user", "analyst")));
+            assertSame(maskingConfigMeta, policies.resolve(null));
+            assertSame(maskingConfigMeta, new MaskingPolicies(maskingConfigMeta).resolve(Map.of("user", "analyst")));
+
+            // 同一结果集按各连接的规则集编译为不同的脱敏计划
+            List<ColumnMetaData> columns = Arrays.asList(column(0, "demo", "t_emp", "tel"), column(1, "demo", "t_emp", "name"));
+            MaskingPlan analystPlan = MaskingPlan.compile(columns, policies.resolve(Map.of("role", "analyst")));
+            MaskingPlan defaultPlan = MaskingPlan.compile(columns, policies.resolve(Map.of()));
+            assertSame(analyst, analystPlan.getMaskingConfigMeta());
+            assertSame(maskingConfigMeta, defaultPlan.getMaskingConfigMeta());
+
+            Object[] analystRow = {"13812345678", "zhangsan"};
+            analystPlan.apply(new Frame(0, true, new ArrayList<>(List.of((Object) analystRow))));
+            assertArrayEquals(new Object[]{"******", "zhangsan"}, analystRow);
+
+            Object[] defaultRow = {"13812345678", "zhangsan"};
+            defaultPlan.apply(new Frame(0, true, new ArrayList<>(List.of((Object) defaultRow))));
+            assertEquals("138******5678", defaultRow[0]);
+            assertNotEquals("zhangsan", defaultRow[1]);
+        } finally {
+            analyst.shutdown();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.whosly.avacita.core.mask.rule;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 规则哈希索引测试
+ */
+public class MaskingRuleIndexTest {
+
+    private MaskingConfigMeta maskingConfigMeta;
+
+    @BeforeEach
+    void setUp() {
+        maskingConfigMeta = new MaskingConfigMeta("mask/masking_rules.csv");
+    }
+
+    @Test
+    void testTableRulesFastPath() {
+        // 表级快速判断（忽略大小写）
+        assertTrue(maskingConfigMeta.hasTableRules("demo", "t_emp"));
+        assertTrue(maskingConfigMeta.hasTableRules("DEMO", "T_EMP"));
+        assertFalse(maskingConfigMeta.hasTableRules("demo", "t_dept"));
+        assertNull(maskingConfigMeta.getMatchingRule("demo", "t_dept", "tel"));
+
+        // 按表获取全部规则，保持配置文件中的顺序
+        assertEquals(5, maskingConfigMeta.getRule("Demo", "T_Emp").size());
+        assertEquals("id", maskingConfigMeta.getRule("demo", "t_emp").get(0).getColumn());
+    }
+}
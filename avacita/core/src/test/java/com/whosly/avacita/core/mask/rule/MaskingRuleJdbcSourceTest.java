@@ -0,0 +1,115 @@
+package com.whosly.avacita.core.mask.rule;
+
+import org.apache.calcite.DataContext;
+import org.apache.calcite.jdbc.CalciteConnection;
+import org.apache.calcite.linq4j.Enumerable;
+import org.apache.calcite.linq4j.Linq4j;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rel.type.RelDataTypeFactory;
+import org.apache.calcite.schema.ScannableTable;
+import org.apache.calcite.schema.impl.AbstractTable;
+import org.apache.calcite.sql.type.SqlTypeName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 数据库规则源测试
+ */
+public class MaskingRuleJdbcSourceTest {
+
+    @Test
+    void testJdbcRuleSource() throws Exception {
+        // 以 Calcite 的内存表模拟数据库中的规则表
+        List<Object[]> rows = new CopyOnWriteArrayList<>(List.of(
+                new Object[]{"demo", "t_user", "phone", "mask_full", null, true, 1L},
+                new Object[]{"demo", "t_user", "email", "mask_left", "4", true, 2L},
+                new Object[]{"demo", "t_order", "amount", "mask_full", "", true, 3L},
+                new Object[]{"demo", "t_order", "memo", "mask_full", "", false, 4L}));
+        MaskingRuleJdbcSource source = new MaskingRuleJdbcSource(() -> {
+            Properties info = new Properties();
+            info.setProperty("lex", "MYSQL");
+            Connection connection = DriverManager.getConnection("jdbc:calcite:", info);
+            connection.unwrap(CalciteConnection.class).getRootSchema().add("masking_rules", new RuleTable(rows));
+            return connection;
+        }, MaskingRuleJdbcSource.DEFAULT_TABLE, 20L);
+
+        MaskingConfigMeta meta = new MaskingConfigMeta(source);
+        try {
+            // 首次同步为全量，禁用的行不加载
+            assertEquals(1L, meta.getVersion());
+            assertEquals(MaskingRuleType.MASK_FULL, meta.getMatchingRule("demo", "t_user", "phone").getRuleType());
+            assertArrayEquals(new String[]{"4"}, meta.getMatchingRule("demo", "t_user", "email").getRuleParams());
+            assertNotNull(meta.getMatchingRule("demo", "t_order", "amount"));
+            assertNull(meta.getMatchingRule("demo", "t_order", "memo"));
+
+            BlockingQueue<MaskingRuleChange> changes = new LinkedBlockingQueue<>();
+            meta.addRuleListener(changes::add);
+
+            // 修改、删除（enabled=false）与新增，只读取版本更大的行，作为增量应用
+            rows.addAll(List.of(
+                    new Object[]{"demo", "T_USER", "EMAIL", "mask_middle", "3, 4", true, 5L},
+                    new Object[]{"demo", "t_order", "amount", "mask_full", null, false, 6L},
+                    new Object[]{"demo", "t_emp", "tel", "mask_full", null, true, 7L}));
+
+            MaskingRuleChange change = changes.poll(10L, TimeUnit.SECONDS);
+            assertNotNull(change);
+            assertEquals(2L, change.getVersion());
+            assertEquals(Set.of("demo.t_user", "demo.t_order", "demo.t_emp"), change.getChangedTables());
+            MaskingRuleConfig email = meta.getMatchingRule("demo", "t_user", "email");
+            assertEquals(MaskingRuleType.MASK_MIDDLE, email.getRuleType());
+            assertArrayEquals(new String[]{"3", "4"}, email.getRuleParams());
+            assertEquals(MaskingRuleType.MASK_FULL, meta.getMatchingRule("demo", "t_user", "phone").getRuleType());
+            assertEquals(2, meta.getRule("demo", "t_user").size());
+            assertFalse(meta.hasTableRules("demo", "t_order"));
+            assertNotNull(meta.getMatchingRule("demo", "t_emp", "tel"));
+
+            // 没有新的行时不产生新版本
+            assertNull(changes.poll(200L, TimeUnit.MILLISECONDS));
+            assertEquals(2L, meta.getVersion());
+        } finally {
+            meta.shutdown();
+        }
+    }
+
+    /**
+     * 规则表：schema_name, table_name, column_name, rule_type, rule_params, enabled, version
+     */
+    private static final class RuleTable extends AbstractTable implements ScannableTable {
+        private final List<Object[]> rows;
+
+        private RuleTable(List<Object[]> rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public RelDataType getRowType(RelDataTypeFactory typeFactory) {
+            RelDataType varchar = typeFactory.createTypeWithNullability(typeFactory.createSqlType(SqlTypeName.VARCHAR), true);
+            return typeFactory.builder()
+                    .add("schema_name", varchar)
+                    .add("table_name", varchar)
+                    .add("column_name", varchar)
+                    .add("rule_type", varchar)
+                    .add("rule_params", varchar)
+                    .add("enabled", SqlTypeName.BOOLEAN)
+                    .add("version", SqlTypeName.BIGINT)
+                    .build();
+        }
+
+        @Override
+        public Enumerable<Object[]> scan(DataContext root) {
+            return Linq4j.asEnumerable(new ArrayList<>(rows));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.whosly.avacita.core.mask.rule;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 通配符规则测试
+ */
+public class MaskingRulePatternsTest {
+
+    @Test
+    void testWildcardRules(@TempDir Path dir) throws Exception {
+        Path csvFile = dir.resolve("masking_rules.csv");
+        Files.write(csvFile, String.join("\n",
+                "schema,table,column,rule_type,rule_params...,enabled",
+                "demo,t_emp_1,tel,keep,,TRUE",
+                "*,t_emp_*,tel,mask_middle,3,4,TRUE",
+                "*,t_emp_?,tel,mask_full,,TRUE",
+                "demo,*,*_phone,mask_right,3,TRUE",
+                "").getBytes(StandardCharsets.UTF_8));
+        Path storeFile = dir.resolve("masking_rules.bin");
+        assertEquals(4, MaskingRuleCompiler.compile(csvFile, storeFile));
+
+        for (Path file : new Path[]{csvFile, storeFile}) {
+            MaskingConfigMeta meta = new MaskingConfigMeta(file.toString());
+            try {
+                // 精确规则优先，其次为加载顺序中第一条匹配的通配符规则
+                assertEquals(MaskingRuleType.KEEP, meta.getMatchingRule("demo", "t_emp_1", "tel").getRuleType());
+                assertEquals(MaskingRuleType.MASK_MIDDLE, meta.getMatchingRule("demo", "t_emp_2", "tel").getRuleType());
+                assertEquals(MaskingRuleType.MASK_MIDDLE, meta.getMatchingRule("HR", "T_EMP_2025", "TEL").getRuleType());
+                assertEquals(MaskingRuleType.MASK_RIGHT, meta.getMatchingRule("Demo", "orders", "home_phone").getRuleType());
+                // 通配符不跨越 schema/table/column 的边界
+                assertNull(meta.getMatchingRule("hr", "orders", "home_phone"));
+                assertNull(meta.getMatchingRule("demo", "t_emp", "tel"));
+                assertNull(meta.getMatchingRule("demo.t_emp_1", "tel", "x"));
+
+                assertTrue(meta.hasTableRules("hr", "t_emp_9"));
+                assertFalse(meta.hasTableRules("hr", "orders"));
+                // 表的规则：精确规则在前，之后为 schema/table 与之匹配的全部通配符规则
+                assertEquals(4, meta.getRule("demo", "t_emp_1").size());
+                assertEquals("t_emp_1", meta.getRule("demo", "t_emp_1").get(0).getTable());
+            } finally {
+                meta.shutdown();
+            }
+        }
+
+        // 通配符规则变化时，与之匹配的表均视为有变化
+        MaskingConfigMeta meta = new MaskingConfigMeta(csvFile.toString());
+        try {
+            AtomicReference<MaskingRuleChange> received = new AtomicReference<>();
+            CountDownLatch notified = new CountDownLatch(1);
+            meta.addRuleListener(change -> {
+                received.set(change);
+                notified.countDown();
+            });
+            Path tmp = dir.resolve("masking_rules.csv.tmp");
+            Files.write(tmp, new String(Files.readAllBytes(csvFile), StandardCharsets.UTF_8)
+                    .replace("*,t_emp_*,tel,mask_middle,3,4,TRUE", "*,t_emp_*,tel,hash,,TRUE")
+                    .getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp, csvFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            assertTrue(notified.await(10L, TimeUnit.SECONDS));
+            MaskingRuleChange change = received.get();
+            assertTrue(change.getChangedTables().isEmpty());
+            assertTrue(change.affects("hr", "T_EMP_2025"));
+            assertFalse(change.affects("demo", "orders"));
+            assertEquals(MaskingRuleType.HASH, meta.getMatchingRule("hr", "t_emp_2", "tel").getRuleType());
+        } finally {
+            meta.shutdown();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.whosly.avacita.core.mask.rule;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 编译后二进制规则库测试
+ */
+public class MaskingRuleStoreTest {
+
+    private MaskingConfigMeta maskingConfigMeta;
+
+    @BeforeEach
+    void setUp() {
+        maskingConfigMeta = new MaskingConfigMeta("mask/masking_rules.csv");
+    }
+
+    @Test
+    void testCompiledRuleStore(@TempDir Path dir) throws Exception {
+        Path csvFile = Paths.get(getClass().getClassLoader().getResource("mask/masking_rules.csv").toURI());
+        Path storeFile = dir.resolve("masking_rules.bin");
+        assertEquals(8, MaskingRuleCompiler.compile(csvFile, storeFile));
+
+        MaskingConfigMeta store = new MaskingConfigMeta(storeFile.toString());
+        try {
+            assertEquals(1L, store.getVersion());
+            // 与 CSV 加载的规则逐条一致（忽略大小写）
+            for (String[] table : new String[][]{{"demo", "t_emp"}, {"public", "orders"}}) {
+                List<MaskingRuleConfig> rules = maskingConfigMeta.getRule(table[0], table[1]);
+                assertEquals(rules.size(), store.getRule(table[0].toUpperCase(), table[1]).size());
+                for (MaskingRuleConfig rule : rules) {
+                    MaskingRuleConfig compiled = store.getMatchingRule(
+                            rule.getSchema().toUpperCase(), rule.getTable(), rule.getColumn().toUpperCase());
+                    assertNotNull(compiled);
+                    assertEquals(rule.getColumn(), compiled.getColumn());
+                    assertEquals(rule.getRuleType(), compiled.getRuleType());
+                    assertArrayEquals(rule.getRuleParams(), compiled.getRuleParams());
+                }
+            }
+            assertNull(store.getMatchingRule("demo", "t_emp", "non_existent_column"));
+            assertFalse(store.hasTableRules("demo", "t_dept"));
+
+            // 覆盖编译结果即热加载，只有规则变化的表出现在变更中
+            AtomicReference<MaskingRuleChange> received = new AtomicReference<>();
+            CountDownLatch notified = new CountDownLatch(1);
+            store.addRuleListener(change -> {
+                received.set(change);
+                notified.countDown();
+            });
+            Path changedCsv = dir.resolve("masking_rules.csv");
+            Files.write(changedCsv, new String(Files.readAllBytes(csvFile), StandardCharsets.UTF_8)
+                    .replace("public,orders,amount,round,100,TRUE", "public,orders,amount,mask_full,,TRUE")
+                    .getBytes(StandardCharsets.UTF_8));
+            MaskingRuleCompiler.compile(changedCsv, storeFile);
+
+            assertTrue(notified.await(10L, TimeUnit.SECONDS));
+            assertEquals(Set.of("public.orders"), received.get().getChangedTables());
+            assertEquals(2L, store.getVersion());
+            assertEquals(MaskingRuleType.MASK_FULL, store.getMatchingRule("public", "orders", "amount").getRuleType());
+        } finally {
+            store.shutdown();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.whosly.avacita.core.mask.rule;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SQL 词法预过滤测试
+ */
+public class MaskingSqlFilterTest {
+
+    private MaskingConfigMeta maskingConfigMeta;
+
+    @BeforeEach
+    void setUp() {
+        maskingConfigMeta = new MaskingConfigMeta("mask/masking_rules.csv");
+    }
+
+    @Test
+    void testSqlPrefilter(@TempDir Path dir) throws Exception {
+        // 有规则的表与列
+        assertTrue(maskingConfigMeta.mightReferenceMaskedColumns("SELECT tel FROM t_emp WHERE id = 1"));
+        assertTrue(maskingConfigMeta.mightReferenceMaskedColumns("select e.TEL from `T_EMP` e"));
+        assertTrue(maskingConfigMeta.mightReferenceMaskedColumns("SELECT * FROM demo.t_emp"));
+        assertTrue(maskingConfigMeta.mightReferenceMaskedColumns("SELECT x FROM (SELECT amount AS x FROM orders) o"));
+        // 没有规则的表、只在单词内部出现的名称、有规则的表但没有引用有规则的列
+        assertFalse(maskingConfigMeta.mightReferenceMaskedColumns("SELECT tel FROM t_dept"));
+        assertFalse(maskingConfigMeta.mightReferenceMaskedColumns("SELECT hotel, telephone FROM t_emp_history"));
+        assertFalse(maskingConfigMeta.mightReferenceMaskedColumns("SELECT dept_no FROM t_emp"));
+        assertFalse(maskingConfigMeta.mightReferenceMaskedColumns("SHOW TABLES"));
+
+        Path csvFile = dir.resolve("masking_rules.csv");
+        Files.write(csvFile, String.join("\n",
+                "schema,table,column,rule_type,rule_params...,enabled",
+                "demo,t_emp,tel,mask_middle,3,4,TRUE",
+                "demo,ord*,*_phone,mask_right,3,TRUE",
+                "").getBytes(StandardCharsets.UTF_8));
+        Path storeFile = dir.resolve("masking_rules.bin");
+        MaskingRuleCompiler.compile(csvFile, storeFile);
+
+        for (Path file : new Path[]{csvFile, storeFile}) {
+            MaskingConfigMeta meta = new MaskingConfigMeta(file.toString());
+            try {
+                // 通配符规则按字面片段匹配
+                assertTrue(meta.mightReferenceMaskedColumns("SELECT home_phone FROM orders_2025"));
+                assertTrue(meta.mightReferenceMaskedColumns("SELECT o.* FROM orders o"));
+                assertFalse(meta.mightReferenceMaskedColumns("SELECT amount FROM orders"));
+                assertFalse(meta.mightReferenceMaskedColumns("SELECT home_phone FROM customers"));
+                assertTrue(meta.mightReferenceMaskedColumns("SELECT tel FROM t_emp"));
+            } finally {
+                meta.shutdown();
+            }
+        }
+
+        assertFalse(new MaskingConfigMeta(Collections.emptyList()).mightReferenceMaskedColumns("SELECT * FROM t_emp"));
+    }
+}
@@ -0,0 +1,69 @@
+package com.whosly.avacita.core.mask.rule;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.whosly.avacita.core.mask.rule.TestColumns.column;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 表级 Bloom 过滤器测试
+ */
+public class MaskingTableFilterTest {
+
+    @Test
+    void testTableFilter(@TempDir Path dir) throws Exception {
+        List<String> lines = new ArrayList<>();
+        lines.add("schema,table,column,rule_type,rule_params...,enabled");
+        for (int i = 0; i < 1000; i++) {
+            lines.add("demo,t_emp_" + i + ",tel,mask_middle,3,4,TRUE");
+        }
+        // 表名确定、schema 为通配符的规则放入过滤器；表名为通配符的规则在过滤器未命中时再判断
+        lines.add("*,t_user,id_card,mask_full,,TRUE");
+        lines.add("demo,ord*,*_phone,mask_right,3,TRUE");
+        Path csvFile = dir.resolve("masking_rules.csv");
+        Files.write(csvFile, (String.join("\n", lines) + "\n").getBytes(StandardCharsets.UTF_8));
+        Path storeFile = dir.resolve("masking_rules.bin");
+        MaskingRuleCompiler.compile(csvFile, storeFile);
+
+        for (Path file : new Path[]{csvFile, storeFile}) {
+            MaskingConfigMeta meta = new MaskingConfigMeta(file.toString());
+            try {
+                for (int i = 0; i < 1000; i++) {
+                    assertTrue(meta.hasTableRules("DEMO", "T_EMP_" + i));
+                    assertNotNull(meta.getMatchingRule("demo", "t_emp_" + i, "TEL"));
+                }
+                // 没有规则的表：过滤器误判时也由精确查找兜底
+                for (int i = 0; i < 1000; i++) {
+                    assertFalse(meta.hasTableRules("demo", "t_dept_" + i));
+                    assertNull(meta.getMatchingRule("demo", "t_dept_" + i, "tel"));
+                    assertTrue(meta.getRule("demo", "t_dept_" + i).isEmpty());
+                }
+                assertNull(meta.getMatchingRule("demo", null, "tel"));
+
+                assertEquals(MaskingRuleType.MASK_FULL, meta.getMatchingRule("hr", "T_USER", "id_card").getRuleType());
+                assertEquals(MaskingRuleType.MASK_RIGHT, meta.getMatchingRule("demo", "orders", "home_phone").getRuleType());
+                assertFalse(meta.hasTableRules("hr", "orders"));
+
+                // 没有规则的表不逐列查找，整个计划透传
+                MaskingPlan plan = MaskingPlan.compile(
+                        Arrays.asList(column(0, "demo", "t_dept_1", "tel"), column(1, "demo", "t_dept_1", "name")),
+                        meta);
+                assertTrue(plan.isPassthrough());
+                plan = MaskingPlan.compile(
+                        Arrays.asList(column(0, "demo", "t_dept_1", "tel"), column(1, "demo", "t_emp_1", "tel")),
+                        meta);
+                assertFalse(plan.isPassthrough());
+            } finally {
+                meta.shutdown();
+            }
+        }
+    }
+}
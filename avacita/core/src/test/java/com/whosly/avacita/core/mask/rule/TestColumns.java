@@ -0,0 +1,20 @@
+package com.whosly.avacita.core.mask.rule;
+
+import org.apache.calcite.avatica.ColumnMetaData;
+
+import java.sql.Types;
+
+/**
+ * 测试用的结果集列元数据
+ */
+final class TestColumns {
+
+    private TestColumns() {
+    }
+
+    static ColumnMetaData column(int ordinal, String schema, String table, String column) {
+        return new ColumnMetaData(ordinal, false, true, false, false, 1, true, 64, column, column, schema,
+                0, 0, table, schema, ColumnMetaData.scalar(Types.VARCHAR, "VARCHAR", ColumnMetaData.Rep.STRING),
+                true, false, false, String.class.getName());
+    }
+}
@@ -0,0 +1,35 @@
+package com.whosly.avacita.core.mask.util;
+
+import com.whosly.avacita.core.mask.rule.MaskingConfigMeta;
+import com.whosly.avacita.core.mask.rule.MaskingRuleConfig;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 哈希脱敏测试
+ */
+public class HashMaskerTest {
+
+    @Test
+    void testHashMasking() {
+        // 默认 MD5，与改写后 SQL 中 MD5() 的结果一致
+        MaskingRuleConfig hashRule = new MaskingConfigMeta("mask/masking_rules.csv").getMatchingRule("public", "orders", "customer_id");
+        assertEquals("5d41402abc4b2a76b9719d911017c592", ValueMaskingStrategy.mask("hello", hashRule));
+        assertEquals("c4ca4238a0b923820dcc509a6f75849b", ValueMaskingStrategy.mask(1, hashRule));
+
+        assertEquals("2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824",
+                HashMasker.of(new String[]{"sha256"}).hash("hello"));
+
+        // RFC 4231 测试用例 2
+        HashMasker hmac = HashMasker.of(new String[]{"hmac_sha256", "Jefe"});
+        assertEquals(HashMasker.Algorithm.HMAC_SHA256, hmac.getAlgorithm());
+        assertEquals("5bdcc146bf60754e6a042426089575c75a003f089d2739839dec58b964ec3843",
+                hmac.hash("what do ya want for nothing?"));
+        assertSame(hmac, HashMasker.of(new String[]{"HMAC_SHA256", "Jefe"}));
+
+        // 参数配置错误时降级为全掩码
+        MaskingRuleConfig badRule = new MaskingRuleConfig("public", "orders", "customer_id", "hash", new String[]{"crc"});
+        assertEquals("******", ValueMaskingStrategy.mask("hello", badRule));
+    }
+}
@@ -0,0 +1,41 @@
+package com.whosly.avacita.core.mask.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 掩码内核测试
+ */
+public class MaskKernelsTest {
+
+    @Test
+    void testMaskKernels() {
+        // 长值走 Latin-1 字节内核（可能为向量实现），结果应与逐字符拼接完全一致；保留段含非 Latin-1 字符时退回 char[] 内核
+        String[] alphabets = {"0123456789", "abcé ñü-@.", "地址路号", "ab地址"};
+        for (String alphabet : alphabets) {
+            for (int length : new int[]{11, 63, 64, 65, 100, 256, 511, 512, 9000}) {
+                StringBuilder sb = new StringBuilder(length);
+                for (int i = 0; i < length; i++) {
+                    sb.append(alphabet.charAt(i % alphabet.length()));
+                }
+                String value = sb.toString();
+                for (int[] keep : new int[][]{{4, 0}, {0, 4}, {3, 4}, {40, 40}, {0, 0}}) {
+                    String expected = value.substring(0, Math.min(keep[0], length))
+                            + "*".repeat(length - 4)
+                            + value.substring(length - Math.min(keep[1], length - Math.min(keep[0], length)));
+                    assertEquals(expected, MaskKernels.splice(value, keep[0], length - 4, keep[1]), alphabet + "/" + length);
+                    assertEquals(expected, MaskKernels.splice(sb, keep[0], length - 4, keep[1]));
+                }
+
+                StringBuilder stride = new StringBuilder(value);
+                for (int i = 3; i < length - 2; i++) {
+                    if ((i - 3) % 4 != 0) {
+                        stride.setCharAt(i, '*');
+                    }
+                }
+                assertEquals(stride.toString(), MaskKernels.stride(value, 3, 2, 4), alphabet + "/" + length);
+            }
+        }
+    }
+}
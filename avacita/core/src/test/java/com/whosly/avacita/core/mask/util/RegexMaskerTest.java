@@ -0,0 +1,38 @@
+package com.whosly.avacita.core.mask.util;
+
+import com.whosly.avacita.core.mask.rule.MaskingRuleConfig;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 正则脱敏测试
+ */
+public class RegexMaskerTest {
+
+    @Test
+    void testRegexMasking() {
+        // 快速路径（字符类、字面量）与正则引擎路径的结果都应与 String.replaceAll 一致
+        String[] regexes = {".", "\\d", "\\D", "\\w", "\\s", "[0-9a-f]", "[^@.]", "[a-]", "\\.", "password", "\\d{3}", "", "(\\w+)@"};
+        String[] values = {"", "13812345678", "tom.cat@example.com", "订单 A-9\r\n\u2028x", "emoji\uD83D\uDE00ok", "password=abc"};
+        for (String regex : regexes) {
+            RegexMasker masker = RegexMasker.compile(regex, "*");
+            assertTrue(masker.isValid());
+            for (String value : values) {
+                assertEquals(value.replaceAll(regex, "*"), masker.replace(value), regex + " -> " + value);
+            }
+        }
+
+        // 替换串中的分组引用交给正则引擎
+        assertEquals("$1", RegexMasker.compile("x", "\\$1").replace("x"));
+        assertEquals("tom#example.com", RegexMasker.compile("(\\w+)@", "$1#").replace("tom@example.com"));
+
+        // 规则加载时预编译，语法错误时降级为全掩码
+        MaskingRuleConfig rule = new MaskingRuleConfig("demo", "t_log", "message", "regex", new String[]{"\\d{4}", "****"});
+        assertNotNull(rule.getRegexMasker());
+        assertEquals("card ****-****", ValueMaskingStrategy.mask("card 6222-0210", rule));
+        MaskingRuleConfig badRule = new MaskingRuleConfig("demo", "t_log", "message", "regex", new String[]{"[0-9"});
+        assertFalse(badRule.getRegexMasker().isValid());
+        assertEquals("******", ValueMaskingStrategy.mask("123", badRule));
+    }
+}
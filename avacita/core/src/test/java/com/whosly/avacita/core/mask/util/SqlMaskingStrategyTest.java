@@ -0,0 +1,55 @@
+package com.whosly.avacita.core.mask.util;
+
+import com.whosly.avacita.core.mask.rule.MaskingRuleConfig;
+import org.apache.calcite.sql.SqlIdentifier;
+import org.apache.calcite.sql.SqlNode;
+import org.apache.calcite.sql.dialect.MysqlSqlDialect;
+import org.apache.calcite.sql.parser.SqlParserPos;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SQL 脱敏表达式测试：默认参数与掩码与 {@link ValueMaskingStrategy} 一致
+ */
+public class SqlMaskingStrategyTest {
+
+    private static final SqlIdentifier COLUMN = new SqlIdentifier("c", SqlParserPos.ZERO);
+
+    @Test
+    void testExpressions() {
+        assertEquals("CASE WHEN c IS NULL THEN NULL ELSE '******' END", sql("mask_full"));
+        assertEquals("CONCAT(LEFT(c, 3), '******')", sql("mask_left"));
+        assertEquals("CONCAT('******', RIGHT(c, 2))", sql("mask_right", "2"));
+        assertEquals("CASE WHEN CHAR_LENGTH(c) <= 7 THEN '******' ELSE CONCAT(LEFT(c, 3), '******', RIGHT(c, 4)) END",
+                sql("mask_middle"));
+        assertEquals("CASE WHEN CHAR_LENGTH(c) <= 8 THEN REPEAT('*', CHAR_LENGTH(c)) "
+                + "ELSE CONCAT(LEFT(c, 4), REPEAT('*', CHAR_LENGTH(c) - 8), RIGHT(c, 4)) END", sql("partial", "4", "4"));
+        assertNull(SqlMaskingStrategy.toSql(COLUMN, rule("partial", "4", "4", "3")));
+        assertEquals("ROUND(c / 100) * 100", sql("round"));
+        assertEquals("ROUND(c / 1000) * 1000", sql("round", "1000"));
+        assertEquals("REGEXP_REPLACE(c, '\\d', '#')", sql("regex", "\\d", "#"));
+        assertSame(COLUMN, SqlMaskingStrategy.toSql(COLUMN, rule("keep")));
+        assertSame(COLUMN, SqlMaskingStrategy.toSql(COLUMN, null));
+    }
+
+    @Test
+    void testHash() {
+        assertEquals("MD5(c)", sql("hash"));
+        assertEquals("SHA2(c, 256)", sql("hash", "sha256"));
+        // MySQL 没有 HMAC 函数，不能以 SQL 表达
+        assertNull(SqlMaskingStrategy.toSql(COLUMN, rule("hash", "hmac_sha256", "secret")));
+        // 参数错误时与结果集脱敏一样降级为全掩码
+        assertEquals("CASE WHEN c IS NULL THEN NULL ELSE '******' END", sql("hash", "hmac_sha256"));
+    }
+
+    private static String sql(String ruleType, String... params) {
+        SqlNode node = SqlMaskingStrategy.toSql(COLUMN, rule(ruleType, params));
+        return node.toSqlString(c -> c.withDialect(MysqlSqlDialect.DEFAULT).withQuoteAllIdentifiers(false))
+                .getSql().replaceAll("\\s+", " ");
+    }
+
+    private static MaskingRuleConfig rule(String ruleType, String... params) {
+        return new MaskingRuleConfig("demo", "t", "c", ruleType, params);
+    }
+}
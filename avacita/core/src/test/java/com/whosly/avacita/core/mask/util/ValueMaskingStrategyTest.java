@@ -0,0 +1,67 @@
+package com.whosly.avacita.core.mask.util;
+
+import com.whosly.avacita.core.mask.rule.MaskingConfigMeta;
+import com.whosly.avacita.core.mask.rule.MaskingRuleConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 值脱敏策略测试
+ */
+public class ValueMaskingStrategyTest {
+
+    private MaskingConfigMeta maskingConfigMeta;
+
+    @BeforeEach
+    void setUp() {
+        maskingConfigMeta = new MaskingConfigMeta("mask/masking_rules.csv");
+    }
+
+    @Test
+    void testMaskingStrategies() {
+        assertEquals("13812345678", ValueMaskingStrategy.mask("13812345678", rule("id")));
+        assertEquals("******", ValueMaskingStrategy.mask("110101199001011234", rule("cert_no")));
+        assertEquals("tom.******", ValueMaskingStrategy.mask("tom.cat@example.com", rule("email")));
+        assertEquals("******san", ValueMaskingStrategy.mask("zhangsan", rule("name")));
+        assertEquals("138******5678", ValueMaskingStrategy.mask("13812345678", rule("tel")));
+        assertEquals(1200L, ValueMaskingStrategy.mask(1234, maskingConfigMeta.getMatchingRule("public", "orders", "amount")));
+        assertNull(ValueMaskingStrategy.mask(null, rule("tel")));
+        assertEquals("x", ValueMaskingStrategy.mask("x", null));
+    }
+
+    @Test
+    void testMaskMiddleShortValue() {
+        // 长度不超过 left+right（3+4）的值降级为全掩码，不能原样返回
+        for (String value : new String[]{"", "1", "123456", "1234567"}) {
+            assertEquals("******", ValueMaskingStrategy.mask(value, rule("tel")), value);
+        }
+        assertEquals("123******5678", ValueMaskingStrategy.mask("12345678", rule("tel")));
+        assertEquals("******", ValueMaskingStrategy.maskMiddle("13800", 3, 2));
+    }
+
+    @Test
+    void testMaskPartial() {
+        MaskingRuleConfig partial = new MaskingRuleConfig("demo", "t_emp", "addr", "partial", new String[]{"4", "4"});
+        assertEquals("6222***********0123", ValueMaskingStrategy.mask("6222021234567890123", partial));
+        assertEquals("****", ValueMaskingStrategy.mask("1234", partial));
+        assertNull(ValueMaskingStrategy.mask(null, partial));
+
+        // 宽列走 Latin-1 字节内核，保留段含非 Latin-1 字符时走 char[] 内核，结果都与原值等长
+        String address = "No. 1 Zhongguancun Street, Haidian District, Beijing, 100080, China";
+        String masked = (String) ValueMaskingStrategy.mask(address, partial);
+        assertEquals(address.length(), masked.length());
+        assertEquals("No. " + "*".repeat(address.length() - 8) + "hina", masked);
+        String chinese = "北京市" + "x".repeat(70) + "海淀区";
+        assertEquals("北京市x" + "*".repeat(68) + "x海淀区", ValueMaskingStrategy.mask(chinese, partial));
+
+        // 中间每 3 位显示 1 位
+        MaskingRuleConfig stride = new MaskingRuleConfig("demo", "t_emp", "addr", "partial", new String[]{"2", "2", "3"});
+        assertEquals("abc**f**ijk", ValueMaskingStrategy.mask("abcdefghijk", stride));
+    }
+
+    private MaskingRuleConfig rule(String column) {
+        return maskingConfigMeta.getMatchingRule("demo", "t_emp", column);
+    }
+}
@@ -4,7 +4,8 @@ import java.sql.SQLException;
 import java.util.Properties;
 
 import com.whosly.avacita.server.query.mask.rewrite.rule.mysql.MaskingJdbcMeta;
-import com.whosly.avacita.server.query.mask.rewrite.rule.rules.MaskingConfigMeta;
+import com.whosly.avacita.core.mask.rule.MaskingConfigMeta;
+import com.whosly.avacita.core.mask.rule.MaskingPolicies;
 import org.apache.calcite.avatica.jdbc.JdbcMeta;
 import org.apache.calcite.avatica.remote.Driver;
 import org.apache.calcite.avatica.remote.LocalService;
@@ -24,8 +25,11 @@ public class AvacitaConnectQueryMaskRewriteRuleServer {
     private static final int PORT = 5888;
 
     public static void main(String[] args) throws SQLException, ClassNotFoundException {
-        // 初始化脱敏配置（配置文件放在resources/mask/目录下）
-        MaskingConfigMeta maskingConfigMeta = new MaskingConfigMeta("mask/masking_rules.csv");
+        // 初始化脱敏配置：默认为 classpath 下的 mask/masking_rules.csv，可通过 -Davacita.mask.rules=/path/to/masking_rules.csv 指定外部文件（变更后自动热加载）
+        MaskingConfigMeta maskingConfigMeta = new MaskingConfigMeta(
+                System.getProperty(MaskingConfigMeta.RULES_PATH_PROPERTY, "mask/masking_rules.csv"));
+        // 按连接区分的脱敏策略，通过 -Davacita.mask.policyKey=role -Davacita.mask.policies=analyst=/path/analyst.csv;support=/path/support.csv 配置，未配置时所有连接使用上面的规则
+        MaskingPolicies maskingPolicies = MaskingPolicies.fromSystemProperties(maskingConfigMeta);
 
         // generateSimpleParameterMetadata=true   生成简单的参数元数据
         final String DB_URL = "jdbc:mysql://localhost:13307/demo?useUnicode=true&generateSimpleParameterMetadata=true";
@@ -40,7 +44,7 @@ public class AvacitaConnectQueryMaskRewriteRuleServer {
         props.setProperty("password", DB_PASSWORD);
 
         // 创建带脱敏功能的Meta实例
-        final JdbcMeta meta = new MaskingJdbcMeta(DB_URL, props, maskingConfigMeta);
+        final JdbcMeta meta = new MaskingJdbcMeta(DB_URL, props, maskingPolicies);
         final LocalService service = new LocalService(meta);
 
         final HttpServer server = new HttpServer.Builder<>()
@@ -67,6 +71,7 @@ public class AvacitaConnectQueryMaskRewriteRuleServer {
             System.out.println("接收到关闭信号，正在停止服务器...");
             try {
                 server.stop();
+                maskingPolicies.shutdown();
                 System.out.println("服务器已成功关闭");
             } catch (Exception e) {
                 System.err.println("关闭服务器时出错: " + e.getMessage());
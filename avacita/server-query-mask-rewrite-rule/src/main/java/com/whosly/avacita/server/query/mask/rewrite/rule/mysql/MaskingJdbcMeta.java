@@ -1,10 +1,15 @@
 package com.whosly.avacita.server.query.mask.rewrite.rule.mysql;
 
-import com.whosly.avacita.server.query.mask.rewrite.rule.rules.MaskingConfigMeta;
-import com.whosly.avacita.server.query.mask.rewrite.rule.rules.MaskingRuleConfig;
-import com.whosly.avacita.server.query.mask.rewrite.rule.rules.MaskingRuleType;
+import com.whosly.avacita.core.mask.meta.SchemaMetadataCache;
+import com.whosly.avacita.core.mask.rule.MaskingConfigMeta;
+import com.whosly.avacita.core.mask.rule.MaskingPlan;
+import com.whosly.avacita.core.mask.rule.MaskingPolicies;
+import com.whosly.avacita.core.mask.rule.MaskingRuleChange;
+import com.whosly.avacita.core.mask.rule.MaskingRuleConfig;
+import com.whosly.avacita.core.mask.util.SqlMaskingStrategy;
 import org.apache.calcite.avatica.*;
 import org.apache.calcite.avatica.jdbc.JdbcMeta;
+import org.apache.calcite.avatica.remote.TypedValue;
 import org.apache.calcite.config.Lex;
 import org.apache.calcite.jdbc.CalciteConnection;
 import org.apache.calcite.rel.type.RelDataType;
@@ -18,11 +23,11 @@ import org.apache.calcite.sql.fun.SqlStdOperatorTable;
 import org.apache.calcite.sql.fun.SqlLibraryOperators;
 import org.apache.calcite.sql.parser.SqlParseException;
 import org.apache.calcite.sql.parser.SqlParser;
-import org.apache.calcite.sql.parser.SqlParserPos;
 import org.apache.calcite.sql.type.SqlTypeName;
+import org.apache.calcite.sql.util.SqlString;
 import org.apache.calcite.sql.validate.SqlConformanceEnum;
 import org.apache.calcite.tools.Frameworks;
-import org.apache.commons.lang3.StringUtils;
+import org.apache.calcite.util.Util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -33,50 +38,181 @@ import java.util.stream.Collectors;
 
 /**
  * 带脱敏功能的JdbcMeta实现
- * 支持SQL重写和结果集脱敏
+ * 支持SQL重写和结果集脱敏：脱敏表达式由 {@link SqlMaskingStrategy} 生成，与结果集脱敏的结果一致；
+ * 不能以 SQL 表达的规则（带密钥的 HASH）保留原列，由结果集脱敏计算
+ *
+ * 结果集脱敏计划按 statementId 缓存：远程 fetch 请求中的 StatementHandle 不带 signature，
+ * 后续数据帧依赖 prepareAndExecute 时缓存的计划；没有任何列需要脱敏的语句，数据帧原样透传。
+ *
+ * 不同用户/角色/租户可使用不同的规则集（{@link MaskingPolicies}）：openConnection 时按连接属性解析一次并按连接缓存，
+ * 该连接上的 SQL 改写与脱敏计划均使用解析出的规则集。
+ *
+ * SQL 改写与脱敏计划编译都先经表级过滤器（{@link MaskingConfigMeta#hasTableRules}）排除没有规则的表：
+ * 不涉及脱敏的查询执行原 SQL，数据帧原样透传；SQL 改写前还先经规则集的词法预过滤（{@link MaskingConfigMeta#mightReferenceMaskedColumns}），
+ * 原始 SQL 中没有出现有规则的表名、列名时不解析。
+ *
+ * PreparedStatement：prepare 时改写一次 SQL 并以改写后的 SQL 在后端预编译，同时按 Signature 编译脱敏计划；
+ * 之后每次 execute/fetch 只复用后端的预编译语句与缓存的计划，不再解析 SQL。规则变更后已 prepare 的语句保持原改写，
+ * 其脱敏计划按变更重新编译，新增规则的列由结果集脱敏兜底。
+ *
+ * SELECT * 与 alias.* 按 FROM 中的每张表展开，列信息来自启动时批量加载的 {@link SchemaMetadataCache}；
+ * 展开不出的表（派生表、查不到列信息的表）写为 alias.*，由结果集脱敏处理。
+ * FROM 中未指定 schema 的表按连接的当前 schema 查找规则与列信息，当前 schema 按连接缓存，USE 之后重新读取。
  */
 public class MaskingJdbcMeta extends JdbcMeta {
     private static final Logger LOG = LoggerFactory.getLogger(MaskingJdbcMeta.class);
 
-    private final MaskingConfigMeta maskingConfigMeta;
+    private final MaskingPolicies maskingPolicies;
+    // connectionId -> 该连接的脱敏规则集，openConnection 时解析
+    private final Map<String, MaskingConfigMeta> connectionPolicies = new ConcurrentHashMap<>();
+    // connectionId -> 该连接的当前 schema，openConnection 时读取，USE 或切换库之后重新读取
+    private final Map<String, String> connectionSchemas = new ConcurrentHashMap<>();
     private final SqlParser.Config parserConfig;
-    private final Map<String, List<String>> tableColumnsCache = new ConcurrentHashMap<>();
-    private final Connection dbConnection;
+    private final SchemaMetadataCache metadataCache;
+    // 用于缓存 statementId -> 脱敏计划
+    private final Map<Integer, MaskingPlan> maskingPlanCache = new ConcurrentHashMap<>();
 
     public MaskingJdbcMeta(String url, Properties info, MaskingConfigMeta maskingConfigMeta) throws SQLException {
+        this(url, info, new MaskingPolicies(maskingConfigMeta));
+    }
+
+    public MaskingJdbcMeta(String url, Properties info, MaskingPolicies maskingPolicies) throws SQLException {
+        this(url, info, maskingPolicies, new SchemaMetadataCache(url, info));
+    }
+
+    public MaskingJdbcMeta(String url, Properties info, MaskingPolicies maskingPolicies,
+                           SchemaMetadataCache metadataCache) throws SQLException {
         super(url, info);
-        this.maskingConfigMeta = maskingConfigMeta;
-        this.dbConnection = DriverManager.getConnection(url, info);
-        
+        this.maskingPolicies = maskingPolicies;
+        this.metadataCache = metadataCache;
+        metadataCache.start();
+
         // 创建支持MySQL语法的解析器配置
         this.parserConfig = SqlParser.configBuilder()
                 .setLex(Lex.MYSQL)
                 .setConformance(SqlConformanceEnum.MYSQL_5)
                 .build();
+
+        for (MaskingConfigMeta policy : maskingPolicies.all()) {
+            policy.addRuleListener(change -> onRulesChanged(policy, change));
+        }
     }
 
     // ====================== 连接管理 ======================
     @Override
     public void openConnection(ConnectionHandle ch, Map<String, String> properties) {
         super.openConnection(ch, properties);
+        connectionPolicies.put(ch.id, maskingPolicies.resolve(properties));
+        refreshSchema(ch.id);
+    }
+
+    @Override
+    public ConnectionProperties connectionSync(ConnectionHandle ch, ConnectionProperties connProps) {
+        ConnectionProperties result = super.connectionSync(ch, connProps);
+        // 客户端 setCatalog/setSchema 后当前库可能已变化
+        refreshSchema(ch.id);
+        return result;
+    }
+
+    /**
+     * 重新读取连接的当前 schema，未选择库时为 null
+     */
+    private String refreshSchema(String connectionId) {
+        try {
+            String schema = getConnection(connectionId).getCatalog();
+            if (schema != null) {
+                connectionSchemas.put(connectionId, schema);
+            } else {
+                connectionSchemas.remove(connectionId);
+            }
+            return schema;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 连接的当前 schema，未选择库时为 null
+     */
+    public String getCurrentSchema(String connectionId) {
+        String schema = connectionSchemas.get(connectionId);
+        return schema != null ? schema : refreshSchema(connectionId);
+    }
+
+    /**
+     * 连接的脱敏规则集，连接未经 openConnection 时使用默认策略
+     */
+    private MaskingConfigMeta policyOf(String connectionId) {
+        MaskingConfigMeta policy = connectionPolicies.get(connectionId);
+        return policy != null ? policy : maskingPolicies.getDefaultPolicy();
     }
 
     // ====================== SQL执行和重写 ======================
+    @Override
+    public StatementHandle prepare(ConnectionHandle ch, String sql, long maxRowCount) {
+        LOG.info("prepare原始SQL: {}", sql);
+        MaskingConfigMeta maskingConfigMeta = policyOf(ch.id);
+
+        String rewrittenSql = sql;
+        try {
+            rewrittenSql = rewriteSqlWithMasking(sql, maskingConfigMeta, getCurrentSchema(ch.id));
+            LOG.info("prepare重写后SQL: {}", rewrittenSql);
+        } catch (Exception e) {
+            LOG.error("SQL重写失败，使用原始SQL: {}", e.getMessage());
+        }
+
+        StatementHandle h = super.prepare(ch, rewrittenSql, maxRowCount);
+        // 预编译语句的列元数据已知时即编译脱敏计划，execute/fetch 直接复用；否则在首次 execute 时按结果集的 Signature 编译
+        if (h.signature != null && h.signature.columns != null && !h.signature.columns.isEmpty()) {
+            maskingPlanCache.put(h.id, compilePlan(h.signature, maskingConfigMeta));
+        }
+        return h;
+    }
+
+    @Override
+    public ExecuteResult execute(StatementHandle h, List<TypedValue> parameterValues, int maxRowsInFirstFrame)
+            throws NoSuchStatementException {
+        ExecuteResult result = super.execute(h, parameterValues, maxRowsInFirstFrame);
+        if (result.resultSets == null) {
+            return result;
+        }
+
+        // SQL 已在 prepare 时改写，这里只对数据帧应用缓存的脱敏计划
+        List<MetaResultSet> maskedResultSets = new ArrayList<>(result.resultSets.size());
+        for (MetaResultSet resultSet : result.resultSets) {
+            if (resultSet.updateCount != -1 || resultSet.signature == null) {
+                maskedResultSets.add(resultSet);
+                continue;
+            }
+            MaskingPlan plan = maskingPlanCache.get(resultSet.statementId);
+            if (plan == null) {
+                plan = maskingPlanCache.computeIfAbsent(resultSet.statementId,
+                        k -> compilePlan(resultSet.signature, policyOf(h.connectionId)));
+            }
+            maskedResultSets.add(applyPlan(resultSet, plan));
+        }
+        return new ExecuteResult(maskedResultSets);
+    }
+
     @Override
     public ExecuteResult prepareAndExecute(StatementHandle sh, String sql, long maxRowCount,
                                          int maxRowsInFirstFrame, PrepareCallback callback) throws NoSuchStatementException {
         LOG.info("原始SQL: {}", sql);
-        
+        MaskingConfigMeta maskingConfigMeta = policyOf(sh.connectionId);
+
         try {
             // 重写SQL以应用脱敏规则
-            String rewrittenSql = rewriteSqlWithMasking(sql);
+            String rewrittenSql = rewriteSqlWithMasking(sql, maskingConfigMeta, getCurrentSchema(sh.connectionId));
             LOG.info("重写后SQL: {}", rewrittenSql);
             
             // 使用重写后的SQL执行查询
             ExecuteResult result = super.prepareAndExecute(sh, rewrittenSql, maxRowCount, maxRowsInFirstFrame, callback);
+            if (isUseSql(sql)) {
+                refreshSchema(sh.connectionId);
+            }
             
             // 对结果进行脱敏处理
-            return maskExecuteResult(result);
+            return maskExecuteResult(result, maskingConfigMeta);
             
         } catch (Exception e) {
             LOG.error("SQL重写或执行失败，使用原始SQL: {}", e.getMessage());
@@ -88,13 +224,30 @@ public class MaskingJdbcMeta extends JdbcMeta {
     public Frame fetch(StatementHandle sh, long offset, int fetchMaxRowCount)
             throws NoSuchStatementException, MissingResultsException {
         Frame originalFrame = super.fetch(sh, offset, fetchMaxRowCount);
-        
+
         // 对后续数据帧进行脱敏处理
-        return maskFrame(originalFrame, sh.signature);
+        MaskingPlan plan = maskingPlanCache.get(sh.id);
+        if (plan == null && sh.signature != null) {
+            plan = maskingPlanCache.computeIfAbsent(sh.id, k -> compilePlan(sh.signature, policyOf(sh.connectionId)));
+        }
+        return plan == null ? originalFrame : plan.apply(originalFrame);
     }
 
     // ====================== SQL重写逻辑 ======================
-    private String rewriteSqlWithMasking(String sql) throws SqlParseException {
+    private static boolean isUseSql(String sql) {
+        String trimmed = sql.trim();
+        return trimmed.length() > 3 && trimmed.regionMatches(true, 0, "USE", 0, 3)
+                && (Character.isWhitespace(trimmed.charAt(3)) || trimmed.charAt(3) == '`');
+    }
+
+    /**
+     * @param schema 连接的当前 schema，FROM 中未指定 schema 的表属于该库
+     */
+    private String rewriteSqlWithMasking(String sql, MaskingConfigMeta maskingConfigMeta, String schema) throws SqlParseException {
+        if (!maskingConfigMeta.mightReferenceMaskedColumns(sql)) {
+            // 词法预过滤：SQL 中没有出现有规则的表名（或列名与 *），不解析，直接执行原SQL
+            return sql;
+        }
         SqlParser parser = SqlParser.create(sql, parserConfig);
         SqlNode sqlNode = parser.parseQuery();
         
@@ -104,77 +257,98 @@ public class MaskingJdbcMeta extends JdbcMeta {
         
         SqlSelect select = (SqlSelect) sqlNode;
         
-        // 收集表别名信息
-        Map<String, String> tableAliases = collectTableAliases(select);
+        // 收集 FROM 中的表与表别名信息
+        List<FromItem> fromItems = new ArrayList<>();
+        if (select.getFrom() != null) {
+            collectFromItems(select.getFrom(), schema, fromItems);
+        }
         
         // 重写SELECT子句
-        SqlNodeList newSelectList = rewriteSelectList(select.getSelectList(), tableAliases);
+        SqlNodeList newSelectList = rewriteSelectList(select.getSelectList(), fromItems, schema, maskingConfigMeta);
+        if (!hasMaskedColumn(select.getSelectList(), newSelectList)) {
+            // 没有列需要脱敏（规则查找先经表级过滤器，没有规则的表不逐列查找），执行原SQL
+            return sql;
+        }
         
-        // 创建新的SELECT语句
-        SqlSelect newSelect = (SqlSelect) select.getOperator().createCall(
-                select.getParserPosition(),
-                newSelectList,
-                (SqlNode) select.getFrom(),  // 强制转换为SqlNode类型
-                select.getWhere(),
-                select.getGroup(),
-                select.getHaving(),
-                select.getOrderList(),
-                select.getOffset(),
-                select.getFetch()
-        );
+        // 替换SELECT子句，其余子句保持不变
+        select.setSelectList(newSelectList);
         
-        // 使用MySQL方言格式化SQL
-        return newSelect.toSqlString(MysqlSqlDialect.DEFAULT).getSql();
+        // 使用MySQL方言格式化SQL，不给函数名加反引号（`CONCAT`(...) 会被 MySQL 当作存储函数）
+        SqlString rewritten = select.toSqlString(c -> c.withDialect(MysqlSqlDialect.DEFAULT).withQuoteAllIdentifiers(false));
+        if (!isInOrder(rewritten.getDynamicParameters())) {
+            // 写回后 ? 参数的顺序变化（如 LIMIT ?, ? 写为 LIMIT ? OFFSET ?），绑定的参数会错位，执行原SQL，由结果集脱敏处理
+            return sql;
+        }
+        return rewritten.getSql();
     }
 
-    private Map<String, String> collectTableAliases(SqlSelect select) {
-        Map<String, String> aliases = new HashMap<>();
-        
-        SqlNode from = select.getFrom();
-        if (from instanceof SqlJoin) {
-            collectAliasesFromJoin((SqlJoin) from, aliases);
-        } else if (from instanceof SqlIdentifier) {
-            collectAliasesFromIdentifier((SqlIdentifier) from, aliases);
+    private static boolean isInOrder(List<Integer> dynamicParameters) {
+        if (dynamicParameters == null) {
+            return true;
         }
-        
-        return aliases;
+        for (int i = 0; i < dynamicParameters.size(); i++) {
+            if (dynamicParameters.get(i) != i) {
+                return false;
+            }
+        }
+        return true;
     }
 
-    private void collectAliasesFromJoin(SqlJoin join, Map<String, String> aliases) {
-        if (join.getLeft() instanceof SqlJoin) {
-            collectAliasesFromJoin((SqlJoin) join.getLeft(), aliases);
-        } else if (join.getLeft() instanceof SqlIdentifier) {
-            collectAliasesFromIdentifier((SqlIdentifier) join.getLeft(), aliases);
+    // 改写后的SELECT子句中是否有列被替换为脱敏表达式（未脱敏的列保持原节点，* 展开出的列仍是标识符）
+    private static boolean hasMaskedColumn(SqlNodeList selectList, SqlNodeList newSelectList) {
+        Set<SqlNode> original = Collections.newSetFromMap(new IdentityHashMap<>());
+        selectList.forEach(original::add);
+        for (SqlNode selectItem : newSelectList) {
+            if (!(selectItem instanceof SqlIdentifier) && !original.contains(selectItem)) {
+                return true;
+            }
         }
-        
-        if (join.getRight() instanceof SqlJoin) {
-            collectAliasesFromJoin((SqlJoin) join.getRight(), aliases);
-        } else if (join.getRight() instanceof SqlIdentifier) {
-            collectAliasesFromIdentifier((SqlIdentifier) join.getRight(), aliases);
+        return false;
+    }
+
+    /**
+     * 按出现顺序收集 FROM（含 JOIN）中的表与派生表，未指定 schema 的表属于连接的当前 schema
+     */
+    private void collectFromItems(SqlNode from, String schema, List<FromItem> items) {
+        if (from instanceof SqlIdentifier) {
+            SqlIdentifier id = (SqlIdentifier) from;
+            items.add(new FromItem(Util.last(id.names), schemaOf(id, schema), Util.last(id.names)));
+        } else if (from.getKind() == SqlKind.AS) {
+            SqlBasicCall call = (SqlBasicCall) from;
+            SqlNode left = call.operand(0);
+            String alias = ((SqlIdentifier) call.operand(1)).getSimple();
+            if (left instanceof SqlIdentifier) {
+                SqlIdentifier id = (SqlIdentifier) left;
+                items.add(new FromItem(alias, schemaOf(id, schema), Util.last(id.names)));
+            } else {
+                items.add(new FromItem(alias, null, null));
+            }
+        } else if (from instanceof SqlJoin) {
+            collectFromItems(((SqlJoin) from).getLeft(), schema, items);
+            collectFromItems(((SqlJoin) from).getRight(), schema, items);
+        } else {
+            items.add(new FromItem(null, null, null));
         }
     }
 
-    private void collectAliasesFromIdentifier(SqlIdentifier identifier, Map<String, String> aliases) {
-        if (identifier.names.size() >= 2) {
-            String tableName = identifier.names.get(identifier.names.size() - 2);
-            String alias = identifier.names.get(identifier.names.size() - 1);
-            aliases.put(alias, tableName);
-        }
+    private static String schemaOf(SqlIdentifier id, String schema) {
+        return id.names.size() >= 2 ? id.names.get(id.names.size() - 2) : schema;
     }
 
-    private SqlNodeList rewriteSelectList(SqlNodeList selectList, Map<String, String> tableAliases) {
+    private SqlNodeList rewriteSelectList(SqlNodeList selectList, List<FromItem> fromItems, String schema,
+                                          MaskingConfigMeta maskingConfigMeta) {
         List<SqlNode> newSelectItems = new ArrayList<>();
         
         for (SqlNode selectItem : selectList) {
             if (selectItem instanceof SqlIdentifier) {
                 SqlIdentifier identifier = (SqlIdentifier) selectItem;
                 
-                // 处理SELECT *的情况
-                if (identifier.names.size() == 1 && "*".equals(identifier.names.get(0))) {
-                    newSelectItems.addAll(expandStarSelect(identifier, tableAliases));
+                // 处理SELECT *、SELECT alias.*的情况
+                if (identifier.isStar()) {
+                    newSelectItems.addAll(expandStarSelect(identifier, fromItems, maskingConfigMeta));
                 } else {
                     // 处理普通列
-                    SqlNode maskedColumn = applyMaskingToColumn(identifier, tableAliases);
+                    SqlNode maskedColumn = applyMaskingToColumn(identifier, fromItems, schema, maskingConfigMeta);
                     newSelectItems.add(maskedColumn);
                 }
             } else {
@@ -185,403 +359,177 @@ public class MaskingJdbcMeta extends JdbcMeta {
         return new SqlNodeList(newSelectItems, selectList.getParserPosition());
     }
 
-    private List<SqlNode> expandStarSelect(SqlIdentifier starIdentifier, Map<String, String> tableAliases) {
-        List<SqlNode> expandedColumns = new ArrayList<>();
-        
-        // 如果没有表别名，使用默认schema
-        String schema = "demo";
-        String table = "t_emp"; // 默认表名
-        
-        // 获取表的所有列
-        List<String> columns = getTableColumns(schema, table);
-        
-        for (String column : columns) {
-            SqlIdentifier columnIdentifier = new SqlIdentifier(
-                    Arrays.asList(table, column),
-                    starIdentifier.getParserPosition()
-            );
-            
-            SqlNode maskedColumn = applyMaskingToColumn(columnIdentifier, tableAliases);
-            expandedColumns.add(maskedColumn);
+    /**
+     * 按 FROM 中的每张表展开 * 或 alias.*；派生表与查不到列信息的表写为 alias.*，由结果集脱敏处理
+     */
+    private List<SqlNode> expandStarSelect(SqlIdentifier starIdentifier, List<FromItem> fromItems,
+                                           MaskingConfigMeta maskingConfigMeta) {
+        List<FromItem> items = fromItems;
+        if (starIdentifier.names.size() >= 2) {
+            String qualifier = starIdentifier.names.get(starIdentifier.names.size() - 2);
+            items = fromItems.stream()
+                    .filter(item -> qualifier.equalsIgnoreCase(item.qualifier))
+                    .collect(Collectors.toList());
         }
-        
-        return expandedColumns;
-    }
-
-    private List<String> getTableColumns(String schema, String table) {
-        String cacheKey = schema + "." + table;
-        
-        return tableColumnsCache.computeIfAbsent(cacheKey, k -> {
-            List<String> columns = new ArrayList<>();
-            try {
-                DatabaseMetaData metaData = dbConnection.getMetaData();
-                ResultSet rs = metaData.getColumns(schema, null, table, null);
-                
-                while (rs.next()) {
-                    columns.add(rs.getString("COLUMN_NAME"));
-                }
-                rs.close();
-            } catch (SQLException e) {
-                LOG.error("获取表列信息失败: {}.{}", schema, table, e);
-                // 返回默认列
-                columns.addAll(Arrays.asList("id", "name", "tel", "email", "salary"));
-            }
-            return columns;
-        });
-    }
-
-    private SqlNode applyMaskingToColumn(SqlIdentifier columnIdentifier, Map<String, String> tableAliases) {
-        String columnName = columnIdentifier.names.get(columnIdentifier.names.size() - 1);
-        String tableName = null;
-        String schemaName = "demo";
-        
-        // 确定表名
-        if (columnIdentifier.names.size() >= 2) {
-            String possibleTable = columnIdentifier.names.get(columnIdentifier.names.size() - 2);
-            tableName = tableAliases.getOrDefault(possibleTable, possibleTable);
-        } else {
-            // 如果没有表前缀，使用默认表
-            tableName = "t_emp";
-        }
-        
-        // 查找脱敏规则
-        MaskingRuleConfig rule = maskingConfigMeta.getMatchingRule(schemaName, tableName, columnName);
-        
-        if (rule != null && rule.getRuleType() != MaskingRuleType.KEEP) {
-            return createMaskedColumnExpression(columnIdentifier, rule);
+        if (items.isEmpty() || items.stream().anyMatch(item -> item.qualifier == null)) {
+            return Collections.singletonList(starIdentifier);
         }
-        
-        return columnIdentifier;
-    }
 
-    private SqlNode createMaskedColumnExpression(SqlIdentifier columnIdentifier, MaskingRuleConfig rule) {
-        String columnName = columnIdentifier.names.get(columnIdentifier.names.size() - 1);
-        String[] params = rule.getRuleParams();
-        
-        switch (rule.getRuleType()) {
-            case MASK_FULL:
-                return SqlLiteral.createCharString("******", SqlParserPos.ZERO);
-            case MASK_LEFT: {
-                int leftKeep = getIntParam(params, 0, 4);
-                SqlNode leftPart = leftFunc.createCall(SqlParserPos.ZERO, id, SqlLiteral.createExactNumeric(String.valueOf(leftKeep), SqlParserPos.ZERO));
-                SqlNode starLiteralL = SqlLiteral.createCharString("****", SqlParserPos.ZERO);
-                return concatFunc.createCall(SqlParserPos.ZERO, leftPart, starLiteralL);
-            }
-            case MASK_RIGHT: {
-                int rightKeep = getIntParam(params, 0, 4);
-                SqlNode rightPart = rightFunc.createCall(SqlParserPos.ZERO, id, SqlLiteral.createExactNumeric(String.valueOf(rightKeep), SqlParserPos.ZERO));
-                SqlNode starLiteralR = SqlLiteral.createCharString("****", SqlParserPos.ZERO);
-                return concatFunc.createCall(SqlParserPos.ZERO, starLiteralR, rightPart);
-            }
-            case MASK_MIDDLE: {
-                int left = getIntParam(params, 0, 3);
-                int right = getIntParam(params, 1, 4);
-                SqlNode leftP = leftFunc.createCall(SqlParserPos.ZERO, id, SqlLiteral.createExactNumeric(String.valueOf(left), SqlParserPos.ZERO));
-                SqlNode rightP = rightFunc.createCall(SqlParserPos.ZERO, id, SqlLiteral.createExactNumeric(String.valueOf(right), SqlParserPos.ZERO));
-                SqlNode starLiteralM = SqlLiteral.createCharString("****", SqlParserPos.ZERO);
-                return concatFunc.createCall(SqlParserPos.ZERO, leftP, starLiteralM, rightP);
-            }
-            case HASH: {
-                SqlOperator md5Func = new SqlUnresolvedFunction(
-                        new SqlIdentifier("MD5", SqlParserPos.ZERO), null, null, null, null, SqlFunctionCategory.STRING
-                );
-                return md5Func.createCall(SqlParserPos.ZERO, id);
-            }
-            case REGEX: {
-                String pattern = getStringParam(params, 0, ".");
-                String replace = getStringParam(params, 1, "*");
-                SqlOperator regexFunc = new SqlUnresolvedFunction(
-                        new SqlIdentifier("REGEXP_REPLACE", SqlParserPos.ZERO), null, null, null, null, SqlFunctionCategory.STRING
-                );
-                return regexFunc.createCall(SqlParserPos.ZERO, id, SqlLiteral.createCharString(pattern, SqlParserPos.ZERO), SqlLiteral.createCharString(replace, SqlParserPos.ZERO));
+        List<SqlNode> expandedColumns = new ArrayList<>();
+        for (FromItem item : items) {
+            List<String> columns = item.table == null || item.schema == null
+                    ? Collections.emptyList() : metadataCache.getColumns(item.schema, item.table);
+            if (columns.isEmpty()) {
+                expandedColumns.add(SqlIdentifier.star(Arrays.asList(item.qualifier, ""),
+                        starIdentifier.getParserPosition(), Collections.nCopies(2, starIdentifier.getParserPosition())));
+                continue;
             }
-            case ROUND: {
-                int roundTo = getIntParam(params, 0, 100);
-                SqlOperator roundFunc = new SqlUnresolvedFunction(
-                        new SqlIdentifier("ROUND", SqlParserPos.ZERO), null, null, null, null, SqlFunctionCategory.NUMERIC
+            for (String column : columns) {
+                SqlIdentifier columnIdentifier = new SqlIdentifier(
+                        Arrays.asList(item.qualifier, column),
+                        starIdentifier.getParserPosition()
                 );
-                return roundFunc.createCall(SqlParserPos.ZERO, id, SqlLiteral.createExactNumeric(String.valueOf(roundTo), SqlParserPos.ZERO));
+
+                expandedColumns.add(maskColumn(columnIdentifier, item, column, maskingConfigMeta));
             }
-            case KEEP:
-            default:
-                return columnIdentifier;
         }
-    }
-
-    private SqlNode createFullMaskExpression(SqlIdentifier columnIdentifier) {
-        return SqlLiteral.createCharString("******", columnIdentifier.getParserPosition());
-    }
-
-    private SqlNode createLeftMaskExpression(SqlIdentifier columnIdentifier, int keepChars) {
-        // LEFT(column, keepChars) + '******'
-        SqlNode leftExpr = SqlStdOperatorTable.instance().getOperator("LEFT").createCall(
-                columnIdentifier.getParserPosition(),
-                columnIdentifier,
-                SqlLiteral.createExactNumeric(String.valueOf(keepChars), columnIdentifier.getParserPosition())
-        );
-
-        SqlNode maskLiteral = SqlLiteral.createCharString("******", columnIdentifier.getParserPosition());
-        
-        return SqlStdOperatorTable.CONCAT.createCall(
-                columnIdentifier.getParserPosition(),
-                leftExpr,
-                maskLiteral
-        );
-    }
-
-    private SqlNode createRightMaskExpression(SqlIdentifier columnIdentifier, int keepChars) {
-        // '******' + RIGHT(column, keepChars)
-        SqlNode rightExpr = SqlStdOperatorTable.instance().getOperator("RIGHT").createCall(
-                columnIdentifier.getParserPosition(),
-                columnIdentifier,
-                SqlLiteral.createExactNumeric(String.valueOf(keepChars), columnIdentifier.getParserPosition())
-        );
-
-        SqlNode maskLiteral = SqlLiteral.createCharString("******", columnIdentifier.getParserPosition());
         
-        return SqlStdOperatorTable.CONCAT.createCall(
-                columnIdentifier.getParserPosition(),
-                maskLiteral,
-                rightExpr
-        );
+        return expandedColumns;
     }
 
-    private SqlNode createMiddleMaskExpression(SqlIdentifier columnIdentifier, int leftChars, int rightChars) {
-        // LEFT(column, leftChars) + '******' + RIGHT(column, rightChars)
-        SqlNode leftExpr = SqlStdOperatorTable.instance().getOperator("LEFT").createCall(
-                columnIdentifier.getParserPosition(),
-                columnIdentifier,
-                SqlLiteral.createExactNumeric(String.valueOf(leftChars), columnIdentifier.getParserPosition())
-        );
-
-        SqlNode rightExpr = SqlStdOperatorTable.instance().getOperator("RIGHT").createCall(
-                columnIdentifier.getParserPosition(),
-                columnIdentifier,
-                SqlLiteral.createExactNumeric(String.valueOf(rightChars), columnIdentifier.getParserPosition())
-        );
+    /**
+     * FROM 中的一项：qualifier 为 SELECT 中引用它的名字（别名或表名），schema 为表所在的库（未指定时为连接的当前 schema），
+     * 派生表的 schema、table 为 null
+     */
+    private static final class FromItem {
+        private final String qualifier;
+        private final String schema;
+        private final String table;
 
-        SqlNode maskLiteral = SqlLiteral.createCharString("******", columnIdentifier.getParserPosition());
-        
-        return SqlStdOperatorTable.CONCAT.createCall(
-                columnIdentifier.getParserPosition(),
-                leftExpr,
-                maskLiteral,
-                rightExpr
-        );
+        FromItem(String qualifier, String schema, String table) {
+            this.qualifier = qualifier;
+            this.schema = schema;
+            this.table = table;
+        }
     }
 
-    private SqlNode createHashExpression(SqlIdentifier columnIdentifier) {
-        // MD5(column)
-        return SqlStdOperatorTable.instance().getOperator("MD5").createCall(
-                columnIdentifier.getParserPosition(),
-                columnIdentifier
-        );
+    /**
+     * 按列所属的表查找规则并替换为脱敏表达式。带前缀的列按别名（或表名）对应 FROM 中的表；
+     * 不带前缀的列在 FROM 中的各表里查找：列信息已知的表只考虑含有该列的，仍有多张时取第一条匹配的规则（宁可多脱敏）
+     */
+    private SqlNode applyMaskingToColumn(SqlIdentifier columnIdentifier, List<FromItem> fromItems, String schema,
+                                         MaskingConfigMeta maskingConfigMeta) {
+        String columnName = Util.last(columnIdentifier.names);
 
-    }
+        if (columnIdentifier.names.size() >= 2) {
+            String qualifier = columnIdentifier.names.get(columnIdentifier.names.size() - 2);
+            for (FromItem item : fromItems) {
+                if (qualifier.equalsIgnoreCase(item.qualifier)) {
+                    return maskColumn(columnIdentifier, item, columnName, maskingConfigMeta);
+                }
+            }
+            // 前缀不是 FROM 中的别名，按表名处理
+            String itemSchema = columnIdentifier.names.size() >= 3 ? columnIdentifier.names.get(columnIdentifier.names.size() - 3) : schema;
+            return maskColumn(columnIdentifier, new FromItem(qualifier, itemSchema, qualifier), columnName, maskingConfigMeta);
+        }
 
-    private SqlNode createRoundExpression(SqlIdentifier columnIdentifier, int roundTo) {
-        // ROUND(column / roundTo) * roundTo
-        SqlNode division = SqlStdOperatorTable.DIVIDE.createCall(
-                columnIdentifier.getParserPosition(),
-                columnIdentifier,
-                SqlLiteral.createExactNumeric(String.valueOf(roundTo), columnIdentifier.getParserPosition())
-        );
-        
-        SqlNode rounded = SqlStdOperatorTable.ROUND.createCall(
-                columnIdentifier.getParserPosition(),
-                division
-        );
-        
-        return SqlStdOperatorTable.MULTIPLY.createCall(
-                columnIdentifier.getParserPosition(),
-                rounded,
-                SqlLiteral.createExactNumeric(String.valueOf(roundTo), columnIdentifier.getParserPosition())
-        );
+        for (FromItem item : fromItems) {
+            if (item.table == null || item.schema == null) {
+                continue;
+            }
+            List<String> columns = metadataCache.getColumns(item.schema, item.table);
+            if (!columns.isEmpty() && columns.stream().noneMatch(columnName::equalsIgnoreCase)) {
+                continue;
+            }
+            SqlNode masked = maskColumn(columnIdentifier, item, columnName, maskingConfigMeta);
+            if (masked != columnIdentifier) {
+                return masked;
+            }
+        }
+        return columnIdentifier;
     }
 
-    private SqlNode createRegexExpression(SqlIdentifier columnIdentifier, String regex) {
-        // REGEXP_REPLACE(column, regex, '*')
-        return SqlStdOperatorTable.instance().getOperator("REGEXP_REPLACE").createCall(
-                columnIdentifier.getParserPosition(),
-                columnIdentifier,
-                SqlLiteral.createCharString(regex, columnIdentifier.getParserPosition()),
-                SqlLiteral.createCharString("*", columnIdentifier.getParserPosition())
-        );
+    private SqlNode maskColumn(SqlIdentifier columnIdentifier, FromItem item, String columnName, MaskingConfigMeta maskingConfigMeta) {
+        if (item.table == null || item.schema == null) {
+            return columnIdentifier;
+        }
+        MaskingRuleConfig rule = maskingConfigMeta.getMatchingRule(item.schema, item.table, columnName);
+        SqlNode masked = SqlMaskingStrategy.toSql(columnIdentifier, rule);
+        // 不能以 SQL 表达的规则（带密钥的 HASH）保留原列，由结果集脱敏计算
+        return masked != null ? masked : columnIdentifier;
     }
 
     // ====================== 结果集脱敏处理 ======================
-    private ExecuteResult maskExecuteResult(ExecuteResult result) {
+    private ExecuteResult maskExecuteResult(ExecuteResult result, MaskingConfigMeta maskingConfigMeta) {
         if (result.resultSets == null) {
             return result;
         }
         
         List<MetaResultSet> maskedResultSets = result.resultSets.stream()
-                .map(this::maskResultSet)
+                .map(resultSet -> maskResultSet(resultSet, maskingConfigMeta))
                 .collect(Collectors.toList());
         
         return new ExecuteResult(maskedResultSets);
     }
 
-    private MetaResultSet maskResultSet(MetaResultSet resultSet) {
+    private MetaResultSet maskResultSet(MetaResultSet resultSet, MaskingConfigMeta maskingConfigMeta) {
         if (resultSet.updateCount != -1 || resultSet.signature == null) {
             return resultSet;
         }
-        
-        if (resultSet.firstFrame != null) {
-            Frame maskedFrame = maskFrame(resultSet.firstFrame, resultSet.signature);
-            return MetaResultSet.create(
-                    resultSet.connectionId,
-                    resultSet.statementId,
-                    resultSet.ownStatement,
-                    resultSet.signature,
-                    maskedFrame,
-                    resultSet.updateCount
-            );
-        }
-        
-        return resultSet;
-    }
 
-    private Frame maskFrame(Frame frame, Signature signature) {
-        if (frame.rows == null || signature == null || signature.columns == null) {
-            return frame;
-        }
-        
-        List<Object> maskedRows = new ArrayList<>();
-        
-        for (Object row : frame.rows) {
-            Object[] dataRow = (Object[]) row;
-            Object[] maskedRow = new Object[dataRow.length];
-            
-            for (int i = 0; i < dataRow.length && i < signature.columns.size(); i++) {
-                ColumnMetaData column = signature.columns.get(i);
-                maskedRow[i] = applyMaskingToValue(
-                        dataRow[i],
-                        column.schemaName,
-                        column.tableName,
-                        column.columnName
-                );
-            }
-            maskedRows.add(maskedRow);
-        }
-        
-        return new Frame(frame.offset, frame.done, maskedRows);
-    }
-
-    private Object applyMaskingToValue(Object value, String schema, String table, String column) {
-        if (value == null) {
-            return null;
-        }
-        
-        MaskingRuleConfig rule = maskingConfigMeta.getMatchingRule(schema, table, column);
-        if (rule == null || rule.getRuleType() == MaskingRuleType.KEEP) {
-            return value;
-        }
-        
-        return applyMaskingStrategy(value, rule);
-    }
-
-    private Object applyMaskingStrategy(Object value, MaskingRuleConfig rule) {
-        String[] params = rule.getRuleParams();
-        
-        switch (rule.getRuleType()) {
-            case MASK_FULL:
-                return "******";
-                
-            case MASK_LEFT:
-                int keepLeft = params.length > 0 ? Integer.parseInt(params[0]) : 3;
-                return maskLeft(String.valueOf(value), keepLeft);
-                
-            case MASK_RIGHT:
-                int keepRight = params.length > 0 ? Integer.parseInt(params[0]) : 3;
-                return maskRight(String.valueOf(value), keepRight);
-                
-            case MASK_MIDDLE:
-                int leftChars = params.length > 0 ? Integer.parseInt(params[0]) : 3;
-                int rightChars = params.length > 1 ? Integer.parseInt(params[1]) : 4;
-                return maskMiddle(String.valueOf(value), leftChars, rightChars);
-                
-            case HASH:
-                return hashValue(String.valueOf(value));
-                
-            case ROUND:
-                int roundTo = params.length > 0 ? Integer.parseInt(params[0]) : 100;
-                return roundValue(value, roundTo);
-                
-            case REGEX:
-                String regex = params.length > 0 ? params[0] : ".";
-                return regexMask(String.valueOf(value), regex);
-                
-            default:
-                return value;
-        }
-    }
-
-    private String maskLeft(String value, int keepChars) {
-        if (value.length() <= keepChars) {
-            return value + "******";
-        }
-        return value.substring(0, keepChars) + "******";
-    }
-
-    private String maskRight(String value, int keepChars) {
-        if (value.length() <= keepChars) {
-            return "******" + value;
-        }
-        return "******" + value.substring(value.length() - keepChars);
+        // 编译并缓存脱敏计划，便于 fetch 时使用
+        MaskingPlan plan = compilePlan(resultSet.signature, maskingConfigMeta);
+        maskingPlanCache.put(resultSet.statementId, plan);
+        return applyPlan(resultSet, plan);
     }
 
-    private String maskMiddle(String value, int leftChars, int rightChars) {
-        if (value.length() <= leftChars + rightChars) {
-            return value;
+    /**
+     * 对结果集的第一个数据帧应用脱敏计划
+     */
+    private MetaResultSet applyPlan(MetaResultSet resultSet, MaskingPlan plan) {
+        // 没有任何列需要脱敏，原样透传
+        if (resultSet.firstFrame == null || plan.isPassthrough()) {
+            return resultSet;
         }
-        return value.substring(0, leftChars) + "******" + value.substring(value.length() - rightChars);
-    }
 
-    private String hashValue(String value) {
-        try {
-            java.security.MessageDigest md = java.security.MessageDigest.getInstance("MD5");
-            byte[] hashBytes = md.digest(value.getBytes());
-            StringBuilder sb = new StringBuilder();
-            for (byte b : hashBytes) {
-                sb.append(String.format("%02x", b));
-            }
-            return sb.toString();
-        } catch (Exception e) {
-            return "******";
-        }
+        Frame maskedFrame = plan.apply(resultSet.firstFrame);
+        return MetaResultSet.create(
+                resultSet.connectionId,
+                resultSet.statementId,
+                resultSet.ownStatement,
+                resultSet.signature,
+                maskedFrame,
+                resultSet.updateCount
+        );
     }
 
-    private Object roundValue(Object value, int roundTo) {
-        if (value instanceof Number) {
-            double num = ((Number) value).doubleValue();
-            return Math.round(num / roundTo) * roundTo;
-        }
-        return value;
+    /**
+     * 根据 Signature 的列元数据，按连接的规则集编译脱敏计划
+     */
+    private MaskingPlan compilePlan(Signature signature, MaskingConfigMeta maskingConfigMeta) {
+        return MaskingPlan.compile(signature.columns, maskingConfigMeta);
     }
 
-    private String regexMask(String value, String regex) {
-        try {
-            return value.replaceAll(regex, "*");
-        } catch (Exception e) {
-            return value;
-        }
+    /**
+     * 规则变更时，只重新编译由该规则集编译、结果集涉及变更表的脱敏计划（列信息与规则无关，不受影响）。
+     * fetch 请求不携带 Signature，计划不能直接移除，否则后续数据帧将无法脱敏
+     */
+    private void onRulesChanged(MaskingConfigMeta policy, MaskingRuleChange change) {
+        maskingPlanCache.replaceAll((statementId, plan) ->
+                plan.getMaskingConfigMeta() == policy && plan.dependsOn(change)
+                        ? MaskingPlan.compile(plan.getColumns(), policy) : plan);
     }
 
     @Override
     public void closeStatement(StatementHandle sh) {
         super.closeStatement(sh);
+        maskingPlanCache.remove(sh.id);
     }
 
     @Override
     public void closeConnection(ConnectionHandle ch) {
         super.closeConnection(ch);
-        try {
-            if (dbConnection != null && !dbConnection.isClosed()) {
-                dbConnection.close();
-            }
-        } catch (SQLException e) {
-            LOG.error("关闭数据库连接失败", e);
-        }
+        connectionPolicies.remove(ch.id);
+        connectionSchemas.remove(ch.id);
     }
 } 
\ No newline at end of file
@@ -1,5 +1,8 @@
 package com.whosly.avacita.server.query.mask.rewrite.rule.rules;
 
+import com.whosly.avacita.core.mask.rule.MaskingConfigMeta;
+import com.whosly.avacita.core.mask.rule.MaskingRuleConfig;
+import com.whosly.avacita.core.mask.rule.MaskingRuleType;
 import org.apache.calcite.plan.RelOptRule;
 import org.apache.calcite.plan.RelOptRuleCall;
 import org.apache.calcite.plan.RelOptRuleOperand;
@@ -79,7 +82,7 @@ public class MaskingRewriteRule extends RelOptRule {
                 String table = tables.get(i);
                 MaskingRuleConfig rule = maskingConfigMeta.getRule(schema, table, column);
                 if (rule != null && rule.getRuleType() != MaskingRuleType.KEEP) {
-                    return rule.apply(rexBuilder, inputRef, field.getType());
+                    return MaskingRexExpressions.apply(rule, rexBuilder, inputRef, field.getType());
                 }
             }
             return expr;
@@ -1,6 +1,7 @@
 package com.whosly.avacita.server.query.mask.rewrite.rule.rules;
 
-import lombok.ToString;
+import com.whosly.avacita.core.mask.rule.MaskingRuleConfig;
+import com.whosly.avacita.core.mask.rule.MaskingRuleType;
 import org.apache.calcite.rex.RexBuilder;
 import org.apache.calcite.rex.RexNode;
 import org.apache.calcite.rel.type.RelDataType;
@@ -16,39 +17,20 @@ import org.slf4j.LoggerFactory;
 
 import java.math.BigDecimal;
 
-@ToString
-public class MaskingRuleConfig {
-    private static final Logger LOG = LoggerFactory.getLogger(MaskingRuleConfig.class);
-
-    private final String schema;
-    private final String table;
-    private final String column;
-    private final MaskingRuleType ruleType;
-    private final String[] ruleParams;
-
-    public MaskingRuleConfig(String schema, String table, String column, String ruleType, String[] ruleParams) {
-        this.schema = schema;
-        this.table = table;
-        this.column = column;
-        this.ruleType = MaskingRuleType.getByName(ruleType);
-        this.ruleParams = ruleParams;
-    }
+/**
+ * 将脱敏规则转换为 Calcite 表达式（供 {@link MaskingRewriteRule} 改写 Project 节点）。
+ * 规则的加载、查找与结果集脱敏在 core 模块中，这里只保留依赖 Calcite 的部分。
+ */
+final class MaskingRexExpressions {
+    private static final Logger LOG = LoggerFactory.getLogger(MaskingRexExpressions.class);
 
-    // Getters
-    public String getSchema() { return schema; }
-    public String getTable() { return table; }
-    public String getColumn() { return column; }
-    public MaskingRuleType getRuleType() { return ruleType; }
-    public String[] getRuleParams() { return ruleParams; }
-
-    public boolean match(String schema, String table, String column) {
-        return this.schema.equalsIgnoreCase(schema)
-                && this.table.equalsIgnoreCase(table)
-                && this.column.equalsIgnoreCase(column);
+    private MaskingRexExpressions() {
     }
 
     // 应用脱敏规则到 SQL 表达式
-    public RexNode apply(RexBuilder rexBuilder, RexNode originalExpr, RelDataType fieldType) {
+    static RexNode apply(MaskingRuleConfig rule, RexBuilder rexBuilder, RexNode originalExpr, RelDataType fieldType) {
+        MaskingRuleType ruleType = rule.getRuleType();
+        String[] ruleParams = rule.getRuleParams();
         if (ruleType == null || ruleType == MaskingRuleType.KEEP) {
             return originalExpr;
         }
@@ -57,24 +39,24 @@ public class MaskingRuleConfig {
             case MASK_FULL:
                 return createFullMask(rexBuilder, fieldType);
             case MASK_LEFT:
-                return createLeftMask(rexBuilder, originalExpr);
+                return createLeftMask(rexBuilder, originalExpr, ruleParams);
             case MASK_RIGHT:
-                return createRightMask(rexBuilder, originalExpr);
+                return createRightMask(rexBuilder, originalExpr, ruleParams);
             case MASK_MIDDLE:
-                return createMiddleMask(rexBuilder, originalExpr);
+                return createMiddleMask(rexBuilder, originalExpr, ruleParams);
             case HASH:
                 return createHashMask(rexBuilder, originalExpr);
             case ROUND:
-                return createRoundMask(rexBuilder, originalExpr);
+                return createRoundMask(rexBuilder, originalExpr, ruleParams);
             case REGEX:
-                return createRegexMask(rexBuilder, originalExpr);
+                return createRegexMask(rexBuilder, originalExpr, ruleParams);
             default:
                 return originalExpr;
         }
     }
 
     // 创建完全脱敏值
-    private RexNode createFullMask(RexBuilder rexBuilder, RelDataType fieldType) {
+    private static RexNode createFullMask(RexBuilder rexBuilder, RelDataType fieldType) {
         SqlTypeName typeName = fieldType.getSqlTypeName();
         switch (typeName) {
             case VARCHAR:
@@ -96,13 +78,13 @@ public class MaskingRuleConfig {
     }
 
     // 使用SqlUnresolvedFunction来表示数据库特定的函数
-    private SqlFunction createUnresolvedFunction(String name) {
+    private static SqlFunction createUnresolvedFunction(String name) {
         return new SqlFunction(name, SqlKind.OTHER_FUNCTION, ReturnTypes.VARCHAR_2000, null, OperandTypes.ANY, SqlFunctionCategory.STRING);
     }
 
     // 创建左掩码脱敏表达式
-    private RexNode createLeftMask(RexBuilder rexBuilder, RexNode originalExpr) {
-        int keepChars = parseParam(0, 3);
+    private static RexNode createLeftMask(RexBuilder rexBuilder, RexNode originalExpr, String[] ruleParams) {
+        int keepChars = parseParam(ruleParams, 0, 3);
         RexNode keepCharsNode = rexBuilder.makeExactLiteral(BigDecimal.valueOf(keepChars));
         RexNode maskedSection = rexBuilder.makeLiteral("******");
 
@@ -115,8 +97,8 @@ public class MaskingRuleConfig {
     }
 
     // 创建右掩码脱敏表达式
-    private RexNode createRightMask(RexBuilder rexBuilder, RexNode originalExpr) {
-        int keepChars = parseParam(0, 3);
+    private static RexNode createRightMask(RexBuilder rexBuilder, RexNode originalExpr, String[] ruleParams) {
+        int keepChars = parseParam(ruleParams, 0, 3);
         RexNode keepCharsNode = rexBuilder.makeExactLiteral(BigDecimal.valueOf(keepChars));
         RexNode maskedSection = rexBuilder.makeLiteral("******");
 
@@ -129,9 +111,9 @@ public class MaskingRuleConfig {
     }
 
     // 创建中间掩码脱敏表达式
-    private RexNode createMiddleMask(RexBuilder rexBuilder, RexNode originalExpr) {
-        int leftChars = parseParam(0, 3);
-        int rightChars = parseParam(1, 4);
+    private static RexNode createMiddleMask(RexBuilder rexBuilder, RexNode originalExpr, String[] ruleParams) {
+        int leftChars = parseParam(ruleParams, 0, 3);
+        int rightChars = parseParam(ruleParams, 1, 4);
         RexNode leftCharsNode = rexBuilder.makeExactLiteral(BigDecimal.valueOf(leftChars));
         RexNode rightCharsNode = rexBuilder.makeExactLiteral(BigDecimal.valueOf(rightChars));
         RexNode maskedSection = rexBuilder.makeLiteral("******");
@@ -148,15 +130,15 @@ public class MaskingRuleConfig {
     }
 
     // 创建哈希脱敏
-    private RexNode createHashMask(RexBuilder rexBuilder, RexNode originalExpr) {
+    private static RexNode createHashMask(RexBuilder rexBuilder, RexNode originalExpr) {
         // MD5(col)
         SqlFunction md5Func = createUnresolvedFunction("MD5");
         return rexBuilder.makeCall(md5Func, originalExpr);
     }
 
     // 创建四舍五入脱敏
-    private RexNode createRoundMask(RexBuilder rexBuilder, RexNode originalExpr) {
-        int roundTo = parseParam(0, -2); // -2 means rounding to the nearest 100
+    private static RexNode createRoundMask(RexBuilder rexBuilder, RexNode originalExpr, String[] ruleParams) {
+        int roundTo = parseParam(ruleParams, 0, -2); // -2 means rounding to the nearest 100
 
         // ROUND(col, precision)
         RexNode roundToNode = rexBuilder.makeExactLiteral(BigDecimal.valueOf(roundTo));
@@ -164,9 +146,9 @@ public class MaskingRuleConfig {
     }
 
     // 创建正则脱敏
-    private RexNode createRegexMask(RexBuilder rexBuilder, RexNode originalExpr) {
-        String regex = parseParam(0, "[a-zA-Z0-9]");
-        String replacement = parseParam(1, "*");
+    private static RexNode createRegexMask(RexBuilder rexBuilder, RexNode originalExpr, String[] ruleParams) {
+        String regex = parseParam(ruleParams, 0, "[a-zA-Z0-9]");
+        String replacement = parseParam(ruleParams, 1, "*");
         
         RexNode regexNode = rexBuilder.makeLiteral(regex);
         RexNode replacementNode = rexBuilder.makeLiteral(replacement);
@@ -176,7 +158,8 @@ public class MaskingRuleConfig {
         return rexBuilder.makeCall(regexpReplaceFunc, originalExpr, regexNode, replacementNode);
     }
 
-    private <T> T parseParam(int index, T defaultValue) {
+    @SuppressWarnings("unchecked")
+    private static <T> T parseParam(String[] ruleParams, int index, T defaultValue) {
         if (ruleParams != null && ruleParams.length > index) {
             String paramStr = ruleParams[index].trim();
             try {
@@ -191,4 +174,4 @@ public class MaskingRuleConfig {
         }
         return defaultValue;
     }
-} 
\ No newline at end of file
+}
@@ -1,12 +1,13 @@
 package com.whosly.avacita.server.query.mask.rewrite.rule;
 
-import com.whosly.avacita.server.query.mask.rewrite.rule.rules.MaskingConfigMeta;
-import com.whosly.avacita.server.query.mask.rewrite.rule.rules.MaskingRuleConfig;
-import com.whosly.avacita.server.query.mask.rewrite.rule.rules.MaskingRuleType;
+import com.whosly.avacita.core.mask.rule.MaskingConfigMeta;
+import com.whosly.avacita.core.mask.rule.MaskingRuleConfig;
+import com.whosly.avacita.core.mask.rule.MaskingRuleType;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -112,4 +113,4 @@ public class MaskingRewriteRuleTest {
         // 这里只是验证配置对象可以正常工作
         assertNotNull(maskingConfigMeta);
     }
-} 
\ No newline at end of file
+}
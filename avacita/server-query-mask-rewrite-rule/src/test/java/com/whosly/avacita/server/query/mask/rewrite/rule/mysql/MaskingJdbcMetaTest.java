@@ -0,0 +1,185 @@
+package com.whosly.avacita.server.query.mask.rewrite.rule.mysql;
+
+import com.whosly.avacita.core.mask.jdbc.FakeDatabase;
+import com.whosly.avacita.core.mask.meta.SchemaMetadataCache;
+import com.whosly.avacita.core.mask.rule.MaskingConfigMeta;
+import com.whosly.avacita.core.mask.rule.MaskingPolicies;
+import com.whosly.avacita.core.mask.rule.MaskingRuleConfig;
+import org.apache.calcite.avatica.ColumnMetaData;
+import org.apache.calcite.avatica.Meta;
+import org.apache.calcite.avatica.remote.TypedValue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 改写 SQL 并对结果集脱敏的 JdbcMeta 测试：后端为 {@link FakeDatabase}，断言数据库实际收到的 SQL
+ */
+public class MaskingJdbcMetaTest {
+
+    private FakeDatabase db;
+    private MaskingJdbcMeta meta;
+    // 改写 SQL 与查找规则（改写、编译脱敏计划）的次数
+    private final AtomicInteger rewrites = new AtomicInteger();
+    private final AtomicInteger ruleLookups = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        db = new FakeDatabase();
+        MaskingConfigMeta policy = new MaskingConfigMeta(List.of(
+                new MaskingRuleConfig("demo", "t_emp", "tel", "mask_middle", new String[]{"3", "4"}),
+                new MaskingRuleConfig("demo", "t_emp", "salary", "round", new String[]{"1000"}),
+                new MaskingRuleConfig("demo", "t_emp", "pwd", "hash", new String[]{"hmac_sha256", "secret"}))) {
+            @Override
+            public boolean mightReferenceMaskedColumns(String sql) {
+                rewrites.incrementAndGet();
+                return super.mightReferenceMaskedColumns(sql);
+            }
+
+            @Override
+            public boolean hasTableRules(String schema, String table) {
+                ruleLookups.incrementAndGet();
+                return super.hasTableRules(schema, table);
+            }
+        };
+        Map<String, List<String>> columns = Map.of(
+                "demo.t_emp", List.of("id", "tel"),
+                "demo.t_dept", List.of("id", "dname"),
+                "demo.t_other", List.of("id", "tel"),
+                "other_db.t_emp", List.of("id", "tel"));
+        SchemaMetadataCache metadataCache = new SchemaMetadataCache(() -> {
+            throw new SQLException("不访问数据库");
+        }, Collections.emptyList(), Long.MAX_VALUE, Long.MAX_VALUE) {
+            @Override
+            public synchronized void start() {
+            }
+
+            @Override
+            public List<String> getColumns(String schema, String table) {
+                return columns.getOrDefault(schema + "." + table, Collections.emptyList());
+            }
+        };
+        meta = new MaskingJdbcMeta("jdbc:fake:", new Properties(), new MaskingPolicies(policy), metadataCache) {
+            @Override
+            protected Connection createConnection(String url, Properties info) {
+                return db.connect(info.getProperty("database"));
+            }
+        };
+    }
+
+    @Test
+    void testColumnsResolvedAgainstFromItems() {
+        Meta.ConnectionHandle demo = open("c-demo", "demo");
+
+        assertMasked(prepare(demo, "SELECT tel FROM t_emp"));
+        assertMasked(prepare(demo, "SELECT e.tel, d.dname FROM t_emp e JOIN t_dept d ON e.id = d.id"));
+        // 不带前缀的列按列信息确定所属的表
+        assertMasked(prepare(demo, "SELECT tel, dname FROM t_dept d JOIN t_emp e ON e.id = d.id"));
+        assertMasked(prepare(demo, "SELECT * FROM t_emp"));
+
+        // 同名的列、同名的表在没有规则的表或库中不脱敏
+        assertEquals("SELECT tel FROM t_other", prepare(demo, "SELECT tel FROM t_other"));
+        assertEquals("SELECT o.tel FROM t_other o", prepare(demo, "SELECT o.tel FROM t_other o"));
+        assertEquals("SELECT * FROM other_db.t_emp", prepare(demo, "SELECT * FROM other_db.t_emp"));
+        assertEquals("SELECT tel FROM other_db.t_emp", prepare(demo, "SELECT tel FROM other_db.t_emp"));
+        meta.closeConnection(demo);
+    }
+
+    @Test
+    void testSchemaPerConnection() throws Exception {
+        Meta.ConnectionHandle demo = open("c-demo", "demo");
+        Meta.ConnectionHandle other = open("c-other", "other_db");
+
+        assertEquals("SELECT tel FROM t_emp", prepare(other, "SELECT tel FROM t_emp"));
+        assertMasked(prepare(other, "SELECT tel FROM demo.t_emp"));
+        assertMasked(prepare(demo, "SELECT tel FROM t_emp"));
+
+        // USE 之后按新的库改写
+        Meta.StatementHandle sh = meta.createStatement(other);
+        meta.prepareAndExecute(sh, "USE demo", -1, -1, null);
+        assertEquals("demo", meta.getCurrentSchema(other.id));
+        assertMasked(prepare(other, "SELECT tel FROM t_emp"));
+
+        meta.closeConnection(demo);
+        meta.closeConnection(other);
+    }
+
+    @Test
+    void testPreparedStatementReusesRewriteAndPlan() throws Exception {
+        db.setResult(new String[][]{{"demo", "t_emp", "id"}, {"demo", "t_emp", "tel"}},
+                Collections.singletonList(new Object[]{"1", "13812345678"}));
+        Meta.ConnectionHandle demo = open("c-demo", "demo");
+
+        // prepare 时改写并按预编译语句的列元数据编译脱敏计划
+        Meta.StatementHandle sh = meta.prepare(demo, "SELECT id, tel FROM t_emp WHERE id = ?", -1);
+        assertMasked(db.statements.get(db.statements.size() - 1));
+        assertEquals(1, rewrites.get());
+        int lookups = ruleLookups.get();
+
+        // execute 不再改写、不再编译，只对数据帧应用缓存的计划
+        for (int i = 0; i < 3; i++) {
+            Meta.ExecuteResult result = meta.execute(sh, List.of(TypedValue.ofLocal(ColumnMetaData.Rep.INTEGER, 1)), -1);
+            Object row = result.resultSets.get(0).firstFrame.rows.iterator().next();
+            assertArrayEquals(new Object[]{"1", "138******5678"}, (Object[]) row);
+        }
+        assertEquals(3, db.executions.get());
+        assertEquals(1, rewrites.get());
+        assertEquals(lookups, ruleLookups.get());
+        assertEquals(1, db.statements.stream().filter(sql -> sql.contains("t_emp")).count());
+
+        // LIMIT ?, ? 写回后参数顺序变化：执行原 SQL，由结果集脱敏
+        meta.prepare(demo, "SELECT id, tel FROM t_emp LIMIT ?, ?", -1);
+        assertEquals("SELECT id, tel FROM t_emp LIMIT ?, ?", db.statements.get(db.statements.size() - 1));
+        meta.closeConnection(demo);
+    }
+
+    private static void assertMasked(String sql) {
+        assertTrue(sql.contains("CONCAT(LEFT("), sql);
+    }
+
+    @Test
+    void testStarExpansion() {
+        Meta.ConnectionHandle demo = open("c-demo", "demo");
+        // * 与 alias.* 按 FROM 中的每张表展开，列信息来自元数据缓存
+        String masked = "e.id, CASE WHEN CHAR_LENGTH(e.tel) <= 7 THEN '******' ELSE CONCAT(LEFT(e.tel, 3), '******', RIGHT(e.tel, 4)) END";
+        String join = " FROM t_emp AS e INNER JOIN t_dept AS d ON e.id = d.id";
+        assertEquals("SELECT " + masked + ", d.id, d.dname" + join, prepare(demo, "SELECT e.*, d.* FROM t_emp e JOIN t_dept d ON e.id = d.id"));
+        assertEquals("SELECT " + masked + ", d.id, d.dname" + join, prepare(demo, "SELECT * FROM t_emp e JOIN t_dept d ON e.id = d.id"));
+        // 展开出的列都不需要脱敏时执行原 SQL
+        assertEquals("SELECT d.* FROM t_emp e JOIN t_dept d ON e.id = d.id", prepare(demo, "SELECT d.* FROM t_emp e JOIN t_dept d ON e.id = d.id"));
+        assertEquals("SELECT " + masked + " FROM demo.t_emp AS e", prepare(demo, "SELECT e.* FROM demo.t_emp e"));
+        meta.closeConnection(demo);
+    }
+
+    @Test
+    void testSharedMaskingExpressions() {
+        Meta.ConnectionHandle demo = open("c-demo", "demo");
+        assertEquals("SELECT ROUND(e.salary / 1000) * 1000 FROM t_emp AS e", prepare(demo, "SELECT e.salary FROM t_emp e"));
+        // 带密钥的 HASH 不能以 SQL 表达，保留原列，由结果集脱敏计算
+        assertEquals("SELECT e.pwd FROM t_emp e", prepare(demo, "SELECT e.pwd FROM t_emp e"));
+        meta.closeConnection(demo);
+    }
+
+    private Meta.ConnectionHandle open(String id, String database) {
+        Meta.ConnectionHandle ch = new Meta.ConnectionHandle(id);
+        meta.openConnection(ch, Map.of("database", database));
+        return ch;
+    }
+
+    /**
+     * 返回数据库收到的（改写后的）SQL
+     */
+    private String prepare(Meta.ConnectionHandle ch, String sql) {
+        meta.prepare(ch, sql, -1);
+        return db.statements.get(db.statements.size() - 1).replaceAll("\\s+", " ");
+    }
+}
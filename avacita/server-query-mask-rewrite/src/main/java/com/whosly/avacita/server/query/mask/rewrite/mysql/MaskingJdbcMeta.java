@@ -1,8 +1,10 @@
 package com.whosly.avacita.server.query.mask.rewrite.mysql;
 
-import com.whosly.avacita.server.query.mask.rewrite.rule.MaskingConfigMeta;
-import com.whosly.avacita.server.query.mask.rewrite.rule.MaskingRuleConfig;
-import com.whosly.avacita.server.query.mask.rewrite.rule.MaskingRuleType;
+import com.whosly.avacita.core.mask.meta.SchemaMetadataCache;
+import com.whosly.avacita.core.mask.rule.MaskingConfigMeta;
+import com.whosly.avacita.core.mask.rule.MaskingPolicies;
+import com.whosly.avacita.core.mask.rule.MaskingRuleConfig;
+import com.whosly.avacita.core.mask.util.SqlMaskingStrategy;
 import org.apache.calcite.avatica.*;
 import org.apache.calcite.avatica.jdbc.JdbcMeta;
 import org.apache.calcite.config.Lex;
@@ -11,8 +13,11 @@ import org.apache.calcite.sql.dialect.MysqlSqlDialect;
 import org.apache.calcite.sql.parser.SqlParser;
 import org.apache.calcite.sql.parser.SqlParserPos;
 import org.apache.calcite.sql.pretty.SqlPrettyWriter;
+import org.apache.calcite.sql.util.SqlBasicVisitor;
+import org.apache.calcite.sql.util.SqlString;
 import org.apache.calcite.sql.util.SqlShuttle;
 import org.apache.calcite.sql.validate.SqlConformanceEnum;
+import org.apache.calcite.util.Util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -20,6 +25,23 @@ import java.sql.*;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * 带脱敏功能的JdbcMeta实现：将 SELECT 中需要脱敏的列改写为脱敏表达式（{@link SqlMaskingStrategy}）后交由数据库执行。
+ * 本服务端不对结果集脱敏，不能以 SQL 表达的规则（带密钥的 HASH）拒绝执行。
+ *
+ * 不同用户/角色/租户可使用不同的规则集（{@link MaskingPolicies}）：openConnection 时按连接属性解析一次并按连接缓存，
+ * 该连接上的 SQL 按解析出的规则集改写。
+ *
+ * SQL 涉及的表（含子查询、CTE、JOIN）经表级过滤器判断都没有规则时，不改写、直接执行原 SQL。
+ * 在此之前先经规则集的词法预过滤（{@link MaskingConfigMeta#mightReferenceMaskedColumns}）扫描一遍原始 SQL，
+ * 没有出现有规则的表名、列名的查询不解析、不查缓存，直接执行。
+ *
+ * 改写结果按 (规则集, 规则版本, 当前 schema, 查询形状) 缓存在 {@link SqlRewriteCache} 中：字面量经 {@link SqlFingerprint} 替换为占位符，
+ * 同一形状只解析、改写一次得到模板，每次执行时把字面量填回模板。
+ *
+ * SELECT * 与 alias.* 按 FROM 中的每张表展开，列信息来自启动时批量加载的 {@link SchemaMetadataCache}；
+ * 没有规则的表与派生表写为 alias.*，不需要列信息。表结构变化后清空改写缓存，已缓存的展开结果不会过期。
+ */
 public class MaskingJdbcMeta extends JdbcMeta {
     private static final Logger LOG = LoggerFactory.getLogger(MaskingJdbcMeta.class);
 
@@ -27,16 +49,36 @@ public class MaskingJdbcMeta extends JdbcMeta {
             "SHOW", "DESC", "DESCRIBE", "EXPLAIN", "USE", "SET"
     ));
 
-    private final MaskingConfigMeta maskingConfigMeta;
+    private final MaskingPolicies maskingPolicies;
+    // connectionId -> 该连接的脱敏规则集，openConnection 时解析
+    private final Map<String, MaskingConfigMeta> connectionPolicies = new ConcurrentHashMap<>();
+    private final SqlRewriteCache rewriteCache;
     private SqlParser.Config parserConfig;
-    private final Map<String, Signature> signatureCache = new ConcurrentHashMap<>();
-    private String currentSchema;
-    private Connection dbConnection;
-    private final Map<String, List<String>> tableColumnsCache = new ConcurrentHashMap<>();
+    // connectionId -> 该连接的当前 schema，openConnection 时读取，USE 或切换库之后重新读取
+    private final Map<String, String> connectionSchemas = new ConcurrentHashMap<>();
+    private final SchemaMetadataCache metadataCache;
 
     public MaskingJdbcMeta(String url, Properties info, MaskingConfigMeta maskingConfigMeta) throws SQLException {
+        this(url, info, new MaskingPolicies(maskingConfigMeta));
+    }
+
+    public MaskingJdbcMeta(String url, Properties info, MaskingPolicies maskingPolicies) throws SQLException {
+        this(url, info, maskingPolicies, SqlRewriteCache.fromSystemProperties());
+    }
+
+    public MaskingJdbcMeta(String url, Properties info, MaskingPolicies maskingPolicies, SqlRewriteCache rewriteCache) throws SQLException {
+        this(url, info, maskingPolicies, rewriteCache, new SchemaMetadataCache(url, info));
+    }
+
+    public MaskingJdbcMeta(String url, Properties info, MaskingPolicies maskingPolicies, SqlRewriteCache rewriteCache,
+                           SchemaMetadataCache metadataCache) throws SQLException {
         super(url, info);
-        this.maskingConfigMeta = maskingConfigMeta;
+        this.maskingPolicies = maskingPolicies;
+        this.rewriteCache = rewriteCache;
+        this.metadataCache = metadataCache;
+        // 表结构变化后，缓存中 SELECT * 的展开结果可能已过期
+        metadataCache.addListener(rewriteCache::invalidateAll);
+        metadataCache.start();
         init();
     }
 
@@ -50,20 +92,56 @@ public class MaskingJdbcMeta extends JdbcMeta {
     @Override
     public void openConnection(ConnectionHandle ch, java.util.Map<String, String> properties) {
         super.openConnection(ch, properties);
+        connectionPolicies.put(ch.id, maskingPolicies.resolve(properties));
+        refreshSchema(ch.id);
+    }
+
+    @Override
+    public ConnectionProperties connectionSync(ConnectionHandle ch, ConnectionProperties connProps) {
+        ConnectionProperties result = super.connectionSync(ch, connProps);
+        // 客户端 setCatalog/setSchema 后当前库可能已变化
+        refreshSchema(ch.id);
+        return result;
+    }
+
+    @Override
+    public void closeConnection(ConnectionHandle ch) {
+        super.closeConnection(ch);
+        connectionPolicies.remove(ch.id);
+        connectionSchemas.remove(ch.id);
+    }
+
+    /**
+     * 重新读取连接的当前 schema，未选择库时为 null
+     */
+    private String refreshSchema(String connectionId) {
         try {
-            this.dbConnection = getConnection(ch.id);
-            this.currentSchema = this.dbConnection.getCatalog();
+            String schema = getConnection(connectionId).getCatalog();
+            if (schema != null) {
+                connectionSchemas.put(connectionId, schema);
+            } else {
+                connectionSchemas.remove(connectionId);
+            }
+            return schema;
         } catch (SQLException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * 连接的脱敏规则集，连接未经 openConnection 时使用默认策略
+     */
+    private MaskingConfigMeta policyOf(String connectionId) {
+        MaskingConfigMeta policy = connectionPolicies.get(connectionId);
+        return policy != null ? policy : maskingPolicies.getDefaultPolicy();
+    }
+
     @Override
     public Meta.StatementHandle prepare(ConnectionHandle ch, String sql, long maxRowCount) {
         try {
-            String newSql = rewriteSql(sql);
-            LOG.info("prepare重写前SQL: {}", sql);
-            LOG.info("prepare重写后SQL: {}", newSql);
+            String newSql = rewriteSql(sql, policyOf(ch.id), getCurrentSchema(ch.id));
+            LOG.debug("prepare重写前SQL: {}", sql);
+            LOG.debug("prepare重写后SQL: {}", newSql);
             return super.prepare(ch, newSql, maxRowCount);
         } catch (Exception e) {
             throw new RuntimeException("SQL重写失败: " + e.getMessage(), e);
@@ -74,15 +152,12 @@ public class MaskingJdbcMeta extends JdbcMeta {
     public ExecuteResult prepareAndExecute(StatementHandle sh, String sql, long maxRowCount,
                                            int maxRowsInFirstFrame, PrepareCallback callback) throws NoSuchStatementException {
         try {
-            String newSql = rewriteSql(sql);
-            LOG.info("重写前SQL: {}", sql);
-            LOG.info("重写后SQL: {}", newSql);
+            String newSql = rewriteSql(sql, policyOf(sh.connectionId), getCurrentSchema(sh.connectionId));
+            LOG.debug("重写前SQL: {}", sql);
+            LOG.debug("重写后SQL: {}", newSql);
             final ExecuteResult result = super.prepareAndExecute(sh, newSql, maxRowCount, maxRowsInFirstFrame, callback);
-            if (result.resultSets != null && !result.resultSets.isEmpty()) {
-                MetaResultSet mrs = result.resultSets.get(0);
-                if (mrs.signature != null) {
-                    signatureCache.put(String.valueOf(sh.id), mrs.signature);
-                }
+            if (isUseSql(sql)) {
+                refreshSchema(sh.connectionId);
             }
             return result;
         } catch (Exception e) {
@@ -106,65 +181,198 @@ public class MaskingJdbcMeta extends JdbcMeta {
         return false;
     }
 
-    private String rewriteSql(String sql) throws Exception {
+    private static boolean isUseSql(String sql) {
+        String trimmed = sql.trim();
+        return trimmed.length() > 3 && trimmed.regionMatches(true, 0, "USE", 0, 3)
+                && (Character.isWhitespace(trimmed.charAt(3)) || trimmed.charAt(3) == '`');
+    }
+
+    /**
+     * @param schema 连接的当前 schema，未指定 schema 的表按该库查找规则与列信息
+     */
+    private String rewriteSql(String sql, MaskingConfigMeta maskingConfigMeta, String schema) throws Exception {
         if (isPassthroughSql(sql)) {
             // 直接返回原SQL，不做任何处理
             return sql;
         }
+        if (!maskingConfigMeta.mightReferenceMaskedColumns(sql)) {
+            // 词法预过滤：SQL 中没有出现有规则的表名（或列名与 *），不解析、不查改写缓存
+            rewriteCache.recordPrefilterSkip();
+            return sql;
+        }
+        SqlFingerprint fingerprint = SqlFingerprint.of(sql);
+        String template = rewriteCache.get(maskingConfigMeta, schema, fingerprint,
+                () -> rewriteTemplate(fingerprint, maskingConfigMeta, schema));
+        if (template == SqlRewriteCache.UNCHANGED) {
+            return sql;
+        }
+        if (template != SqlRewriteCache.NOT_TEMPLATABLE) {
+            return fingerprint.bind(template);
+        }
+        return rewriteCache.get(maskingConfigMeta, schema, sql, () -> parseAndRewrite(sql, maskingConfigMeta, schema, false));
+    }
+
+    /**
+     * 改写查询形状得到模板，无需改写时返回 {@link SqlRewriteCache#UNCHANGED}；形状无法解析（字面量位于不接受参数的位置，如类型精度、INTERVAL）、改写后占位符个数不一致或 ? 参数的顺序改变时，
+     * 返回 {@link SqlRewriteCache#NOT_TEMPLATABLE}，由调用方改写原始 SQL
+     */
+    private String rewriteTemplate(SqlFingerprint fingerprint, MaskingConfigMeta maskingConfigMeta, String schema) throws Exception {
+        if (fingerprint.getLiteralCount() == 0) {
+            return parseAndRewrite(fingerprint.getNormalizedSql(), maskingConfigMeta, schema, false);
+        }
+        try {
+            String template = parseAndRewrite(fingerprint.getNormalizedSql(), maskingConfigMeta, schema, true);
+            if (template == fingerprint.getNormalizedSql()) {
+                // 无需改写时原样返回
+                return SqlRewriteCache.UNCHANGED;
+            }
+            if (fingerprint.matches(template)) {
+                return template;
+            }
+        } catch (Exception e) {
+            LOG.debug("查询形状无法作为模板改写: {}", fingerprint.getNormalizedSql(), e);
+        }
+        rewriteCache.recordTemplateFallback();
+        return SqlRewriteCache.NOT_TEMPLATABLE;
+    }
 
+    /**
+     * 解析、改写并写回 SQL（改写 SQL 缓存未命中时）
+     *
+     * @param template 是否写出改写模板：占位符 ? 写为带序号的 {@link SqlFingerprint#placeholder}
+     */
+    private String parseAndRewrite(String sql, MaskingConfigMeta maskingConfigMeta, String schema, boolean template) throws Exception {
         LOG.debug("原始 SQL: {}", sql);
         SqlParser parser = SqlParser.create(sql, this.parserConfig);
         SqlNode sqlNode = parser.parseQuery();
-        SqlNode rewritten = sqlNode.accept(new MaskingSqlRewriter(this));
-        SqlPrettyWriter writer = new SqlPrettyWriter(MysqlSqlDialect.DEFAULT);
+        if (!new MaskedTableFinder(maskingConfigMeta, schema).find(sqlNode)) {
+            // 涉及的表都没有脱敏规则，无需改写
+            return sql;
+        }
+        SqlNode rewritten = sqlNode.accept(new MaskingSqlRewriter(this, maskingConfigMeta, schema));
+        SqlPrettyWriter writer = !template ? new SqlPrettyWriter(MysqlSqlDialect.DEFAULT) : new SqlPrettyWriter(MysqlSqlDialect.DEFAULT) {
+            @Override
+            public void dynamicParam(int index) {
+                print(SqlFingerprint.placeholder(index));
+                setNeedWhitespace(true);
+            }
+        };
 
         // 关键：不加反引号.在 SqlPrettyWriter 上加 setQuoteAllIdentifiers(false)，即可彻底解决函数名被加反引号问题
-        // 生成的 SQL 就是 CONCAT(LEFT(tel, 3), '****', RIGHT(tel, 4))
+        // 生成的 SQL 就是 CONCAT(LEFT(tel, 3), '******', RIGHT(tel, 4))
         writer.setQuoteAllIdentifiers(false);
         rewritten.unparse(writer, 0, 0);
-        String rewriteSql = writer.toString();
+        SqlString sqlString = writer.toSqlString();
+        if (!isInOrder(sqlString.getDynamicParameters())) {
+            // 写回后 ? 参数的顺序变化（如 LIMIT ?, ? 写为 LIMIT ? OFFSET ?），按位置绑定的参数会错位；
+            // 本服务端不对结果集脱敏，不能退回执行原 SQL，与其他无法改写的语句一样拒绝执行
+            throw new IllegalStateException("无法改写: 写回后 ? 参数的顺序改变");
+        }
+        String rewriteSql = sqlString.getSql();
         LOG.debug("改写后 SQL: {}", rewriteSql);
-        System.out.println("[MaskingJdbcMeta] \noriginalSql SQL:" + sql + "\nModified SQL: " + rewriteSql);
         return rewriteSql;
     }
 
-    @Override
-    public void closeStatement(StatementHandle sh) {
-        super.closeStatement(sh);
-        signatureCache.remove(String.valueOf(sh.id));
+    private static boolean isInOrder(List<Integer> dynamicParameters) {
+        if (dynamicParameters == null) {
+            return true;
+        }
+        for (int i = 0; i < dynamicParameters.size(); i++) {
+            if (dynamicParameters.get(i) != i) {
+                return false;
+            }
+        }
+        return true;
     }
 
-    public Connection getDbConnection() {
-        return this.dbConnection;
+    public SqlRewriteCache getRewriteCache() {
+        return this.rewriteCache;
     }
 
-    public String getCurrentSchema() {
-        return this.currentSchema;
+    public SchemaMetadataCache getMetadataCache() {
+        return this.metadataCache;
     }
 
-    public List<String> getTableColumns(String table) {
-        return tableColumnsCache.computeIfAbsent(table, t -> {
-            List<String> columns = new ArrayList<>();
-            try {
-                DatabaseMetaData dbMetaData = dbConnection.getMetaData();
-                try (ResultSet rs = dbMetaData.getColumns(currentSchema, null, t, null)) {
-                    while (rs.next()) {
-                        columns.add(rs.getString("COLUMN_NAME"));
-                    }
+    /**
+     * 连接的当前 schema，未选择库时为 null
+     */
+    public String getCurrentSchema(String connectionId) {
+        String schema = connectionSchemas.get(connectionId);
+        return schema != null ? schema : refreshSchema(connectionId);
+    }
+
+    /**
+     * 表的列名（按列顺序），表不存在时返回空列表
+     */
+    public List<String> getTableColumns(String schema, String table) {
+        return metadataCache.getColumns(schema, table);
+    }
+
+    /**
+     * 查找 SQL 中是否有表存在脱敏规则：遍历所有 SELECT（含子查询、CTE）的 FROM，逐表经表级过滤器判断，命中一张即停止。
+     * 别名也按表名判断，与 {@link MaskingSqlRewriter} 未解析到别名时按别名查找规则一致。
+     */
+    static class MaskedTableFinder extends SqlBasicVisitor<Void> {
+        private final MaskingConfigMeta maskingConfigMeta;
+        private final String schema;
+        private boolean found;
+
+        MaskedTableFinder(MaskingConfigMeta maskingConfigMeta, String schema) {
+            this.maskingConfigMeta = maskingConfigMeta;
+            this.schema = schema;
+        }
+
+        boolean find(SqlNode node) {
+            node.accept(this);
+            return found;
+        }
+
+        @Override
+        public Void visit(SqlCall call) {
+            if (found) {
+                return null;
+            }
+            if (call instanceof SqlSelect && ((SqlSelect) call).getFrom() != null) {
+                checkFrom(((SqlSelect) call).getFrom());
+            }
+            return super.visit(call);
+        }
+
+        private void checkFrom(SqlNode from) {
+            if (from instanceof SqlIdentifier) {
+                checkTable((SqlIdentifier) from);
+            } else if (from.getKind() == SqlKind.AS) {
+                SqlBasicCall call = (SqlBasicCall) from;
+                checkFrom(call.operand(0));
+                if (call.operand(1) instanceof SqlIdentifier) {
+                    checkTable(call.operand(1));
                 }
-            } catch (SQLException e) {
-                LOG.warn("获取表 {} 列信息失败: {}", t, e.getMessage());
+            } else if (from instanceof SqlJoin) {
+                checkFrom(((SqlJoin) from).getLeft());
+                checkFrom(((SqlJoin) from).getRight());
             }
-            return columns;
-        });
+        }
+
+        private void checkTable(SqlIdentifier id) {
+            if (!found && maskingConfigMeta.hasTableRules(schema, id.names.get(id.names.size() - 1))) {
+                found = true;
+            }
+        }
     }
 
     static class MaskingSqlRewriter extends SqlShuttle {
         private final MaskingJdbcMeta meta;
-        private final Map<String, String> aliasToTable = new HashMap<>();
-
-        public MaskingSqlRewriter(MaskingJdbcMeta meta) {
+        private final MaskingConfigMeta maskingConfigMeta;
+        // 连接的当前 schema，FROM 中未指定 schema 的表属于该库
+        private final String schema;
+        private final Map<String, FromItem> aliasToTable = new HashMap<>();
+        // 正在改写的 SELECT 的 FROM 中的各项，用于确定未限定的列所属的表
+        private List<FromItem> fromItems = Collections.emptyList();
+
+        public MaskingSqlRewriter(MaskingJdbcMeta meta, MaskingConfigMeta maskingConfigMeta, String schema) {
             this.meta = meta;
+            this.maskingConfigMeta = maskingConfigMeta;
+            this.schema = schema;
         }
 
         @Override
@@ -186,15 +394,18 @@ public class MaskingJdbcMeta extends JdbcMeta {
         }
 
         private SqlNode handleSelect(SqlSelect select) {
+            List<FromItem> outerFromItems = fromItems;
+            fromItems = new ArrayList<>();
             if (select.getFrom() != null) {
                 collectAlias(select.getFrom());
+                collectFromItems(select.getFrom(), fromItems);
             }
 
             if (select.getSelectList() != null) {
                 SqlNodeList newSelectList = new SqlNodeList(select.getSelectList().getParserPosition());
                 for (SqlNode node : select.getSelectList()) {
                     if (node instanceof SqlIdentifier && ((SqlIdentifier) node).isStar()) {
-                        newSelectList.addAll(expandStar());
+                        newSelectList.addAll(expandStar((SqlIdentifier) node, select.getFrom()));
                     } else {
                         newSelectList.add(processSelectItem(node));
                     }
@@ -211,17 +422,52 @@ public class MaskingJdbcMeta extends JdbcMeta {
                 select.setOrderBy((SqlNodeList) select.getOrderList().accept(this));
             }
             if (select.getFrom() != null) select.setFrom(select.getFrom().accept(this));
+            fromItems = outerFromItems;
             return select;
         }
 
-        private SqlNodeList expandStar() {
+        /**
+         * 按 FROM 中的每张表展开 * 与 alias.*：有规则的表展开为逐列（各列再按规则脱敏），没有规则的表与派生表写为 alias.*；
+         * 都不需要展开时保留原样
+         */
+        private SqlNodeList expandStar(SqlIdentifier star, SqlNode from) {
+            List<FromItem> items = new ArrayList<>();
+            if (from != null) {
+                collectFromItems(from, items);
+            }
+            if (star.names.size() >= 2) {
+                String qualifier = star.names.get(star.names.size() - 2);
+                items.removeIf(item -> !qualifier.equalsIgnoreCase(item.qualifier));
+            }
+
+            boolean expand = false;
+            for (FromItem item : items) {
+                item.masked = item.table != null && maskingConfigMeta.hasTableRules(schemaOf(item), item.table);
+                expand |= item.masked;
+            }
             SqlNodeList expandedList = new SqlNodeList(SqlParserPos.ZERO);
-            for (String tableAlias : aliasToTable.keySet()) {
-                String realTable = aliasToTable.get(tableAlias);
-                List<String> columns = meta.getTableColumns(realTable);
+            if (!expand) {
+                expandedList.add(star);
+                return expandedList;
+            }
+
+            for (FromItem item : items) {
+                if (!item.masked) {
+                    if (item.qualifier == null) {
+                        throw new IllegalStateException("无法展开 *: FROM 中有没有别名的派生表");
+                    }
+                    expandedList.add(SqlIdentifier.star(Arrays.asList(item.qualifier, ""), SqlParserPos.ZERO,
+                            Collections.nCopies(2, SqlParserPos.ZERO)));
+                    continue;
+                }
+                List<String> columns = meta.getTableColumns(schemaOf(item), item.table);
+                if (columns.isEmpty()) {
+                    // 展开不出列时不能保留 *，否则需要脱敏的列会原样返回
+                    throw new IllegalStateException("无法展开 *: 未找到表 " + item.table + " 的列信息");
+                }
                 for (String columnName : columns) {
                     SqlIdentifier colIdentifier = new SqlIdentifier(
-                            Arrays.asList(tableAlias, columnName), SqlParserPos.ZERO
+                            Arrays.asList(item.qualifier, columnName), SqlParserPos.ZERO
                     );
                     expandedList.add(processSelectItem(colIdentifier));
                 }
@@ -229,6 +475,42 @@ public class MaskingJdbcMeta extends JdbcMeta {
             return expandedList;
         }
 
+        /**
+         * 按出现顺序收集 FROM（含 JOIN）中的表与派生表
+         */
+        private void collectFromItems(SqlNode from, List<FromItem> items) {
+            if (from instanceof SqlIdentifier) {
+                SqlIdentifier id = (SqlIdentifier) from;
+                items.add(new FromItem(Util.last(id.names), schemaOf(id), Util.last(id.names)));
+            } else if (from.getKind() == SqlKind.AS) {
+                SqlBasicCall call = (SqlBasicCall) from;
+                SqlNode left = call.operand(0);
+                String alias = ((SqlIdentifier) call.operand(1)).getSimple();
+                if (left instanceof SqlIdentifier) {
+                    SqlIdentifier id = (SqlIdentifier) left;
+                    items.add(new FromItem(alias, schemaOf(id), Util.last(id.names)));
+                } else {
+                    items.add(new FromItem(alias, null, null));
+                }
+            } else if (from instanceof SqlJoin) {
+                collectFromItems(((SqlJoin) from).getLeft(), items);
+                collectFromItems(((SqlJoin) from).getRight(), items);
+            } else {
+                items.add(new FromItem(null, null, null));
+            }
+        }
+
+        private static String schemaOf(SqlIdentifier id) {
+            return id.names.size() >= 2 ? id.names.get(id.names.size() - 2) : null;
+        }
+
+        /**
+         * 表所在的 schema，FROM 中未指定时为连接的当前 schema
+         */
+        private String schemaOf(FromItem item) {
+            return item.schema != null ? item.schema : schema;
+        }
+
         private SqlNode handleWith(SqlWith with) {
             SqlNodeList newList = new SqlNodeList(with.withList.getParserPosition());
             for (SqlNode node : with.withList) {
@@ -251,12 +533,16 @@ public class MaskingJdbcMeta extends JdbcMeta {
                 SqlIdentifier id = (SqlIdentifier) node;
                 if (id.isStar()) return id;
                 String col = id.names.get(id.names.size() - 1);
-                String table = resolveTableName(id);
-                MaskingRuleConfig rule = meta.maskingConfigMeta.getRule(meta.getCurrentSchema(), table, col);
+                MaskingRuleConfig rule = ruleOf(id, col);
 
                 if (rule != null) {
                     // 这里直接用带前缀的 id
-                    return buildMaskingExpression(id, rule);
+                    SqlNode masked = SqlMaskingStrategy.toSql(id, rule);
+                    if (masked == null) {
+                        // 本服务端不对结果集脱敏，不能以 SQL 表达的规则（带密钥的 HASH）不能执行原列
+                        throw new IllegalStateException("无法改写: 列 " + col + " 的 " + rule.getRuleType() + " 规则不能以 SQL 表达");
+                    }
+                    return masked;
                 }
             } else if (node instanceof SqlBasicCall) {
                 SqlBasicCall call = (SqlBasicCall) node;
@@ -271,115 +557,64 @@ public class MaskingJdbcMeta extends JdbcMeta {
             return node;
         }
 
-        private SqlNode buildMaskingExpression(SqlIdentifier id, MaskingRuleConfig rule) {
-            MaskingRuleType ruleType = rule.getRuleType();
-            String[] params = rule.getRuleParams();
-
-            SqlOperator concatFunc = new SqlUnresolvedFunction(
-                    new SqlIdentifier("CONCAT", SqlParserPos.ZERO), null, null, null, null, SqlFunctionCategory.STRING
-            );
-            SqlOperator leftFunc = new SqlUnresolvedFunction(
-                    new SqlIdentifier("LEFT", SqlParserPos.ZERO), null, null, null, null, SqlFunctionCategory.STRING
-            );
-            SqlOperator rightFunc = new SqlUnresolvedFunction(
-                    new SqlIdentifier("RIGHT", SqlParserPos.ZERO), null, null, null, null, SqlFunctionCategory.STRING
-            );
-
-            switch (ruleType) {
-                case MASK_FULL:
-                    return SqlLiteral.createCharString("******", SqlParserPos.ZERO);
-                case MASK_LEFT: {
-                    int leftKeep = getIntParam(params, 0, 4);
-                    SqlNode leftPart = leftFunc.createCall(SqlParserPos.ZERO, id, SqlLiteral.createExactNumeric(String.valueOf(leftKeep), SqlParserPos.ZERO));
-                    SqlNode starLiteralL = SqlLiteral.createCharString("****", SqlParserPos.ZERO);
-                    return concatFunc.createCall(SqlParserPos.ZERO, leftPart, starLiteralL);
-                }
-                case MASK_RIGHT: {
-                    int rightKeep = getIntParam(params, 0, 4);
-                    SqlNode rightPart = rightFunc.createCall(SqlParserPos.ZERO, id, SqlLiteral.createExactNumeric(String.valueOf(rightKeep), SqlParserPos.ZERO));
-                    SqlNode starLiteralR = SqlLiteral.createCharString("****", SqlParserPos.ZERO);
-                    return concatFunc.createCall(SqlParserPos.ZERO, starLiteralR, rightPart);
-                }
-                case MASK_MIDDLE: {
-                    int left = getIntParam(params, 0, 3);
-                    int right = getIntParam(params, 1, 4);
-                    SqlNode leftP = leftFunc.createCall(SqlParserPos.ZERO, id, SqlLiteral.createExactNumeric(String.valueOf(left), SqlParserPos.ZERO));
-                    SqlNode rightP = rightFunc.createCall(SqlParserPos.ZERO, id, SqlLiteral.createExactNumeric(String.valueOf(right), SqlParserPos.ZERO));
-                    SqlNode starLiteralM = SqlLiteral.createCharString("****", SqlParserPos.ZERO);
-                    return concatFunc.createCall(SqlParserPos.ZERO, leftP, starLiteralM, rightP);
-                }
-                case HASH: {
-                    SqlOperator md5Func = new SqlUnresolvedFunction(
-                            new SqlIdentifier("MD5", SqlParserPos.ZERO), null, null, null, null, SqlFunctionCategory.STRING
-                    );
-                    return md5Func.createCall(SqlParserPos.ZERO, id);
-                }
-                case REGEX: {
-                    String pattern = getStringParam(params, 0, ".");
-                    String replace = getStringParam(params, 1, "*");
-                    SqlOperator regexFunc = new SqlUnresolvedFunction(
-                            new SqlIdentifier("REGEXP_REPLACE", SqlParserPos.ZERO), null, null, null, null, SqlFunctionCategory.STRING
-                    );
-                    return regexFunc.createCall(SqlParserPos.ZERO, id, SqlLiteral.createCharString(pattern, SqlParserPos.ZERO), SqlLiteral.createCharString(replace, SqlParserPos.ZERO));
-                }
-                case ROUND: {
-                    int roundTo = getIntParam(params, 0, 100);
-                    SqlOperator roundFunc = new SqlUnresolvedFunction(
-                            new SqlIdentifier("ROUND", SqlParserPos.ZERO), null, null, null, null, SqlFunctionCategory.NUMERIC
-                    );
-                    return roundFunc.createCall(SqlParserPos.ZERO, id, SqlLiteral.createExactNumeric(String.valueOf(roundTo), SqlParserPos.ZERO));
+        private void collectAlias(SqlNode from) {
+            List<FromItem> items = new ArrayList<>();
+            collectFromItems(from, items);
+            for (FromItem item : items) {
+                if (item.table != null) {
+                    aliasToTable.put(item.qualifier, item);
                 }
-                case KEEP:
-                default:
-                    return id;
-            }
-        }
-
-        private int getIntParam(String[] params, int idx, int defaultVal) {
-            if (params != null && params.length > idx && params[idx] != null && !params[idx].isEmpty()) {
-                try {
-                    return Integer.parseInt(params[idx]);
-                } catch (NumberFormatException ignore) {}
             }
-            return defaultVal;
         }
 
-        private String getStringParam(String[] params, int idx, String defaultVal) {
-            if (params != null && params.length > idx && params[idx] != null && !params[idx].isEmpty()) {
-                return params[idx];
+        /**
+         * FROM 中的一项：qualifier 为 SELECT 中引用它的名字（别名或表名），派生表的 table 为 null
+         */
+        private static final class FromItem {
+            private final String qualifier;
+            private final String schema;
+            private final String table;
+            private boolean masked;
+
+            FromItem(String qualifier, String schema, String table) {
+                this.qualifier = qualifier;
+                this.schema = schema;
+                this.table = table;
             }
-            return defaultVal;
         }
 
-        private void collectAlias(SqlNode from) {
-            if (from instanceof SqlIdentifier) {
-                SqlIdentifier id = (SqlIdentifier) from;
-                String table = id.names.get(id.names.size() - 1);
-                aliasToTable.put(table, table);
-            } else if (from.getKind() == SqlKind.AS) {
-                SqlBasicCall call = (SqlBasicCall) from;
-                SqlNode left = call.operand(0);
-                SqlNode right = call.operand(1);
-                if (left instanceof SqlIdentifier && right instanceof SqlIdentifier) {
-                    String table = ((SqlIdentifier) left).names.get(((SqlIdentifier) left).names.size() - 1);
-                    String alias = ((SqlIdentifier) right).getSimple();
-                    aliasToTable.put(alias, table);
-                }
-            } else if (from instanceof SqlJoin) {
-                collectAlias(((SqlJoin) from).getLeft());
-                collectAlias(((SqlJoin) from).getRight());
-            }
-        }
-
-        private String resolveTableName(SqlIdentifier id) {
+        /**
+         * 列的脱敏规则。带前缀的列按限定名（别名或表名）对应 FROM 中的表，未找到时按表名处理；FROM 中只有一张表时不带前缀的列属于该表。
+         * 多表时不带前缀的列在 FROM 中的各表里查找：列信息已知的表只考虑含有该列的，仍有多张时取第一条匹配的规则（宁可多脱敏）
+         */
+        private MaskingRuleConfig ruleOf(SqlIdentifier id, String col) {
             if (id.names.size() == 2) {
                 String alias = id.names.get(0);
-                return aliasToTable.getOrDefault(alias, alias);
+                FromItem item = aliasToTable.get(alias);
+                if (item == null) {
+                    item = new FromItem(alias, null, alias);
+                }
+                return maskingConfigMeta.getRule(schemaOf(item), item.table, col);
             }
-            if (aliasToTable.size() == 1) {
-                return aliasToTable.values().iterator().next();
+            if (fromItems.size() == 1) {
+                FromItem item = fromItems.get(0);
+                return item.table == null ? null : maskingConfigMeta.getRule(schemaOf(item), item.table, col);
+            }
+            for (FromItem item : fromItems) {
+                if (item.table == null) {
+                    // 派生表的列已在其 SELECT 中脱敏
+                    continue;
+                }
+                List<String> columns = meta.getTableColumns(schemaOf(item), item.table);
+                if (!columns.isEmpty() && columns.stream().noneMatch(col::equalsIgnoreCase)) {
+                    continue;
+                }
+                MaskingRuleConfig rule = maskingConfigMeta.getRule(schemaOf(item), item.table, col);
+                if (rule != null) {
+                    return rule;
+                }
             }
             return null;
         }
     }
-}
\ No newline at end of file
+}
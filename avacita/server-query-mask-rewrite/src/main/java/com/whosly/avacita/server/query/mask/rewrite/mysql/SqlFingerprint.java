@@ -0,0 +1,253 @@
+package com.whosly.avacita.server.query.mask.rewrite.mysql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * SQL 指纹：一次按 MySQL 词法的线性扫描，将字符串与数值字面量替换为占位符 ?，得到查询形状（normalizedSql）及其稳定的 64 位哈希（FNV-1a）。
+ * <p>
+ * 同一形状、不同字面量的 SQL（如 WHERE id = 756 与 WHERE id = 757）指纹相同：脱敏改写只对形状做一次，得到改写模板，
+ * 每次执行时再把原始字面量填回模板中的占位符（{@link #bind}）。原 SQL 中已有的 ? 参数也视为字面量，原样填回；
+ * 客户端按位置绑定参数，因此模板中这些 ? 的先后顺序必须与原 SQL 相同（{@link #matches}）。
+ * <p>
+ * 写回 SQL 时占位符的顺序可能与原 SQL 不同（如 LIMIT 10, 20 写为 LIMIT ? OFFSET ?），因此模板中的占位符带有序号（{@link #placeholder}），
+ * 即该字面量在原 SQL 中的顺序，与解析器为 ? 分配的序号一致。
+ * <p>
+ * 注释、反引号/双引号标识符、关键字（含 TRUE/FALSE/NULL）保持原样，属于形状的一部分；以数字开头的标识符不视为字面量。
+ */
+final class SqlFingerprint {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final String normalizedSql;
+    private final long hash;
+    private final List<String> literals;
+
+    private SqlFingerprint(String normalizedSql, long hash, List<String> literals) {
+        this.normalizedSql = normalizedSql;
+        this.hash = hash;
+        this.literals = literals;
+    }
+
+    public static SqlFingerprint of(String sql) {
+        int length = sql.length();
+        StringBuilder normalized = new StringBuilder(length);
+        List<String> literals = null;
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            int end;
+            if (c == '\'') {
+                end = skipQuoted(sql, i, '\'');
+            } else if (c == '?') {
+                end = i + 1;
+            } else if (isDigit(c)) {
+                end = skipNumber(sql, i);
+                if (end < length && isWordPart(sql.charAt(end))) {
+                    // 以数字开头的标识符
+                    end = skipWord(sql, end);
+                    normalized.append(sql, i, end);
+                    i = end;
+                    continue;
+                }
+            } else {
+                end = skipVerbatim(sql, i);
+                normalized.append(sql, i, end);
+                i = end;
+                continue;
+            }
+            if (literals == null) {
+                literals = new ArrayList<>();
+            }
+            literals.add(sql.substring(i, end));
+            normalized.append('?');
+            i = end;
+        }
+
+        String normalizedSql = literals == null ? sql : normalized.toString();
+        long hash = FNV_OFFSET;
+        for (int k = 0; k < normalizedSql.length(); k++) {
+            hash = (hash ^ normalizedSql.charAt(k)) * FNV_PRIME;
+        }
+        return new SqlFingerprint(normalizedSql, hash, literals == null ? Collections.emptyList() : literals);
+    }
+
+    /**
+     * 字面量替换为占位符后的 SQL（查询形状）
+     */
+    public String getNormalizedSql() {
+        return normalizedSql;
+    }
+
+    /**
+     * 查询形状的 FNV-1a 哈希，与 JVM 无关
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    public int getLiteralCount() {
+        return literals.size();
+    }
+
+    /**
+     * 模板中第 index 个字面量的占位符
+     */
+    public static String placeholder(int index) {
+        return "?" + index;
+    }
+
+    /**
+     * 模板中（字符串、标识符、注释之外）的占位符是否恰好是每个字面量各一个，且原 SQL 中的 ? 参数保持原来的先后顺序
+     */
+    public boolean matches(String template) {
+        boolean[] seen = new boolean[literals.size()];
+        int count = 0;
+        int lastParameter = -1;
+        int i = 0;
+        while (i < template.length()) {
+            char c = template.charAt(i);
+            if (c == '?') {
+                int end = skipDigits(template, i + 1);
+                if (end == i + 1) {
+                    return false;
+                }
+                int index = Integer.parseInt(template, i + 1, end, 10);
+                if (index >= seen.length || seen[index]) {
+                    return false;
+                }
+                if ("?".equals(literals.get(index))) {
+                    if (index < lastParameter) {
+                        // 如 LIMIT ?, ? 写为 LIMIT ? OFFSET ?，按位置绑定的参数会错位
+                        return false;
+                    }
+                    lastParameter = index;
+                }
+                seen[index] = true;
+                count++;
+                i = end;
+            } else if (c == '\'') {
+                i = skipQuoted(template, i, '\'');
+            } else {
+                i = skipVerbatim(template, i);
+            }
+        }
+        return count == seen.length;
+    }
+
+    /**
+     * 将字面量填回改写模板的占位符；调用方需保证模板与该指纹匹配（{@link #matches}）
+     */
+    public String bind(String template) {
+        if (literals.isEmpty()) {
+            return template;
+        }
+        StringBuilder sql = new StringBuilder(template.length() + 16 * literals.size());
+        int i = 0;
+        while (i < template.length()) {
+            char c = template.charAt(i);
+            int end;
+            if (c == '?') {
+                end = skipDigits(template, i + 1);
+                sql.append(literals.get(Integer.parseInt(template, i + 1, end, 10)));
+                i = end;
+                continue;
+            } else if (c == '\'') {
+                end = skipQuoted(template, i, '\'');
+            } else {
+                end = skipVerbatim(template, i);
+            }
+            sql.append(template, i, end);
+            i = end;
+        }
+        return sql.toString();
+    }
+
+    /**
+     * 跳过 i 处开始的一段非字面量内容（标识符、引号标识符、注释、空白或单个符号），返回其结束位置
+     */
+    private static int skipVerbatim(String sql, int i) {
+        int length = sql.length();
+        char c = sql.charAt(i);
+        if (c == '`' || c == '"') {
+            return skipQuoted(sql, i, c);
+        }
+        if (c == '#' || (c == '-' && i + 2 < length && sql.charAt(i + 1) == '-' && Character.isWhitespace(sql.charAt(i + 2)))) {
+            int end = sql.indexOf('\n', i);
+            return end < 0 ? length : end;
+        }
+        if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+            int end = sql.indexOf("*/", i + 2);
+            return end < 0 ? length : end + 2;
+        }
+        if (isWordPart(c)) {
+            return skipWord(sql, i);
+        }
+        return i + 1;
+    }
+
+    /**
+     * 跳过引号内容（含引号本身），支持重复引号与反斜杠转义；未闭合时到末尾
+     */
+    private static int skipQuoted(String sql, int i, char quote) {
+        int length = sql.length();
+        int j = i + 1;
+        while (j < length) {
+            char c = sql.charAt(j);
+            if (c == '\\' && quote != '`') {
+                j += 2;
+            } else if (c == quote) {
+                if (j + 1 < length && sql.charAt(j + 1) == quote) {
+                    j += 2;
+                } else {
+                    return j + 1;
+                }
+            } else {
+                j++;
+            }
+        }
+        return length;
+    }
+
+    private static int skipNumber(String sql, int i) {
+        int length = sql.length();
+        int j = skipDigits(sql, i);
+        if (j + 1 < length && sql.charAt(j) == '.' && isDigit(sql.charAt(j + 1))) {
+            j = skipDigits(sql, j + 1);
+        }
+        if (j + 1 < length && (sql.charAt(j) == 'e' || sql.charAt(j) == 'E')) {
+            int k = j + 1;
+            if (k + 1 < length && (sql.charAt(k) == '+' || sql.charAt(k) == '-')) {
+                k++;
+            }
+            if (k < length && isDigit(sql.charAt(k))) {
+                j = skipDigits(sql, k);
+            }
+        }
+        return j;
+    }
+
+    private static int skipDigits(String sql, int i) {
+        while (i < sql.length() && isDigit(sql.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipWord(String sql, int i) {
+        while (i < sql.length() && isWordPart(sql.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isWordPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+}
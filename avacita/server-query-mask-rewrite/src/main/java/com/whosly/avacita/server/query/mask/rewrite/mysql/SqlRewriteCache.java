@@ -0,0 +1,218 @@
+package com.whosly.avacita.server.query.mask.rewrite.mysql;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.whosly.avacita.core.mask.rule.MaskingConfigMeta;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 改写 SQL 缓存：以 (规则集, 规则版本, 当前 schema, SQL) 为键缓存改写结果，命中时跳过 SQL 解析、改写与写回。
+ * <p>
+ * SQL 通常是字面量替换为占位符后的查询形状（{@link SqlFingerprint}），缓存的是改写模板，同一形状的不同字面量共用一次改写；
+ * 形状无法作为模板改写时（如字面量位于不接受参数的位置），改为以原始 SQL 为键缓存，见 {@link #NOT_TEMPLATABLE}。
+ * <p>
+ * 规则变更后规则版本递增，旧版本的条目不会再被命中，随后按容量淘汰；同一 SQL 在不同规则集（按连接的脱敏策略）下各自缓存。
+ * 无需改写的 SQL（涉及的表都没有规则）同样缓存，命中时直接返回原 SQL。
+ * <p>
+ * 容量通过系统属性 avacita.mask.rewriteCacheSize 配置，默认 {@link #DEFAULT_MAXIMUM_SIZE} 条，&lt;= 0 时不缓存。
+ */
+public final class SqlRewriteCache implements SqlRewriteCacheMXBean {
+    private static final Logger LOG = LoggerFactory.getLogger(SqlRewriteCache.class);
+
+    public static final String OBJECT_NAME = "com.whosly.avacita:type=SqlRewriteCache";
+
+    public static final String SIZE_PROPERTY = "avacita.mask.rewriteCacheSize";
+
+    public static final long DEFAULT_MAXIMUM_SIZE = 4096;
+
+    /**
+     * 查询形状无法作为模板改写时缓存的标记值（按引用比较），调用方改为以原始 SQL 为键改写
+     */
+    static final String NOT_TEMPLATABLE = new String("<not templatable>");
+
+    /**
+     * 查询形状无需改写（涉及的表都没有规则）时缓存的标记值（按引用比较），调用方直接执行原始 SQL
+     */
+    static final String UNCHANGED = new String("<unchanged>");
+
+    /**
+     * 改写过程，未命中时调用
+     */
+    @FunctionalInterface
+    public interface Rewriter {
+        String rewrite() throws Exception;
+    }
+
+    private final long maximumSize;
+    private final Cache<Key, String> cache;
+    private final LongAdder templateFallbacks = new LongAdder();
+    private final LongAdder prefilterSkips = new LongAdder();
+
+    public SqlRewriteCache(long maximumSize) {
+        this.maximumSize = maximumSize;
+        this.cache = maximumSize <= 0 ? null : CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    public static SqlRewriteCache fromSystemProperties() {
+        return new SqlRewriteCache(Long.getLong(SIZE_PROPERTY, DEFAULT_MAXIMUM_SIZE));
+    }
+
+    /**
+     * 取得 SQL 在该规则集当前版本下的改写结果，未命中时调用 rewriter 改写并缓存；改写失败时不缓存，异常原样抛出
+     */
+    public String get(MaskingConfigMeta policy, String schema, String sql, Rewriter rewriter) throws Exception {
+        return get(policy, schema, false, sql, sql.hashCode(), rewriter);
+    }
+
+    /**
+     * 取得查询形状在该规则集当前版本下的改写模板，未命中时调用 rewriter 改写形状并缓存
+     */
+    String get(MaskingConfigMeta policy, String schema, SqlFingerprint fingerprint, Rewriter rewriter) throws Exception {
+        return get(policy, schema, true, fingerprint.getNormalizedSql(), Long.hashCode(fingerprint.getHash()), rewriter);
+    }
+
+    private String get(MaskingConfigMeta policy, String schema, boolean template, String sql, int sqlHash, Rewriter rewriter)
+            throws Exception {
+        if (cache == null) {
+            return rewriter.rewrite();
+        }
+        // 先取版本再改写：改写期间规则发生变化时，结果只会记在旧版本下，不会被新版本命中
+        Key key = new Key(policy, policy.getVersion(), schema, template, sql, sqlHash);
+        try {
+            return cache.get(key, rewriter::rewrite);
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    void recordTemplateFallback() {
+        templateFallbacks.increment();
+    }
+
+    void recordPrefilterSkip() {
+        prefilterSkips.increment();
+    }
+
+    public void invalidateAll() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    /**
+     * 注册到平台 MBeanServer，失败（如重复注册）时只记录告警
+     */
+    public void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            LOG.warn("注册改写 SQL 缓存 MBean 失败: {}", OBJECT_NAME, e);
+        }
+    }
+
+    private CacheStats stats() {
+        return cache == null ? new CacheStats(0, 0, 0, 0, 0, 0) : cache.stats();
+    }
+
+    @Override
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    @Override
+    public long getSize() {
+        return cache == null ? 0L : cache.size();
+    }
+
+    @Override
+    public long getHits() {
+        return stats().hitCount();
+    }
+
+    @Override
+    public long getMisses() {
+        return stats().missCount();
+    }
+
+    @Override
+    public double getHitRate() {
+        return stats().hitRate();
+    }
+
+    @Override
+    public long getEvictions() {
+        return stats().evictionCount();
+    }
+
+    @Override
+    public long getTemplateFallbacks() {
+        return templateFallbacks.sum();
+    }
+
+    @Override
+    public long getPrefilterSkips() {
+        return prefilterSkips.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "SqlRewriteCache{size=" + getSize() + "/" + maximumSize + ", hits=" + getHits() + ", misses=" + getMisses()
+                + ", evictions=" + getEvictions() + ", templateFallbacks=" + getTemplateFallbacks() + ", prefilterSkips=" + getPrefilterSkips() + "}";
+    }
+
+    /**
+     * 规则集按实例区分（不同连接策略的规则集是不同实例）。
+     * 模板与原始 SQL 的 SQL 文本可能相同、哈希算法不同，以 template 区分，二者不会相等
+     */
+    private static final class Key {
+        private final MaskingConfigMeta policy;
+        private final long version;
+        private final String schema;
+        private final boolean template;
+        private final String sql;
+        private final int hash;
+
+        Key(MaskingConfigMeta policy, long version, String schema, boolean template, String sql, int sqlHash) {
+            this.policy = policy;
+            this.version = version;
+            this.schema = schema;
+            this.template = template;
+            this.sql = sql;
+            this.hash = Objects.hash(System.identityHashCode(policy), version, schema, template, sqlHash);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return policy == other.policy && version == other.version && template == other.template
+                    && Objects.equals(schema, other.schema) && sql.equals(other.sql);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
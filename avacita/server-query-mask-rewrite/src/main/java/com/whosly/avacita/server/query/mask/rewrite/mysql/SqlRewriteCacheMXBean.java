@@ -0,0 +1,47 @@
+package com.whosly.avacita.server.query.mask.rewrite.mysql;
+
+/**
+ * 改写 SQL 缓存的 JMX 视图，注册名为 {@link SqlRewriteCache#OBJECT_NAME}
+ */
+public interface SqlRewriteCacheMXBean {
+
+    /**
+     * 缓存上限（条数），&lt;= 0 表示未启用缓存
+     */
+    long getMaximumSize();
+
+    /**
+     * 当前缓存的条数
+     */
+    long getSize();
+
+    /**
+     * 命中次数（跳过 SQL 解析与改写）
+     */
+    long getHits();
+
+    /**
+     * 未命中次数（完整解析、改写并写回 SQL）
+     */
+    long getMisses();
+
+    /**
+     * 命中率
+     */
+    double getHitRate();
+
+    /**
+     * 因超出上限被淘汰的条数
+     */
+    long getEvictions();
+
+    /**
+     * 查询形状无法作为模板改写、改为按原始 SQL 改写的次数
+     */
+    long getTemplateFallbacks();
+
+    /**
+     * 经词法预过滤判断不可能引用脱敏列、未解析直接执行的次数（不计入命中与未命中）
+     */
+    long getPrefilterSkips();
+}
@@ -0,0 +1,186 @@
+package com.whosly.avacita.server.query.mask.rewrite.mysql;
+
+import com.whosly.avacita.core.mask.jdbc.FakeDatabase;
+import com.whosly.avacita.core.mask.meta.SchemaMetadataCache;
+import com.whosly.avacita.core.mask.rule.MaskingConfigMeta;
+import com.whosly.avacita.core.mask.rule.MaskingPolicies;
+import com.whosly.avacita.core.mask.rule.MaskingRuleConfig;
+import org.apache.calcite.avatica.Meta;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 改写 SQL 的 JdbcMeta 测试：后端为 {@link FakeDatabase}，断言数据库实际收到的 SQL
+ */
+public class MaskingJdbcMetaTest {
+
+    /**
+     * tel 的脱敏表达式（mask_middle 3, 4），与结果集脱敏一致：长度不足时全掩码
+     */
+    private static final String MASKED_TEL =
+            "CASE WHEN CHAR_LENGTH(tel) <= 7 THEN '******' ELSE CONCAT(LEFT(tel, 3), '******', RIGHT(tel, 4)) END";
+
+    private FakeDatabase db;
+    private MaskingJdbcMeta meta;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        db = new FakeDatabase();
+        MaskingConfigMeta policy = new MaskingConfigMeta(List.of(
+                new MaskingRuleConfig("demo", "t_emp", "tel", "mask_middle", new String[]{"3", "4"}),
+                new MaskingRuleConfig("demo", "t_emp", "salary", "round", new String[]{"1000"}),
+                new MaskingRuleConfig("demo", "t_emp", "pwd", "hash", new String[]{"hmac_sha256", "secret"})));
+        Map<String, List<String>> columns = Map.of(
+                "demo.t_emp", List.of("id", "tel"),
+                "other.t_emp", List.of("id", "tel"));
+        SchemaMetadataCache metadataCache = new SchemaMetadataCache(() -> {
+            throw new SQLException("不访问数据库");
+        }, Collections.emptyList(), Long.MAX_VALUE, Long.MAX_VALUE) {
+            @Override
+            public synchronized void start() {
+            }
+
+            @Override
+            public List<String> getColumns(String schema, String table) {
+                return columns.getOrDefault(schema + "." + table, Collections.emptyList());
+            }
+        };
+        meta = new MaskingJdbcMeta("jdbc:fake:", new Properties(), new MaskingPolicies(policy), new SqlRewriteCache(100),
+                metadataCache) {
+            @Override
+            protected Connection createConnection(String url, Properties info) {
+                return db.connect(info.getProperty("database"));
+            }
+        };
+    }
+
+    @AfterEach
+    void tearDown() {
+        meta.getMetadataCache().close();
+    }
+
+    @Test
+    void testSchemaPerConnection() throws Exception {
+        Meta.ConnectionHandle demo = open("c-demo", "demo");
+        Meta.ConnectionHandle other = open("c-other", "other");
+        assertEquals("demo", meta.getCurrentSchema(demo.id));
+        assertEquals("other", meta.getCurrentSchema(other.id));
+
+        // 后打开的连接不影响先打开的连接：other 库的 t_emp 没有规则，demo 库的有
+        String sql = "SELECT tel FROM t_emp WHERE id = 1";
+        assertEquals(sql, prepare(other, sql));
+        assertTrue(prepare(demo, sql).contains("CONCAT(LEFT(tel, 3)"), db.statements.toString());
+        assertEquals(sql, prepare(other, sql));
+
+        assertEquals("SELECT * FROM t_emp", prepare(other, "SELECT * FROM t_emp"));
+        assertTrue(prepare(demo, "SELECT * FROM t_emp").contains("t_emp.id, " + MASKED_TEL.replace("tel", "t_emp.tel")));
+
+        // USE 之后按新的库改写
+        Meta.StatementHandle sh = meta.createStatement(other);
+        meta.prepareAndExecute(sh, "USE demo", -1, -1, null);
+        assertEquals("demo", meta.getCurrentSchema(other.id));
+        assertTrue(prepare(other, sql).contains("CONCAT(LEFT(tel, 3)"));
+
+        meta.closeConnection(demo);
+        meta.closeConnection(other);
+    }
+
+    @Test
+    void testLiteralsShareTemplate() {
+        Meta.ConnectionHandle demo = open("c-demo", "demo");
+        SqlRewriteCache cache = meta.getRewriteCache();
+
+        assertEquals("SELECT " + MASKED_TEL + " FROM t_emp WHERE id = 756", prepare(demo, "SELECT tel FROM t_emp WHERE id = 756"));
+        assertEquals("SELECT " + MASKED_TEL + " FROM t_emp WHERE id = 757", prepare(demo, "SELECT tel FROM t_emp WHERE id = 757"));
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+
+        // LIMIT 10, 20 写回为 LIMIT ? OFFSET ?，字面量按原位置填回
+        String limited = prepare(demo, "SELECT tel FROM t_emp LIMIT 10, 20");
+        assertTrue(limited.endsWith("FROM t_emp LIMIT 20 OFFSET 10"), limited);
+        assertTrue(prepare(demo, "SELECT tel FROM t_emp LIMIT 30, 40").endsWith("FROM t_emp LIMIT 40 OFFSET 30"));
+        assertEquals(2, cache.getMisses());
+        meta.closeConnection(demo);
+    }
+
+    @Test
+    void testLimitParametersReordered() {
+        Meta.ConnectionHandle demo = open("c-demo", "demo");
+        SqlRewriteCache cache = meta.getRewriteCache();
+
+        // LIMIT ?, ? 写回为 LIMIT ? OFFSET ? 后按位置绑定的 offset 与 count 会对调：不作为模板，原始 SQL 改写时拒绝执行
+        int before = db.statements.size();
+        assertThrows(RuntimeException.class, () -> meta.prepare(demo, "SELECT tel FROM t_emp LIMIT ?, ?", -1));
+        assertEquals(before, db.statements.size());
+        assertEquals(1, cache.getTemplateFallbacks());
+
+        // 顺序不变的 ? 参数照常改写
+        assertEquals("SELECT " + MASKED_TEL + " FROM t_emp WHERE id = ? LIMIT ?",
+                prepare(demo, "SELECT tel FROM t_emp WHERE id = ? LIMIT ?"));
+        meta.closeConnection(demo);
+    }
+
+    @Test
+    void testStarExpansion() {
+        Meta.ConnectionHandle demo = open("c-demo", "demo");
+        // * 与 alias.* 按 FROM 中的每张表展开：有规则的表逐列展开，没有规则的表写为 alias.*
+        String masked = "e.id, " + MASKED_TEL.replace("tel", "e.tel");
+        String join = " FROM t_emp AS e INNER JOIN t_dept AS d ON e.id = d.id";
+        assertEquals("SELECT " + masked + ", d.*" + join, prepare(demo, "SELECT e.*, d.* FROM t_emp e JOIN t_dept d ON e.id = d.id"));
+        assertEquals("SELECT " + masked + ", d.*" + join, prepare(demo, "SELECT * FROM t_emp e JOIN t_dept d ON e.id = d.id"));
+        assertEquals("SELECT d.*" + join, prepare(demo, "SELECT d.* FROM t_emp e JOIN t_dept d ON e.id = d.id"));
+        assertEquals("SELECT " + masked + " FROM demo.t_emp AS e", prepare(demo, "SELECT e.* FROM demo.t_emp e"));
+        meta.closeConnection(demo);
+    }
+
+    @Test
+    void testUnqualifiedColumnsInJoin() {
+        Meta.ConnectionHandle demo = open("c-demo", "demo");
+        // 多表时不带前缀的列按各表的列信息确定所属的表：t_emp 有 tel 列，t_dept 的列信息未知也不含 tel 的规则
+        assertEquals("SELECT " + MASKED_TEL + ", name FROM t_emp AS e INNER JOIN t_dept AS d ON e.id = d.id",
+                prepare(demo, "SELECT tel, name FROM t_emp e JOIN t_dept d ON e.id = d.id"));
+        // 两张表都有 tel 列时取有规则的一张（宁可多脱敏）
+        assertEquals("SELECT " + MASKED_TEL + " FROM other.t_emp AS o INNER JOIN t_emp AS e ON o.id = e.id",
+                prepare(demo, "SELECT tel FROM other.t_emp o JOIN t_emp e ON o.id = e.id"));
+        // 子查询中的列按子查询自己的 FROM 确定
+        assertEquals("SELECT id FROM t_dept AS d WHERE d.id IN (SELECT " + MASKED_TEL + " FROM t_emp)",
+                prepare(demo, "SELECT id FROM t_dept d WHERE d.id IN (SELECT tel FROM t_emp)"));
+        meta.closeConnection(demo);
+    }
+
+    @Test
+    void testSharedMaskingExpressions() {
+        Meta.ConnectionHandle demo = open("c-demo", "demo");
+        assertEquals("SELECT ROUND(salary / 1000) * 1000 FROM t_emp", prepare(demo, "SELECT salary FROM t_emp"));
+
+        // 带密钥的 HASH 不能以 SQL 表达，本服务端不对结果集脱敏，拒绝执行
+        int before = db.statements.size();
+        assertThrows(RuntimeException.class, () -> meta.prepare(demo, "SELECT pwd FROM t_emp", -1));
+        assertEquals(before, db.statements.size());
+        meta.closeConnection(demo);
+    }
+
+    private Meta.ConnectionHandle open(String id, String database) {
+        Meta.ConnectionHandle ch = new Meta.ConnectionHandle(id);
+        meta.openConnection(ch, Map.of("database", database));
+        return ch;
+    }
+
+    /**
+     * 返回数据库收到的（改写后的）SQL
+     */
+    private String prepare(Meta.ConnectionHandle ch, String sql) {
+        meta.prepare(ch, sql, -1);
+        return db.statements.get(db.statements.size() - 1).replaceAll("\\s+", " ");
+    }
+}
@@ -0,0 +1,107 @@
+package com.whosly.avacita.server.query.mask.rewrite.mysql;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SQL 指纹测试
+ */
+public class SqlFingerprintTest {
+
+    @Test
+    void testRoundTrip() {
+        SqlFingerprint a = SqlFingerprint.of("SELECT tel FROM t_emp WHERE id = 756 AND name = 'tom' AND score > -1.5e3");
+        SqlFingerprint b = SqlFingerprint.of("SELECT tel FROM t_emp WHERE id = 757 AND name = 'o''neil' AND score > -2");
+
+        assertEquals("SELECT tel FROM t_emp WHERE id = ? AND name = ? AND score > -?", a.getNormalizedSql());
+        assertEquals(a.getNormalizedSql(), b.getNormalizedSql());
+        assertEquals(a.getHash(), b.getHash());
+        assertEquals(3, a.getLiteralCount());
+
+        String template = "SELECT MASK(tel) FROM t_emp WHERE id = ?0 AND name = ?1 AND score > -?2";
+        assertTrue(a.matches(template));
+        assertEquals("SELECT MASK(tel) FROM t_emp WHERE id = 756 AND name = 'tom' AND score > -1.5e3", a.bind(template));
+        assertEquals("SELECT MASK(tel) FROM t_emp WHERE id = 757 AND name = 'o''neil' AND score > -2", b.bind(template));
+
+        // 不同形状的哈希不同
+        assertNotEquals(a.getHash(), SqlFingerprint.of("SELECT tel FROM t_emp WHERE id = 1").getHash());
+    }
+
+    @Test
+    void testMatches() {
+        SqlFingerprint fingerprint = SqlFingerprint.of("SELECT tel FROM t_emp WHERE id = 1 AND dept = 2");
+
+        assertTrue(fingerprint.matches("SELECT tel FROM t_emp WHERE dept = ?1 AND id = ?0"));
+        // 占位符缺失、重复、越界或不带序号
+        assertFalse(fingerprint.matches("SELECT tel FROM t_emp WHERE id = ?0"));
+        assertFalse(fingerprint.matches("SELECT tel FROM t_emp WHERE id = ?0 AND dept = ?0"));
+        assertFalse(fingerprint.matches("SELECT tel FROM t_emp WHERE id = ?0 AND dept = ?2"));
+        assertFalse(fingerprint.matches("SELECT tel FROM t_emp WHERE id = ?0 AND dept = ?"));
+        // 字符串、引号标识符、注释中的 ? 不是占位符
+        assertFalse(fingerprint.matches("SELECT '?1' FROM t_emp WHERE id = ?0"));
+        assertFalse(fingerprint.matches("SELECT `?1` FROM t_emp WHERE id = ?0"));
+        assertFalse(fingerprint.matches("SELECT tel /* ?1 */ FROM t_emp WHERE id = ?0"));
+    }
+
+    @Test
+    void testLimitReordered() {
+        // LIMIT 10, 20 写回为 LIMIT ? OFFSET ?，按序号填回后 offset 与 count 不会错位
+        SqlFingerprint fingerprint = SqlFingerprint.of("SELECT tel FROM t_emp LIMIT 10, 20");
+        assertEquals("SELECT tel FROM t_emp LIMIT ?, ?", fingerprint.getNormalizedSql());
+
+        String template = "SELECT MASK(tel) FROM t_emp LIMIT ?1 OFFSET ?0";
+        assertTrue(fingerprint.matches(template));
+        assertEquals("SELECT MASK(tel) FROM t_emp LIMIT 20 OFFSET 10", fingerprint.bind(template));
+    }
+
+    @Test
+    void testBindParameters() {
+        // 原 SQL 中的 ? 参数也视为字面量，原样填回
+        SqlFingerprint fingerprint = SqlFingerprint.of("SELECT tel FROM t_emp WHERE id = ? AND dept = 3");
+        assertEquals("SELECT tel FROM t_emp WHERE id = ? AND dept = ?", fingerprint.getNormalizedSql());
+        String template = "SELECT MASK(tel) FROM t_emp WHERE id = ?0 AND dept = ?1";
+        assertTrue(fingerprint.matches(template));
+        assertEquals("SELECT MASK(tel) FROM t_emp WHERE id = ? AND dept = 3", fingerprint.bind(template));
+
+        // 客户端按位置绑定 ? 参数：LIMIT ?, ? 写为 LIMIT ? OFFSET ? 后 offset 与 count 对调，不能作为模板
+        SqlFingerprint limit = SqlFingerprint.of("SELECT tel FROM t_emp LIMIT ?, ?");
+        assertFalse(limit.matches("SELECT MASK(tel) FROM t_emp LIMIT ?1 OFFSET ?0"));
+        assertTrue(limit.matches("SELECT MASK(tel) FROM t_emp LIMIT ?0, ?1"));
+
+        // 字面量可以换位，? 参数之间的先后顺序不变即可
+        SqlFingerprint mixed = SqlFingerprint.of("SELECT tel FROM t_emp WHERE id = ? LIMIT 10, ?");
+        assertTrue(mixed.matches("SELECT MASK(tel) FROM t_emp WHERE id = ?0 LIMIT ?2 OFFSET ?1"));
+        assertEquals("SELECT MASK(tel) FROM t_emp WHERE id = ? LIMIT ? OFFSET 10",
+                mixed.bind("SELECT MASK(tel) FROM t_emp WHERE id = ?0 LIMIT ?2 OFFSET ?1"));
+    }
+
+    @Test
+    void testNumericPrefixedIdentifiers() {
+        SqlFingerprint fingerprint = SqlFingerprint.of("SELECT 1col, t1.c2 FROM 2024_orders t1 WHERE t1.id = 42");
+
+        // 以数字开头的标识符、标识符中的数字都属于形状
+        assertEquals("SELECT 1col, t1.c2 FROM 2024_orders t1 WHERE t1.id = ?", fingerprint.getNormalizedSql());
+        assertEquals(1, fingerprint.getLiteralCount());
+        assertNotEquals(fingerprint.getHash(), SqlFingerprint.of("SELECT 1col, t1.c2 FROM 2025_orders t1 WHERE t1.id = 42").getHash());
+    }
+
+    @Test
+    void testCommentsAndQuotes() {
+        String sql = "SELECT `col 1`, \"x 2\" /* limit 10 */ FROM t_emp -- id = 3\n"
+                + "# 4\nWHERE name = 'it''s \\' 5' AND flag = TRUE AND note IS NULL AND id = 6";
+        SqlFingerprint fingerprint = SqlFingerprint.of(sql);
+
+        // 注释、反引号/双引号标识符、关键字保持原样；字符串（含重复引号与反斜杠转义）整体替换
+        assertEquals("SELECT `col 1`, \"x 2\" /* limit 10 */ FROM t_emp -- id = 3\n"
+                + "# 4\nWHERE name = ? AND flag = TRUE AND note IS NULL AND id = ?", fingerprint.getNormalizedSql());
+        assertEquals(2, fingerprint.getLiteralCount());
+        assertEquals(sql, fingerprint.bind(fingerprint.getNormalizedSql().replaceFirst("\\?", "?0").replaceFirst("= \\?$", "= ?1")));
+
+        // 注释内容不同则形状不同
+        assertNotEquals(fingerprint.getHash(), SqlFingerprint.of(sql.replace("limit 10", "limit 11")).getHash());
+        // 没有字面量时原样返回
+        String noLiterals = "SELECT `1`, \"2\" FROM t_emp /* 3 */";
+        assertSame(noLiterals, SqlFingerprint.of(noLiterals).getNormalizedSql());
+    }
+}
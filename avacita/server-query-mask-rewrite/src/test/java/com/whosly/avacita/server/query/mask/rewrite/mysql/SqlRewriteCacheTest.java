@@ -0,0 +1,140 @@
+package com.whosly.avacita.server.query.mask.rewrite.mysql;
+
+import com.whosly.avacita.core.mask.rule.MaskingConfigMeta;
+import com.whosly.avacita.core.mask.rule.MaskingRuleBatch;
+import com.whosly.avacita.core.mask.rule.MaskingRuleConfig;
+import com.whosly.avacita.core.mask.rule.MaskingRuleSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 改写 SQL 缓存测试
+ */
+public class SqlRewriteCacheTest {
+
+    private static final String SQL = "SELECT tel FROM t_emp";
+
+    private SqlRewriteCache cache;
+    private AtomicInteger rewrites;
+
+    @BeforeEach
+    void setUp() {
+        cache = new SqlRewriteCache(100);
+        rewrites = new AtomicInteger();
+    }
+
+    @Test
+    void testKey() throws Exception {
+        MaskingConfigMeta policy = policy();
+        MaskingConfigMeta other = policy();
+
+        assertEquals("rewritten-1", get(policy, "demo", SQL));
+        assertEquals("rewritten-1", get(policy, "demo", SQL));
+        assertEquals(1, cache.getHits());
+
+        // 不同 schema、不同规则集实例、不同 SQL 各自改写
+        assertEquals("rewritten-2", get(policy, "other", SQL));
+        assertEquals("rewritten-3", get(other, "demo", SQL));
+        assertEquals("rewritten-4", get(policy, "demo", SQL + " WHERE id = 1"));
+        assertEquals("rewritten-5", get(policy, null, SQL));
+        assertEquals("rewritten-5", get(policy, null, SQL));
+        assertEquals(5, rewrites.get());
+    }
+
+    @Test
+    void testTemplateKeySeparate() throws Exception {
+        MaskingConfigMeta policy = policy();
+        SqlFingerprint fingerprint = SqlFingerprint.of(SQL);
+        assertEquals(SQL, fingerprint.getNormalizedSql());
+
+        // 没有字面量时模板与原始 SQL 文本相同，但缓存的值含义不同（模板 / 改写结果），各自缓存
+        assertEquals("rewritten-1", get(policy, "demo", SQL));
+        assertEquals("rewritten-2", cache.get(policy, "demo", fingerprint, () -> "rewritten-" + rewrites.incrementAndGet()));
+        assertEquals("rewritten-2", cache.get(policy, "demo", fingerprint, () -> "rewritten-" + rewrites.incrementAndGet()));
+        assertEquals("rewritten-1", get(policy, "demo", SQL));
+        assertEquals(2, cache.getSize());
+    }
+
+    @Test
+    void testRuleVersion() throws Exception {
+        ReloadableSource source = new ReloadableSource();
+        MaskingConfigMeta policy = new MaskingConfigMeta(source);
+
+        assertEquals("rewritten-1", get(policy, "demo", SQL));
+        long version = policy.getVersion();
+        source.reload();
+        assertEquals(version + 1, policy.getVersion());
+
+        // 规则变更后版本递增，旧版本的改写结果不再命中
+        assertEquals("rewritten-2", get(policy, "demo", SQL));
+        assertEquals("rewritten-2", get(policy, "demo", SQL));
+        assertEquals(2, rewrites.get());
+    }
+
+    @Test
+    void testFailedRewriteNotCached() throws Exception {
+        MaskingConfigMeta policy = policy();
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> cache.get(policy, "demo", SQL, () -> {
+                    throw new IllegalStateException("无法展开 *");
+                }));
+        assertEquals("无法展开 *", e.getMessage());
+        assertEquals(0, cache.getSize());
+
+        // 失败后再次改写，成功的结果才缓存
+        assertEquals("rewritten-1", get(policy, "demo", SQL));
+        assertEquals("rewritten-1", get(policy, "demo", SQL));
+        assertEquals(1, cache.getSize());
+    }
+
+    @Test
+    void testDisabled() throws Exception {
+        cache = new SqlRewriteCache(0);
+        MaskingConfigMeta policy = policy();
+
+        assertEquals("rewritten-1", get(policy, "demo", SQL));
+        assertEquals("rewritten-2", get(policy, "demo", SQL));
+        assertEquals(0, cache.getSize());
+    }
+
+    private String get(MaskingConfigMeta policy, String schema, String sql) throws Exception {
+        return cache.get(policy, schema, sql, () -> "rewritten-" + rewrites.incrementAndGet());
+    }
+
+    private static MaskingConfigMeta policy() {
+        return new MaskingConfigMeta(List.of(
+                new MaskingRuleConfig("demo", "t_emp", "tel", "mask_middle", new String[]{"3", "4"})));
+    }
+
+    /**
+     * 可手动触发重新加载的规则来源
+     */
+    private static final class ReloadableSource implements MaskingRuleSource {
+        private Runnable onChange;
+
+        @Override
+        public MaskingRuleBatch sync() {
+            return MaskingRuleBatch.full(List.of(
+                    new MaskingRuleConfig("demo", "t_emp", "tel", "mask_middle", new String[]{"3", "4"})));
+        }
+
+        @Override
+        public void watch(Runnable onChange) {
+            this.onChange = onChange;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        void reload() {
+            onChange.run();
+        }
+    }
+}
@@ -1,14 +1,18 @@
 package com.whosly.avacita.server.query.mask;
 
 import java.sql.SQLException;
+import java.util.Collections;
 import java.util.Properties;
 
-import com.whosly.avacita.server.query.mask.rule.MaskingConfigMeta;
+import com.whosly.avacita.core.mask.metrics.MaskingMetrics;
+import com.whosly.avacita.server.query.mask.metrics.MaskingMetricsHandler;
+import com.whosly.avacita.core.mask.metrics.MaskingMetricsSystem;
+import com.whosly.avacita.core.mask.rule.MaskingConfigMeta;
+import com.whosly.avacita.core.mask.rule.MaskingPolicies;
 import com.whosly.avacita.server.query.mask.mysql.MaskingJdbcMeta;
-import org.apache.calcite.avatica.jdbc.JdbcMeta;
-import org.apache.calcite.avatica.remote.Driver;
 import org.apache.calcite.avatica.remote.LocalService;
 import org.apache.calcite.avatica.server.*;
+import org.eclipse.jetty.server.Server;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -17,6 +21,8 @@ import org.slf4j.LoggerFactory;
  * <p>
  *
  * calcite 1.35.0, avatica 1.26.0， 使用avatica client和 avatica server, 实现rule规则， 通过配置文件(配置允许动态变更)对查询的某字段进行脱敏操作
+ * <p>
+ * 运行指标通过 JMX（{@link MaskingMetrics#OBJECT_NAME}）以及同一端口上的 GET /metrics（Prometheus 文本格式）导出。
  */
 public class AvacitaConnectQueryMaskServer {
     private static final Logger LOG = LoggerFactory.getLogger(AvacitaConnectQueryMaskServer.class);
@@ -24,8 +30,11 @@ public class AvacitaConnectQueryMaskServer {
     private static final int PORT = 5888;
 
     public static void main(String[] args) throws SQLException, ClassNotFoundException {
-        // 初始化脱敏配置（配置文件放在resources/mask/目录下）
-        MaskingConfigMeta maskingConfigMeta = new MaskingConfigMeta("mask/masking_rules.csv");
+        // 初始化脱敏配置：默认为 classpath 下的 mask/masking_rules.csv，可通过 -Davacita.mask.rules=/path/to/masking_rules.csv 指定外部文件（变更后自动热加载）
+        MaskingConfigMeta maskingConfigMeta = new MaskingConfigMeta(
+                System.getProperty(MaskingConfigMeta.RULES_PATH_PROPERTY, "mask/masking_rules.csv"));
+        // 按连接区分的脱敏策略，通过 -Davacita.mask.policyKey=role -Davacita.mask.policies=analyst=/path/analyst.csv;support=/path/support.csv 配置，未配置时所有连接使用上面的规则
+        MaskingPolicies maskingPolicies = MaskingPolicies.fromSystemProperties(maskingConfigMeta);
 
         // generateSimpleParameterMetadata=true   生成简单的参数元数据
         final String DB_URL = "jdbc:mysql://localhost:13307/demo?useUnicode=true&generateSimpleParameterMetadata=true";
@@ -39,16 +48,29 @@ public class AvacitaConnectQueryMaskServer {
         props.setProperty("user", DB_USER);
         props.setProperty("password", DB_PASSWORD);
 
+        // 脱敏可选项（并行脱敏线程数、阈值），通过 -Davacita.mask.parallelism=32 -Davacita.mask.parallelThreshold=50000 配置
+        MaskingOptions maskingOptions = MaskingOptions.fromSystemProperties();
+        LOG.info("脱敏服务可选项: {}", maskingOptions);
+
+        // 运行指标：JMX + /metrics
+        final MaskingMetrics maskingMetrics = new MaskingMetrics();
+        maskingMetrics.registerMBean();
+
         // 创建带脱敏功能的Meta实例
-        final JdbcMeta meta = new MaskingJdbcMeta(DB_URL, props, maskingConfigMeta);
+        final MaskingJdbcMeta meta = new MaskingJdbcMeta(DB_URL, props, maskingPolicies, maskingOptions, maskingMetrics);
         final LocalService service = new LocalService(meta);
 
-        final HttpServer server = new HttpServer.Builder<>()
+        // Protobuf 处理器的请求计时接入脱敏指标，用于计算序列化耗时
+        final AvaticaProtobufHandler handler = new AvaticaProtobufHandler(service, new MaskingMetricsSystem(maskingMetrics));
+
+        final HttpServer server = new HttpServer.Builder<Server>()
                 .withPort(PORT)
-                .withHandler(service, Driver.Serialization.PROTOBUF)
+                .withHandler(handler)
+                .withServerCustomizers(
+                        Collections.singletonList(MaskingMetricsHandler.customizer(maskingMetrics)), Server.class)
                 .build();
         server.start();
-        System.out.println("服务器已启动，监听端口: " + PORT);
+        System.out.println("服务器已启动，监听端口: " + PORT + "，指标: http://localhost:" + PORT + MaskingMetricsHandler.PATH);
 
         // 创建并启动守护线程，等待服务器关闭
         Thread serverThread = new Thread(() -> {
@@ -67,6 +89,8 @@ public class AvacitaConnectQueryMaskServer {
             System.out.println("接收到关闭信号，正在停止服务器...");
             try {
                 server.stop();
+                meta.shutdown();
+                maskingPolicies.shutdown();
                 System.out.println("服务器已成功关闭");
             } catch (Exception e) {
                 System.err.println("关闭服务器时出错: " + e.getMessage());
@@ -0,0 +1,66 @@
+package com.whosly.avacita.server.query.mask;
+
+import lombok.*;
+
+/**
+ * 脱敏服务的可选项
+ * <p>
+ * 大数据帧并行脱敏：一个数据帧中需要脱敏的单元格数（行数 × 需脱敏列数）达到 parallelThreshold 时，
+ * 将行按区间拆分到独立的 ForkJoinPool 中并发脱敏（就地改写，行顺序不变）；parallelism &lt;= 1 时不启用并行。
+ * <p>
+ * 可通过系统属性配置：
+ * <ul>
+ *     <li>avacita.mask.parallelism：并行脱敏线程数，默认 0（不启用）</li>
+ *     <li>avacita.mask.parallelThreshold：启用并行的最小单元格数，默认 50000</li>
+ *     <li>avacita.mask.memoize：是否对低基数列启用帧内记忆化，默认 true（命中率低的列会自动关闭）</li>
+ * </ul>
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+@Builder
+public class MaskingOptions {
+
+    public static final String PARALLELISM_PROPERTY = "avacita.mask.parallelism";
+    public static final String PARALLEL_THRESHOLD_PROPERTY = "avacita.mask.parallelThreshold";
+    public static final String MEMOIZE_PROPERTY = "avacita.mask.memoize";
+
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 50_000;
+
+    /**
+     * 并行脱敏的线程数，&lt;= 1 表示不启用并行
+     */
+    @Builder.Default
+    private int parallelism = 0;
+
+    /**
+     * 启用并行的最小单元格数（行数 × 需脱敏列数）
+     */
+    @Builder.Default
+    private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+
+    /**
+     * 是否对低基数列启用帧内记忆化（同一帧内相同的值只脱敏一次）
+     */
+    @Builder.Default
+    private boolean memoize = true;
+
+    public boolean isParallelEnabled() {
+        return parallelism > 1;
+    }
+
+    public static MaskingOptions defaults() {
+        return MaskingOptions.builder().build();
+    }
+
+    /**
+     * 从系统属性读取，未配置的项使用默认值
+     */
+    public static MaskingOptions fromSystemProperties() {
+        return MaskingOptions.builder()
+                .parallelism(Integer.getInteger(PARALLELISM_PROPERTY, 0))
+                .parallelThreshold(Integer.getInteger(PARALLEL_THRESHOLD_PROPERTY, DEFAULT_PARALLEL_THRESHOLD))
+                .memoize(Boolean.parseBoolean(System.getProperty(MEMOIZE_PROPERTY, "true")))
+                .build();
+    }
+}
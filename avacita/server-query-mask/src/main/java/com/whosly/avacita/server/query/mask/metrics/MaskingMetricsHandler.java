@@ -0,0 +1,134 @@
+package com.whosly.avacita.server.query.mask.metrics;
+
+import com.whosly.avacita.core.mask.metrics.Histogram;
+import com.whosly.avacita.core.mask.metrics.MaskingMetrics;
+import com.whosly.avacita.core.mask.rule.MaskingRuleType;
+import org.apache.calcite.avatica.server.ServerCustomizer;
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.server.handler.HandlerList;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * 以 Prometheus 文本格式（text/plain; version=0.0.4）在 GET /metrics 上导出 {@link MaskingMetrics}。
+ * <p>
+ * 通过 {@link #customizer(MaskingMetrics)} 挂到 Avatica HttpServer 的处理器链最前面，
+ * 其他路径不处理，交给后面的 Avatica 处理器。
+ */
+public class MaskingMetricsHandler extends AbstractHandler {
+
+    public static final String PATH = "/metrics";
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final MaskingMetrics maskingMetrics;
+
+    public MaskingMetricsHandler(MaskingMetrics maskingMetrics) {
+        this.maskingMetrics = maskingMetrics;
+    }
+
+    /**
+     * 供 {@code HttpServer.Builder#withServerCustomizers} 使用：将本处理器插到已配置好的 Avatica 处理器之前
+     */
+    public static ServerCustomizer<Server> customizer(MaskingMetrics maskingMetrics) {
+        return server -> {
+            Handler avaticaHandler = server.getHandler();
+            server.setHandler(new HandlerList(new MaskingMetricsHandler(maskingMetrics), avaticaHandler));
+        };
+    }
+
+    @Override
+    public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        if (!PATH.equals(target) || !"GET".equals(request.getMethod())) {
+            return;
+        }
+
+        byte[] body = format(maskingMetrics).getBytes(StandardCharsets.UTF_8);
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(CONTENT_TYPE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+        baseRequest.setHandled(true);
+    }
+
+    /**
+     * 按 Prometheus 文本格式输出全部指标
+     */
+    public static String format(MaskingMetrics metrics) {
+        StringBuilder out = new StringBuilder(4096);
+
+        header(out, "avacita_mask_masked_cells_total", "counter", "Cells masked, by masking rule type.");
+        for (MaskingRuleType ruleType : MaskingRuleType.values()) {
+            sample(out, "avacita_mask_masked_cells_total", "rule_type", ruleType.name().toLowerCase(Locale.ROOT),
+                    metrics.getMaskedCells(ruleType));
+        }
+
+        header(out, "avacita_mask_frames_total", "counter", "Frames processed, masked or passed through unchanged.");
+        sample(out, "avacita_mask_frames_total", "result", "masked", metrics.getMaskedFrames());
+        sample(out, "avacita_mask_frames_total", "result", "passthrough", metrics.getPassthroughFrames());
+
+        header(out, "avacita_mask_frame_rows", "histogram", "Rows per frame.");
+        histogram(out, "avacita_mask_frame_rows", null, null, metrics.getFrameRows(), 0);
+
+        header(out, "avacita_mask_phase_seconds", "histogram",
+                "Latency of each request phase: compile, execute, mask, serialize and the whole request.");
+        for (MaskingMetrics.Phase phase : MaskingMetrics.Phase.values()) {
+            histogram(out, "avacita_mask_phase_seconds", "phase", phase.label(), metrics.getPhaseLatency(phase), 9);
+        }
+
+        header(out, "avacita_mask_plan_cache_total", "counter", "Masking plan cache lookups, by statement on fetch and by result columns on execute.");
+        sample(out, "avacita_mask_plan_cache_total", "result", "hit", metrics.getPlanCacheHits());
+        sample(out, "avacita_mask_plan_cache_total", "result", "miss", metrics.getPlanCacheMisses());
+
+        header(out, "avacita_mask_memo_total", "counter", "Per-frame memoization lookups.");
+        sample(out, "avacita_mask_memo_total", "result", "hit", metrics.getMemoHits());
+        sample(out, "avacita_mask_memo_total", "result", "miss", metrics.getMemoMisses());
+
+        return out.toString();
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String label, String labelValue, long value) {
+        out.append(name).append('{').append(label).append("=\"").append(labelValue).append("\"} ")
+                .append(value).append('\n');
+    }
+
+    /**
+     * 输出 _bucket / _sum / _count；scale 为记录值到导出单位的小数位数（纳秒到秒为 9）
+     */
+    private static void histogram(StringBuilder out, String name, String label, String labelValue,
+                                  Histogram histogram, int scale) {
+        String labels = label == null ? "" : label + "=\"" + labelValue + "\",";
+        long[] bounds = histogram.getBounds();
+        long[] counts = histogram.cumulativeCounts();
+        for (int i = 0; i < bounds.length; i++) {
+            out.append(name).append("_bucket{").append(labels).append("le=\"")
+                    .append(scaled(bounds[i], scale)).append("\"} ").append(counts[i]).append('\n');
+        }
+        out.append(name).append("_bucket{").append(labels).append("le=\"+Inf\"} ")
+                .append(counts[counts.length - 1]).append('\n');
+
+        String sampleLabels = label == null ? "" : "{" + label + "=\"" + labelValue + "\"}";
+        out.append(name).append("_sum").append(sampleLabels).append(' ')
+                .append(scaled(histogram.getSum(), scale)).append('\n');
+        out.append(name).append("_count").append(sampleLabels).append(' ')
+                .append(counts[counts.length - 1]).append('\n');
+    }
+
+    private static String scaled(long value, int scale) {
+        return BigDecimal.valueOf(value, scale).stripTrailingZeros().toPlainString();
+    }
+}
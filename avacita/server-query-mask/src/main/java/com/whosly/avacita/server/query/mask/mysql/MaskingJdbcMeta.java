@@ -1,13 +1,19 @@
 package com.whosly.avacita.server.query.mask.mysql;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.whosly.avacita.server.query.mask.MaskingOptions;
 import com.whosly.avacita.server.query.mask.ResultSetMeta;
-import com.whosly.avacita.server.query.mask.rule.MaskingConfigMeta;
-import com.whosly.avacita.server.query.mask.rule.MaskingRuleConfig;
-import com.whosly.avacita.server.query.mask.util.ValueMaskingStrategy;
+import com.whosly.avacita.core.mask.metrics.MaskingMetrics;
+import com.whosly.avacita.core.mask.rule.MaskingConfigMeta;
+import com.whosly.avacita.core.mask.rule.MaskingPlan;
+import com.whosly.avacita.core.mask.rule.MaskingPolicies;
+import com.whosly.avacita.core.mask.rule.MaskingRuleChange;
 import com.whosly.calcite.schema.Schemas;
 import com.whosly.com.whosly.calcite.schema.mysql.MysqlSchemaLoader;
 import org.apache.calcite.avatica.*;
 import org.apache.calcite.avatica.jdbc.JdbcMeta;
+import org.apache.calcite.avatica.remote.TypedValue;
 import org.apache.calcite.config.Lex;
 import org.apache.calcite.jdbc.CalciteConnection;
 import org.apache.calcite.rel.type.RelDataType;
@@ -20,7 +26,6 @@ import org.apache.calcite.sql.parser.SqlParser;
 import org.apache.calcite.sql.type.SqlTypeName;
 import org.apache.calcite.sql.validate.SqlConformanceEnum;
 import org.apache.calcite.tools.Frameworks;
-import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -28,6 +33,8 @@ import java.sql.*;
 import java.util.*;
 import java.util.stream.Collectors;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.Map;
 
 /**
@@ -36,11 +43,38 @@ import java.util.Map;
  *
  * 2. 在 fetch 中：拦截后续的数据帧，并对它们进行脱敏处理。
  * 后续通过 fetch 方法分批获取的数据帧（Frame），如果没有在 fetch 里做脱敏处理，这些数据就不会被脱敏。
+ *
+ * 3. 每个语句的 Signature 首次出现时（PreparedStatement 为 prepare 时）编译为 {@link MaskingPlan} 并按 statementId 缓存，
+ * 之后 execute 与 fetch 的每个数据帧只按列下标执行预先编译好的脱敏器，不再逐行查找规则。
+ * 编译结果同时以 (规则集, 规则版本, 结果集列) 为键缓存，同一 SQL 的再次执行直接复用已编译的计划；规则变更后版本递增，旧计划不再命中。
+ * 没有任何列需要脱敏的语句，数据帧原样透传，不做拷贝。
+ *
+ * 4. 启用并行脱敏（{@link MaskingOptions#isParallelEnabled()}）时，需要脱敏的单元格数超过阈值的大数据帧，
+ * 在独立的 ForkJoinPool 中按行区间并发脱敏，避免大 fetchSize 的请求长时间占用单个 Jetty 请求线程。
+ *
+ * 5. 各阶段（编译脱敏计划、后端执行、脱敏）的耗时、数据帧行数、脱敏计划缓存命中等记录到 {@link MaskingMetrics}。
+ *
+ * 6. 不同用户/角色/租户可使用不同的规则集（{@link MaskingPolicies}）：openConnection 时按连接属性解析一次并按连接缓存，
+ * 该连接上的语句用解析出的规则集编译脱敏计划，之后逐帧脱敏与单一规则集时完全相同。
+ *
+ * 7. 编译脱敏计划时每张表先经表级过滤器（{@link MaskingConfigMeta#hasTableRules}）判断，没有规则的表不再逐列查找；
+ * 不涉及脱敏表的语句只在首次出现时付出一次过滤器判断，之后按缓存的透传计划原样返回数据帧。
  */
 public class MaskingJdbcMeta extends JdbcMeta {
     private static final Logger LOG = LoggerFactory.getLogger(MaskingJdbcMeta.class);
 
-    private final MaskingConfigMeta maskingConfigMeta;
+    /**
+     * 按结果集列缓存的脱敏计划条数上限
+     */
+    private static final long MAX_COMPILED_PLANS = 1024;
+
+    private final MaskingPolicies maskingPolicies;
+    private final MaskingOptions maskingOptions;
+    private final MaskingMetrics maskingMetrics;
+    /**
+     * 并行脱敏线程池，未启用并行时为 null
+     */
+    private final ForkJoinPool maskingPool;
     private SqlParser.Config parserConfig;
     private ResultSetMeta currentResultSetMeta;
 
@@ -49,15 +83,53 @@ public class MaskingJdbcMeta extends JdbcMeta {
      */
     private final SchemaPlus rootSchema = Frameworks.createRootSchema(true);
 
-    // 用于缓存 statementId -> signature
-    private final Map<String, Signature> signatureCache = new ConcurrentHashMap<>();
+    // 用于缓存 statementId -> 脱敏计划
+    private final Map<String, MaskingPlan> maskingPlanCache = new ConcurrentHashMap<>();
+
+    // (规则集, 规则版本, 结果集列) -> 脱敏计划，同一 SQL 的各次执行共用
+    private final Cache<PlanKey, MaskingPlan> compiledPlans = CacheBuilder.newBuilder()
+            .maximumSize(MAX_COMPILED_PLANS)
+            .build();
+
+    // connectionId -> 该连接的脱敏规则集，openConnection 时解析
+    private final Map<String, MaskingConfigMeta> connectionPolicies = new ConcurrentHashMap<>();
 
     public MaskingJdbcMeta(String url, Properties info, MaskingConfigMeta maskingConfigMeta) throws SQLException {
+        this(url, info, maskingConfigMeta, MaskingOptions.defaults());
+    }
+
+    public MaskingJdbcMeta(String url, Properties info, MaskingConfigMeta maskingConfigMeta,
+                           MaskingOptions maskingOptions) throws SQLException {
+        this(url, info, maskingConfigMeta, maskingOptions, new MaskingMetrics());
+    }
+
+    public MaskingJdbcMeta(String url, Properties info, MaskingConfigMeta maskingConfigMeta,
+                           MaskingOptions maskingOptions, MaskingMetrics maskingMetrics) throws SQLException {
+        this(url, info, new MaskingPolicies(maskingConfigMeta), maskingOptions, maskingMetrics);
+    }
+
+    public MaskingJdbcMeta(String url, Properties info, MaskingPolicies maskingPolicies,
+                           MaskingOptions maskingOptions, MaskingMetrics maskingMetrics) throws SQLException {
         super(url, info);
-        this.maskingConfigMeta = maskingConfigMeta;
+        this.maskingPolicies = maskingPolicies;
+        this.maskingOptions = maskingOptions;
+        this.maskingMetrics = maskingMetrics;
+        this.maskingPool = maskingOptions.isParallelEnabled() ? createMaskingPool(maskingOptions.getParallelism()) : null;
+        for (MaskingConfigMeta policy : maskingPolicies.all()) {
+            policy.addRuleListener(change -> onRulesChanged(policy, change));
+        }
         init();
     }
 
+    private static ForkJoinPool createMaskingPool(int parallelism) {
+        return new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("avacita-masking-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
     private void init() {
         // 创建支持 MySQL 语法的解析器配置
         this.parserConfig = SqlParser.configBuilder()
@@ -70,6 +142,7 @@ public class MaskingJdbcMeta extends JdbcMeta {
     @Override
     public void openConnection(ConnectionHandle ch, java.util.Map<String, String> properties) {
         super.openConnection(ch, properties);
+        connectionPolicies.put(ch.id, maskingPolicies.resolve(properties));
 
         try {
             Connection connection = Schemas.getConnection();
@@ -105,6 +178,15 @@ public class MaskingJdbcMeta extends JdbcMeta {
     @Override
     public void closeConnection(Meta.ConnectionHandle ch) {
         super.closeConnection(ch);
+        connectionPolicies.remove(ch.id);
+    }
+
+    /**
+     * 连接的脱敏规则集，连接未经 openConnection 时使用默认策略
+     */
+    private MaskingConfigMeta policyOf(String connectionId) {
+        MaskingConfigMeta policy = connectionPolicies.get(connectionId);
+        return policy != null ? policy : maskingPolicies.getDefaultPolicy();
     }
 
     // ====================== SQL 执行 ======================
@@ -112,23 +194,47 @@ public class MaskingJdbcMeta extends JdbcMeta {
     public Meta.StatementHandle prepare(ConnectionHandle ch, String sql, long maxRowCount) {
         LOG.info("服务端 prepare 被调用: {}", sql);
 
-        // 如果客户端用 prepare + execute 分步调用，可能只在 execute 时才走重写
-        // 另外， 如果 prepare 阶段返回了 signature，execute 阶段只用 signature id，不再传 SQL，你需要在 prepare 时就完成 SQL 重写，并缓存重写后的 SQL 与 signature 的映射。
-        return super.prepare(ch, sql, maxRowCount);
+        Meta.StatementHandle h = super.prepare(ch, sql, maxRowCount);
+        // 预编译语句的列元数据已知时即编译脱敏计划，execute/fetch 直接复用；否则在首次 execute 时按结果集的 Signature 编译
+        if (h.signature != null && h.signature.columns != null && !h.signature.columns.isEmpty()) {
+            maskingPlanCache.put(String.valueOf(h.id), planFor(h.signature, policyOf(ch.id)));
+        }
+        return h;
+    }
+
+    @Override
+    public ExecuteResult execute(StatementHandle h, List<TypedValue> parameterValues, int maxRowsInFirstFrame)
+            throws NoSuchStatementException {
+        LOG.debug("服务端 execute 被调用: sh={}", h);
+
+        long start = System.nanoTime();
+        final ExecuteResult result = super.execute(h, parameterValues, maxRowsInFirstFrame);
+        maskingMetrics.recordPhase(MaskingMetrics.Phase.EXECUTE, start);
+        if (result.resultSets == null) {
+            return result;
+        }
+
+        // 对首个数据帧应用 prepare 时编译的脱敏计划
+        final List<MetaResultSet> maskedResultSets = result.resultSets.stream()
+                .map(this::maskResultSet)
+                .collect(Collectors.toList());
+        return new ExecuteResult(maskedResultSets);
     }
 
     @Override
     public ExecuteResult prepareAndExecute(StatementHandle sh, String sql, long maxRowCount,
                                            int maxRowsInFirstFrame, PrepareCallback callback) throws NoSuchStatementException {
-        LOG.info("服务端 prepareAndExecute 被调用");
+        LOG.debug("服务端 prepareAndExecute 被调用");
 
+        long start = System.nanoTime();
         final ExecuteResult result = super.prepareAndExecute(sh, sql, maxRowCount, maxRowsInFirstFrame, callback);
+        maskingMetrics.recordPhase(MaskingMetrics.Phase.EXECUTE, start);
 
-        // 缓存 signature，便于 fetch 时使用
+        // 编译并缓存脱敏计划，便于 fetch 时使用
         if (result.resultSets != null && !result.resultSets.isEmpty()) {
             MetaResultSet mrs = result.resultSets.get(0);
             if (mrs.signature != null) {
-                signatureCache.put(String.valueOf(sh.id), mrs.signature);
+                maskingPlanCache.put(String.valueOf(sh.id), planFor(mrs.signature, policyOf(sh.connectionId)));
             }
         }
 
@@ -142,16 +248,20 @@ public class MaskingJdbcMeta extends JdbcMeta {
     @Override
     public Frame fetch(StatementHandle sh, long offset, int fetchMaxRowCount)
             throws NoSuchStatementException, MissingResultsException {
-        LOG.info("fetch called: sh={}, offset={}, fetchMaxRowCount={}", sh, offset, fetchMaxRowCount);
+        LOG.debug("fetch called: sh={}, offset={}, fetchMaxRowCount={}", sh, offset, fetchMaxRowCount);
 
+        long start = System.nanoTime();
         Frame originalFrame = super.fetch(sh, offset, fetchMaxRowCount);
+        maskingMetrics.recordPhase(MaskingMetrics.Phase.EXECUTE, start);
 
-        Signature signature = sh.signature;
-        if (signature == null) {
-            signature = signatureCache.get(String.valueOf(sh.id));
+        MaskingPlan plan = maskingPlanCache.get(String.valueOf(sh.id));
+        if (plan != null) {
+            maskingMetrics.recordPlanCache(true);
+        } else if (sh.signature != null) {
+            plan = maskingPlanCache.computeIfAbsent(String.valueOf(sh.id), k -> planFor(sh.signature, policyOf(sh.connectionId)));
         }
-        if (signature != null) {
-            return desensitizeFrame(originalFrame, signature);
+        if (plan != null) {
+            return desensitizeFrame(originalFrame, plan);
         }
         return originalFrame;
     }
@@ -165,8 +275,14 @@ public class MaskingJdbcMeta extends JdbcMeta {
             return resultSet;
         }
 
-        // 对 firstFrame 进行脱敏
-        Frame maskedFrame = desensitizeFrame(resultSet.firstFrame, resultSet.signature);
+        // 对 firstFrame 进行脱敏，计划未缓存（预编译时列元数据未知）时编译并缓存，便于 fetch 时使用
+        MaskingPlan plan = maskingPlanCache.computeIfAbsent(String.valueOf(resultSet.statementId),
+                k -> planFor(resultSet.signature, policyOf(resultSet.connectionId)));
+        Frame maskedFrame = desensitizeFrame(resultSet.firstFrame, plan);
+        // 没有任何列需要脱敏，原样透传
+        if (plan.isPassthrough()) {
+            return resultSet;
+        }
 
         // 使用脱敏后的 Frame 创建新的 MetaResultSet
         return MetaResultSet.create(
@@ -180,53 +296,60 @@ public class MaskingJdbcMeta extends JdbcMeta {
     }
 
     /**
-     * 对数据帧（Frame）中的行数据进行脱敏处理
+     * 按结果集列与规则版本查找已编译的脱敏计划，未命中时编译
      */
-    private Frame desensitizeFrame(Frame originalFrame, Signature signature) {
-        if (originalFrame.rows == null) {
-            return originalFrame;
+    private MaskingPlan planFor(Signature signature, MaskingConfigMeta policy) {
+        PlanKey key = new PlanKey(policy, policy.getVersion(), signature.columns);
+        MaskingPlan plan = compiledPlans.getIfPresent(key);
+        if (plan != null) {
+            maskingMetrics.recordPlanCache(true);
+            return plan;
         }
-        return desensitizeFrame(originalFrame, signature.columns);
+        plan = compilePlan(signature, policy);
+        compiledPlans.put(key, plan);
+        return plan;
     }
 
-    private Frame desensitizeFrame(Frame originalFrame, List<ColumnMetaData> columns) {
-        List<Object> maskedRows = new ArrayList<>();
-
-        for (Object row : originalFrame.rows) {
-            Object[] dataRow = (Object[]) row;
-            Object[] maskedRow = new Object[dataRow.length];
-
-            for (int i = 0; i < dataRow.length; i++) {
-                ColumnMetaData column = columns.get(i);
-                // 根据列元数据和规则应用脱敏
-                maskedRow[i] = applyMask(
-                        dataRow[i],
-                        StringUtils.defaultIfEmpty(column.schemaName, column.catalogName),
-                        column.tableName,
-                        column.columnName
-                );
-            }
-            maskedRows.add(maskedRow);
-        }
+    /**
+     * 根据 Signature 的列元数据，按连接的规则集编译脱敏计划（脱敏计划缓存未命中）
+     */
+    private MaskingPlan compilePlan(Signature signature, MaskingConfigMeta policy) {
+        long start = System.nanoTime();
+        MaskingPlan plan = MaskingPlan.compile(signature.columns, policy, maskingOptions.isMemoize(), maskingMetrics);
+        maskingMetrics.recordPhase(MaskingMetrics.Phase.COMPILE, start);
+        maskingMetrics.recordPlanCache(false);
+        return plan;
+    }
 
-        return new Frame(originalFrame.offset, originalFrame.done, maskedRows);
+    /**
+     * 规则变更时，只重新编译由该规则集编译、且结果集涉及变更表的脱敏计划。
+     * fetch 请求不携带 Signature，计划不能直接移除，否则后续数据帧将无法脱敏
+     */
+    private void onRulesChanged(MaskingConfigMeta policy, MaskingRuleChange change) {
+        compiledPlans.asMap().keySet().removeIf(key -> key.policy == policy && key.version != policy.getVersion());
+        maskingPlanCache.replaceAll((statementId, plan) -> plan.getMaskingConfigMeta() == policy && plan.dependsOn(change)
+                ? MaskingPlan.compile(plan.getColumns(), policy, maskingOptions.isMemoize(), maskingMetrics)
+                : plan);
     }
 
     /**
-     * 根据规则应用脱敏策略
+     * 对数据帧（Frame）中的行数据进行脱敏处理，无需脱敏的帧原样返回，否则就地改写需要脱敏的列
      */
-    private Object applyMask(Object value, String schema, String table, String column) {
-        if (value == null) {
-            return null;
+    private Frame desensitizeFrame(Frame originalFrame, MaskingPlan plan) {
+        if (originalFrame.rows == null) {
+            return originalFrame;
         }
-
-        MaskingRuleConfig columnRule = maskingConfigMeta.getMatchingRule(schema, table, column);
-
-        if (columnRule == null) {
-            return value;
+        int rowCount = originalFrame.rows instanceof Collection ? ((Collection<?>) originalFrame.rows).size() : 0;
+        if (plan.isPassthrough()) {
+            maskingMetrics.recordFrame(rowCount, true);
+            return originalFrame;
         }
 
-        return ValueMaskingStrategy.mask(value, columnRule);
+        long start = System.nanoTime();
+        Frame maskedFrame = plan.apply(originalFrame, maskingPool, maskingOptions.getParallelThreshold());
+        maskingMetrics.recordPhase(MaskingMetrics.Phase.MASK, start);
+        maskingMetrics.recordFrame(rowCount, false);
+        return maskedFrame;
     }
 
     // ====================== SQL 改写逻辑 ======================
@@ -242,15 +365,57 @@ public class MaskingJdbcMeta extends JdbcMeta {
         String rewriteSql = "/*+ A */ " + sql;
 
         LOG.debug("改写后 SQL: {}", rewriteSql);
-        System.out.println("[MaskingJdbcMeta] \noriginalSql SQL:" + sql + "\nModified SQL: " + rewriteSql);
 
         return rewriteSql;
     }
 
     @Override
     public void closeStatement(StatementHandle sh) {
-        // 每当 Avatica Server 关闭一个 Statement 时，都会移除对应的 signature 缓存。 Statement 生命周期和 signature 是一一对应的。
+        // 每当 Avatica Server 关闭一个 Statement 时，都会移除对应的脱敏计划缓存。 Statement 生命周期和 signature 是一一对应的。
         super.closeStatement(sh);
-        signatureCache.remove(String.valueOf(sh.id));
+        maskingPlanCache.remove(String.valueOf(sh.id));
+    }
+
+    /**
+     * 关闭并行脱敏线程池
+     */
+    public void shutdown() {
+        if (maskingPool != null) {
+            maskingPool.shutdown();
+        }
+    }
+
+    /**
+     * 规则集按实例区分（不同连接策略的规则集是不同实例）
+     */
+    private static final class PlanKey {
+        private final MaskingConfigMeta policy;
+        private final long version;
+        private final List<ColumnMetaData> columns;
+        private final int hash;
+
+        PlanKey(MaskingConfigMeta policy, long version, List<ColumnMetaData> columns) {
+            this.policy = policy;
+            this.version = version;
+            this.columns = columns;
+            this.hash = Objects.hash(System.identityHashCode(policy), version, columns);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof PlanKey)) {
+                return false;
+            }
+            PlanKey other = (PlanKey) o;
+            return policy == other.policy && version == other.version && columns.equals(other.columns);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
     }
 }
@@ -1,6 +1,17 @@
 package com.whosly.avacita.server.query.mask.rule;
 
+import com.whosly.avacita.core.mask.rule.MaskingConfigMeta;
+import com.whosly.avacita.core.mask.rule.MaskingRuleConfig;
+import com.whosly.avacita.core.mask.util.ValueMasker;
+import com.whosly.avacita.core.mask.util.ValueMaskingStrategy;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
 import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
 import java.sql.Array;
 import java.sql.Blob;
 import java.sql.Clob;
@@ -9,7 +20,9 @@ import java.sql.Ref;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.RowId;
+import java.sql.SQLDataException;
 import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
 import java.sql.SQLWarning;
 import java.sql.SQLXML;
 import java.sql.Statement;
@@ -17,161 +30,321 @@ import java.util.Calendar;
 import java.util.Map;
 import java.util.function.Function;
 
+/**
+ * 对普通 JDBC 结果集做脱敏的包装。
+ * <p>
+ * 包装时按列位置一次性解析出各列的脱敏函数（下标为 columnIndex - 1，不脱敏的列为 null），
+ * 逐值读取时只做一次数组访问，不再按列名查找；不同表的同名列也各自使用自己的规则。
+ * 脱敏列的所有取值方法都经过脱敏函数：字符串与字符流按脱敏后的文本返回，数值、日期等类型由脱敏后的值转换，
+ * 无法转换（如脱敏后的掩码按 getInt 读取）或无法脱敏（二进制值、Clob/NClob/Blob 等）时抛出异常，不会返回原值。
+ */
 public class MaskingResultSet implements ResultSet {
     private final ResultSet delegate;
     private final ResultSetMetaData metaData;
-    private final Map<String, Function<Object, Object>> maskingFunctions;
+    private final Function<Object, Object>[] maskingFunctions;
 
+    /**
+     * @param maskingFunctions 按列位置的脱敏函数，下标为 columnIndex - 1，不脱敏的列为 null；长度可小于列数
+     */
+    public MaskingResultSet(ResultSet delegate, Function<Object, Object>[] maskingFunctions) throws SQLException {
+        this.delegate = delegate;
+        this.metaData = new MaskingResultSetMetaData(delegate.getMetaData());
+        this.maskingFunctions = maskingFunctions;
+    }
+
+    /**
+     * 按列名指定脱敏函数，包装时即解析为按列位置的数组；同名列使用同一个函数
+     */
     public MaskingResultSet(
             ResultSet delegate,
             ResultSetMetaData metaData,
             Map<String, Function<Object, Object>> maskingFunctions
     ) throws SQLException {
         this.delegate = delegate;
-        this.metaData = new MaskingResultSetMetaData(metaData, maskingFunctions);
-        this.maskingFunctions = maskingFunctions;
+        this.metaData = new MaskingResultSetMetaData(metaData);
+        this.maskingFunctions = newFunctions(metaData.getColumnCount());
+        for (int i = 0; i < this.maskingFunctions.length; i++) {
+            this.maskingFunctions[i] = maskingFunctions.get(metaData.getColumnName(i + 1));
+        }
+    }
+
+    /**
+     * 按脱敏规则包装结果集：以各列的 schema/table/column 匹配规则并编译为脱敏函数
+     */
+    public static MaskingResultSet wrap(ResultSet delegate, MaskingConfigMeta maskingConfigMeta) throws SQLException {
+        ResultSetMetaData metaData = delegate.getMetaData();
+        Function<Object, Object>[] functions = newFunctions(metaData.getColumnCount());
+        for (int i = 0; i < functions.length; i++) {
+            String schema = StringUtils.defaultIfEmpty(metaData.getSchemaName(i + 1), metaData.getCatalogName(i + 1));
+            String table = metaData.getTableName(i + 1);
+            if (!maskingConfigMeta.hasTableRules(schema, table)) {
+                continue;
+            }
+            MaskingRuleConfig rule = maskingConfigMeta.getMatchingRule(schema, table, metaData.getColumnName(i + 1));
+            ValueMasker masker = ValueMaskingStrategy.compile(rule);
+            if (masker != null) {
+                functions[i] = masker::mask;
+            }
+        }
+        return new MaskingResultSet(delegate, functions);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object>[] newFunctions(int columnCount) {
+        return (Function<Object, Object>[]) new Function[columnCount];
     }
 
     // 数据获取方法 - 应用脱敏逻辑
     @Override
     public Object getObject(int columnIndex) throws SQLException {
+        Function<Object, Object> function = maskingFunction(columnIndex);
         Object value = delegate.getObject(columnIndex);
-        String columnName = metaData.getColumnName(columnIndex);
-        return applyMasking(value, columnName);
+        return function == null || value == null ? value : function.apply(value);
     }
 
     @Override
     public String getString(int columnIndex) throws SQLException {
-        String value = delegate.getString(columnIndex);
-        String columnName = metaData.getColumnName(columnIndex);
-        return (String) applyMasking(value, columnName);
+        Function<Object, Object> function = maskingFunction(columnIndex);
+        if (function == null) {
+            return delegate.getString(columnIndex);
+        }
+        // 按原值脱敏，数值列（如 ROUND）按字符串读取时同样取整
+        return maskedValue(columnIndex, function, String.class);
     }
 
     @Override
     public boolean getBoolean(int columnIndex) throws SQLException {
-        return delegate.getBoolean(columnIndex); // 通常不脱敏布尔值
+        Function<Object, Object> function = maskingFunction(columnIndex);
+        if (function == null) {
+            return delegate.getBoolean(columnIndex);
+        }
+        Boolean value = maskedValue(columnIndex, function, Boolean.class);
+        return value == null ? false : value;
     }
 
     @Override
     public byte getByte(int columnIndex) throws SQLException {
-        return delegate.getByte(columnIndex);
+        Function<Object, Object> function = maskingFunction(columnIndex);
+        if (function == null) {
+            return delegate.getByte(columnIndex);
+        }
+        Byte value = maskedValue(columnIndex, function, Byte.class);
+        return value == null ? 0 : value;
     }
 
     @Override
     public short getShort(int columnIndex) throws SQLException {
-        return delegate.getShort(columnIndex);
+        Function<Object, Object> function = maskingFunction(columnIndex);
+        if (function == null) {
+            return delegate.getShort(columnIndex);
+        }
+        Short value = maskedValue(columnIndex, function, Short.class);
+        return value == null ? 0 : value;
     }
 
     @Override
     public int getInt(int columnIndex) throws SQLException {
-        return delegate.getInt(columnIndex);
+        Function<Object, Object> function = maskingFunction(columnIndex);
+        if (function == null) {
+            return delegate.getInt(columnIndex);
+        }
+        Integer value = maskedValue(columnIndex, function, Integer.class);
+        return value == null ? 0 : value;
     }
 
     @Override
     public long getLong(int columnIndex) throws SQLException {
-        return delegate.getLong(columnIndex);
+        Function<Object, Object> function = maskingFunction(columnIndex);
+        if (function == null) {
+            return delegate.getLong(columnIndex);
+        }
+        Long value = maskedValue(columnIndex, function, Long.class);
+        return value == null ? 0L : value;
     }
 
     @Override
     public float getFloat(int columnIndex) throws SQLException {
-        return delegate.getFloat(columnIndex);
+        Function<Object, Object> function = maskingFunction(columnIndex);
+        if (function == null) {
+            return delegate.getFloat(columnIndex);
+        }
+        Float value = maskedValue(columnIndex, function, Float.class);
+        return value == null ? 0f : value;
     }
 
     @Override
     public double getDouble(int columnIndex) throws SQLException {
-        return delegate.getDouble(columnIndex);
+        Function<Object, Object> function = maskingFunction(columnIndex);
+        if (function == null) {
+            return delegate.getDouble(columnIndex);
+        }
+        Double value = maskedValue(columnIndex, function, Double.class);
+        return value == null ? 0d : value;
     }
 
     @Override
     public byte[] getBytes(int columnIndex) throws SQLException {
-        return delegate.getBytes(columnIndex);
+        Function<Object, Object> function = maskingFunction(columnIndex);
+        if (function == null) {
+            return delegate.getBytes(columnIndex);
+        }
+        return maskedValue(columnIndex, function, byte[].class);
     }
 
     @Override
     public java.sql.Date getDate(int columnIndex) throws SQLException {
-        return delegate.getDate(columnIndex);
+        Function<Object, Object> function = maskingFunction(columnIndex);
+        if (function == null) {
+            return delegate.getDate(columnIndex);
+        }
+        return maskedValue(columnIndex, function, java.sql.Date.class);
     }
 
     @Override
     public java.sql.Time getTime(int columnIndex) throws SQLException {
-        return delegate.getTime(columnIndex);
+        Function<Object, Object> function = maskingFunction(columnIndex);
+        if (function == null) {
+            return delegate.getTime(columnIndex);
+        }
+        return maskedValue(columnIndex, function, java.sql.Time.class);
     }
 
     @Override
     public java.sql.Timestamp getTimestamp(int columnIndex) throws SQLException {
-        return delegate.getTimestamp(columnIndex);
+        Function<Object, Object> function = maskingFunction(columnIndex);
+        if (function == null) {
+            return delegate.getTimestamp(columnIndex);
+        }
+        return maskedValue(columnIndex, function, java.sql.Timestamp.class);
     }
 
     @Override
     public java.io.Reader getCharacterStream(int columnIndex) throws SQLException {
-        return delegate.getCharacterStream(columnIndex);
+        if (maskingFunction(columnIndex) == null) {
+            return delegate.getCharacterStream(columnIndex);
+        }
+        return maskedReader(getString(columnIndex));
     }
 
     @Override
     public java.io.InputStream getAsciiStream(int columnIndex) throws SQLException {
-        return delegate.getAsciiStream(columnIndex);
+        Function<Object, Object> function = maskingFunction(columnIndex);
+        if (function == null) {
+            return delegate.getAsciiStream(columnIndex);
+        }
+        String value = maskedValue(columnIndex, function, String.class);
+        return value == null ? null : new ByteArrayInputStream(value.getBytes(StandardCharsets.US_ASCII));
     }
 
     @Override
     public java.io.InputStream getUnicodeStream(int columnIndex) throws SQLException {
+        if (maskingFunction(columnIndex) != null) {
+            throw new SQLFeatureNotSupportedException("脱敏列不支持 getUnicodeStream: 列 " + columnIndex);
+        }
         return delegate.getUnicodeStream(columnIndex);
     }
 
     @Override
     public java.io.InputStream getBinaryStream(int columnIndex) throws SQLException {
-        return delegate.getBinaryStream(columnIndex);
+        if (maskingFunction(columnIndex) == null) {
+            return delegate.getBinaryStream(columnIndex);
+        }
+        byte[] value = getBytes(columnIndex);
+        return value == null ? null : new ByteArrayInputStream(value);
     }
 
     @Override
     public String getNString(int columnIndex) throws SQLException {
-        String value = delegate.getNString(columnIndex);
-        String columnName = metaData.getColumnName(columnIndex);
-        return (String) applyMasking(value, columnName);
+        Function<Object, Object> function = maskingFunction(columnIndex);
+        if (function == null) {
+            return delegate.getNString(columnIndex);
+        }
+        // 按原值脱敏，数值列（如 ROUND）按字符串读取时同样取整
+        return maskedValue(columnIndex, function, String.class);
     }
 
     @Override
     public java.io.Reader getNCharacterStream(int columnIndex) throws SQLException {
-        return delegate.getNCharacterStream(columnIndex);
+        if (maskingFunction(columnIndex) == null) {
+            return delegate.getNCharacterStream(columnIndex);
+        }
+        return maskedReader(getNString(columnIndex));
     }
 
     @Override
     public SQLXML getSQLXML(int columnIndex) throws SQLException {
-        return delegate.getSQLXML(columnIndex);
+        Function<Object, Object> function = maskingFunction(columnIndex);
+        if (function == null) {
+            return delegate.getSQLXML(columnIndex);
+        }
+        return maskedValue(columnIndex, function, SQLXML.class);
     }
 
     @Override
     public Object getObject(int columnIndex, Map<String, Class<?>> map) throws SQLException {
-        return delegate.getObject(columnIndex, map);
+        if (maskingFunction(columnIndex) == null) {
+            return delegate.getObject(columnIndex, map);
+        }
+        // 脱敏后的值不是自定义类型，不再按类型映射转换
+        return getObject(columnIndex);
     }
 
     @Override
     public <T> T getObject(int columnIndex, Class<T> type) throws SQLException {
-        return delegate.getObject(columnIndex, type);
+        Function<Object, Object> function = maskingFunction(columnIndex);
+        if (function == null) {
+            return delegate.getObject(columnIndex, type);
+        }
+        if (type == String.class) {
+            return type.cast(getString(columnIndex));
+        }
+        return maskedValue(columnIndex, function, type);
     }
 
     @Override
     public java.sql.Date getDate(int columnIndex, Calendar cal) throws SQLException {
-        return delegate.getDate(columnIndex, cal);
+        Function<Object, Object> function = maskingFunction(columnIndex);
+        if (function == null) {
+            return delegate.getDate(columnIndex, cal);
+        }
+        return maskedValue(columnIndex, function, java.sql.Date.class);
     }
 
     @Override
     public java.sql.Time getTime(int columnIndex, Calendar cal) throws SQLException {
-        return delegate.getTime(columnIndex, cal);
+        Function<Object, Object> function = maskingFunction(columnIndex);
+        if (function == null) {
+            return delegate.getTime(columnIndex, cal);
+        }
+        return maskedValue(columnIndex, function, java.sql.Time.class);
     }
 
     @Override
     public java.sql.Timestamp getTimestamp(int columnIndex, Calendar cal) throws SQLException {
-        return delegate.getTimestamp(columnIndex, cal);
+        Function<Object, Object> function = maskingFunction(columnIndex);
+        if (function == null) {
+            return delegate.getTimestamp(columnIndex, cal);
+        }
+        return maskedValue(columnIndex, function, java.sql.Timestamp.class);
     }
 
     @Override
     public BigDecimal getBigDecimal(int columnIndex, int scale) throws SQLException {
-        return delegate.getBigDecimal(columnIndex, scale);
+        Function<Object, Object> function = maskingFunction(columnIndex);
+        if (function == null) {
+            return delegate.getBigDecimal(columnIndex, scale);
+        }
+        BigDecimal value = maskedValue(columnIndex, function, BigDecimal.class);
+        return value == null ? null : value.setScale(scale, RoundingMode.HALF_UP);
     }
 
     @Override
     public BigDecimal getBigDecimal(int columnIndex) throws SQLException {
-        return delegate.getBigDecimal(columnIndex);
+        Function<Object, Object> function = maskingFunction(columnIndex);
+        if (function == null) {
+            return delegate.getBigDecimal(columnIndex);
+        }
+        return maskedValue(columnIndex, function, BigDecimal.class);
     }
 
     // 位置和导航方法
@@ -668,25 +841,41 @@ public class MaskingResultSet implements ResultSet {
     // 获取指定列索引对应的 Ref 对象
     @Override
     public Ref getRef(int columnIndex) throws SQLException {
-        return delegate.getRef(columnIndex);
+        Function<Object, Object> function = maskingFunction(columnIndex);
+        if (function == null) {
+            return delegate.getRef(columnIndex);
+        }
+        return maskedValue(columnIndex, function, Ref.class);
     }
 
     // 获取指定列索引对应的 Blob 对象
     @Override
     public Blob getBlob(int columnIndex) throws SQLException {
-        return delegate.getBlob(columnIndex);
+        Function<Object, Object> function = maskingFunction(columnIndex);
+        if (function == null) {
+            return delegate.getBlob(columnIndex);
+        }
+        return maskedValue(columnIndex, function, Blob.class);
     }
 
     // 获取指定列索引对应的 Clob 对象
     @Override
     public Clob getClob(int columnIndex) throws SQLException {
-        return delegate.getClob(columnIndex);
+        Function<Object, Object> function = maskingFunction(columnIndex);
+        if (function == null) {
+            return delegate.getClob(columnIndex);
+        }
+        return maskedValue(columnIndex, function, Clob.class);
     }
 
     // 获取指定列索引对应的 Array 对象
     @Override
     public Array getArray(int columnIndex) throws SQLException {
-        return delegate.getArray(columnIndex);
+        Function<Object, Object> function = maskingFunction(columnIndex);
+        if (function == null) {
+            return delegate.getArray(columnIndex);
+        }
+        return maskedValue(columnIndex, function, Array.class);
     }
 
     // 根据列名和类型映射获取对象
@@ -699,19 +888,31 @@ public class MaskingResultSet implements ResultSet {
     // 获取指定列索引对应的 URL 对象
     @Override
     public java.net.URL getURL(int columnIndex) throws SQLException {
-        return delegate.getURL(columnIndex);
+        Function<Object, Object> function = maskingFunction(columnIndex);
+        if (function == null) {
+            return delegate.getURL(columnIndex);
+        }
+        return maskedValue(columnIndex, function, java.net.URL.class);
     }
 
     // 获取指定列索引对应的 RowId 对象
     @Override
     public RowId getRowId(int columnIndex) throws SQLException {
-        return delegate.getRowId(columnIndex);
+        Function<Object, Object> function = maskingFunction(columnIndex);
+        if (function == null) {
+            return delegate.getRowId(columnIndex);
+        }
+        return maskedValue(columnIndex, function, RowId.class);
     }
 
     // 获取指定列索引对应的 NClob 对象
     @Override
     public NClob getNClob(int columnIndex) throws SQLException {
-        return delegate.getNClob(columnIndex);
+        Function<Object, Object> function = maskingFunction(columnIndex);
+        if (function == null) {
+            return delegate.getNClob(columnIndex);
+        }
+        return maskedValue(columnIndex, function, NClob.class);
     }
 
     // 获取指定列名对应的 NClob 对象
@@ -1137,10 +1338,79 @@ public class MaskingResultSet implements ResultSet {
     }
 
     // 内部辅助方法
-    private Object applyMasking(Object value, String columnName) {
-        if (value == null || !maskingFunctions.containsKey(columnName)) {
-            return value;
+    private Function<Object, Object> maskingFunction(int columnIndex) {
+        int i = columnIndex - 1;
+        return i >= 0 && i < maskingFunctions.length ? maskingFunctions[i] : null;
+    }
+
+    /**
+     * 脱敏列按 type 读取：原值经脱敏函数处理后再转换为 type，数值类型按脱敏后的值解析；
+     * 二进制原值与无法转换的类型抛出异常，不会返回原值
+     */
+    private <T> T maskedValue(int columnIndex, Function<Object, Object> function, Class<T> type) throws SQLException {
+        Object value = delegate.getObject(columnIndex);
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof byte[] || value instanceof Blob) {
+            throw new SQLFeatureNotSupportedException("脱敏列为二进制类型，不支持读取: 列 " + columnIndex);
+        }
+        Object masked = function.apply(value);
+        if (masked == null || type.isInstance(masked)) {
+            return type.cast(masked);
         }
-        return maskingFunctions.get(columnName).apply(value);
+        if (type == String.class) {
+            return type.cast(masked.toString());
+        }
+        if (type == byte[].class) {
+            return type.cast(masked.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        if (Number.class.isAssignableFrom(type) || type == Boolean.class) {
+            return type.cast(toNumber(columnIndex, masked, type));
+        }
+        throw new SQLFeatureNotSupportedException("脱敏列不支持按 " + type.getSimpleName() + " 读取: 列 " + columnIndex);
+    }
+
+    private static Object toNumber(int columnIndex, Object masked, Class<?> type) throws SQLException {
+        BigDecimal number;
+        try {
+            number = masked instanceof Double || masked instanceof Float
+                    ? BigDecimal.valueOf(((Number) masked).doubleValue())
+                    : new BigDecimal(masked.toString().trim());
+        } catch (NumberFormatException e) {
+            throw new SQLDataException("脱敏后的值不是数值，不能按 " + type.getSimpleName() + " 读取: 列 " + columnIndex);
+        }
+        if (type == Boolean.class) {
+            return number.signum() != 0;
+        }
+        if (type == Byte.class) {
+            return number.byteValue();
+        }
+        if (type == Short.class) {
+            return number.shortValue();
+        }
+        if (type == Integer.class) {
+            return number.intValue();
+        }
+        if (type == Long.class) {
+            return number.longValue();
+        }
+        if (type == Float.class) {
+            return number.floatValue();
+        }
+        if (type == Double.class) {
+            return number.doubleValue();
+        }
+        if (type == BigInteger.class) {
+            return number.toBigInteger();
+        }
+        if (type == BigDecimal.class) {
+            return number;
+        }
+        throw new SQLFeatureNotSupportedException("脱敏列不支持按 " + type.getSimpleName() + " 读取: 列 " + columnIndex);
+    }
+
+    private static java.io.Reader maskedReader(String value) {
+        return value == null ? null : new StringReader(value);
     }
-}
\ No newline at end of file
+}
@@ -2,19 +2,12 @@ package com.whosly.avacita.server.query.mask.rule;
 
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
-import java.util.Map;
-import java.util.function.Function;
 
 public class MaskingResultSetMetaData implements ResultSetMetaData {
     private final ResultSetMetaData delegate;
-    private final Map<String, Function<Object, Object>> maskingFunctions;
 
-    public MaskingResultSetMetaData(
-            ResultSetMetaData delegate,
-            Map<String, Function<Object, Object>> maskingFunctions
-    ) {
+    public MaskingResultSetMetaData(ResultSetMetaData delegate) {
         this.delegate = delegate;
-        this.maskingFunctions = maskingFunctions;
     }
 
     @Override public int getColumnCount() throws SQLException { return delegate.getColumnCount(); }
@@ -0,0 +1,60 @@
+package com.whosly.avacita.server.query.mask.metrics;
+
+import com.whosly.avacita.core.mask.metrics.MaskingMetrics;
+import com.whosly.avacita.core.mask.rule.MaskingRuleType;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Prometheus 文本格式导出测试
+ */
+public class MaskingMetricsHandlerTest {
+
+    @Test
+    void testFormat() {
+        MaskingMetrics metrics = new MaskingMetrics();
+        metrics.recordMaskedCells(MaskingRuleType.MASK_MIDDLE, 7);
+        metrics.recordFrame(5, false);
+        metrics.recordFrame(50, true);
+        metrics.recordPlanCache(true);
+        metrics.recordPlanCache(false);
+        metrics.recordMemo(4, 1);
+
+        List<String> lines = Arrays.asList(MaskingMetricsHandler.format(metrics).split("\n"));
+
+        assertTrue(lines.contains("# TYPE avacita_mask_masked_cells_total counter"));
+        assertTrue(lines.contains("avacita_mask_masked_cells_total{rule_type=\"mask_middle\"} 7"));
+        assertTrue(lines.contains("avacita_mask_masked_cells_total{rule_type=\"hash\"} 0"));
+        assertTrue(lines.contains("avacita_mask_frames_total{result=\"masked\"} 1"));
+        assertTrue(lines.contains("avacita_mask_frames_total{result=\"passthrough\"} 1"));
+        assertTrue(lines.contains("avacita_mask_plan_cache_total{result=\"hit\"} 1"));
+        assertTrue(lines.contains("avacita_mask_plan_cache_total{result=\"miss\"} 1"));
+        assertTrue(lines.contains("avacita_mask_memo_total{result=\"hit\"} 4"));
+        assertTrue(lines.contains("avacita_mask_memo_total{result=\"miss\"} 1"));
+
+        // 直方图：累计计数、+Inf 桶、_sum 与 _count
+        assertTrue(lines.contains("# TYPE avacita_mask_frame_rows histogram"));
+        assertTrue(lines.contains("avacita_mask_frame_rows_bucket{le=\"1\"} 0"));
+        assertTrue(lines.contains("avacita_mask_frame_rows_bucket{le=\"10\"} 1"));
+        assertTrue(lines.contains("avacita_mask_frame_rows_bucket{le=\"100\"} 2"));
+        assertTrue(lines.contains("avacita_mask_frame_rows_bucket{le=\"+Inf\"} 2"));
+        assertTrue(lines.contains("avacita_mask_frame_rows_sum 55"));
+        assertTrue(lines.contains("avacita_mask_frame_rows_count 2"));
+
+        // 耗时以秒导出
+        assertTrue(lines.contains("avacita_mask_phase_seconds_bucket{phase=\"compile\",le=\"0.00005\"} 0"));
+        assertTrue(lines.contains("avacita_mask_phase_seconds_bucket{phase=\"request\",le=\"10\"} 0"));
+        assertTrue(lines.contains("avacita_mask_phase_seconds_sum{phase=\"mask\"} 0"));
+
+        // 每个样本行都是 名称{标签} 值，或不带标签的 名称 值
+        List<String> samples = lines.stream().filter(line -> !line.startsWith("#")).collect(Collectors.toList());
+        for (String sample : samples) {
+            assertTrue(sample.matches("[a-z_]+(\\{[a-z_]+=\"[^\"]*\"(,[a-z_]+=\"[^\"]*\")*})? -?[0-9.]+"), sample);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.whosly.avacita.server.query.mask.mysql;
+
+import com.whosly.avacita.core.mask.jdbc.FakeDatabase;
+import com.whosly.avacita.core.mask.metrics.MaskingMetrics;
+import com.whosly.avacita.core.mask.rule.MaskingConfigMeta;
+import com.whosly.avacita.core.mask.rule.MaskingRuleConfig;
+import com.whosly.avacita.server.query.mask.MaskingOptions;
+import org.apache.calcite.avatica.ColumnMetaData;
+import org.apache.calcite.avatica.Meta;
+import org.apache.calcite.avatica.remote.TypedValue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 查询脱敏 JdbcMeta 测试：连接直接放入连接缓存（不经 openConnection 加载 MySQL schema），后端为 {@link FakeDatabase}
+ */
+public class MaskingJdbcMetaTest {
+
+    private static final String[][] EMP = {{"demo", "t_emp", "id"}, {"demo", "t_emp", "tel"}};
+    private static final String[][] DEPT = {{"demo", "t_dept", "id"}, {"demo", "t_dept", "dname"}};
+
+    private FakeDatabase db;
+    private MaskingMetrics metrics;
+    private MaskingJdbcMeta meta;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        db = new FakeDatabase();
+        db.addQuery("SELECT id, tel FROM t_emp", EMP, Collections.singletonList(new Object[]{"1", "13812345678"}));
+        db.addQuery("SELECT id, tel FROM t_emp WHERE id = 2", EMP, Collections.singletonList(new Object[]{"2", "13900000000"}));
+        db.addQuery("SELECT id, dname FROM t_dept", DEPT, Collections.singletonList(new Object[]{"1", "dev"}));
+
+        MaskingConfigMeta policy = new MaskingConfigMeta(List.of(
+                new MaskingRuleConfig("demo", "t_emp", "tel", "mask_middle", new String[]{"3", "4"})));
+        metrics = new MaskingMetrics();
+        meta = new MaskingJdbcMeta("jdbc:fake:", new Properties(), policy, MaskingOptions.defaults(), metrics) {
+            {
+                getConnectionCache().put("c1", db.connect());
+            }
+        };
+    }
+
+    @Test
+    void testPlanReusedAcrossExecutions() throws Exception {
+        Meta.ConnectionHandle ch = new Meta.ConnectionHandle("c1");
+
+        assertArrayEquals(new Object[]{"1", "138******5678"}, execute(ch, "SELECT id, tel FROM t_emp"));
+        assertEquals(1L, compiled());
+
+        // 同一 SQL、结果集列相同的不同 SQL 复用已编译的计划
+        assertArrayEquals(new Object[]{"1", "138******5678"}, execute(ch, "SELECT id, tel FROM t_emp"));
+        assertArrayEquals(new Object[]{"2", "139******0000"}, execute(ch, "SELECT id, tel FROM t_emp WHERE id = 2"));
+        assertEquals(1L, compiled());
+        assertTrue(metrics.getPlanCacheHits() >= 2);
+        assertEquals(1L, metrics.getPlanCacheMisses());
+
+        // 结果集列不同时单独编译
+        assertArrayEquals(new Object[]{"1", "dev"}, execute(ch, "SELECT id, dname FROM t_dept"));
+        assertEquals(2L, compiled());
+        assertEquals(4, db.statements.size());
+    }
+
+    @Test
+    void testPreparedStatementMasked() throws Exception {
+        db.setResult(EMP, List.of(new Object[]{"1", "13812345678"}, new Object[]{"2", "13900000000"}));
+        Meta.ConnectionHandle ch = new Meta.ConnectionHandle("c1");
+
+        // prepare 时按预编译语句的列元数据编译脱敏计划
+        Meta.StatementHandle sh = meta.prepare(ch, "SELECT id, tel FROM t_emp WHERE id > ?", -1);
+        assertEquals(1L, compiled());
+
+        Meta.ExecuteResult result = meta.execute(sh, List.of(TypedValue.ofLocal(ColumnMetaData.Rep.INTEGER, 0)), 1);
+        Meta.Frame firstFrame = result.resultSets.get(0).firstFrame;
+        assertArrayEquals(new Object[]{"1", "138******5678"}, (Object[]) firstFrame.rows.iterator().next());
+
+        // 远程 fetch 请求的 StatementHandle 不带 Signature，后续数据帧按缓存的计划脱敏
+        Meta.Frame frame = meta.fetch(new Meta.StatementHandle(ch.id, sh.id, null), 1, 10);
+        assertArrayEquals(new Object[]{"2", "139******0000"}, (Object[]) frame.rows.iterator().next());
+        assertEquals(1L, compiled());
+        assertEquals(1, db.executions.get());
+        meta.closeStatement(sh);
+    }
+
+    private long compiled() {
+        return metrics.getPhaseLatency(MaskingMetrics.Phase.COMPILE).getCount();
+    }
+
+    /**
+     * 在新语句上执行，返回首帧的第一行
+     */
+    private Object[] execute(Meta.ConnectionHandle ch, String sql) throws Exception {
+        Meta.StatementHandle sh = meta.createStatement(ch);
+        Meta.ExecuteResult result = meta.prepareAndExecute(sh, sql, -1, -1, null);
+        Object row = result.resultSets.get(0).firstFrame.rows.iterator().next();
+        meta.closeStatement(sh);
+        return (Object[]) row;
+    }
+}
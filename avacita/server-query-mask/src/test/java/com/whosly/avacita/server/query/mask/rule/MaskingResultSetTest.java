@@ -0,0 +1,144 @@
+package com.whosly.avacita.server.query.mask.rule;
+
+import com.whosly.avacita.core.mask.jdbc.FakeDatabase;
+import com.whosly.avacita.core.mask.rule.MaskingConfigMeta;
+import com.whosly.avacita.core.mask.rule.MaskingRuleConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JDBC 结果集脱敏包装测试
+ */
+public class MaskingResultSetTest {
+
+    /**
+     * t_emp.tel 与 t_other.tel 同名，只有 t_emp 的有规则
+     */
+    private static final String[][] COLUMNS = {
+            {"demo", "t_emp", "id"}, {"demo", "t_emp", "tel"}, {"demo", "t_other", "tel"}, {"demo", "t_emp", "email"}};
+
+    private MaskingConfigMeta maskingConfigMeta;
+
+    @BeforeEach
+    void setUp() {
+        maskingConfigMeta = new MaskingConfigMeta(List.of(
+                new MaskingRuleConfig("demo", "t_emp", "tel", "mask_middle", new String[]{"3", "4"}),
+                new MaskingRuleConfig("demo", "t_emp", "email", "mask_left", new String[]{"4"})));
+    }
+
+    @Test
+    void testSameNamedColumnsMaskedIndependently() throws SQLException {
+        ResultSet rs = wrap(new Object[]{"1", "13812345678", "13900000000", "tom@example.com"});
+
+        assertTrue(rs.next());
+        assertEquals("1", rs.getString(1));
+        assertEquals("138******5678", rs.getString(2));
+        assertEquals("13900000000", rs.getString(3));
+        assertEquals("138******5678", rs.getObject(2));
+        assertEquals("13900000000", rs.getObject(3));
+        assertFalse(rs.next());
+    }
+
+    @Test
+    void testTypedGetters() throws Exception {
+        ResultSet rs = wrap(new Object[]{"1", "13812345678", "13900000000", null});
+        assertTrue(rs.next());
+
+        assertEquals("138******5678", rs.getNString(2));
+        assertEquals("138******5678", new String(rs.getBytes(2), StandardCharsets.UTF_8));
+        assertEquals("138******5678", read(rs.getCharacterStream(2)));
+        assertEquals("138******5678", read(rs.getNCharacterStream(2)));
+        assertEquals("138******5678", rs.getObject(2, String.class));
+        // 按列名读取时按列位置找到第一个同名列
+        assertEquals("138******5678", rs.getString("tel"));
+
+        // 不脱敏的列原样读取
+        assertEquals("13900000000", rs.getNString(3));
+        assertEquals("13900000000", new String(rs.getBytes(3), StandardCharsets.UTF_8));
+        assertEquals("13900000000", read(rs.getCharacterStream(3)));
+
+        // null 值不脱敏
+        assertNull(rs.getString(4));
+        assertNull(rs.getBytes(4));
+        assertNull(rs.getCharacterStream(4));
+        assertTrue(rs.wasNull());
+    }
+
+    @Test
+    void testNonStringGettersMasked() throws Exception {
+        String[][] columns = {{"demo", "t_emp", "salary"}, {"demo", "t_emp", "tel"}, {"demo", "t_emp", "photo"}};
+        MaskingConfigMeta meta = new MaskingConfigMeta(List.of(
+                new MaskingRuleConfig("demo", "t_emp", "salary", "round", new String[]{"1000"}),
+                new MaskingRuleConfig("demo", "t_emp", "tel", "mask_middle", new String[]{"3", "4"}),
+                new MaskingRuleConfig("demo", "t_emp", "photo", "mask_full", new String[0])));
+        ResultSet rs = MaskingResultSet.wrap(FakeDatabase.resultSet(columns,
+                Collections.singletonList(new Object[]{12345.67d, "13812345678", new byte[]{1, 2, 3}})), meta);
+        assertTrue(rs.next());
+
+        // 数值按脱敏后的值转换
+        assertEquals(12000, rs.getInt(1));
+        assertEquals(12000L, rs.getLong("salary"));
+        assertEquals(12000d, rs.getDouble(1));
+        assertEquals(new BigDecimal("12000"), rs.getBigDecimal(1));
+        assertEquals(new BigDecimal("12000.00"), rs.getBigDecimal(1, 2));
+        assertEquals(12000, rs.getObject(1, Integer.class));
+        assertEquals("12000", rs.getString(1));
+
+        // 掩码不是数值，不能退回原值
+        assertThrows(SQLDataException.class, () -> rs.getInt(2));
+        assertThrows(SQLDataException.class, () -> rs.getObject(2, Long.class));
+        assertEquals("138******5678", new String(rs.getAsciiStream(2).readAllBytes(), StandardCharsets.US_ASCII));
+        assertEquals("138******5678", new String(rs.getBinaryStream(2).readAllBytes(), StandardCharsets.UTF_8));
+        assertEquals("138******5678", rs.getObject(2, Collections.emptyMap()));
+        assertThrows(SQLFeatureNotSupportedException.class, () -> rs.getClob(2));
+        assertThrows(SQLFeatureNotSupportedException.class, () -> rs.getNClob(2));
+        assertThrows(SQLFeatureNotSupportedException.class, () -> rs.getObject(2, LocalDate.class));
+
+        // 二进制值不按文本脱敏
+        assertThrows(SQLFeatureNotSupportedException.class, () -> rs.getBytes(3));
+        assertThrows(SQLFeatureNotSupportedException.class, () -> rs.getBinaryStream(3));
+    }
+
+    @Test
+    void testFunctionsByColumnName() throws SQLException {
+        ResultSet delegate = FakeDatabase.resultSet(COLUMNS, Collections.singletonList(new Object[]{"1", "a", "b", "c"}));
+        Map<String, Function<Object, Object>> functions = Map.of("tel", value -> "*");
+        ResultSet rs = new MaskingResultSet(delegate, delegate.getMetaData(), functions);
+
+        // 按列名指定时同名列使用同一个函数
+        assertTrue(rs.next());
+        assertEquals("1", rs.getString(1));
+        assertEquals("*", rs.getString(2));
+        assertEquals("*", rs.getString(3));
+        assertEquals("c", rs.getString(4));
+    }
+
+    private ResultSet wrap(Object[] row) throws SQLException {
+        return MaskingResultSet.wrap(FakeDatabase.resultSet(COLUMNS, Collections.singletonList(row)), maskingConfigMeta);
+    }
+
+    private static String read(Reader reader) throws IOException {
+        StringBuilder out = new StringBuilder();
+        int c;
+        while ((c = reader.read()) != -1) {
+            out.append((char) c);
+        }
+        return out.toString();
+    }
+}